@@ -0,0 +1,49 @@
+package com.atelie.ecommerce.api.admin;
+
+import com.atelie.ecommerce.application.service.catalog.feed.CatalogFeedService;
+import com.atelie.ecommerce.application.service.catalog.feed.FeedFormat;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Geração dos feeds do catálogo. Com {@code updatedSince} o feed é
+ * incremental; o {@code watermark} da resposta é a marca da próxima rodada.
+ */
+@RestController
+@RequestMapping("/api/admin/feeds")
+public class AdminCatalogFeedController {
+
+    private final CatalogFeedService feedService;
+
+    public AdminCatalogFeedController(CatalogFeedService feedService) {
+        this.feedService = feedService;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> generate(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedSince) {
+        try {
+            CatalogFeedService.GeneratedFeed feed = feedService.generate(FeedFormat.parse(format), updatedSince);
+            return ResponseEntity.ok(Map.of(
+                    "fileName", feed.fileName(),
+                    "url", "/api/feeds/" + feed.fileName(),
+                    "items", feed.items(),
+                    "sizeBytes", feed.sizeBytes(),
+                    "watermark", feed.watermark().toString(),
+                    "elapsedMs", feed.elapsedMs()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping
+    public List<CatalogFeedService.FeedFile> list() {
+        return feedService.list();
+    }
+}
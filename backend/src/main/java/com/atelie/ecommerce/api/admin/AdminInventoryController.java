@@ -0,0 +1,93 @@
+package com.atelie.ecommerce.api.admin;
+
+import com.atelie.ecommerce.application.service.inventory.HotSkuStockCounter;
+import com.atelie.ecommerce.application.service.inventory.InventoryCheckpointService;
+import com.atelie.ecommerce.application.service.inventory.InventoryPartitionService;
+import com.atelie.ecommerce.application.service.inventory.InventoryReconciler;
+import com.atelie.ecommerce.application.service.inventory.InventoryReconciliationReport;
+import com.atelie.ecommerce.domain.inventory.InventoryRollupRepository;
+import com.atelie.ecommerce.infrastructure.persistence.inventory.entity.InventoryMonthlyRollupEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Manutenção do razão de estoque: checkpoints, reconciliação, fechamentos
+ * mensais e arquivamento de partições sob demanda (os mesmos jobs também
+ * rodam agendados) e modo hot SKU. O modo hot vale
+ * para o nó que atende a chamada; HOT_SKU_VARIANTS liga em todos na subida.
+ */
+@RestController
+@RequestMapping("/api/admin/inventory")
+public class AdminInventoryController {
+
+    private final InventoryCheckpointService checkpointService;
+    private final InventoryReconciler reconciler;
+    private final HotSkuStockCounter hotSkuCounter;
+    private final InventoryPartitionService partitionService;
+    private final InventoryRollupRepository rollupRepository;
+
+    public AdminInventoryController(InventoryCheckpointService checkpointService, InventoryReconciler reconciler,
+            HotSkuStockCounter hotSkuCounter, InventoryPartitionService partitionService,
+            InventoryRollupRepository rollupRepository) {
+        this.checkpointService = checkpointService;
+        this.reconciler = reconciler;
+        this.hotSkuCounter = hotSkuCounter;
+        this.partitionService = partitionService;
+        this.rollupRepository = rollupRepository;
+    }
+
+    @PostMapping("/checkpoints")
+    public ResponseEntity<Map<String, Integer>> checkpoint() {
+        return ResponseEntity.ok(Map.of("created", checkpointService.createCheckpoints()));
+    }
+
+    @PostMapping("/reconciliation")
+    public ResponseEntity<InventoryReconciliationReport> reconcile() {
+        return ResponseEntity.ok(reconciler.reconcile());
+    }
+
+    @GetMapping("/reconciliation")
+    public ResponseEntity<InventoryReconciliationReport> lastReconciliation() {
+        return reconciler.lastReport()
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.noContent().build());
+    }
+
+    @PostMapping("/rollups")
+    public ResponseEntity<Map<String, Integer>> rollup() {
+        return ResponseEntity.ok(Map.of("created", partitionService.rollupClosedMonths(LocalDateTime.now())));
+    }
+
+    @GetMapping("/rollups/{variantId}")
+    public ResponseEntity<List<InventoryMonthlyRollupEntity>> rollups(@PathVariable UUID variantId) {
+        return ResponseEntity.ok(rollupRepository.findByVariantIdOrderByMonthStart(variantId));
+    }
+
+    @PostMapping("/partitions/archive")
+    public ResponseEntity<Map<String, List<String>>> archivePartitions() {
+        return ResponseEntity.ok(Map.of("archived", partitionService.archiveOldPartitions(LocalDateTime.now())));
+    }
+
+    @GetMapping("/hot-skus")
+    public ResponseEntity<Set<UUID>> hotSkus() {
+        return ResponseEntity.ok(hotSkuCounter.hotVariants());
+    }
+
+    @PutMapping("/hot-skus/{variantId}")
+    public ResponseEntity<Void> enableHotSku(@PathVariable UUID variantId) {
+        hotSkuCounter.enable(variantId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/hot-skus/{variantId}")
+    public ResponseEntity<Void> disableHotSku(@PathVariable UUID variantId) {
+        hotSkuCounter.disable(variantId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,9 +1,17 @@
 package com.atelie.ecommerce.api.admin;
 
+import com.atelie.ecommerce.application.service.order.OrderSearchFilter;
 import com.atelie.ecommerce.application.service.order.OrderService;
+import com.atelie.ecommerce.domain.order.OrderStatus;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.Map;
 
@@ -17,6 +25,40 @@ public class AdminOrderController {
         this.orderService = orderService;
     }
 
+    private static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Busca de pedidos por status, origem, cliente e período (datas em UTC,
+     * {@code to} inclusivo), paginada por cursor: {@code after} recebe o
+     * nextCursor da página anterior. Status e origem aceitam vários valores.
+     * Ex: ?status=PAID&status=SHIPPED&source=MERCADO_LIVRE&customer=silva&from=2026-01-01
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> search(
+            @RequestParam(required = false) List<String> status,
+            @RequestParam(required = false) List<String> source,
+            @RequestParam(required = false) String customer,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            Set<OrderStatus> statuses = new HashSet<>();
+            if (status != null) {
+                status.forEach(s -> statuses.add(OrderStatus.valueOf(s.trim().toUpperCase())));
+            }
+            OrderSearchFilter filter = new OrderSearchFilter(statuses,
+                    source != null ? new HashSet<>(source) : null,
+                    customer,
+                    from != null ? from.atStartOfDay().toInstant(ZoneOffset.UTC) : null,
+                    to != null ? to.plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC) : null);
+            int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+            return ResponseEntity.ok(orderService.searchOrders(filter, after, pageSize));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @PostMapping("/{id}/cancel")
     public ResponseEntity<Void> cancel(@PathVariable UUID id, @RequestBody(required = false) Map<String, String> body) {
         String reason = (body != null && body.containsKey("reason")) ? body.get("reason") : "Admin request";
@@ -0,0 +1,35 @@
+package com.atelie.ecommerce.api.admin;
+
+import com.atelie.ecommerce.api.admin.dto.BulkProductUpdateRequest;
+import com.atelie.ecommerce.application.service.catalog.product.bulk.ProductBulkUpdateService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Reprecificação e ajuste de estoque em massa (por SKU ou variantId), em
+ * lotes set-based em vez de uma chamada por produto/variante.
+ */
+@RestController
+@RequestMapping("/api/admin/products")
+public class AdminProductBulkUpdateController {
+
+    private final ProductBulkUpdateService bulkUpdateService;
+
+    public AdminProductBulkUpdateController(ProductBulkUpdateService bulkUpdateService) {
+        this.bulkUpdateService = bulkUpdateService;
+    }
+
+    @PostMapping("/bulk-update")
+    public ResponseEntity<?> bulkUpdate(@RequestBody BulkProductUpdateRequest request) {
+        try {
+            return ResponseEntity.ok(bulkUpdateService.apply(request.referenceId(), request.reason(), request.items()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.atelie.ecommerce.api.admin;
+
+import com.atelie.ecommerce.application.service.catalog.product.bulk.ProductImportReport;
+import com.atelie.ecommerce.application.service.catalog.product.bulk.ProductImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+/**
+ * Carga de coleções: importa produtos em massa a partir do corpo da
+ * requisição (text/csv ou application/x-ndjson), lido em streaming.
+ */
+@RestController
+@RequestMapping("/api/admin/products")
+public class AdminProductImportController {
+
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+    private final ProductImportService importService;
+
+    public AdminProductImportController(ProductImportService importService) {
+        this.importService = importService;
+    }
+
+    @PostMapping(value = "/import", consumes = { "text/csv", "application/x-ndjson" })
+    public ResponseEntity<ProductImportReport> importProducts(HttpServletRequest request) throws IOException {
+        ProductImportService.Format format = TEXT_CSV.isCompatibleWith(MediaType.parseMediaType(request.getContentType()))
+                ? ProductImportService.Format.CSV
+                : ProductImportService.Format.NDJSON;
+        return ResponseEntity.ok(importService.importStream(request.getInputStream(), format));
+    }
+}
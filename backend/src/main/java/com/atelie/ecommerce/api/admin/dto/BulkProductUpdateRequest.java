@@ -0,0 +1,15 @@
+package com.atelie.ecommerce.api.admin.dto;
+
+import com.atelie.ecommerce.application.service.catalog.product.bulk.BulkUpdateItem;
+
+import java.util.List;
+
+/**
+ * Corpo da atualização em massa. O referenceId identifica a carga (ex.: id da
+ * planilha do fornecedor): reenviar o mesmo referenceId não reaplica estoque.
+ */
+public record BulkProductUpdateRequest(
+        String referenceId,
+        String reason,
+        List<BulkUpdateItem> items
+) {}
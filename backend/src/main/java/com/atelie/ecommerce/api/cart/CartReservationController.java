@@ -0,0 +1,56 @@
+package com.atelie.ecommerce.api.cart;
+
+import com.atelie.ecommerce.api.cart.dto.CartReservationRequest;
+import com.atelie.ecommerce.application.service.inventory.StockLine;
+import com.atelie.ecommerce.application.service.inventory.StockReservationService;
+import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Reservas de estoque do carrinho. O cartId é gerado pelo cliente (UUID) e
+ * enviado de novo em POST /api/orders para converter as reservas no pedido.
+ * Exige login: o carrinho pertence ao usuário que reservou primeiro, e os
+ * limites por usuário ficam no StockReservationService.
+ */
+@RestController
+@RequestMapping("/api/cart/{cartId}/reservations")
+public class CartReservationController {
+
+    private final StockReservationService reservationService;
+
+    public CartReservationController(StockReservationService reservationService) {
+        this.reservationService = reservationService;
+    }
+
+    /** Reserva (ou ajusta) as quantidades do carrinho e renova o TTL; 409 com as faltas. */
+    @PutMapping
+    public ResponseEntity<?> reserve(@PathVariable UUID cartId, @RequestBody @Valid CartReservationRequest request,
+            Principal principal) {
+        List<StockLine> lines = request.items().stream()
+                .map(i -> new StockLine(i.variantId(), i.quantity()))
+                .toList();
+        try {
+            return ResponseEntity.ok(reservationService.reserve(cartId, principal.getName(), lines));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<List<StockReservationService.ActiveReservation>> list(@PathVariable UUID cartId,
+            Principal principal) {
+        return ResponseEntity.ok(reservationService.active(cartId, principal.getName()));
+    }
+
+    @DeleteMapping
+    public ResponseEntity<Void> release(@PathVariable UUID cartId, Principal principal) {
+        reservationService.release(cartId, principal.getName());
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,11 @@
+package com.atelie.ecommerce.api.cart.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.UUID;
+
+public record CartReservationItem(
+    @NotNull UUID variantId,
+    @NotNull @Min(1) Integer quantity
+) {}
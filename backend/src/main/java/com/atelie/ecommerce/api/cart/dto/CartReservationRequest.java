@@ -0,0 +1,12 @@
+package com.atelie.ecommerce.api.cart.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+public record CartReservationRequest(
+    @NotEmpty(message = "Lista de itens não pode ser vazia")
+    @Valid
+    List<CartReservationItem> items
+) {}
@@ -3,6 +3,7 @@ package com.atelie.ecommerce.api.catalog.category;
 import com.atelie.ecommerce.api.catalog.category.dto.CreateCategoryRequest;
 import com.atelie.ecommerce.api.catalog.category.dto.CategoryResponse;
 import com.atelie.ecommerce.api.common.dto.ErrorResponse;
+import com.atelie.ecommerce.api.common.http.ContentVersion;
 import com.atelie.ecommerce.application.service.catalog.category.CategoryService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -12,7 +13,9 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -42,8 +45,12 @@ public class CategoryController {
     @GetMapping
     @Operation(summary = "Listar categorias", description = "Retorna todas as categorias cadastradas")
     @ApiResponse(responseCode = "200", description = "Lista de categorias retornada com sucesso")
-    public List<CategoryResponse> list() {
-        return service.list();
+    public ResponseEntity<List<CategoryResponse>> list(WebRequest webRequest) {
+        ContentVersion version = service.listVersion();
+        if (version.isNotModified(webRequest)) {
+            return version.notModified();
+        }
+        return version.ok(service.list());
     }
 
     @DeleteMapping("/{id}")
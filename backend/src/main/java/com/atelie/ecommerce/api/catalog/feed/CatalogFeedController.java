@@ -0,0 +1,59 @@
+package com.atelie.ecommerce.api.catalog.feed;
+
+import com.atelie.ecommerce.application.service.catalog.feed.CatalogFeedService;
+import com.atelie.ecommerce.application.service.catalog.feed.FeedFormat;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Download público dos feeds gerados. O corpo é um Resource em disco, então
+ * o Spring atende requisições Range (206) e HEAD sem carregar o arquivo.
+ */
+@RestController
+@RequestMapping("/api/feeds")
+public class CatalogFeedController {
+
+    // Arquivos com carimbo de data não mudam; o alias "catalog.{ext}" muda a cada geração.
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+    private static final CacheControl LATEST = CacheControl.maxAge(15, TimeUnit.MINUTES).cachePublic();
+
+    private final CatalogFeedService feedService;
+
+    public CatalogFeedController(CatalogFeedService feedService) {
+        this.feedService = feedService;
+    }
+
+    @GetMapping("/catalog.{extension}")
+    public ResponseEntity<Resource> latest(@PathVariable String extension) {
+        FeedFormat format;
+        try {
+            format = FeedFormat.parse(extension);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+        return serve(feedService.latestFull(format), format, LATEST);
+    }
+
+    @GetMapping("/{fileName:catalog-.+}")
+    public ResponseEntity<Resource> download(@PathVariable String fileName) {
+        return serve(feedService.load(fileName), FeedFormat.fromFileName(fileName), IMMUTABLE);
+    }
+
+    private static ResponseEntity<Resource> serve(Optional<Resource> resource, FeedFormat format, CacheControl cache) {
+        return resource
+                .map(r -> ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType(format.contentType()))
+                        .cacheControl(cache)
+                        .body(r))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -3,7 +3,6 @@ package com.atelie.ecommerce.api.catalog.product;
 import com.atelie.ecommerce.application.service.ai.AiContentService;
 import com.atelie.ecommerce.application.service.catalog.product.ProductService;
 import com.atelie.ecommerce.infrastructure.persistence.product.entity.ProductEntity;
-import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -16,14 +15,11 @@ public class ProductAiController {
 
     private final AiContentService aiService;
     private final ProductService productService;
-    private final ProductRepository productRepository;
 
     public ProductAiController(AiContentService aiService, 
-                               ProductService productService,
-                               ProductRepository productRepository) {
+                               ProductService productService) {
         this.aiService = aiService;
         this.productService = productService;
-        this.productRepository = productRepository;
     }
 
     @PostMapping("/{id}/ai/generate-description")
@@ -50,9 +46,8 @@ public class ProductAiController {
 
         String newUrl = aiService.removeImageBackground(product.getImageUrl());
         
-        // Atualiza automático
-        product.setImageUrl(newUrl);
-        productRepository.save(product); // Dispara evento de sync também!
+        // Atualiza automático (dispara evento de sync e invalida o cache)
+        productService.updateMainImage(id, newUrl);
 
         return ResponseEntity.ok(Map.of("newImageUrl", newUrl));
     }
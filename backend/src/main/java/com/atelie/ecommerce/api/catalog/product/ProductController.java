@@ -1,12 +1,16 @@
 package com.atelie.ecommerce.api.catalog.product;
 
+import com.atelie.ecommerce.api.catalog.product.dto.ProductSummary;
+import com.atelie.ecommerce.api.common.http.ContentVersion;
 import com.atelie.ecommerce.infrastructure.persistence.product.entity.ProductEntity;
 import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository;
 import com.atelie.ecommerce.application.service.catalog.product.ProductService;
 import com.atelie.ecommerce.infrastructure.service.media.MediaStorageService;
 
+import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDateTime;
@@ -34,30 +38,74 @@ public class ProductController {
             @RequestParam(required = false) String slug,
             @RequestParam(required = false) UUID categoryId,
             @RequestParam(required = false) String q,
-            org.springframework.data.domain.Pageable pageable) {
+            @RequestParam(required = false) String after,
+            org.springframework.data.domain.Pageable pageable,
+            WebRequest webRequest) {
+
+        // GET condicional: responde 304 antes de consultar/serializar a listagem
+        ContentVersion version = productService.catalogVersion("list", slug, categoryId, q, after, pageable);
+        if (version.isNotModified(webRequest)) {
+            return version.notModified();
+        }
 
         if (slug != null) {
-            return productRepository.findBySlug(slug)
-                    .map(ResponseEntity::ok)
+            return productService.findBySlug(slug)
+                    .<ResponseEntity<?>>map(version::ok)
                     .orElse(ResponseEntity.notFound().build());
         }
 
+        // Cursor opt-in (after vazio = primeira página): sem OFFSET nem count
+        if (after != null && (q == null || q.isBlank())) {
+            try {
+                return version.ok(productService.listByCursor(categoryId, after, pageable.getPageSize()));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(java.util.Map.of("error", e.getMessage()));
+            }
+        }
+
         if (categoryId != null) {
-            return ResponseEntity.ok(productRepository.findByCategory_Id(categoryId, pageable));
+            return version.ok(productRepository.findByCategory_Id(categoryId, pageable));
         }
 
         if (q != null && !q.isBlank()) {
-            return ResponseEntity.ok(productService.searchProducts(q, pageable));
+            return version.ok(productService.searchProducts(q, pageable));
         }
 
-        return ResponseEntity.ok(productRepository.findAll(pageable));
+        return version.ok(productRepository.findAll(pageable));
+    }
+
+    /**
+     * Listagem leve para a vitrine (cards): id, slug, nome, faixa de preço,
+     * imagem principal e disponibilidade, sem serializar o grafo da entidade.
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<Page<ProductSummary>> getSummaries(
+            @RequestParam(required = false) UUID categoryId,
+            org.springframework.data.domain.Pageable pageable,
+            WebRequest webRequest) {
+        ContentVersion version = productService.catalogVersion("summary", categoryId, pageable);
+        if (version.isNotModified(webRequest)) {
+            return version.notModified();
+        }
+        return version.ok(productService.listSummaries(categoryId, pageable));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ProductEntity> getById(@PathVariable UUID id) {
-        return productRepository.findById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<ProductEntity> getById(@PathVariable UUID id, WebRequest webRequest) {
+        // Versão vem de uma consulta agregada; o grafo só é carregado se mudou
+        ContentVersion version = productService.productVersion(id).orElse(null);
+        if (version == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (version.isNotModified(webRequest)) {
+            return version.notModified();
+        }
+        try {
+            // Corpo conferido contra a versão: cache defasado é recarregado
+            return version.ok(productService.findById(id, version));
+        } catch (com.atelie.ecommerce.api.common.exception.NotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
     }
 
     @PostMapping
@@ -166,10 +214,11 @@ public class ProductController {
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable UUID id) {
-        if (productRepository.existsById(id)) {
-            productRepository.deleteById(id);
+        try {
+            productService.deleteProduct(id);
             return ResponseEntity.noContent().build();
+        } catch (com.atelie.ecommerce.api.common.exception.NotFoundException e) {
+            return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.notFound().build();
     }
 }
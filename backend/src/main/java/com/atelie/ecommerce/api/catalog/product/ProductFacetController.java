@@ -0,0 +1,92 @@
+package com.atelie.ecommerce.api.catalog.product;
+
+import com.atelie.ecommerce.api.catalog.product.dto.FacetSearchResponse;
+import com.atelie.ecommerce.application.service.catalog.facet.CatalogFacetIndex;
+import com.atelie.ecommerce.application.service.catalog.facet.FacetFilter;
+import com.atelie.ecommerce.application.service.catalog.facet.FacetResult;
+import com.atelie.ecommerce.application.service.catalog.product.ProductService;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Filtro combinado da vitrine (categoria, atributos, faixa de preço, estoque)
+ * respondido pelo índice em memória.
+ *
+ * Semântica dos parâmetros: OR entre valores da mesma dimensão, AND entre
+ * dimensões. Ex: ?categoryId=A&categoryId=B&attr=cor:azul&attr=tamanho:m&price=50-100
+ */
+@RestController
+@RequestMapping("/api/products/facets")
+public class ProductFacetController {
+
+    private final CatalogFacetIndex facetIndex;
+    private final ProductService productService;
+
+    public ProductFacetController(CatalogFacetIndex facetIndex, ProductService productService) {
+        this.facetIndex = facetIndex;
+        this.productService = productService;
+    }
+
+    @GetMapping
+    public ResponseEntity<?> search(
+            @RequestParam(required = false) List<UUID> categoryId,
+            @RequestParam(required = false) List<String> attr,
+            @RequestParam(required = false) List<String> price,
+            @RequestParam(required = false) Boolean inStock,
+            Pageable pageable) {
+
+        FacetResult result;
+        try {
+            FacetFilter filter = buildFilter(categoryId, attr, price, inStock);
+            result = facetIndex.query(filter, (int) pageable.getOffset(), pageable.getPageSize());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        return ResponseEntity.ok(new FacetSearchResponse(
+                productService.findSummaries(result.productIds()),
+                result.total(),
+                pageable.getPageNumber(),
+                pageable.getPageSize(),
+                result.categories(),
+                result.priceBuckets(),
+                result.inStock(),
+                result.attributes()));
+    }
+
+    private FacetFilter buildFilter(List<UUID> categoryIds, List<String> attrs, List<String> prices, Boolean inStock) {
+        List<FacetFilter> clauses = new ArrayList<>();
+
+        if (categoryIds != null && !categoryIds.isEmpty()) {
+            clauses.add(FacetFilter.or(categoryIds.stream().<FacetFilter>map(FacetFilter.Category::new).toList()));
+        }
+        if (attrs != null && !attrs.isEmpty()) {
+            Map<String, List<FacetFilter>> byKey = new LinkedHashMap<>();
+            for (String raw : attrs) {
+                int sep = raw.indexOf(':');
+                if (sep <= 0 || sep == raw.length() - 1) {
+                    throw new IllegalArgumentException("Atributo inválido (use chave:valor): " + raw);
+                }
+                String key = raw.substring(0, sep).trim().toLowerCase();
+                byKey.computeIfAbsent(key, k -> new ArrayList<>())
+                        .add(new FacetFilter.Attribute(key, raw.substring(sep + 1)));
+            }
+            byKey.values().forEach(values -> clauses.add(FacetFilter.or(values)));
+        }
+        if (prices != null && !prices.isEmpty()) {
+            clauses.add(FacetFilter.or(prices.stream().<FacetFilter>map(FacetFilter.PriceBucket::new).toList()));
+        }
+        if (Boolean.TRUE.equals(inStock)) {
+            clauses.add(new FacetFilter.InStock());
+        }
+
+        return clauses.isEmpty() ? FacetFilter.all() : FacetFilter.and(clauses);
+    }
+}
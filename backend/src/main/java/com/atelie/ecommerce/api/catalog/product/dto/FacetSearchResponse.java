@@ -0,0 +1,21 @@
+package com.atelie.ecommerce.api.catalog.product.dto;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Página da vitrine filtrada pelo índice de facetas, com as contagens de
+ * cada faceta dentro do resultado (para montar os filtros laterais).
+ */
+public record FacetSearchResponse(
+        List<ProductSummary> content,
+        int totalElements,
+        int page,
+        int size,
+        Map<UUID, Integer> categories,
+        Map<String, Integer> priceBuckets,
+        int inStock,
+        Map<String, Map<String, Integer>> attributes
+) {
+}
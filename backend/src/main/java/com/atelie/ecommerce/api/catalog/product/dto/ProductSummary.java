@@ -0,0 +1,30 @@
+package com.atelie.ecommerce.api.catalog.product.dto;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Projeção enxuta usada nas listagens da vitrine.
+ *
+ * Montada direto da consulta (sem carregar o grafo ProductEntity/variantes):
+ * faixa de preço e disponibilidade são calculadas no banco; a imagem
+ * principal vem de uma segunda consulta por lote de IDs.
+ */
+public record ProductSummary(
+        UUID id,
+        String slug,
+        String name,
+        BigDecimal minPrice,
+        BigDecimal maxPrice,
+        String imageUrl,
+        boolean inStock
+) {
+    /** Construtor usado pela consulta JPQL (imagem preenchida depois). */
+    public ProductSummary(UUID id, String slug, String name, BigDecimal minPrice, BigDecimal maxPrice, Boolean inStock) {
+        this(id, slug, name, minPrice, maxPrice, null, Boolean.TRUE.equals(inStock));
+    }
+
+    public ProductSummary withImageUrl(String imageUrl) {
+        return new ProductSummary(id, slug, name, minPrice, maxPrice, imageUrl, inStock);
+    }
+}
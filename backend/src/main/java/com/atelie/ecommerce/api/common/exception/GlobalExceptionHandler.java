@@ -10,6 +10,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -88,6 +89,32 @@ public class GlobalExceptionHandler {
                 return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
         }
 
+        /**
+         * Trata falta de estoque no pedido.
+         * Retorna 409 Conflict com o saldo disponível por variante em falta.
+         */
+        @ExceptionHandler(InsufficientStockException.class)
+        public ResponseEntity<ErrorResponse> handleInsufficientStock(
+                        InsufficientStockException ex,
+                        HttpServletRequest request) {
+
+                Map<String, String> errors = new LinkedHashMap<>();
+                ex.getShortages().forEach(s -> errors.put(
+                                s.sku() != null ? s.sku() : s.variantId().toString(),
+                                "solicitado " + s.requested() + ", disponível " + s.available()));
+
+                ErrorResponse response = ErrorResponse.builder()
+                                .type("about:blank")
+                                .title("Estoque Insuficiente")
+                                .status(HttpStatus.CONFLICT.value())
+                                .detail(ex.getMessage())
+                                .instance(request.getRequestURI())
+                                .errors(errors)
+                                .build();
+
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+
         /**
          * Trata conflitos genéricos.
          * Retorna 409 Conflict.
@@ -0,0 +1,27 @@
+package com.atelie.ecommerce.api.common.exception;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * InsufficientStockException.
+ *
+ * Estoque insuficiente para um ou mais itens do pedido; {@link #getShortages()}
+ * lista todos os itens em falta, não só o primeiro.
+ */
+public class InsufficientStockException extends ConflictException {
+
+    public record Shortage(UUID variantId, String sku, int requested, int available) {
+    }
+
+    private final List<Shortage> shortages;
+
+    public InsufficientStockException(List<Shortage> shortages) {
+        super("Estoque insuficiente para " + shortages.size() + " item(ns) do pedido");
+        this.shortages = List.copyOf(shortages);
+    }
+
+    public List<Shortage> getShortages() {
+        return shortages;
+    }
+}
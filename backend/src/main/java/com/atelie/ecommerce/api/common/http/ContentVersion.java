@@ -0,0 +1,83 @@
+package com.atelie.ecommerce.api.common.http;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+
+/**
+ * Versão de conteúdo de uma resposta GET (ETag forte + Last-Modified),
+ * calculada a partir de consultas baratas (timestamps/contagens) antes de
+ * carregar as entidades.
+ *
+ * Uso no controller:
+ * <pre>
+ * ContentVersion version = service.xxxVersion();
+ * if (version.isNotModified(request)) return version.notModified();
+ * return version.ok(service.load());
+ * </pre>
+ */
+public record ContentVersion(String etag, Instant lastModified) {
+
+    /** Pode ser guardado por browser/CDN, mas sempre revalidado (barato: 304). */
+    public static final CacheControl REVALIDATE = CacheControl.noCache().cachePublic();
+
+    /**
+     * @param lastModified instante da última alteração conhecida (pode ser nulo)
+     * @param parts        demais componentes da versão (contagens, somas, ids)
+     */
+    public static ContentVersion of(Instant lastModified, Object... parts) {
+        StringBuilder raw = new StringBuilder(String.valueOf(lastModified));
+        for (Object part : parts) {
+            raw.append('|').append(part);
+        }
+        Instant seconds = (lastModified != null ? lastModified : Instant.EPOCH).truncatedTo(ChronoUnit.SECONDS);
+        return new ContentVersion("\"" + digest(raw.toString()) + "\"", seconds);
+    }
+
+    /** Timestamps das entidades são LocalDateTime no fuso da JVM. */
+    public static Instant toInstant(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.atZone(ZoneId.systemDefault()).toInstant() : null;
+    }
+
+    public static Instant latest(Instant a, Instant b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null || a.isAfter(b) ? a : b;
+    }
+
+    /**
+     * Avalia If-None-Match / If-Modified-Since. Também grava ETag e
+     * Last-Modified na resposta.
+     */
+    public boolean isNotModified(WebRequest request) {
+        return request.checkNotModified(etag, lastModified.toEpochMilli());
+    }
+
+    public <T> ResponseEntity<T> notModified() {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE).build();
+    }
+
+    public <T> ResponseEntity<T> ok(T body) {
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(body);
+    }
+
+    private static String digest(String raw) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(raw.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
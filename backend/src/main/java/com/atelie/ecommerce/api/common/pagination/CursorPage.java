@@ -0,0 +1,27 @@
+package com.atelie.ecommerce.api.common.pagination;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Página de uma listagem por cursor: sem total (não há count), apenas o
+ * cursor da próxima página, nulo quando esta é a última.
+ */
+public record CursorPage<T>(List<T> content, int size, String nextCursor) {
+
+    /**
+     * Monta a página a partir de uma consulta que buscou {@code size + 1}
+     * linhas: a linha extra só indica que existe próxima página.
+     */
+    public static <T> CursorPage<T> fromLookahead(List<T> rows, int size, Function<T, SeekCursor> cursorOf) {
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, size, null);
+        }
+        List<T> content = rows.subList(0, size);
+        return new CursorPage<>(List.copyOf(content), size, cursorOf.apply(content.get(size - 1)).encode());
+    }
+
+    public <R> CursorPage<R> map(Function<T, R> mapper) {
+        return new CursorPage<>(content.stream().map(mapper).toList(), size, nextCursor);
+    }
+}
@@ -0,0 +1,50 @@
+package com.atelie.ecommerce.api.common.pagination;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Posição de uma listagem ordenada por (created_at DESC, id DESC).
+ *
+ * Exposto ao cliente como token opaco (base64url de "segundos.nanos|id");
+ * o cliente só devolve o valor recebido em {@code nextCursor}.
+ */
+public record SeekCursor(Instant createdAt, UUID id) {
+
+    public static SeekCursor of(LocalDateTime createdAt, UUID id) {
+        return new SeekCursor(createdAt.toInstant(ZoneOffset.UTC), id);
+    }
+
+    public LocalDateTime createdAtLocal() {
+        return LocalDateTime.ofInstant(createdAt, ZoneOffset.UTC);
+    }
+
+    public String encode() {
+        String raw = createdAt.getEpochSecond() + "." + createdAt.getNano() + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException se o token não foi gerado por {@link #encode()}.
+     */
+    public static SeekCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int bar = raw.indexOf('|');
+            int dot = raw.indexOf('.');
+            if (bar < 0 || dot < 0 || dot > bar) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            Instant createdAt = Instant.ofEpochSecond(
+                    Long.parseLong(raw.substring(0, dot)),
+                    Long.parseLong(raw.substring(dot + 1, bar)));
+            return new SeekCursor(createdAt, UUID.fromString(raw.substring(bar + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+}
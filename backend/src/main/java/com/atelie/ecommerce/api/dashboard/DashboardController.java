@@ -1,6 +1,7 @@
 package com.atelie.ecommerce.api.dashboard;
 
 import com.atelie.ecommerce.application.service.integration.N8nService;
+import com.atelie.ecommerce.application.service.inventory.LowStockDetector;
 import com.atelie.ecommerce.infrastructure.persistence.order.OrderRepository;
 import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository;
 import org.springframework.http.ResponseEntity;
@@ -10,6 +11,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import java.math.BigDecimal;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -19,13 +21,16 @@ public class DashboardController {
     private final ProductRepository productRepository;
     private final OrderRepository orderRepository;
     private final N8nService n8nService;
+    private final LowStockDetector lowStockDetector;
 
     public DashboardController(ProductRepository productRepository,
                               OrderRepository orderRepository,
-                              N8nService n8nService) {
+                              N8nService n8nService,
+                              LowStockDetector lowStockDetector) {
         this.productRepository = productRepository;
         this.orderRepository = orderRepository;
         this.n8nService = n8nService;
+        this.lowStockDetector = lowStockDetector;
     }
 
     @GetMapping("/summary")
@@ -34,7 +39,8 @@ public class DashboardController {
         BigDecimal totalSales = orderRepository.sumTotalSales();
         if (totalSales == null) totalSales = BigDecimal.ZERO;
         long pendingOrders = orderRepository.countPendingOrders();
-        int lowStockAlerts = productRepository.findCriticalStock().size();
+        // Conjunto mantido em memória pelo LowStockDetector: sem varrer produtos
+        int lowStockAlerts = lowStockDetector.lowStockCount();
 
         Map<String, Object> summary = new HashMap<>();
         summary.put("totalProducts", totalProducts);
@@ -45,6 +51,11 @@ public class DashboardController {
         return ResponseEntity.ok(summary);
     }
 
+    @GetMapping("/low-stock")
+    public ResponseEntity<List<LowStockDetector.LowStockEntry>> getLowStock() {
+        return ResponseEntity.ok(lowStockDetector.lowStock());
+    }
+
     @GetMapping("/automation/status")
     public ResponseEntity<Map<String, Boolean>> getAutomationStatus() {
         return ResponseEntity.ok(Map.of("enabled", n8nService.isAutomationEnabled()));
@@ -1,6 +1,7 @@
 package com.atelie.ecommerce.api.dashboard;
 
 import com.atelie.ecommerce.api.catalog.product.dto.ProductResponse;
+import com.atelie.ecommerce.application.service.catalog.product.ProductService;
 import com.atelie.ecommerce.infrastructure.persistence.product.entity.ProductEntity;
 import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository;
 import org.springframework.http.ResponseEntity;
@@ -14,9 +15,11 @@ import java.util.stream.Collectors;
 public class ProductManagementController {
 
     private final ProductRepository productRepository;
+    private final ProductService productService;
 
-    public ProductManagementController(ProductRepository productRepository) {
+    public ProductManagementController(ProductRepository productRepository, ProductService productService) {
         this.productRepository = productRepository;
+        this.productService = productService;
     }
 
     @GetMapping
@@ -43,10 +46,8 @@ public class ProductManagementController {
 
     @PutMapping("/{id}/toggle-alert")
     public ResponseEntity<ProductResponse> toggleAlert(@PathVariable UUID id) {
-        ProductEntity product = productRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Produto não encontrado"));
-        product.setAlertEnabled(!Boolean.TRUE.equals(product.getAlertEnabled()));
-        ProductEntity saved = productRepository.save(product);
-        return ResponseEntity.ok(toResponse(saved));
+        // Passa pelo service para publicar ProductSavedEvent (invalida o cache da vitrine)
+        productService.toggleAlert(id);
+        return ResponseEntity.ok(toResponse(productService.findById(id)));
     }
 }
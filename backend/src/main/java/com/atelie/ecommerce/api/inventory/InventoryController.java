@@ -1,12 +1,17 @@
 package com.atelie.ecommerce.api.inventory;
 
 import com.atelie.ecommerce.api.inventory.dto.InventoryAdjustmentRequest;
+import com.atelie.ecommerce.api.inventory.dto.InventoryAvailabilityRequest;
 import com.atelie.ecommerce.api.inventory.dto.InventoryBalanceResponse;
+import com.atelie.ecommerce.api.inventory.dto.InventoryBatchRequest;
+import com.atelie.ecommerce.application.service.inventory.InventoryBatchService;
 import com.atelie.ecommerce.application.service.inventory.InventoryService;
+import com.atelie.ecommerce.application.service.inventory.StockAvailabilityService;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
 import java.util.UUID;
 
 @RestController
@@ -14,9 +19,15 @@ import java.util.UUID;
 public class InventoryController {
 
     private final InventoryService inventoryService;
+    private final InventoryBatchService batchService;
+    private final StockAvailabilityService availabilityService;
 
-    public InventoryController(InventoryService inventoryService) {
+    public InventoryController(InventoryService inventoryService,
+            InventoryBatchService batchService,
+            StockAvailabilityService availabilityService) {
         this.inventoryService = inventoryService;
+        this.batchService = batchService;
+        this.availabilityService = availabilityService;
     }
 
     @GetMapping("/{variantId}")
@@ -40,4 +51,30 @@ public class InventoryController {
         );
         return ResponseEntity.ok().build();
     }
+
+    /**
+     * Movimenta várias variantes em uma transação; resultado por linha
+     * (APPLIED, DUPLICATE pela chave variante+tipo+referenceId, FAILED).
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> adjustStockBatch(@RequestBody InventoryBatchRequest request) {
+        try {
+            return ResponseEntity.ok(batchService.apply(request.items()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Disponível para venda de muitas variantes em uma chamada (carrinho e
+     * listagens): {variantId: quantidade}; ids inexistentes ficam de fora.
+     */
+    @PostMapping("/availability")
+    public ResponseEntity<?> getAvailability(@RequestBody InventoryAvailabilityRequest request) {
+        try {
+            return ResponseEntity.ok(availabilityService.availability(request.variantIds()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
 }
@@ -0,0 +1,8 @@
+package com.atelie.ecommerce.api.inventory.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+public record InventoryAvailabilityRequest(
+    List<UUID> variantIds
+) {}
@@ -0,0 +1,13 @@
+package com.atelie.ecommerce.api.inventory.dto;
+
+import com.atelie.ecommerce.domain.inventory.MovementType;
+
+import java.util.UUID;
+
+public record InventoryBatchItem(
+    UUID variantId,
+    MovementType type,
+    Integer quantity,
+    String reason,
+    String referenceId
+) {}
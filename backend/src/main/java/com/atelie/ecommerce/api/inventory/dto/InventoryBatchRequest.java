@@ -0,0 +1,7 @@
+package com.atelie.ecommerce.api.inventory.dto;
+
+import java.util.List;
+
+public record InventoryBatchRequest(
+    List<InventoryBatchItem> items
+) {}
@@ -0,0 +1,18 @@
+package com.atelie.ecommerce.api.inventory.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+public record InventoryBatchResponse(
+    int total,
+    int applied,
+    int duplicates,
+    int failed,
+    List<Line> results
+) {
+
+    public enum Status { APPLIED, DUPLICATE, FAILED }
+
+    /** Resultado de cada linha, na ordem do pedido. */
+    public record Line(int index, UUID variantId, Status status, String error) {}
+}
@@ -2,15 +2,19 @@ package com.atelie.ecommerce.api.media;
 
 import com.atelie.ecommerce.infrastructure.service.media.MediaStorageService;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/media")
@@ -35,8 +39,17 @@ public class MediaController {
     public record MediaResponse(Long id, String url, String type, String filename) {
     }
 
+    // Assets são imutáveis (um upload = um id novo): cache de longo prazo e
+    // revalidação respondida só pelo id, sem tocar no banco nem no disco.
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+
     @GetMapping("/public/{id}")
-    public ResponseEntity<Resource> downloadPublic(@PathVariable("id") long id) {
+    public ResponseEntity<Resource> downloadPublic(@PathVariable("id") long id, WebRequest webRequest) {
+        String etag = "\"media-" + id + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(IMMUTABLE).build();
+        }
+
         Optional<Resource> opt = media.loadPublic(id);
         if (opt.isEmpty()) {
             return ResponseEntity.notFound().build();
@@ -65,6 +78,8 @@ public class MediaController {
         }
 
         ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(IMMUTABLE)
                 .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
                 .contentType(MediaType.parseMediaType(contentType));
 
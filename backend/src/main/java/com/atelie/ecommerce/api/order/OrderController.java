@@ -7,7 +7,6 @@ import com.atelie.ecommerce.application.service.order.OrderService;
 import com.atelie.ecommerce.domain.order.OrderStatus;
 import com.atelie.ecommerce.infrastructure.persistence.order.OrderEntity;
 import jakarta.validation.Valid;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
@@ -33,11 +32,23 @@ public class OrderController {
         return ResponseEntity.status(HttpStatus.CREATED).body(toResponse(created));
     }
 
+    /**
+     * Sem {@code after}: paginação por offset (com total). Com {@code after}
+     * (vazio = primeira página): paginação por cursor, retornando nextCursor.
+     */
     @GetMapping
-    public Page<OrderResponse> getAllOrders(
+    public ResponseEntity<?> getAllOrders(
+            @RequestParam(required = false) String after,
             @PageableDefault(size = 20, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable
     ) {
-        return orderService.getAllOrders(pageable).map(this::toResponse);
+        if (after != null) {
+            try {
+                return ResponseEntity.ok(orderService.getOrdersByCursor(after, pageable.getPageSize()));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(java.util.Map.of("error", e.getMessage()));
+            }
+        }
+        return ResponseEntity.ok(orderService.getAllOrders(pageable));
     }
 
     // Mapper Simples
@@ -45,7 +56,8 @@ public class OrderController {
         var items = entity.getItems().stream()
                 .map(i -> new OrderItemResponse(
                         i.getProduct().getId(),
-                        i.getProduct().getName(),
+                        // product_name gravado no pedido; pedidos antigos caem no produto
+                        i.getProductName() != null ? i.getProductName() : i.getProduct().getName(),
                         i.getQuantity(),
                         i.getUnitPrice(),
                         i.getTotalPrice()
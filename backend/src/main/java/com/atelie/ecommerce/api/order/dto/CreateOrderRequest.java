@@ -4,6 +4,7 @@ import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank; // Importante!
 import jakarta.validation.constraints.NotEmpty;
 import java.util.List;
+import java.util.UUID;
 
 public record CreateOrderRequest(
     @NotBlank(message = "Source é obrigatório") 
@@ -17,5 +18,11 @@ public record CreateOrderRequest(
     
     @NotEmpty(message = "Lista de itens não pode ser vazia") 
     @Valid 
-    List<CreateOrderItemRequest> items
-) {}
\ No newline at end of file
+    List<CreateOrderItemRequest> items,
+
+    UUID cartId // Opcional: converte as reservas de estoque do carrinho no pedido
+) {
+    public CreateOrderRequest(String source, String externalId, String customerName, List<CreateOrderItemRequest> items) {
+        this(source, externalId, customerName, items, null);
+    }
+}
\ No newline at end of file
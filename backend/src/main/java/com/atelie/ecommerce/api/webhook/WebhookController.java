@@ -1,5 +1,6 @@
 package com.atelie.ecommerce.api.webhook;
 
+import com.atelie.ecommerce.application.integration.mercadolivre.MercadoLivreOrderIngestion;
 import com.atelie.ecommerce.application.service.order.OrderService;
 import com.atelie.ecommerce.application.service.fiscal.InvoiceService;
 import com.atelie.ecommerce.infrastructure.persistence.order.OrderEntity;
@@ -7,6 +8,7 @@ import com.atelie.ecommerce.infrastructure.persistence.order.OrderRepository;
 import com.atelie.ecommerce.api.common.exception.NotFoundException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -23,15 +25,18 @@ public class WebhookController {
     private final OrderService orderService;
     private final OrderRepository orderRepository;
     private final InvoiceService invoiceService;
+    private final MercadoLivreOrderIngestion mercadoLivreIngestion;
 
     // CORREÇÃO: Sem default value. Deve vir do ambiente obrigatoriamente.
     @Value("${WEBHOOK_SECRET}")
     private String webhookSecret;
 
-    public WebhookController(OrderService orderService, OrderRepository orderRepository, InvoiceService invoiceService) {
+    public WebhookController(OrderService orderService, OrderRepository orderRepository, InvoiceService invoiceService,
+                             MercadoLivreOrderIngestion mercadoLivreIngestion) {
         this.orderService = orderService;
         this.orderRepository = orderRepository;
         this.invoiceService = invoiceService;
+        this.mercadoLivreIngestion = mercadoLivreIngestion;
     }
 
     @PostMapping("/mercadopago")
@@ -39,23 +44,8 @@ public class WebhookController {
             @RequestBody Map<String, Object> payload,
             @RequestHeader(value = "X-Webhook-Token", required = false) String token) {
         
-        // Fail-safe: Se a injeção falhar silenciosamente (raro, mas possível), loga erro crítico.
-        if (webhookSecret == null || webhookSecret.isBlank()) {
-            log.error("VIOLAÇÃO DE CONTRATO: WEBHOOK_SECRET não foi injetada pelo ambiente.");
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Configuration Error");
-        }
-
-        if (token == null) {
-            log.warn("Tentativa de acesso ao Webhook sem token.");
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Invalid Webhook Token");
-        }
-
-        byte[] a = token.getBytes(java.nio.charset.StandardCharsets.UTF_8);
-        byte[] b = webhookSecret.getBytes(java.nio.charset.StandardCharsets.UTF_8);
-        if (!java.security.MessageDigest.isEqual(a, b)) {
-            log.warn("Tentativa de acesso ao Webhook com token inválido.");
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Invalid Webhook Token");
-        }
+        ResponseEntity<?> denied = checkToken(token);
+        if (denied != null) return denied;
 
         // ... Lógica de processamento segue igual ...
         String orderIdStr = null;
@@ -90,6 +80,63 @@ public class WebhookController {
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * Notificações do Mercado Livre ({"resource": "/orders/123", "user_id": 456,
+     * "topic": "orders_v2"}). O ML não envia headers próprios: o token vem na
+     * query da URL de callback (?token=) ou no X-Webhook-Token.
+     *
+     * Só enfileira (MercadoLivreOrderIngestion) e responde: 200 aceito/repetido,
+     * 503 com Retry-After quando a fila está cheia, para o ML reenviar depois.
+     */
+    @PostMapping("/mercadolivre")
+    public ResponseEntity<?> handleMercadoLivre(
+            @RequestBody Map<String, Object> payload,
+            @RequestHeader(value = "X-Webhook-Token", required = false) String headerToken,
+            @RequestParam(value = "token", required = false) String queryToken) {
+
+        ResponseEntity<?> denied = checkToken(headerToken != null ? headerToken : queryToken);
+        if (denied != null) return denied;
+
+        String topic = String.valueOf(payload.getOrDefault("topic", ""));
+        String resource = String.valueOf(payload.getOrDefault("resource", ""));
+        int slash = resource.lastIndexOf('/');
+        if (!topic.startsWith("orders") || slash < 0 || slash == resource.length() - 1) {
+            return ResponseEntity.ok().build();
+        }
+        String orderId = resource.substring(slash + 1);
+        String accountId = String.valueOf(payload.getOrDefault("user_id", "default"));
+
+        MercadoLivreOrderIngestion.Admission admission = mercadoLivreIngestion.offer(accountId, orderId);
+        if (admission == MercadoLivreOrderIngestion.Admission.REJECTED) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body(Map.of("status", admission.name()));
+        }
+        return ResponseEntity.ok(Map.of("status", admission.name()));
+    }
+
+    /** null se o token confere com WEBHOOK_SECRET; senão, a resposta de recusa. */
+    private ResponseEntity<?> checkToken(String token) {
+        // Fail-safe: Se a injeção falhar silenciosamente (raro, mas possível), loga erro crítico.
+        if (webhookSecret == null || webhookSecret.isBlank()) {
+            log.error("VIOLAÇÃO DE CONTRATO: WEBHOOK_SECRET não foi injetada pelo ambiente.");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Configuration Error");
+        }
+
+        if (token == null) {
+            log.warn("Tentativa de acesso ao Webhook sem token.");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Invalid Webhook Token");
+        }
+
+        byte[] a = token.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        byte[] b = webhookSecret.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        if (!java.security.MessageDigest.isEqual(a, b)) {
+            log.warn("Tentativa de acesso ao Webhook com token inválido.");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Invalid Webhook Token");
+        }
+        return null;
+    }
+
     private void validatePaymentAmount(UUID orderId, Map<String, Object> payload) {
         if (payload.containsKey("transaction_amount")) {
             BigDecimal paidAmount = new BigDecimal(payload.get("transaction_amount").toString());
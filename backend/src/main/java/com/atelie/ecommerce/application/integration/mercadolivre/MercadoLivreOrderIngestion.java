@@ -0,0 +1,300 @@
+package com.atelie.ecommerce.application.integration.mercadolivre;
+
+import com.atelie.ecommerce.api.common.exception.ConflictException;
+import com.atelie.ecommerce.api.common.exception.InsufficientStockException;
+import com.atelie.ecommerce.api.order.dto.CreateOrderRequest;
+import com.atelie.ecommerce.application.service.order.OrderService;
+import com.atelie.ecommerce.domain.order.event.MercadoLivreOrderNotifiedEvent;
+import com.atelie.ecommerce.infrastructure.outbox.OutboxDelivery;
+import com.atelie.ecommerce.infrastructure.outbox.OutboxDispatcher;
+import com.atelie.ecommerce.infrastructure.outbox.OutboxRecorder;
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ingestão assíncrona dos pedidos notificados pelo Mercado Livre: o webhook
+ * grava a notificação e responde; busca no ML e criação do pedido rodam fora
+ * da thread da requisição.
+ *
+ * Metodologia:
+ * - Admissão limitada (ML_INGEST_QUEUE_CAPACITY pedidos aceitos e ainda não
+ *   concluídos): cheio, offer() recusa na hora (REJECTED) e o webhook responde
+ *   503, para o ML reenviar a notificação depois. Nada bloqueia o webhook.
+ * - Notificação repetida de um pedido já na fila é descartada (DUPLICATE).
+ * - Antes do 200, a notificação vai para outbox_events
+ *   (OutboxRecorder.defer), disponível só após ML_INGEST_RECOVERY_MS.
+ *   Concluída aqui, a linha é removida; se o nó cair ou as tentativas se
+ *   esgotarem, o OutboxDispatcher a entrega de novo (onNotified). Banco fora
+ *   do ar na gravação: 503.
+ * - Uma virtual thread por pedido; a busca no ML usa uma vaga do semáforo da
+ *   conta vendedora (ML_INGEST_PER_ACCOUNT buscas simultâneas por user_id).
+ *   A gravação do pedido usa uma vaga de ML_INGEST_DB_CONCURRENCY, abaixo do
+ *   pool de conexões: picos de notificações não disputam as conexões das
+ *   requisições da loja.
+ * - Falha de rede, 429, 5xx e erro transitório do banco (conexão, deadlock,
+ *   timeout de lock): nova tentativa com backoff exponencial
+ *   (ML_INGEST_RETRY_BASE_MS até ML_INGEST_RETRY_MAX_MS), até
+ *   ML_INGEST_MAX_ATTEMPTS; esgotadas, a linha fica no outbox.
+ * - Os demais erros (4xx, item não vinculado, sem estoque) não mudam com nova
+ *   tentativa: a linha fica DEAD em outbox_events com o motivo, para
+ *   tratamento manual (ver V20).
+ * - Criação idempotente: OrderService.createOrder devolve o pedido já
+ *   registrado para (MERCADO_LIVRE, id do pedido) e o índice único de V17
+ *   barra a corrida entre nós (e com a reentrega do outbox).
+ */
+@Slf4j
+@Component
+public class MercadoLivreOrderIngestion {
+
+    public enum Admission {
+        ACCEPTED,
+        /** Pedido já está na fila ou em processamento. */
+        DUPLICATE,
+        /** Fila cheia: o remetente deve reenviar depois. */
+        REJECTED,
+        /** Sincronização do ML desligada (ML_SYNC_ENABLED). */
+        IGNORED
+    }
+
+    private final MercadoLivreService mercadoLivre;
+    private final OrderService orderService;
+    private final OutboxRecorder outboxRecorder;
+    private final OutboxDispatcher outboxDispatcher;
+    private final int perAccount;
+    private final int maxAttempts;
+    private final long retryBaseMs;
+    private final long retryMaxMs;
+    private final Duration recoveryDelay;
+
+    private final Semaphore capacity;
+    private final Semaphore database;
+    private final Set<String> admitted = ConcurrentHashMap.newKeySet();
+    private final Map<String, Semaphore> accounts = new ConcurrentHashMap<>();
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong ingested = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public MercadoLivreOrderIngestion(MercadoLivreService mercadoLivre,
+            OrderService orderService,
+            OutboxRecorder outboxRecorder,
+            OutboxDispatcher outboxDispatcher,
+            @Value("${ML_INGEST_QUEUE_CAPACITY:1000}") int queueCapacity,
+            @Value("${ML_INGEST_PER_ACCOUNT:4}") int perAccount,
+            @Value("${ML_INGEST_DB_CONCURRENCY:4}") int dbConcurrency,
+            @Value("${ML_INGEST_MAX_ATTEMPTS:4}") int maxAttempts,
+            @Value("${ML_INGEST_RETRY_BASE_MS:1000}") long retryBaseMs,
+            @Value("${ML_INGEST_RETRY_MAX_MS:30000}") long retryMaxMs,
+            @Value("${ML_INGEST_RECOVERY_MS:300000}") long recoveryMs) {
+        this.mercadoLivre = mercadoLivre;
+        this.orderService = orderService;
+        this.outboxRecorder = outboxRecorder;
+        this.outboxDispatcher = outboxDispatcher;
+        this.capacity = new Semaphore(queueCapacity);
+        this.database = new Semaphore(dbConcurrency);
+        this.perAccount = perAccount;
+        this.maxAttempts = maxAttempts;
+        this.retryBaseMs = retryBaseMs;
+        this.retryMaxMs = retryMaxMs;
+        this.recoveryDelay = Duration.ofMillis(recoveryMs);
+    }
+
+    /** Enfileira o pedido {@code orderId} da conta {@code accountId} sem esperar nada além da admissão. */
+    public Admission offer(String accountId, String orderId) {
+        if (!mercadoLivre.isSyncEnabled()) {
+            return Admission.IGNORED;
+        }
+        if (!admitted.add(orderId)) {
+            return Admission.DUPLICATE;
+        }
+        if (!capacity.tryAcquire()) {
+            admitted.remove(orderId);
+            log.warn("Ingestão ML: fila cheia, pedido {} recusado para reenvio", orderId);
+            return Admission.REJECTED;
+        }
+        long outboxId;
+        try {
+            outboxId = outboxRecorder.defer(new MercadoLivreOrderNotifiedEvent(accountId, orderId), recoveryDelay);
+        } catch (DataAccessException e) {
+            admitted.remove(orderId);
+            capacity.release();
+            log.warn("Ingestão ML: notificação do pedido {} não gravada, recusada para reenvio: {}", orderId,
+                    e.getMessage());
+            return Admission.REJECTED;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    ingest(accountId, orderId, outboxId);
+                } finally {
+                    admitted.remove(orderId);
+                    capacity.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Nó desligando: a notificação já está no outbox
+            admitted.remove(orderId);
+            capacity.release();
+        }
+        return Admission.ACCEPTED;
+    }
+
+    /** Pedidos aceitos e ainda não concluídos. */
+    public int pendingCount() {
+        return admitted.size();
+    }
+
+    public long ingestedCount() {
+        return ingested.get();
+    }
+
+    public long failedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Notificação gravada que nenhum nó concluiu. Exceção = nova tentativa do
+     * outbox; após OUTBOX_MAX_ATTEMPTS fica DEAD com o último erro.
+     */
+    @EventListener
+    public void onNotified(OutboxDelivery<MercadoLivreOrderNotifiedEvent> delivery) {
+        MercadoLivreOrderNotifiedEvent event = delivery.event();
+        if (admitted.contains(event.orderId())) {
+            throw new IllegalStateException("Pedido ML " + event.orderId() + " ainda em processamento neste nó");
+        }
+        try {
+            register(event.accountId(), event.orderId());
+            ingested.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ingestão ML interrompida", e);
+        } catch (InsufficientStockException e) {
+            // É um ConflictException, mas não de pedido já gravado
+            throw e;
+        } catch (ConflictException e) {
+            // Outro nó gravou o mesmo pedido ao mesmo tempo
+            ingested.incrementAndGet();
+        }
+    }
+
+    private void ingest(String accountId, String orderId, long outboxId) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                register(accountId, orderId);
+                ingested.incrementAndGet();
+                settle(orderId, () -> outboxDispatcher.acknowledge(outboxId));
+                return;
+            } catch (InterruptedException e) {
+                // Nó desligando: a linha no outbox retoma o pedido
+                Thread.currentThread().interrupt();
+                return;
+            } catch (InsufficientStockException e) {
+                failed.incrementAndGet();
+                log.error("Ingestão ML: pedido {} sem estoque, guardado para tratamento manual: {}", orderId,
+                        e.getShortages());
+                settle(orderId, () -> outboxDispatcher.markDead(outboxId, e.getMessage() + ": " + e.getShortages()));
+                return;
+            } catch (ConflictException e) {
+                // Outro nó gravou o mesmo pedido ao mesmo tempo
+                ingested.incrementAndGet();
+                settle(orderId, () -> outboxDispatcher.acknowledge(outboxId));
+                return;
+            } catch (RuntimeException e) {
+                if (!retryable(e)) {
+                    failed.incrementAndGet();
+                    log.error("Ingestão ML: pedido {} não pôde ser registrado, guardado para tratamento manual",
+                            orderId, e);
+                    settle(orderId, () -> outboxDispatcher.markDead(outboxId,
+                            e.getClass().getSimpleName() + ": " + e.getMessage()));
+                    return;
+                }
+                if (attempt >= maxAttempts) {
+                    failed.incrementAndGet();
+                    log.error("Ingestão ML: pedido {} não registrado após {} tentativa(s); fica no outbox", orderId,
+                            attempt, e);
+                    return;
+                }
+                long delay = Math.min(retryMaxMs, retryBaseMs << Math.min(attempt - 1, 20));
+                log.warn("Ingestão ML: falha no pedido {}, tentativa {} em {} ms: {}", orderId, attempt + 1,
+                        delay, e.getMessage());
+                if (!sleep(delay)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /** Busca no ML e grava o pedido. */
+    private void register(String accountId, String orderId) throws InterruptedException {
+        Semaphore slot = accounts.computeIfAbsent(accountId, a -> new Semaphore(perAccount));
+        JsonNode json;
+        slot.acquire();
+        try {
+            json = mercadoLivre.fetchOrder(orderId);
+        } finally {
+            slot.release();
+        }
+        database.acquire();
+        try {
+            CreateOrderRequest request = mercadoLivre.convertOrder(orderId, json);
+            orderService.createOrder(request);
+            log.info("Ingestão ML: pedido {} (conta {}) registrado com {} item(ns)", orderId, accountId,
+                    request.items().size());
+        } finally {
+            database.release();
+        }
+    }
+
+    /** Atualiza a linha do outbox; se o banco falhar, o dispatcher reentrega e a criação idempotente absorve. */
+    private static void settle(String orderId, Runnable update) {
+        try {
+            update.run();
+        } catch (DataAccessException e) {
+            log.warn("Ingestão ML: outbox do pedido {} não atualizado: {}", orderId, e.getMessage());
+        }
+    }
+
+    private static boolean retryable(RuntimeException e) {
+        if (e instanceof RestClientException) {
+            return !(e instanceof HttpClientErrorException client) || client.getStatusCode().value() == 429;
+        }
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    private static boolean sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+            workers.shutdownNow();
+        }
+    }
+}
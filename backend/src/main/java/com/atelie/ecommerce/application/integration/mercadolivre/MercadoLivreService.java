@@ -12,11 +12,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.env.Environment;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestTemplate;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 @Service
 @lombok.extern.slf4j.Slf4j
@@ -50,50 +47,76 @@ public class MercadoLivreService implements MarketplaceIntegrationService {
         return env.getProperty("ML_CATEGORY_DEFAULT", "MLB3530").trim();
     }
 
+    public boolean isSyncEnabled() {
+        return configService.containsKey("ML_SYNC_ENABLED") && configService.requireBoolean("ML_SYNC_ENABLED");
+    }
+
     @Override
-    @Transactional(readOnly = true)
     public CreateOrderRequest fetchAndConvertOrder(String resourceId) {
-        if (!configService.containsKey("ML_SYNC_ENABLED") || !configService.requireBoolean("ML_SYNC_ENABLED")) {
+        if (!isSyncEnabled()) {
             return null;
         }
-
-        String token = configService.requireString("ML_ACCESS_TOKEN");
-        String url = mlBaseUrl() + "/orders/" + resourceId;
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setBearerAuth(token);
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-
-            ResponseEntity<JsonNode> response = restTemplate.exchange(url, HttpMethod.GET, entity, JsonNode.class);
-            JsonNode orderJson = response.getBody();
-            if (orderJson == null) throw new RuntimeException("Empty response from ML");
-
-            JsonNode orderItems = orderJson.path("order_items");
-            if (orderItems.isEmpty()) throw new IllegalStateException("ML Order without items: " + resourceId);
-
-            JsonNode firstItem = orderItems.get(0);
-            String mlItemId = firstItem.path("item").path("id").asText();
-            int quantity = firstItem.path("quantity").asInt(1);
-
-            var integration = integrationRepository
-                .findByExternalIdAndIntegrationType(mlItemId, "MERCADO_LIVRE")
-                .orElseThrow(() -> new IllegalArgumentException("Produto não vinculado para item ML: " + mlItemId));
-            String customerName = orderJson.path("buyer").path("nickname").asText("Desconhecido");
-
-            return new CreateOrderRequest(
-                "MERCADO_LIVRE",
-                resourceId,
-                customerName,
-                List.of(new CreateOrderItemRequest(integration.getProduct().getId(), null, quantity))
-            );
+            return convertOrder(resourceId, fetchOrder(resourceId));
         } catch (Exception e) {
             log.error("Erro integration fetch ML", e);
             throw new RuntimeException("Erro ML Fetch", e);
         }
     }
 
+    /**
+     * GET /orders/{id} na API do ML. Só HTTP: nenhuma transação/conexão do
+     * banco fica presa esperando a resposta.
+     *
+     * @throws org.springframework.web.client.RestClientException em falha de rede ou status != 2xx.
+     */
+    public JsonNode fetchOrder(String resourceId) {
+        String token = configService.requireString("ML_ACCESS_TOKEN");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        ResponseEntity<JsonNode> response = restTemplate.exchange(mlBaseUrl() + "/orders/" + resourceId,
+                HttpMethod.GET, new HttpEntity<>(headers), JsonNode.class);
+        if (response.getBody() == null) {
+            throw new IllegalStateException("Resposta vazia do ML para o pedido " + resourceId);
+        }
+        return response.getBody();
+    }
+
+    /**
+     * Converte todos os order_items do pedido ML, resolvendo os vínculos
+     * (product_integrations) em uma consulta. Variante fica a cargo do
+     * OrderService (variante padrão do produto).
+     *
+     * @throws IllegalArgumentException se algum item não estiver vinculado a um produto.
+     * @throws IllegalStateException    se o pedido vier sem itens.
+     */
+    public CreateOrderRequest convertOrder(String resourceId, JsonNode orderJson) {
+        JsonNode orderItems = orderJson.path("order_items");
+        if (orderItems.isEmpty()) {
+            throw new IllegalStateException("ML Order without items: " + resourceId);
+        }
+        Set<String> mlItemIds = new LinkedHashSet<>();
+        orderItems.forEach(i -> mlItemIds.add(i.path("item").path("id").asText()));
+        Map<String, UUID> products = new HashMap<>();
+        for (Object[] row : integrationRepository.findProductIdsByExternalIds("MERCADO_LIVRE", mlItemIds)) {
+            products.put((String) row[0], (UUID) row[1]);
+        }
+
+        List<CreateOrderItemRequest> items = new ArrayList<>(orderItems.size());
+        for (JsonNode item : orderItems) {
+            String mlItemId = item.path("item").path("id").asText();
+            UUID productId = products.get(mlItemId);
+            if (productId == null) {
+                throw new IllegalArgumentException("Produto não vinculado para item ML: " + mlItemId);
+            }
+            items.add(new CreateOrderItemRequest(productId, null, item.path("quantity").asInt(1)));
+        }
+        String customerName = orderJson.path("buyer").path("nickname").asText("Desconhecido");
+        return new CreateOrderRequest("MERCADO_LIVRE", resourceId, customerName, items);
+    }
+
     public void createListing(ProductEntity product) {
-        if (!configService.containsKey("ML_SYNC_ENABLED") || !configService.requireBoolean("ML_SYNC_ENABLED")) {
+        if (!isSyncEnabled()) {
             log.info("Sync Mercado Livre desativado no Dashboard. Ignorando produto: {}", product.getName());
             return;
         }
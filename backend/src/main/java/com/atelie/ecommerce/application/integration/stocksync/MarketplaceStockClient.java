@@ -0,0 +1,70 @@
+package com.atelie.ecommerce.application.integration.stocksync;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.*;
+
+/**
+ * Envio de saldos em lote para um canal (tipo de integração).
+ *
+ * Metodologia:
+ * - Um POST por lote em STOCK_SYNC_URL_<TIPO> (ex.: STOCK_SYNC_URL_MERCADO_LIVRE),
+ *   com {integrationType, items[]}; token opcional em STOCK_SYNC_TOKEN_<TIPO>.
+ * - Tipo sem URL configurada não tem canal de estoque: o lote é descartado.
+ * - Qualquer falha (timeout, status != 2xx) sobe como exceção para o
+ *   MarketplaceStockSync reagendar o lote.
+ */
+@Slf4j
+@Component
+public class MarketplaceStockClient {
+
+    private final RestTemplate restTemplate;
+    private final Environment env;
+
+    public MarketplaceStockClient(RestTemplate restTemplate, Environment env) {
+        this.restTemplate = restTemplate;
+        this.env = env;
+    }
+
+    public record StockUpdate(UUID productId, String externalId, String skuExternal, int quantity) {
+    }
+
+    /** Devolve false se o tipo não tem canal configurado; lança exceção se o envio falhar. */
+    public boolean send(String integrationType, List<StockUpdate> items) {
+        String url = env.getProperty("STOCK_SYNC_URL_" + integrationType);
+        if (url == null || url.isBlank()) {
+            log.debug("Sem STOCK_SYNC_URL_{}: {} atualização(ões) de estoque ignorada(s)", integrationType, items.size());
+            return false;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        String token = env.getProperty("STOCK_SYNC_TOKEN_" + integrationType);
+        if (token != null && !token.isBlank()) {
+            headers.setBearerAuth(token.trim());
+        }
+
+        List<Map<String, Object>> payloadItems = new ArrayList<>(items.size());
+        for (StockUpdate item : items) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("productId", item.productId());
+            line.put("externalId", item.externalId());
+            line.put("sku", item.skuExternal());
+            line.put("quantity", item.quantity());
+            payloadItems.add(line);
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("integrationType", integrationType);
+        payload.put("items", payloadItems);
+
+        // RestTemplate lança RestClientException para 4xx/5xx e falhas de I/O
+        restTemplate.postForEntity(url.trim(), new HttpEntity<>(payload, headers), Void.class);
+        log.info("SYNC estoque {}: {} item(ns) enviados", integrationType, items.size());
+        return true;
+    }
+}
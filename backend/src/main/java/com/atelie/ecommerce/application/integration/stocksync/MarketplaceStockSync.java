@@ -0,0 +1,372 @@
+package com.atelie.ecommerce.application.integration.stocksync;
+
+import com.atelie.ecommerce.application.integration.stocksync.MarketplaceStockClient.StockUpdate;
+import com.atelie.ecommerce.domain.inventory.event.VariantStockChangedEvent;
+import com.atelie.ecommerce.infrastructure.outbox.OutboxDispatcher;
+import com.atelie.ecommerce.infrastructure.outbox.OutboxRecorder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sincronização de estoque com os marketplaces vinculados
+ * (product_integrations), com coalescência por produto.
+ *
+ * Metodologia:
+ * - offer() só marca o produto como pendente (mapa por produto, limitado a
+ *   STOCK_SYNC_MAX_PENDING): uma rajada de 50 vendas vira uma única
+ *   atualização. Nada de consulta ou HTTP na thread que fez o commit.
+ * - Debounce: o produto sai quando fica STOCK_SYNC_DEBOUNCE_MS sem mudar, ou
+ *   após STOCK_SYNC_MAX_WAIT_MS desde a primeira mudança (venda contínua
+ *   não adia a sincronização para sempre).
+ * - O saldo é lido no flush, não no evento: sempre o mais recente. Disponível
+ *   por produto = soma das variantes ativas de stock_quantity -
+ *   reserved_quantity + cotas hot SKU (mesma conta do
+ *   StockAvailabilityService); produto inativo vai como 0.
+ * - Envio agrupado por tipo de integração em lotes de até
+ *   STOCK_SYNC_BATCH_SIZE itens (MarketplaceStockClient).
+ * - Lote com falha volta em fila limitada (STOCK_SYNC_MAX_RETRY_BATCHES) com
+ *   backoff exponencial a partir de STOCK_SYNC_RETRY_BASE_MS, até
+ *   STOCK_SYNC_MAX_ATTEMPTS tentativas; a retentativa relê o saldo.
+ * - O flush (consulta + HTTP bloqueante) roda em thread própria
+ *   (stock-sync-flusher): o agendador compartilhado só dispara o ciclo e
+ *   segue para heartbeat de cotas hot SKU, expiração de reservas e outbox.
+ *   Ciclo ainda em andamento não é disparado de novo.
+ * - Entregas do outbox (offerDurably) não se perdem com o nó: antes de
+ *   marcar, uma cópia do evento vai para outbox_events com entrega só após
+ *   STOCK_SYNC_RECOVERY_MS (OutboxRecorder.defer). A cópia é removida quando
+ *   todos os seus produtos foram enviados; fica DEAD, com o erro, se algum
+ *   for descartado (tentativas esgotadas, fila de retentativa cheia). Se o nó
+ *   cair no debounce ou na retentativa, o OutboxDispatcher a entrega de novo.
+ *   Fila de pendentes cheia: a entrega falha e o outbox tenta depois.
+ *   Produtos sem vínculo (product_integrations) não entram.
+ */
+@Slf4j
+@Component
+public class MarketplaceStockSync {
+
+    private static final int QUERY_CHUNK = 1000;
+
+    private static final String SELECT_UPDATES = """
+            SELECT i.product_id, i.integration_type, i.external_id, i.sku_external,
+                   CASE WHEN p.active = true THEN COALESCE(s.available, 0) ELSE 0 END AS available
+            FROM product_integrations i
+            JOIN products p ON p.id = i.product_id
+            LEFT JOIN (SELECT v.product_id,
+                              SUM(GREATEST(v.stock_quantity - v.reserved_quantity + COALESCE(l.leased, 0), 0)) AS available
+                       FROM product_variants v
+                       LEFT JOIN (SELECT variant_id, SUM(quantity) AS leased FROM stock_leases GROUP BY variant_id) l
+                              ON l.variant_id = v.id
+                       WHERE v.product_id IN (:ids) AND v.active = true
+                       GROUP BY v.product_id) s ON s.product_id = i.product_id
+            WHERE i.product_id IN (:ids) AND i.external_id IS NOT NULL
+            """;
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final MarketplaceStockClient client;
+    private final OutboxRecorder outboxRecorder;
+    private final OutboxDispatcher outboxDispatcher;
+    private final Duration recoveryDelay;
+    private final long debounceMs;
+    private final long maxWaitMs;
+    private final int maxPending;
+    private final int batchSize;
+    private final int maxRetryBatches;
+    private final int maxAttempts;
+    private final long retryBaseMs;
+    private final long retryMaxMs;
+
+    private final Map<UUID, Pending> pending = new ConcurrentHashMap<>();
+    // Só mexida dentro de flush (synchronized)
+    private final Deque<Retry> retries = new ArrayDeque<>();
+    // Cópia no outbox (id) -> produtos ainda não enviados; mexida sob o próprio monitor
+    private final Map<Long, Set<UUID>> rows = new HashMap<>();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private final ExecutorService flusher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "stock-sync-flusher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public MarketplaceStockSync(NamedParameterJdbcTemplate jdbc,
+            MarketplaceStockClient client,
+            OutboxRecorder outboxRecorder,
+            OutboxDispatcher outboxDispatcher,
+            @Value("${STOCK_SYNC_DEBOUNCE_MS:2000}") long debounceMs,
+            @Value("${STOCK_SYNC_MAX_WAIT_MS:10000}") long maxWaitMs,
+            @Value("${STOCK_SYNC_MAX_PENDING:10000}") int maxPending,
+            @Value("${STOCK_SYNC_BATCH_SIZE:100}") int batchSize,
+            @Value("${STOCK_SYNC_MAX_RETRY_BATCHES:1000}") int maxRetryBatches,
+            @Value("${STOCK_SYNC_MAX_ATTEMPTS:5}") int maxAttempts,
+            @Value("${STOCK_SYNC_RETRY_BASE_MS:1000}") long retryBaseMs,
+            @Value("${STOCK_SYNC_RETRY_MAX_MS:60000}") long retryMaxMs,
+            @Value("${STOCK_SYNC_RECOVERY_MS:300000}") long recoveryMs) {
+        this.jdbc = jdbc;
+        this.client = client;
+        this.outboxRecorder = outboxRecorder;
+        this.outboxDispatcher = outboxDispatcher;
+        this.recoveryDelay = Duration.ofMillis(recoveryMs);
+        this.debounceMs = debounceMs;
+        this.maxWaitMs = maxWaitMs;
+        this.maxPending = maxPending;
+        this.batchSize = batchSize;
+        this.maxRetryBatches = maxRetryBatches;
+        this.maxAttempts = maxAttempts;
+        this.retryBaseMs = retryBaseMs;
+        this.retryMaxMs = retryMaxMs;
+    }
+
+    private record Pending(long firstAt, long lastAt) {
+    }
+
+    private record Retry(String integrationType, Set<UUID> productIds, int attempt, long dueAt) {
+    }
+
+    /** Marca os produtos para sincronizar; devolve quantos ficaram de fora por falta de espaço. */
+    public int offer(Collection<UUID> productIds) {
+        return offer(productIds, System.currentTimeMillis());
+    }
+
+    int offer(Collection<UUID> productIds, long now) {
+        int dropped = 0;
+        for (UUID productId : productIds) {
+            if (pending.size() >= maxPending && !pending.containsKey(productId)) {
+                dropped++;
+                continue;
+            }
+            pending.merge(productId, new Pending(now, now), (old, ignored) -> new Pending(old.firstAt(), now));
+        }
+        if (dropped > 0) {
+            log.warn("SYNC estoque: fila cheia ({}), {} produto(s) descartado(s)", maxPending, dropped);
+        }
+        return dropped;
+    }
+
+    /**
+     * offer() de uma entrega do outbox, guardando uma cópia do evento até os
+     * produtos serem enviados.
+     *
+     * @throws IllegalStateException se a fila estiver cheia (o outbox tenta de novo).
+     */
+    public void offerDurably(VariantStockChangedEvent event) {
+        // Produto sem vínculo com marketplace não tem o que sincronizar
+        Set<UUID> linked = new HashSet<>(jdbc.queryForList(
+                "SELECT DISTINCT product_id FROM product_integrations WHERE product_id IN (:ids) AND external_id IS NOT NULL",
+                new MapSqlParameterSource("ids", new HashSet<>(event.productIds())), UUID.class));
+        if (linked.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (rows) {
+            long added = linked.stream().filter(id -> !pending.containsKey(id)).count();
+            if (pending.size() + added > maxPending) {
+                throw new IllegalStateException("SYNC estoque: fila cheia (" + maxPending + ")");
+            }
+            long id = outboxRecorder.defer(new VariantStockChangedEvent(event.variantIds(), linked), recoveryDelay);
+            rows.put(id, linked);
+            offer(linked, now);
+        }
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    public synchronized int retryCount() {
+        return retries.size();
+    }
+
+    /** Dispara um flush na thread própria, se o anterior já terminou. */
+    @Scheduled(fixedDelayString = "${STOCK_SYNC_TICK_MS:500}")
+    public void tick() {
+        if (!flushing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            flusher.execute(() -> {
+                try {
+                    flush();
+                } catch (RuntimeException e) {
+                    log.error("SYNC estoque: falha no flush", e);
+                } finally {
+                    flushing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            flushing.set(false);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flusher.shutdownNow();
+    }
+
+    /** Envia os produtos prontos e as retentativas vencidas; devolve quantos itens foram entregues. */
+    public int flush() {
+        return flush(System.currentTimeMillis());
+    }
+
+    synchronized int flush(long now) {
+        List<UUID> ready = new ArrayList<>();
+        pending.forEach((productId, p) -> {
+            if (now - p.lastAt() >= debounceMs || now - p.firstAt() >= maxWaitMs) {
+                // remove(key, value): se mudou de novo no meio, fica para o próximo ciclo
+                if (pending.remove(productId, p)) {
+                    ready.add(productId);
+                }
+            }
+        });
+
+        int delivered = 0;
+        // Produtos enviados (ou sem nada a enviar) neste ciclo
+        Set<UUID> sent = new HashSet<>();
+        if (!ready.isEmpty()) {
+            Map<String, List<StockUpdate>> byType = load(ready, null);
+            sent.addAll(ready);
+            for (Map.Entry<String, List<StockUpdate>> e : byType.entrySet()) {
+                delivered += send(e.getKey(), e.getValue(), 0, now, sent);
+            }
+        }
+
+        int due = retries.size();
+        for (int i = 0; i < due; i++) {
+            Retry retry = retries.pollFirst();
+            if (retry.dueAt() > now) {
+                retries.addLast(retry);
+                continue;
+            }
+            // Produto que voltou a mudar sai no próximo flush com saldo mais novo
+            Set<UUID> ids = new HashSet<>(retry.productIds());
+            ids.removeAll(pending.keySet());
+            if (ids.isEmpty()) {
+                continue;
+            }
+            List<StockUpdate> items = load(ids, retry.integrationType())
+                    .getOrDefault(retry.integrationType(), List.of());
+            sent.addAll(ids);
+            delivered += send(retry.integrationType(), items, retry.attempt(), now, sent);
+        }
+        settle(sent);
+        return delivered;
+    }
+
+    /** Envia em lotes; lote com falha vai para a fila de retentativa e sai de {@code sent}. */
+    private int send(String integrationType, List<StockUpdate> items, int attempt, long now, Set<UUID> sent) {
+        int delivered = 0;
+        for (int from = 0; from < items.size(); from += batchSize) {
+            List<StockUpdate> batch = items.subList(from, Math.min(items.size(), from + batchSize));
+            try {
+                if (client.send(integrationType, batch)) {
+                    delivered += batch.size();
+                }
+            } catch (Exception ex) {
+                batch.forEach(item -> sent.remove(item.productId()));
+                scheduleRetry(integrationType, batch, attempt + 1, now, ex);
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * Tira os produtos enviados das cópias no outbox e remove as que ficaram
+     * vazias. Produto ainda em retentativa (outro tipo de integração) ou
+     * marcado de novo espera o próximo envio.
+     */
+    private void settle(Set<UUID> sent) {
+        retries.forEach(r -> sent.removeAll(r.productIds()));
+        sent.removeAll(pending.keySet());
+        if (sent.isEmpty()) {
+            return;
+        }
+        synchronized (rows) {
+            rows.entrySet().removeIf(e -> {
+                e.getValue().removeAll(sent);
+                if (!e.getValue().isEmpty()) {
+                    return false;
+                }
+                try {
+                    outboxDispatcher.acknowledge(e.getKey());
+                } catch (DataAccessException ex) {
+                    // Fica no outbox: reentregue depois, reenvia o saldo (idempotente)
+                    log.warn("SYNC estoque: cópia {} não removida do outbox: {}", e.getKey(), ex.getMessage());
+                }
+                return true;
+            });
+        }
+    }
+
+    /** Cópias no outbox com algum dos produtos descartados ficam DEAD com o erro. */
+    private void bury(Collection<UUID> productIds, String error) {
+        synchronized (rows) {
+            rows.entrySet().removeIf(e -> {
+                if (Collections.disjoint(e.getValue(), productIds)) {
+                    return false;
+                }
+                try {
+                    outboxDispatcher.markDead(e.getKey(), error);
+                } catch (DataAccessException ex) {
+                    log.warn("SYNC estoque: cópia {} não marcada DEAD: {}", e.getKey(), ex.getMessage());
+                }
+                return true;
+            });
+        }
+    }
+
+    private void scheduleRetry(String integrationType, List<StockUpdate> batch, int attempt, long now, Exception cause) {
+        Set<UUID> productIds = new HashSet<>();
+        batch.forEach(item -> productIds.add(item.productId()));
+        String error = "SYNC estoque " + integrationType + ": " + cause.getClass().getSimpleName() + ": "
+                + cause.getMessage();
+        if (attempt >= maxAttempts) {
+            log.error("SYNC estoque {}: {} item(ns) descartado(s) após {} tentativas", integrationType,
+                    batch.size(), attempt, cause);
+            bury(productIds, error);
+            return;
+        }
+        if (retries.size() >= maxRetryBatches) {
+            log.error("SYNC estoque {}: fila de retentativa cheia ({}), {} item(ns) descartado(s)",
+                    integrationType, maxRetryBatches, batch.size(), cause);
+            bury(productIds, error);
+            return;
+        }
+        long delay = Math.min(retryMaxMs, retryBaseMs << Math.min(attempt - 1, 20));
+        retries.addLast(new Retry(integrationType, productIds, attempt, now + delay));
+        log.warn("SYNC estoque {}: falha no envio de {} item(ns), tentativa {} em {} ms: {}", integrationType,
+                batch.size(), attempt + 1, delay, cause.getMessage());
+    }
+
+    /** Vínculos e saldo atual dos produtos, por tipo de integração (opcionalmente só um tipo). */
+    private Map<String, List<StockUpdate>> load(Collection<UUID> productIds, String onlyType) {
+        Map<String, List<StockUpdate>> byType = new LinkedHashMap<>();
+        List<UUID> ids = new ArrayList<>(productIds);
+        for (int from = 0; from < ids.size(); from += QUERY_CHUNK) {
+            MapSqlParameterSource params = new MapSqlParameterSource("ids",
+                    ids.subList(from, Math.min(ids.size(), from + QUERY_CHUNK)));
+            String sql = SELECT_UPDATES;
+            if (onlyType != null) {
+                sql += " AND i.integration_type = :type";
+                params.addValue("type", onlyType);
+            }
+            jdbc.query(sql, params, rs -> {
+                byType.computeIfAbsent(rs.getString("integration_type"), t -> new ArrayList<>())
+                        .add(new StockUpdate(rs.getObject("product_id", UUID.class), rs.getString("external_id"),
+                                rs.getString("sku_external"), rs.getInt("available")));
+            });
+        }
+        return byType;
+    }
+}
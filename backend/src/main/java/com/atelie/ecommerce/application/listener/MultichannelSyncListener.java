@@ -1,39 +1,88 @@
 package com.atelie.ecommerce.application.listener;
 
 import com.atelie.ecommerce.application.integration.mercadolivre.MercadoLivreService;
+import com.atelie.ecommerce.domain.catalog.event.ProductBatchSavedEvent;
 import com.atelie.ecommerce.domain.catalog.event.ProductSavedEvent;
+import com.atelie.ecommerce.infrastructure.outbox.OutboxDelivery;
+import com.atelie.ecommerce.infrastructure.outbox.OutboxRecorder;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductIntegrationRepository;
 import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Async;
+import com.atelie.ecommerce.infrastructure.persistence.product.entity.ProductEntity;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.event.TransactionPhase;
-import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+// Eventos chegam pelo outbox (OutboxDispatcher): só depois do commit, mesmo
+// que o nó caia, e possivelmente mais de uma vez.
 @Component
 @lombok.extern.slf4j.Slf4j
 public class MultichannelSyncListener {
 
+    private static final String MERCADO_LIVRE = "MERCADO_LIVRE";
+
     private final ProductRepository productRepository;
+    private final ProductIntegrationRepository integrationRepository;
     private final MercadoLivreService mercadoLivreService;
+    private final OutboxRecorder outboxRecorder;
 
-    public MultichannelSyncListener(ProductRepository productRepository, 
-                                    MercadoLivreService mercadoLivreService) {
+    public MultichannelSyncListener(ProductRepository productRepository,
+                                    ProductIntegrationRepository integrationRepository,
+                                    MercadoLivreService mercadoLivreService,
+                                    OutboxRecorder outboxRecorder) {
         this.productRepository = productRepository;
+        this.integrationRepository = integrationRepository;
         this.mercadoLivreService = mercadoLivreService;
+        this.outboxRecorder = outboxRecorder;
+    }
+
+    @EventListener
+    public void onProductSaved(OutboxDelivery<ProductSavedEvent> delivery) {
+        ProductSavedEvent event = delivery.event();
+        if (!event.isNew()) {
+            log.info("MULTICHANNEL: Produto atualizado (Sync de estoque/preço pendente em futura implementação).");
+            return;
+        }
+        unlisted(List.of(event.productId())).forEach(this::createListing);
+    }
+
+    // Carga em massa: um evento por lote, produtos buscados de uma vez. Cada
+    // anúncio é uma chamada HTTP ao ML; o lote inteiro numa entrega passaria
+    // de OUTBOX_LEASE_MS e outro nó o reentregaria (anúncios duplicados).
+    // Então o lote vira um ProductSavedEvent por produto no outbox.
+    @EventListener
+    public void onProductBatchSaved(OutboxDelivery<ProductBatchSavedEvent> delivery) {
+        ProductBatchSavedEvent event = delivery.event();
+        if (!event.isNew()) {
+            log.info("MULTICHANNEL: Lote de {} produtos atualizado (Sync de estoque/preço pendente em futura implementação).",
+                    event.productIds().size());
+            return;
+        }
+        List<ProductEntity> products = unlisted(event.productIds());
+        if (products.size() <= 1) {
+            products.forEach(this::createListing);
+            return;
+        }
+        log.info("MULTICHANNEL: Lote de {} produtos dividido em um evento de anúncio por produto", products.size());
+        outboxRecorder.recordAll(products.stream().map(p -> new ProductSavedEvent(p.getId(), true)).toList());
+    }
+
+    private List<ProductEntity> unlisted(List<UUID> productIds) {
+        // Reentrega: produto que já ganhou anúncio não cria outro
+        Set<UUID> pending = new HashSet<>(productIds);
+        integrationRepository.findLinkedProductIds(MERCADO_LIVRE, pending).forEach(pending::remove);
+        if (pending.isEmpty()) {
+            return List.of();
+        }
+        return productRepository.findAllById(pending);
     }
 
-    @Async
-    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
-    public void onProductSaved(ProductSavedEvent event) {
-        productRepository.findById(event.productId()).ifPresent(product -> {
-            // Lógica REAL de Sincronia
-            if (event.isNew()) {
-                log.info("MULTICHANNEL: Tentando criar anúncio no Mercado Livre para: {}", product.getName());
-                // Chamada REAL (Controlada por flag no Dashboard dentro do Service)
-                mercadoLivreService.createListing(product);
-            } else {
-                log.info("MULTICHANNEL: Produto atualizado (Sync de estoque/preço pendente em futura implementação).");
-            }
-        });
+    private void createListing(ProductEntity product) {
+        log.info("MULTICHANNEL: Tentando criar anúncio no Mercado Livre para: {}", product.getName());
+        // Chamada REAL (Controlada por flag no Dashboard dentro do Service)
+        mercadoLivreService.createListing(product);
     }
 }
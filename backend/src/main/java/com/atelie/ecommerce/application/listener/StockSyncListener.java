@@ -1,40 +1,28 @@
 package com.atelie.ecommerce.application.listener;
 
-import com.atelie.ecommerce.domain.inventory.event.InventoryChangedEvent;
-import com.atelie.ecommerce.infrastructure.persistence.product.ProductIntegrationRepository;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Async;
+import com.atelie.ecommerce.application.integration.stocksync.MarketplaceStockSync;
+import com.atelie.ecommerce.domain.inventory.event.VariantStockChangedEvent;
+import com.atelie.ecommerce.infrastructure.outbox.OutboxDelivery;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.event.TransactionPhase;
-import org.springframework.transaction.event.TransactionalEventListener;
 
 @Component
 public class StockSyncListener {
 
-    private static final Logger log = LoggerFactory.getLogger(StockSyncListener.class);
-    private final ProductIntegrationRepository integrationRepository;
+    private final MarketplaceStockSync stockSync;
 
-    public StockSyncListener(ProductIntegrationRepository integrationRepository) {
-        this.integrationRepository = integrationRepository;
+    public StockSyncListener(MarketplaceStockSync stockSync) {
+        this.stockSync = stockSync;
     }
 
-    // CORREÇÃO: TransactionalEventListener garante que só executamos se o banco confirmou a transação.
-    // O @Async garante que não travamos a thread original após o commit.
-    @Async
-    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
-    public void handleInventoryChange(InventoryChangedEvent event) {
-        var links = integrationRepository.findByProductId(event.productId());
-        if (links.isEmpty()) {
-            return;
+    // Via outbox: só o que o banco confirmou, e a marcação sobrevive à queda do nó que fez o commit.
+    // offerDurably() só marca o produto e guarda uma cópia do evento no outbox até o envio;
+    // consulta e HTTP ficam no flush do MarketplaceStockSync.
+    @EventListener
+    public void handleInventoryChange(OutboxDelivery<VariantStockChangedEvent> delivery) {
+        VariantStockChangedEvent event = delivery.event();
+        if (!event.productIds().isEmpty()) {
+            stockSync.offerDurably(event);
         }
-
-        links.forEach(link -> {
-             log.info("SYNC [CONFIRMADO]: Enviando update para {}. Produto: {}, Novo Saldo: {}", 
-                     link.getIntegrationType(), 
-                     link.getExternalId(), 
-                     event.newQuantity());
-             // Lógica de envio HTTP
-        });
     }
 }
@@ -3,10 +3,12 @@ package com.atelie.ecommerce.application.service.catalog.category;
 import com.atelie.ecommerce.api.catalog.category.dto.CategoryResponse;
 import com.atelie.ecommerce.api.catalog.category.dto.CreateCategoryRequest;
 import com.atelie.ecommerce.api.common.exception.DuplicateResourceException;
+import com.atelie.ecommerce.api.common.http.ContentVersion;
 import com.atelie.ecommerce.infrastructure.persistence.category.CategoryRepository;
 import com.atelie.ecommerce.infrastructure.persistence.category.CategoryEntity;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -42,6 +44,12 @@ public class CategoryService {
                 .toList();
     }
 
+    /** Versão da listagem para GET condicional (If-None-Match / If-Modified-Since). */
+    public ContentVersion listVersion() {
+        Object[] row = repository.findListVersion().get(0);
+        return ContentVersion.of(ContentVersion.toInstant((LocalDateTime) row[0]), row[1]);
+    }
+
     public void delete(UUID id) {
         if (!repository.existsById(id)) {
             throw new com.atelie.ecommerce.api.common.exception.NotFoundException("Categoria não encontrada.");
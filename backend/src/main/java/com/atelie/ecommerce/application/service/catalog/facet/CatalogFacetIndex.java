@@ -0,0 +1,514 @@
+package com.atelie.ecommerce.application.service.catalog.facet;
+
+import com.atelie.ecommerce.domain.catalog.event.ProductBatchSavedEvent;
+import com.atelie.ecommerce.domain.catalog.event.ProductDeletedEvent;
+import com.atelie.ecommerce.domain.catalog.event.ProductSavedEvent;
+import com.atelie.ecommerce.domain.common.event.EntityChangedEvent;
+import com.atelie.ecommerce.domain.inventory.event.VariantStockChangedEvent;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice de facetas do catálogo em memória (produtos ativos).
+ *
+ * Metodologia:
+ * - Cada produto recebe um ordinal denso (reaproveitado após remoção).
+ * - Um bitmap por categoria, por par atributo=valor das variantes, por faixa
+ *   de preço e para "tem estoque". Filtros AND/OR/NOT viram operações de
+ *   bits e as contagens de facetas são cardinalidades de interseções, sem
+ *   consultar o banco.
+ * - Construído sob demanda na primeira consulta; atualizado por produto em
+ *   ProductSavedEvent/ProductDeletedEvent (após o commit).
+ * - VariantStockChangedEvent (vendas, reservas, movimentações) relê só os
+ *   produtos afetados, em lotes de REFRESH_CHUNK: o bitmap "tem estoque"
+ *   acompanha cada venda.
+ * - As leituras no banco acontecem fora do lock; o lock de escrita cobre só a
+ *   troca dos docs. Cada carga recebe um número de sequência: uma carga mais
+ *   antiga que a última aplicada ao produto (ou que a construção do índice)
+ *   é descartada, então eventos concorrentes não regridem o estado.
+ */
+@Slf4j
+@Component
+public class CatalogFacetIndex {
+
+    private static final BitSet EMPTY = new BitSet();
+    private static final int REFRESH_CHUNK = 1000;
+
+    private final ProductRepository productRepository;
+    private final ProductVariantRepository variantRepository;
+    private final ObjectMapper objectMapper;
+    private final BigDecimal[] priceBounds;
+    private final String[] priceLabels;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean built;
+    private final AtomicLong loadSequence = new AtomicLong();
+    private long builtAt;
+    private final Map<UUID, Long> loadedAt = new HashMap<>();
+
+    private final List<Doc> docs = new ArrayList<>();
+    private final Map<UUID, Integer> ordinals = new HashMap<>();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+    private final BitSet live = new BitSet();
+    private final BitSet inStock = new BitSet();
+    private final Map<UUID, BitSet> byCategory = new HashMap<>();
+    private final Map<String, Map<String, BitSet>> byAttribute = new TreeMap<>();
+    private final BitSet[] byPriceBucket;
+
+    public CatalogFacetIndex(ProductRepository productRepository,
+            ProductVariantRepository variantRepository,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${CATALOG_FACET_PRICE_BUCKETS:50,100,200,500}") String priceBuckets) {
+        this.productRepository = productRepository;
+        this.variantRepository = variantRepository;
+        this.objectMapper = objectMapper;
+
+        this.priceBounds = Arrays.stream(priceBuckets.split(","))
+                .map(String::trim).filter(s -> !s.isEmpty())
+                .map(BigDecimal::new).sorted().toArray(BigDecimal[]::new);
+        this.priceLabels = new String[priceBounds.length + 1];
+        String lower = "0";
+        for (int i = 0; i < priceBounds.length; i++) {
+            String upper = priceBounds[i].stripTrailingZeros().toPlainString();
+            priceLabels[i] = lower + "-" + upper;
+            lower = upper;
+        }
+        priceLabels[priceBounds.length] = lower + "+";
+        this.byPriceBucket = new BitSet[priceLabels.length];
+        for (int i = 0; i < byPriceBucket.length; i++) {
+            byPriceBucket[i] = new BitSet();
+        }
+
+        Gauge.builder("catalog.facets.memory", this, CatalogFacetIndex::memoryFootprintBytes)
+                .baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("catalog.facets.products", this, CatalogFacetIndex::size).register(meterRegistry);
+    }
+
+    public FacetResult query(FacetFilter filter, int offset, int limit) {
+        ensureBuilt();
+        lock.readLock().lock();
+        try {
+            BitSet matches = evaluate(filter);
+            matches.and(live);
+
+            List<UUID> page = new ArrayList<>(Math.max(0, Math.min(limit, matches.cardinality())));
+            int skipped = 0;
+            for (int i = matches.nextSetBit(0); i >= 0 && page.size() < limit; i = matches.nextSetBit(i + 1)) {
+                if (skipped++ >= offset) {
+                    page.add(docs.get(i).productId());
+                }
+            }
+
+            Map<String, Integer> prices = new LinkedHashMap<>();
+            for (int i = 0; i < byPriceBucket.length; i++) {
+                int count = intersectionCount(matches, byPriceBucket[i]);
+                if (count > 0) {
+                    prices.put(priceLabels[i], count);
+                }
+            }
+            Map<String, Map<String, Integer>> attributes = new LinkedHashMap<>();
+            byAttribute.forEach((key, values) -> {
+                Map<String, Integer> counts = counts(matches, values);
+                if (!counts.isEmpty()) {
+                    attributes.put(key, counts);
+                }
+            });
+
+            return new FacetResult(
+                    matches.cardinality(),
+                    page,
+                    counts(matches, byCategory),
+                    prices,
+                    intersectionCount(matches, inStock),
+                    attributes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<String> priceBucketLabels() {
+        return List.of(priceLabels);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return live.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Estimativa dos bytes ocupados pelos bitmaps (palavras de 64 bits alocadas). */
+    public long memoryFootprintBytes() {
+        lock.readLock().lock();
+        try {
+            long bits = live.size() + inStock.size();
+            for (BitSet bs : byCategory.values()) {
+                bits += bs.size();
+            }
+            for (Map<String, BitSet> values : byAttribute.values()) {
+                for (BitSet bs : values.values()) {
+                    bits += bs.size();
+                }
+            }
+            for (BitSet bs : byPriceBucket) {
+                bits += bs.size();
+            }
+            return bits / 8;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductSaved(ProductSavedEvent event) {
+        if (!built) {
+            return;
+        }
+        long seq = loadSequence.incrementAndGet();
+        Optional<Doc> doc = loadDoc(event.productId());
+        lock.writeLock().lock();
+        try {
+            if (built && seq > builtAt) {
+                swap(event.productId(), seq, doc.orElse(null));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Cargas em massa: mais barato reconstruir sob demanda do que aplicar produto a produto
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductBatchSaved(ProductBatchSavedEvent event) {
+        if (built) {
+            invalidate();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStockChanged(VariantStockChangedEvent event) {
+        if (!built || event.productIds().isEmpty()) {
+            return;
+        }
+        List<UUID> productIds = List.copyOf(new LinkedHashSet<>(event.productIds()));
+        for (int from = 0; from < productIds.size(); from += REFRESH_CHUNK) {
+            List<UUID> chunk = productIds.subList(from, Math.min(from + REFRESH_CHUNK, productIds.size()));
+            long seq = loadSequence.incrementAndGet();
+            Map<UUID, List<Object[]>> variantsByProduct = new HashMap<>();
+            for (Object[] row : variantRepository.findActiveFacetRowsByProductIds(chunk)) {
+                variantsByProduct.computeIfAbsent((UUID) row[0], k -> new ArrayList<>()).add(row);
+            }
+            Map<UUID, Doc> loaded = new HashMap<>();
+            for (Object[] row : productRepository.findActiveFacetRowsByIds(chunk)) {
+                Doc doc = toDoc(row, variantsByProduct.getOrDefault((UUID) row[0], List.of()));
+                loaded.put(doc.productId(), doc);
+            }
+
+            lock.writeLock().lock();
+            try {
+                if (!built || seq < builtAt) {
+                    return;
+                }
+                for (UUID productId : chunk) {
+                    swap(productId, seq, loaded.get(productId));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductDeleted(ProductDeletedEvent event) {
+        long seq = loadSequence.incrementAndGet();
+        lock.writeLock().lock();
+        try {
+            swap(event.productId(), seq, null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if ("MANUAL_GLOBAL_REFRESH".equals(event.getEntityType()) || "PRODUCT".equals(event.getEntityType())) {
+            invalidate();
+        }
+    }
+
+    /** Descarta o índice; a próxima consulta reconstrói a partir do banco. */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            built = false;
+            clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureBuilt() {
+        if (built) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                return;
+            }
+            long start = System.nanoTime();
+            clear();
+            builtAt = loadSequence.incrementAndGet();
+            Map<UUID, List<Object[]>> variantsByProduct = new HashMap<>();
+            for (Object[] row : variantRepository.findActiveFacetRows()) {
+                variantsByProduct.computeIfAbsent((UUID) row[0], k -> new ArrayList<>()).add(row);
+            }
+            for (Object[] row : productRepository.findActiveFacetRows()) {
+                add(toDoc(row, variantsByProduct.getOrDefault((UUID) row[0], List.of())));
+            }
+            built = true;
+            log.info("Índice de facetas construído: {} produtos, {} bytes em bitmaps, {} ms",
+                    live.cardinality(), memoryFootprintBytes(), (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Chamado sob o lock de escrita; doc nulo = produto inativo ou removido
+    private void swap(UUID productId, long seq, Doc doc) {
+        if (loadedAt.getOrDefault(productId, 0L) > seq) {
+            return;
+        }
+        loadedAt.put(productId, seq);
+        remove(productId);
+        if (doc != null) {
+            add(doc);
+        }
+    }
+
+    private Optional<Doc> loadDoc(UUID productId) {
+        List<Object[]> rows = productRepository.findActiveFacetRowById(productId);
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(toDoc(rows.get(0), variantRepository.findActiveFacetRowsByProductId(productId)));
+    }
+
+    // product row: id, categoryId, price, stockQuantity
+    // variant row: productId, price, stockQuantity, attributesJson
+    private Doc toDoc(Object[] product, List<Object[]> variants) {
+        BigDecimal basePrice = (BigDecimal) product[2];
+        Set<Integer> buckets = new TreeSet<>();
+        Set<Map.Entry<String, String>> attributes = new HashSet<>();
+        boolean stock;
+
+        if (variants.isEmpty()) {
+            if (basePrice != null) {
+                buckets.add(bucketOf(basePrice));
+            }
+            stock = product[3] != null && ((Integer) product[3]) > 0;
+        } else {
+            stock = false;
+            for (Object[] variant : variants) {
+                BigDecimal price = variant[1] != null ? (BigDecimal) variant[1] : basePrice;
+                if (price != null) {
+                    buckets.add(bucketOf(price));
+                }
+                stock |= variant[2] != null && ((Integer) variant[2]) > 0;
+                attributes.addAll(parseAttributes((String) variant[3]));
+            }
+        }
+        return new Doc((UUID) product[0], (UUID) product[1], Set.copyOf(attributes), Set.copyOf(buckets), stock);
+    }
+
+    private Set<Map.Entry<String, String>> parseAttributes(String json) {
+        if (json == null || json.isBlank()) {
+            return Set.of();
+        }
+        try {
+            JsonNode node = objectMapper.readTree(json);
+            // Alguns drivers devolvem o jsonb como string JSON (texto entre aspas)
+            if (node.isTextual()) {
+                node = objectMapper.readTree(node.asText());
+            }
+            Set<Map.Entry<String, String>> result = new HashSet<>();
+            node.fields().forEachRemaining(field -> {
+                if (field.getValue().isValueNode() && !field.getValue().isNull()) {
+                    result.add(Map.entry(normalize(field.getKey()), normalize(field.getValue().asText())));
+                }
+            });
+            return result;
+        } catch (Exception e) {
+            log.warn("attributesJson inválido ignorado no índice de facetas: {}", e.getMessage());
+            return Set.of();
+        }
+    }
+
+    private BitSet evaluate(FacetFilter filter) {
+        return switch (filter) {
+            case FacetFilter.All all -> (BitSet) live.clone();
+            case FacetFilter.InStock s -> (BitSet) inStock.clone();
+            case FacetFilter.Category c -> (BitSet) byCategory.getOrDefault(c.categoryId(), EMPTY).clone();
+            case FacetFilter.Attribute a -> (BitSet) byAttribute
+                    .getOrDefault(normalize(a.key()), Map.of())
+                    .getOrDefault(normalize(a.value()), EMPTY).clone();
+            case FacetFilter.PriceBucket p -> {
+                int index = Arrays.asList(priceLabels).indexOf(p.label());
+                if (index < 0) {
+                    throw new IllegalArgumentException("Faixa de preço desconhecida: " + p.label());
+                }
+                yield (BitSet) byPriceBucket[index].clone();
+            }
+            case FacetFilter.And and -> {
+                BitSet result = (BitSet) live.clone();
+                for (FacetFilter f : and.filters()) {
+                    result.and(evaluate(f));
+                }
+                yield result;
+            }
+            case FacetFilter.Or or -> {
+                BitSet result = new BitSet();
+                for (FacetFilter f : or.filters()) {
+                    result.or(evaluate(f));
+                }
+                yield result;
+            }
+            case FacetFilter.Not not -> {
+                BitSet result = (BitSet) live.clone();
+                result.andNot(evaluate(not.filter()));
+                yield result;
+            }
+        };
+    }
+
+    private void add(Doc doc) {
+        int ordinal;
+        if (freeOrdinals.isEmpty()) {
+            ordinal = docs.size();
+            docs.add(doc);
+        } else {
+            ordinal = freeOrdinals.pop();
+            docs.set(ordinal, doc);
+        }
+        ordinals.put(doc.productId(), ordinal);
+        live.set(ordinal);
+        if (doc.inStock()) {
+            inStock.set(ordinal);
+        }
+        if (doc.categoryId() != null) {
+            byCategory.computeIfAbsent(doc.categoryId(), k -> new BitSet()).set(ordinal);
+        }
+        for (Map.Entry<String, String> attr : doc.attributes()) {
+            byAttribute.computeIfAbsent(attr.getKey(), k -> new TreeMap<>())
+                    .computeIfAbsent(attr.getValue(), k -> new BitSet()).set(ordinal);
+        }
+        for (int bucket : doc.priceBuckets()) {
+            byPriceBucket[bucket].set(ordinal);
+        }
+    }
+
+    private void remove(UUID productId) {
+        Integer ordinal = ordinals.remove(productId);
+        if (ordinal == null) {
+            return;
+        }
+        Doc doc = docs.get(ordinal);
+        live.clear(ordinal);
+        inStock.clear(ordinal);
+        if (doc.categoryId() != null) {
+            clearBit(byCategory, doc.categoryId(), ordinal);
+        }
+        for (Map.Entry<String, String> attr : doc.attributes()) {
+            Map<String, BitSet> values = byAttribute.get(attr.getKey());
+            if (values != null) {
+                clearBit(values, attr.getValue(), ordinal);
+                if (values.isEmpty()) {
+                    byAttribute.remove(attr.getKey());
+                }
+            }
+        }
+        for (int bucket : doc.priceBuckets()) {
+            byPriceBucket[bucket].clear(ordinal);
+        }
+        docs.set(ordinal, null);
+        freeOrdinals.push(ordinal);
+    }
+
+    private void clear() {
+        docs.clear();
+        ordinals.clear();
+        loadedAt.clear();
+        freeOrdinals.clear();
+        live.clear();
+        inStock.clear();
+        byCategory.clear();
+        byAttribute.clear();
+        for (BitSet bs : byPriceBucket) {
+            bs.clear();
+        }
+    }
+
+    private int bucketOf(BigDecimal price) {
+        for (int i = 0; i < priceBounds.length; i++) {
+            if (price.compareTo(priceBounds[i]) < 0) {
+                return i;
+            }
+        }
+        return priceBounds.length;
+    }
+
+    private static <K> void clearBit(Map<K, BitSet> bitmaps, K key, int ordinal) {
+        BitSet bs = bitmaps.get(key);
+        if (bs != null) {
+            bs.clear(ordinal);
+            if (bs.isEmpty()) {
+                bitmaps.remove(key);
+            }
+        }
+    }
+
+    private static <K> Map<K, Integer> counts(BitSet matches, Map<K, BitSet> bitmaps) {
+        Map<K, Integer> counts = new LinkedHashMap<>();
+        bitmaps.forEach((key, bs) -> {
+            int count = intersectionCount(matches, bs);
+            if (count > 0) {
+                counts.put(key, count);
+            }
+        });
+        return counts;
+    }
+
+    private static int intersectionCount(BitSet a, BitSet b) {
+        if (!a.intersects(b)) {
+            return 0;
+        }
+        BitSet copy = (BitSet) a.clone();
+        copy.and(b);
+        return copy.cardinality();
+    }
+
+    private static String normalize(String s) {
+        return s.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Doc(UUID productId, UUID categoryId, Set<Map.Entry<String, String>> attributes,
+            Set<Integer> priceBuckets, boolean inStock) {
+    }
+}
@@ -0,0 +1,49 @@
+package com.atelie.ecommerce.application.service.catalog.facet;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Filtro sobre o índice de facetas. Termos podem ser combinados livremente
+ * com {@link And}, {@link Or} e {@link Not}.
+ */
+public sealed interface FacetFilter {
+
+    record All() implements FacetFilter {
+    }
+
+    record Category(UUID categoryId) implements FacetFilter {
+    }
+
+    /** Atributo de variante (ex: cor=azul). Comparação sem diferenciar maiúsculas. */
+    record Attribute(String key, String value) implements FacetFilter {
+    }
+
+    /** Faixa de preço, pelo rótulo exposto nas facetas (ex: "50-100", "500+"). */
+    record PriceBucket(String label) implements FacetFilter {
+    }
+
+    record InStock() implements FacetFilter {
+    }
+
+    record And(List<FacetFilter> filters) implements FacetFilter {
+    }
+
+    record Or(List<FacetFilter> filters) implements FacetFilter {
+    }
+
+    record Not(FacetFilter filter) implements FacetFilter {
+    }
+
+    static FacetFilter all() {
+        return new All();
+    }
+
+    static FacetFilter and(List<FacetFilter> filters) {
+        return filters.size() == 1 ? filters.get(0) : new And(List.copyOf(filters));
+    }
+
+    static FacetFilter or(List<FacetFilter> filters) {
+        return filters.size() == 1 ? filters.get(0) : new Or(List.copyOf(filters));
+    }
+}
@@ -0,0 +1,19 @@
+package com.atelie.ecommerce.application.service.catalog.facet;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Resultado de uma consulta ao índice: total, IDs da página pedida e
+ * contagens de cada faceta dentro do conjunto filtrado.
+ */
+public record FacetResult(
+        int total,
+        List<UUID> productIds,
+        Map<UUID, Integer> categories,
+        Map<String, Integer> priceBuckets,
+        int inStock,
+        Map<String, Map<String, Integer>> attributes
+) {
+}
@@ -0,0 +1,308 @@
+package com.atelie.ecommerce.application.service.catalog.feed;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.*;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Geração de feeds do catálogo (NDJSON e merchant XML) para marketplaces.
+ *
+ * Metodologia:
+ * - Streaming: produtos e variantes vêm de um cursor no servidor (fetch size
+ *   dentro de transação somente leitura) e cada linha é escrita direto no
+ *   arquivo; a memória não cresce com o tamanho do catálogo.
+ * - Incremental: com {@code updatedSince}, só produtos alterados depois da
+ *   marca (produto ou qualquer variante) são reemitidos, inclusive inativos,
+ *   para que o marketplace retire o anúncio. O {@code watermark} devolvido é
+ *   o início da geração menos CATALOG_FEED_WATERMARK_LAG_MINUTES e serve de
+ *   {@code updatedSince} da próxima rodada: transações ainda abertas
+ *   (updated_at anterior ao commit) entram na rodada seguinte; produtos na
+ *   janela de atraso podem sair em dois deltas seguidos.
+ * - Arquivos gravados em CATALOG_FEED_DIR via arquivo temporário + move
+ *   atômico; só os CATALOG_FEED_RETENTION mais recentes são mantidos, mais o
+ *   feed completo mais recente de cada formato (alias catalog.{ext}).
+ */
+@Slf4j
+@Service
+public class CatalogFeedService {
+
+    private static final Pattern FILE_NAME = Pattern.compile("catalog-[a-z0-9-]+\\.(ndjson|xml)");
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+
+    // Uma linha por variante; produtos sem variante saem com as colunas de variante nulas.
+    private static final String FEED_SELECT = """
+            SELECT p.id AS product_id, p.name, p.description, p.slug, p.price AS product_price,
+                   p.active AS product_active, p.stock_quantity AS product_stock,
+                   p.updated_at AS product_updated_at, c.name AS category_name,
+                   (SELECT MIN(i.image_url) FROM product_images i WHERE i.product_id = p.id) AS first_image,
+                   v.id AS variant_id, v.sku, v.gtin, v.price AS variant_price, v.stock_quantity AS variant_stock,
+                   v.active AS variant_active, v.attributes_json, v.updated_at AS variant_updated_at
+            FROM products p
+            LEFT JOIN categories c ON c.id = p.category_id
+            LEFT JOIN product_variants v ON v.product_id = p.id
+            """;
+
+    private static final String FULL_WHERE = "WHERE p.active = true";
+
+    private static final String DELTA_WHERE = """
+            WHERE p.updated_at > ?
+               OR EXISTS (SELECT 1 FROM product_variants cv WHERE cv.product_id = p.id AND cv.updated_at > ?)
+            """;
+
+    private final JdbcTemplate cursorJdbc;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+    private final Path feedDir;
+    private final String productUrlPrefix;
+    private final String currency;
+    private final String title;
+    private final int retention;
+    private final long watermarkLagMinutes;
+
+    public CatalogFeedService(DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            @Value("${CATALOG_FEED_DIR:feeds}") String feedDir,
+            @Value("${CATALOG_FEED_PRODUCT_URL_PREFIX:/produto/}") String productUrlPrefix,
+            @Value("${CATALOG_FEED_CURRENCY:BRL}") String currency,
+            @Value("${CATALOG_FEED_TITLE:Ateliê Filhos de Aruanda}") String title,
+            @Value("${CATALOG_FEED_RETENTION:10}") int retention,
+            @Value("${CATALOG_FEED_FETCH_SIZE:500}") int fetchSize,
+            @Value("${CATALOG_FEED_WATERMARK_LAG_MINUTES:10}") long watermarkLagMinutes) {
+        // JdbcTemplate próprio: fetch size só vale para o feed, não para o resto da aplicação
+        this.cursorJdbc = new JdbcTemplate(dataSource);
+        this.cursorJdbc.setFetchSize(fetchSize);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.feedDir = Paths.get(feedDir);
+        this.productUrlPrefix = productUrlPrefix;
+        this.currency = currency;
+        this.title = title;
+        this.retention = retention;
+        this.watermarkLagMinutes = watermarkLagMinutes;
+
+        try {
+            Files.createDirectories(this.feedDir);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot create feed directory: " + this.feedDir, e);
+        }
+    }
+
+    public record GeneratedFeed(
+            String fileName,
+            FeedFormat format,
+            long items,
+            long sizeBytes,
+            LocalDateTime updatedSince,
+            LocalDateTime watermark,
+            long elapsedMs
+    ) {}
+
+    public record FeedFile(String fileName, long sizeBytes, LocalDateTime lastModified) {}
+
+    public GeneratedFeed generate(FeedFormat format, LocalDateTime updatedSince) {
+        long start = System.nanoTime();
+        LocalDateTime generatedAt = LocalDateTime.now();
+        LocalDateTime watermark = generatedAt.minusMinutes(watermarkLagMinutes);
+        String fileName = "catalog-"
+                + (updatedSince == null ? "full" : "since-" + updatedSince.format(STAMP).toLowerCase(Locale.ROOT))
+                + "-" + generatedAt.format(STAMP).toLowerCase(Locale.ROOT) + "." + format.extension();
+        Path target = feedDir.resolve(fileName);
+        Path tmp = feedDir.resolve(fileName + ".tmp");
+
+        long items;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp), 64 * 1024);
+                FeedWriter writer = format == FeedFormat.XML
+                        ? new MerchantXmlFeedWriter(out, title, currency)
+                        : new NdjsonFeedWriter(objectMapper, out)) {
+            writer.begin();
+            items = stream(updatedSince, writer);
+            writer.end();
+        } catch (IOException | UncheckedIOException e) {
+            deleteQuietly(tmp);
+            throw new IllegalStateException("Falha ao gerar feed " + fileName, e);
+        }
+
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            long size = Files.size(target);
+            prune();
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            log.info("Feed {} gerado: {} itens, {} bytes em {} ms", fileName, items, size, elapsedMs);
+            return new GeneratedFeed(fileName, format, items, size, updatedSince, watermark, elapsedMs);
+        } catch (IOException e) {
+            deleteQuietly(tmp);
+            throw new IllegalStateException("Falha ao publicar feed " + fileName, e);
+        }
+    }
+
+    /** Feeds disponíveis, do mais recente para o mais antigo. */
+    public List<FeedFile> list() {
+        try (Stream<Path> files = Files.list(feedDir)) {
+            return files.filter(p -> FILE_NAME.matcher(p.getFileName().toString()).matches())
+                    .map(this::toFeedFile)
+                    .sorted(Comparator.comparing(FeedFile::lastModified).reversed())
+                    .toList();
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao listar feeds", e);
+        }
+    }
+
+    /** Arquivo do feed para download; nomes fora do padrão nunca saem do diretório. */
+    public Optional<Resource> load(String fileName) {
+        if (fileName == null || !FILE_NAME.matcher(fileName).matches()) {
+            return Optional.empty();
+        }
+        Path path = feedDir.resolve(fileName);
+        return Files.isRegularFile(path) ? Optional.of(new FileSystemResource(path)) : Optional.empty();
+    }
+
+    /** Feed completo mais recente do formato (URL estável para os marketplaces). */
+    public Optional<Resource> latestFull(FeedFormat format) {
+        return latestFull(list(), format).flatMap(f -> load(f.fileName()));
+    }
+
+    private static Optional<FeedFile> latestFull(List<FeedFile> newestFirst, FeedFormat format) {
+        String suffix = "." + format.extension();
+        return newestFirst.stream()
+                .filter(f -> f.fileName().startsWith("catalog-full-") && f.fileName().endsWith(suffix))
+                .findFirst();
+    }
+
+    // ---------------- leitura ----------------
+
+    private long stream(LocalDateTime updatedSince, FeedWriter writer) {
+        long[] count = { 0 };
+        readOnlyTransaction.executeWithoutResult(status -> {
+            if (updatedSince == null) {
+                cursorJdbc.query(FEED_SELECT + FULL_WHERE, rs -> {
+                    write(writer, toItem(rs));
+                    count[0]++;
+                });
+            } else {
+                Timestamp since = Timestamp.valueOf(updatedSince);
+                cursorJdbc.query(FEED_SELECT + DELTA_WHERE, rs -> {
+                    write(writer, toItem(rs));
+                    count[0]++;
+                }, since, since);
+            }
+        });
+        return count[0];
+    }
+
+    private static void write(FeedWriter writer, FeedItem item) {
+        try {
+            writer.write(item);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private FeedItem toItem(ResultSet rs) throws SQLException {
+        UUID productId = rs.getObject("product_id", UUID.class);
+        UUID variantId = rs.getObject("variant_id", UUID.class);
+        boolean productActive = rs.getBoolean("product_active");
+        boolean hasVariant = variantId != null;
+
+        BigDecimal price = hasVariant && rs.getBigDecimal("variant_price") != null
+                ? rs.getBigDecimal("variant_price")
+                : rs.getBigDecimal("product_price");
+        int stock = hasVariant ? rs.getInt("variant_stock") : rs.getInt("product_stock");
+        boolean active = productActive && (!hasVariant || rs.getBoolean("variant_active"));
+        String image = rs.getString("first_image");
+        String slug = rs.getString("slug");
+
+        Timestamp productUpdated = rs.getTimestamp("product_updated_at");
+        Timestamp variantUpdated = hasVariant ? rs.getTimestamp("variant_updated_at") : null;
+        Timestamp updated = variantUpdated != null && (productUpdated == null || variantUpdated.after(productUpdated))
+                ? variantUpdated
+                : productUpdated;
+
+        return new FeedItem(
+                hasVariant ? rs.getString("sku") : productId.toString(),
+                productId,
+                rs.getString("name"),
+                rs.getString("description"),
+                productUrlPrefix + (slug != null ? slug : productId.toString()),
+                image,
+                price,
+                active && stock > 0,
+                stock,
+                hasVariant ? rs.getString("gtin") : null,
+                rs.getString("category_name"),
+                active,
+                hasVariant ? attributes(rs.getString("attributes_json")) : null,
+                updated != null ? updated.toLocalDateTime() : null);
+    }
+
+    private JsonNode attributes(String json) {
+        if (json == null || json.isBlank()) {
+            return null;
+        }
+        try {
+            JsonNode node = objectMapper.readTree(json);
+            // Colunas jsonb gravadas como string JSON chegam como texto; desembrulha
+            return node.isTextual() ? objectMapper.readTree(node.asText()) : node;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // ---------------- arquivos ----------------
+
+    private FeedFile toFeedFile(Path path) {
+        try {
+            return new FeedFile(path.getFileName().toString(), Files.size(path),
+                    LocalDateTime.ofInstant(Files.getLastModifiedTime(path).toInstant(), ZoneId.systemDefault()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void prune() {
+        List<FeedFile> files = list();
+        // Deltas não empurram para fora o último completo de cada formato
+        Set<String> keep = new HashSet<>();
+        for (FeedFormat format : FeedFormat.values()) {
+            latestFull(files, format).ifPresent(f -> keep.add(f.fileName()));
+        }
+        for (int i = retention; i < files.size(); i++) {
+            if (!keep.contains(files.get(i).fileName())) {
+                deleteQuietly(feedDir.resolve(files.get(i).fileName()));
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Não foi possível remover {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.atelie.ecommerce.application.service.catalog.feed;
+
+import java.util.Locale;
+
+/**
+ * Formatos de feed suportados: NDJSON (um item por linha) e XML no padrão
+ * RSS 2.0 com namespace g: (merchant/shopping feeds).
+ */
+public enum FeedFormat {
+    NDJSON("ndjson", "application/x-ndjson"),
+    XML("xml", "application/xml");
+
+    private final String extension;
+    private final String contentType;
+
+    FeedFormat(String extension, String contentType) {
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public static FeedFormat parse(String value) {
+        for (FeedFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(value) || format.name().equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Formato de feed inválido: " + value + " (use ndjson ou xml)");
+    }
+
+    public static FeedFormat fromFileName(String fileName) {
+        String lower = fileName.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".xml") ? XML : NDJSON;
+    }
+}
@@ -0,0 +1,28 @@
+package com.atelie.ecommerce.application.service.catalog.feed;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Um item do feed: uma variante (ou o produto, quando não há variantes),
+ * agrupada pelo produto em {@code itemGroupId}.
+ */
+record FeedItem(
+        String id,
+        UUID itemGroupId,
+        String title,
+        String description,
+        String link,
+        String imageLink,
+        BigDecimal price,
+        boolean available,
+        int stock,
+        String gtin,
+        String category,
+        boolean active,
+        JsonNode attributes,
+        LocalDateTime updatedAt
+) {}
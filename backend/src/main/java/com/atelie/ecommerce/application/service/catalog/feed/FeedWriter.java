@@ -0,0 +1,16 @@
+package com.atelie.ecommerce.application.service.catalog.feed;
+
+import java.io.IOException;
+
+/** Escrita incremental do feed: nada além do item corrente fica em memória. */
+interface FeedWriter extends AutoCloseable {
+
+    void begin() throws IOException;
+
+    void write(FeedItem item) throws IOException;
+
+    void end() throws IOException;
+
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,105 @@
+package com.atelie.ecommerce.application.service.catalog.feed;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/** RSS 2.0 com namespace g: (formato de merchant feed aceito pelos marketplaces). */
+final class MerchantXmlFeedWriter implements FeedWriter {
+
+    private static final String G = "http://base.google.com/ns/1.0";
+
+    private final XMLStreamWriter xml;
+    private final String title;
+    private final String currency;
+
+    MerchantXmlFeedWriter(OutputStream out, String title, String currency) throws IOException {
+        try {
+            this.xml = XMLOutputFactory.newFactory().createXMLStreamWriter(out, "UTF-8");
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+        this.title = title;
+        this.currency = currency;
+    }
+
+    @Override
+    public void begin() throws IOException {
+        try {
+            xml.writeStartDocument("UTF-8", "1.0");
+            xml.setPrefix("g", G);
+            xml.writeStartElement("rss");
+            xml.writeAttribute("version", "2.0");
+            xml.writeNamespace("g", G);
+            xml.writeStartElement("channel");
+            element("title", title);
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void write(FeedItem item) throws IOException {
+        try {
+            xml.writeStartElement("item");
+            gElement("id", item.id());
+            gElement("item_group_id", item.itemGroupId().toString());
+            gElement("title", item.title());
+            gElement("description", item.description());
+            gElement("link", item.link());
+            gElement("image_link", item.imageLink());
+            gElement("price", price(item.price()));
+            gElement("availability", item.available() ? "in_stock" : "out_of_stock");
+            gElement("condition", "new");
+            gElement("gtin", item.gtin());
+            gElement("product_type", item.category());
+            xml.writeEndElement();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void end() throws IOException {
+        try {
+            xml.writeEndElement();
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.flush();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            xml.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private String price(BigDecimal value) {
+        return value != null ? value.setScale(2, RoundingMode.HALF_UP).toPlainString() + " " + currency : null;
+    }
+
+    private void element(String name, String value) throws XMLStreamException {
+        xml.writeStartElement(name);
+        xml.writeCharacters(value);
+        xml.writeEndElement();
+    }
+
+    private void gElement(String name, String value) throws XMLStreamException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        xml.writeStartElement("g", name, G);
+        xml.writeCharacters(value);
+        xml.writeEndElement();
+    }
+}
@@ -0,0 +1,58 @@
+package com.atelie.ecommerce.application.service.catalog.feed;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+final class NdjsonFeedWriter implements FeedWriter {
+
+    private final ObjectMapper objectMapper;
+    private final JsonGenerator generator;
+
+    NdjsonFeedWriter(ObjectMapper objectMapper, OutputStream out) throws IOException {
+        this.objectMapper = objectMapper;
+        this.generator = objectMapper.getFactory().createGenerator(out);
+        // Um objeto JSON por linha, sem o separador padrão (espaço) do root value
+        this.generator.setRootValueSeparator(null);
+    }
+
+    @Override
+    public void begin() {
+    }
+
+    @Override
+    public void write(FeedItem item) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("id", item.id());
+        generator.writeStringField("itemGroupId", item.itemGroupId().toString());
+        generator.writeStringField("title", item.title());
+        generator.writeStringField("description", item.description());
+        generator.writeStringField("link", item.link());
+        generator.writeStringField("imageLink", item.imageLink());
+        generator.writeNumberField("price", item.price());
+        generator.writeStringField("availability", item.available() ? "in_stock" : "out_of_stock");
+        generator.writeNumberField("stock", item.stock());
+        generator.writeStringField("gtin", item.gtin());
+        generator.writeStringField("category", item.category());
+        generator.writeBooleanField("active", item.active());
+        if (item.attributes() != null) {
+            generator.writeFieldName("attributes");
+            objectMapper.writeTree(generator, item.attributes());
+        }
+        generator.writeStringField("updatedAt", item.updatedAt() != null ? item.updatedAt().toString() : null);
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    @Override
+    public void end() throws IOException {
+        generator.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
@@ -0,0 +1,87 @@
+package com.atelie.ecommerce.application.service.catalog.product;
+
+import com.atelie.ecommerce.domain.catalog.event.ProductBatchSavedEvent;
+import com.atelie.ecommerce.domain.catalog.event.ProductDeletedEvent;
+import com.atelie.ecommerce.domain.catalog.event.ProductSavedEvent;
+import com.atelie.ecommerce.domain.inventory.event.VariantStockChangedEvent;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Versão das listagens do catálogo: contador em catalog_version (V23)
+ * incrementado a cada gravação, lido por chave primária a cada GET.
+ *
+ * Metodologia:
+ * - Os mesmos eventos que invalidam o ProductCache (ProductSaved,
+ *   ProductBatchSaved, ProductDeleted, VariantStockChanged) incrementam a
+ *   versão após o commit, em transação própria e curta: a linha não fica
+ *   travada durante a transação do pedido.
+ * - No banco, não em memória: todos os nós devolvem o mesmo ETag e veem as
+ *   gravações uns dos outros.
+ * - Gravações que não publicam esses eventos não mudam a versão.
+ */
+@Component
+public class CatalogVersion {
+
+    /** Versão corrente e instante da última gravação. */
+    public record Current(long version, LocalDateTime updatedAt) {
+    }
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate newTransaction;
+
+    public CatalogVersion(NamedParameterJdbcTemplate jdbc, PlatformTransactionManager transactionManager) {
+        this.jdbc = jdbc;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public Current current() {
+        List<Current> rows = jdbc.query("SELECT version, updated_at FROM catalog_version WHERE id = 1",
+                new MapSqlParameterSource(),
+                (rs, i) -> new Current(rs.getLong("version"), rs.getTimestamp("updated_at").toLocalDateTime()));
+        return rows.isEmpty() ? new Current(0, null) : rows.get(0);
+    }
+
+    public void bump() {
+        // Após o commit a transação original já terminou: a gravação precisa da própria
+        newTransaction.executeWithoutResult(status -> {
+            MapSqlParameterSource params = new MapSqlParameterSource("now", Timestamp.valueOf(LocalDateTime.now()));
+            if (jdbc.update("UPDATE catalog_version SET version = version + 1, updated_at = :now WHERE id = 1",
+                    params) == 0) {
+                jdbc.update("INSERT INTO catalog_version (id, version, updated_at) VALUES (1, 1, :now) "
+                        + "ON CONFLICT DO NOTHING", params);
+            }
+        });
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductSaved(ProductSavedEvent event) {
+        bump();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductBatchSaved(ProductBatchSavedEvent event) {
+        bump();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductDeleted(ProductDeletedEvent event) {
+        bump();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStockChanged(VariantStockChangedEvent event) {
+        bump();
+    }
+}
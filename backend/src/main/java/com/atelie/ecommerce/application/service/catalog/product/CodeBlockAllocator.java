@@ -0,0 +1,173 @@
+package com.atelie.ecommerce.application.service.catalog.product;
+
+import com.atelie.ecommerce.infrastructure.persistence.product.CodeSequenceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Alocador hi/lo de códigos sequenciais (GTIN, SKU).
+ *
+ * Metodologia:
+ * - Cada nó reserva uma faixa de CODE_ALLOCATOR_BLOCK_SIZE valores avançando a
+ *   linha da sequência em code_sequences, em transação própria (REQUIRES_NEW):
+ *   a faixa fica reservada mesmo se a transação do chamador fizer rollback.
+ * - Dentro da faixa os valores saem da memória sem lock (getAndIncrement);
+ *   só o esgotamento da faixa sincroniza e vai ao banco.
+ * - Valores nunca se repetem entre nós; faixas abandonadas (restart) viram
+ *   lacunas, o que é aceitável para códigos internos.
+ * - Sequência com códigos legados no mesmo espaço (GTINs aleatórios de antes
+ *   da sequência) registra um {@link TakenValues}: consultado uma vez por
+ *   faixa reservada, os valores já usados são pulados.
+ */
+@Slf4j
+@Component
+public class CodeBlockAllocator {
+
+    private final CodeSequenceRepository sequenceRepository;
+    private final TransactionTemplate newTransaction;
+    private final int blockSize;
+    private final Map<String, Range> ranges = new ConcurrentHashMap<>();
+    private final Map<String, TakenValues> exclusions = new ConcurrentHashMap<>();
+
+    /** Valores já usados em [from, to) fora da sequência. */
+    @FunctionalInterface
+    public interface TakenValues {
+        Set<Long> in(long from, long to);
+    }
+
+    public CodeBlockAllocator(CodeSequenceRepository sequenceRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${CODE_ALLOCATOR_BLOCK_SIZE:1000}") int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("CODE_ALLOCATOR_BLOCK_SIZE deve ser positivo");
+        }
+        this.sequenceRepository = sequenceRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+    }
+
+    /** Faixas reservadas de {@code sequence} passam a pular os valores de {@code taken}. */
+    public void skipTaken(String sequence, TakenValues taken) {
+        exclusions.put(sequence, taken);
+    }
+
+    /** Próximo valor da sequência; só vai ao banco quando a faixa local acaba. */
+    public long next(String sequence) {
+        Range range = ranges.get(sequence);
+        if (range != null) {
+            long value = range.take();
+            if (value >= 0) {
+                return value;
+            }
+        }
+        return nextSlow(sequence);
+    }
+
+    /**
+     * {@code count} valores distintos de uma vez (cargas em massa). Pedidos
+     * maiores que o bloco reservam uma faixa exclusiva em uma única ida ao banco.
+     */
+    public long[] nextBlock(String sequence, int count) {
+        long[] values = new long[count];
+        if (count >= blockSize) {
+            int filled = 0;
+            while (filled < count) {
+                long size = count - filled;
+                long start = reserve(sequence, size);
+                Set<Long> taken = takenIn(sequence, start, start + size);
+                for (long value = start; value < start + size; value++) {
+                    if (!taken.contains(value)) {
+                        values[filled++] = value;
+                    }
+                }
+            }
+            return values;
+        }
+        for (int i = 0; i < count; i++) {
+            values[i] = next(sequence);
+        }
+        return values;
+    }
+
+    private synchronized long nextSlow(String sequence) {
+        // Outra thread pode ter renovado a faixa enquanto esperávamos o lock
+        Range current = ranges.get(sequence);
+        if (current != null) {
+            long value = current.take();
+            if (value >= 0) {
+                return value;
+            }
+        }
+        // Faixa inteira já usada (códigos legados): reserva a seguinte
+        while (true) {
+            long start = reserve(sequence, blockSize);
+            Range fresh = new Range(start, start + blockSize, takenIn(sequence, start, start + blockSize));
+            ranges.put(sequence, fresh);
+            long value = fresh.take();
+            if (value >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private Set<Long> takenIn(String sequence, long from, long to) {
+        TakenValues taken = exclusions.get(sequence);
+        return taken != null ? taken.in(from, to) : Set.of();
+    }
+
+    /** Reserva [início, início + size) no banco e devolve o início. */
+    private long reserve(String sequence, long size) {
+        Long start = newTransaction.execute(status -> {
+            if (sequenceRepository.advance(sequence, size) == 1) {
+                return sequenceRepository.currentValue(sequence) - size;
+            }
+            return null;
+        });
+        if (start != null) {
+            return start;
+        }
+        // Primeira reserva da sequência neste banco: cria a linha já avançada
+        try {
+            newTransaction.executeWithoutResult(status -> sequenceRepository.create(sequence, size));
+            log.info("Sequência de códigos '{}' criada", sequence);
+            return 0L;
+        } catch (DataIntegrityViolationException e) {
+            // Outro nó criou a linha ao mesmo tempo: basta avançar
+            return reserve(sequence, size);
+        }
+    }
+
+    private static final class Range {
+        final AtomicLong cursor;
+        final long end;
+        final Set<Long> taken;
+
+        Range(long start, long end, Set<Long> taken) {
+            this.cursor = new AtomicLong(start);
+            this.end = end;
+            this.taken = taken;
+        }
+
+        /** Próximo valor livre da faixa, ou -1 se acabou. */
+        long take() {
+            long value;
+            while ((value = cursor.getAndIncrement()) < end) {
+                if (!taken.contains(value)) {
+                    return value;
+                }
+            }
+            return -1;
+        }
+    }
+}
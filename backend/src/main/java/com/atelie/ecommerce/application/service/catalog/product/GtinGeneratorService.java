@@ -1,23 +1,86 @@
 package com.atelie.ecommerce.application.service.catalog.product;
 
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantRepository;
 import org.springframework.stereotype.Service;
-import java.util.Random;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
 
 @Service
 public class GtinGeneratorService {
 
-    private final Random random = new Random();
+    static final String GTIN_SEQUENCE = "gtin";
+    static final String SKU_SEQUENCE = "sku";
+
+    // 11 dígitos de corpo após o prefixo interno '2'
+    private static final long MAX_GTIN_BODY = 99_999_999_999L;
+    private static final Pattern INTERNAL_EAN13 = Pattern.compile("2\\d{12}");
+
+    private final CodeBlockAllocator allocator;
+    private final ProductVariantRepository variantRepository;
+
+    public GtinGeneratorService(CodeBlockAllocator allocator, ProductVariantRepository variantRepository) {
+        this.allocator = allocator;
+        this.variantRepository = variantRepository;
+        // O gerador aleatório antigo usou o mesmo prefixo '2': faixas pulam os corpos já gravados
+        allocator.skipTaken(GTIN_SEQUENCE, this::takenBodies);
+    }
 
     /**
      * Gera um EAN-13 válido iniciado com '2' (Uso interno/Restrito).
-     * Formato: 2 + 11 dígitos aleatórios + Dígito Verificador.
+     * Formato: 2 + 11 dígitos sequenciais (faixa reservada por nó) + Dígito Verificador.
      */
     public String generateInternalEan13() {
-        StringBuilder sb = new StringBuilder("2"); // Prefixo interno comum
-        for (int i = 0; i < 11; i++) {
-            sb.append(random.nextInt(10));
+        return toEan13(allocator.next(GTIN_SEQUENCE));
+    }
+
+    /**
+     * Gera {@code count} EAN-13 internos distintos de uma vez (cargas em massa),
+     * sem consulta ao banco por código.
+     */
+    public List<String> generateBlock(int count) {
+        List<String> block = new ArrayList<>(count);
+        for (long body : allocator.nextBlock(GTIN_SEQUENCE, count)) {
+            block.add(toEan13(body));
+        }
+        return block;
+    }
+
+    /**
+     * SKU interno: prefixo do produto (legibilidade) + sufixo sequencial em
+     * base 36, único entre todos os nós. Formato: SKU-1A2B3C4D-7PS.
+     */
+    public String generateSku(UUID productId) {
+        return "SKU-" + productId.toString().substring(0, 8).toUpperCase(Locale.ROOT) + "-"
+                + Long.toString(allocator.next(SKU_SEQUENCE), 36).toUpperCase(Locale.ROOT);
+    }
+
+    // Uma consulta por faixa (intervalo no índice único de gtin)
+    private Set<Long> takenBodies(long from, long to) {
+        long last = Math.min(to - 1, MAX_GTIN_BODY);
+        if (from > last) {
+            return Set.of();
+        }
+        Set<Long> taken = new HashSet<>();
+        for (String gtin : variantRepository.findGtinsBetween(
+                "2" + String.format("%011d", from) + "0", "2" + String.format("%011d", last) + "9")) {
+            if (INTERNAL_EAN13.matcher(gtin).matches()) {
+                taken.add(Long.parseLong(gtin.substring(1, 12)));
+            }
+        }
+        return taken;
+    }
+
+    private String toEan13(long body) {
+        if (body < 0 || body > MAX_GTIN_BODY) {
+            throw new IllegalStateException("Faixa de GTIN interno esgotada: " + body);
         }
-        String codeWithoutDigit = sb.toString();
+        String codeWithoutDigit = "2" + String.format("%011d", body);
         int checkDigit = calculateCheckDigit(codeWithoutDigit);
         return codeWithoutDigit + checkDigit;
     }
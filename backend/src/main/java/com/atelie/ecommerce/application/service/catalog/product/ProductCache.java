@@ -0,0 +1,133 @@
+package com.atelie.ecommerce.application.service.catalog.product;
+
+import com.atelie.ecommerce.domain.catalog.event.ProductDeletedEvent;
+import com.atelie.ecommerce.domain.catalog.event.ProductSavedEvent;
+import com.atelie.ecommerce.domain.common.event.EntityChangedEvent;
+import com.atelie.ecommerce.domain.inventory.event.VariantStockChangedEvent;
+import com.atelie.ecommerce.infrastructure.cache.BoundedFrequencyCache;
+import com.atelie.ecommerce.infrastructure.persistence.product.entity.ProductEntity;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Cache de leitura de produtos (por ID e por slug) usado pela vitrine.
+ *
+ * - Tamanho limitado (PRODUCT_CACHE_MAX_SIZE) com admissão por frequência.
+ * - Invalidação precisa: ProductSavedEvent/ProductDeletedEvent removem apenas
+ *   o produto afetado, após o commit; o refresh manual do admin limpa tudo.
+ * - VariantStockChangedEvent (pedidos, reservas, movimentações, flush hot
+ *   SKU) remove os produtos afetados: o grafo de variantes em cache traz
+ *   stockQuantity/reservedQuantity.
+ * - Métricas expostas no padrão Micrometer (cache.gets, cache.evictions, cache.size).
+ */
+@Component
+public class ProductCache {
+
+    static final String CACHE_NAME = "products";
+
+    private final BoundedFrequencyCache<UUID, ProductEntity> byId;
+    private final Map<String, UUID> slugIndex = new ConcurrentHashMap<>();
+
+    // Incrementado a cada invalidação: um load iniciado antes dela não pode
+    // repovoar o cache com dados antigos.
+    private final AtomicLong generation = new AtomicLong();
+
+    public ProductCache(MeterRegistry meterRegistry,
+            @Value("${PRODUCT_CACHE_MAX_SIZE:2000}") int maximumSize) {
+        this.byId = new BoundedFrequencyCache<>(maximumSize,
+                (id, product) -> {
+                    if (product.getSlug() != null) {
+                        slugIndex.remove(product.getSlug(), id);
+                    }
+                });
+
+        FunctionCounter.builder("cache.gets", byId, BoundedFrequencyCache::hitCount)
+                .tag("cache", CACHE_NAME).tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("cache.gets", byId, BoundedFrequencyCache::missCount)
+                .tag("cache", CACHE_NAME).tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("cache.evictions", byId, BoundedFrequencyCache::evictionCount)
+                .tag("cache", CACHE_NAME).register(meterRegistry);
+        Gauge.builder("cache.size", byId, BoundedFrequencyCache::size)
+                .tag("cache", CACHE_NAME).register(meterRegistry);
+    }
+
+    public Optional<ProductEntity> getById(UUID id, Function<UUID, Optional<ProductEntity>> loader) {
+        ProductEntity cached = byId.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        long observed = generation.get();
+        Optional<ProductEntity> loaded = loader.apply(id);
+        loaded.ifPresent(product -> store(product, observed));
+        return loaded;
+    }
+
+    public Optional<ProductEntity> getBySlug(String slug, Function<String, Optional<ProductEntity>> loader) {
+        UUID id = slugIndex.get(slug);
+        if (id != null) {
+            ProductEntity cached = byId.getIfPresent(id);
+            if (cached != null && slug.equals(cached.getSlug())) {
+                return Optional.of(cached);
+            }
+        }
+        long observed = generation.get();
+        Optional<ProductEntity> loaded = loader.apply(slug);
+        loaded.ifPresent(product -> store(product, observed));
+        return loaded;
+    }
+
+    public synchronized void evict(UUID id) {
+        generation.incrementAndGet();
+        byId.invalidate(id);
+    }
+
+    public synchronized void evictAll() {
+        generation.incrementAndGet();
+        byId.invalidateAll();
+        slugIndex.clear();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductSaved(ProductSavedEvent event) {
+        evict(event.productId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductDeleted(ProductDeletedEvent event) {
+        evict(event.productId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStockChanged(VariantStockChangedEvent event) {
+        event.productIds().forEach(this::evict);
+    }
+
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if ("MANUAL_GLOBAL_REFRESH".equals(event.getEntityType()) || "PRODUCT".equals(event.getEntityType())) {
+            evictAll();
+        }
+    }
+
+    private synchronized void store(ProductEntity product, long observedGeneration) {
+        if (generation.get() != observedGeneration) {
+            return;
+        }
+        if (byId.put(product.getId(), product) && product.getSlug() != null) {
+            slugIndex.put(product.getSlug(), product.getId());
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package com.atelie.ecommerce.application.service.catalog.product;
 
+import com.atelie.ecommerce.api.catalog.product.dto.ProductSummary;
 import com.atelie.ecommerce.api.common.exception.NotFoundException;
+import com.atelie.ecommerce.api.common.http.ContentVersion;
+import com.atelie.ecommerce.api.common.pagination.CursorPage;
+import com.atelie.ecommerce.api.common.pagination.SeekCursor;
+import com.atelie.ecommerce.domain.catalog.event.ProductDeletedEvent;
 import com.atelie.ecommerce.domain.catalog.event.ProductSavedEvent;
 import com.atelie.ecommerce.infrastructure.persistence.category.CategoryEntity;
 import com.atelie.ecommerce.infrastructure.persistence.category.CategoryRepository;
@@ -9,11 +14,16 @@ import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository
 import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantEntity; // Import
 import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantRepository; // Import
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 import com.atelie.ecommerce.api.config.DynamicConfigService;
@@ -21,6 +31,7 @@ import com.atelie.ecommerce.api.common.exception.BusinessException;
 import java.util.List;
 import java.util.ArrayList;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Service
 public class ProductService {
@@ -31,23 +42,48 @@ public class ProductService {
     private final GtinGeneratorService gtinGenerator; // New dependency
     private final DynamicConfigService configService;
     private final ApplicationEventPublisher eventPublisher;
+    private final ProductCache productCache;
+    private final CatalogVersion catalogVersion;
+
+    // "fulltext" (Postgres tsvector + trigramas, V8) ou "like" (ILIKE no nome).
+    @Value("${PRODUCT_SEARCH_MODE:fulltext}")
+    private String searchMode = "fulltext";
 
     public ProductService(ProductRepository productRepository,
             CategoryRepository categoryRepository,
             ProductVariantRepository variantRepository,
             GtinGeneratorService gtinGenerator,
             DynamicConfigService configService,
-            ApplicationEventPublisher eventPublisher) {
+            ApplicationEventPublisher eventPublisher,
+            ProductCache productCache,
+            CatalogVersion catalogVersion) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
         this.variantRepository = variantRepository;
         this.gtinGenerator = gtinGenerator;
         this.configService = configService;
         this.eventPublisher = eventPublisher;
+        this.productCache = productCache;
+        this.catalogVersion = catalogVersion;
     }
 
+    /**
+     * Leitura para a vitrine: servida pelo ProductCache. O objeto retornado é
+     * compartilhado e não deve ser alterado; fluxos de escrita usam
+     * {@link #loadForUpdate(UUID)}.
+     */
     @Transactional(readOnly = true)
     public ProductEntity findById(UUID id) {
+        return productCache.getById(id, productRepository::findById)
+                .orElseThrow(() -> new NotFoundException("Product not found with ID: " + id));
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<ProductEntity> findBySlug(String slug) {
+        return productCache.getBySlug(slug, productRepository::findBySlug);
+    }
+
+    private ProductEntity loadForUpdate(UUID id) {
         return productRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Product not found with ID: " + id));
     }
@@ -76,8 +112,7 @@ public class ProductService {
             for (ProductVariantEntity variant : variants) {
                 variant.setProduct(saved);
                 if (variant.getSku() == null || variant.getSku().isBlank()) {
-                    variant.setSku("SKU-" + saved.getId().toString().substring(0, 8).toUpperCase() + "-"
-                            + java.util.UUID.randomUUID().toString().substring(0, 4));
+                    variant.setSku(gtinGenerator.generateSku(saved.getId()));
                 }
                 if (variant.getGtin() == null) {
                     variant.setGtin(gtinGenerator.generateInternalEan13());
@@ -108,7 +143,7 @@ public class ProductService {
     private void createDefaultVariant(ProductEntity product) {
         ProductVariantEntity defaultVariant = ProductVariantEntity.builder()
                 .product(product)
-                .sku("SKU-" + product.getId().toString().substring(0, 8).toUpperCase())
+                .sku(gtinGenerator.generateSku(product.getId()))
                 .gtin(gtinGenerator.generateInternalEan13())
                 .price(null)
                 .stockQuantity(product.getStockQuantity() != null ? product.getStockQuantity() : 0)
@@ -121,7 +156,7 @@ public class ProductService {
 
     @Transactional
     public ProductEntity updateProduct(UUID id, ProductEntity details) {
-        ProductEntity existing = findById(id);
+        ProductEntity existing = loadForUpdate(id);
 
         existing.setName(details.getName());
         existing.setDescription(details.getDescription());
@@ -140,10 +175,31 @@ public class ProductService {
 
     @Transactional
     public void toggleAlert(UUID id) {
-        ProductEntity product = findById(id);
+        ProductEntity product = loadForUpdate(id);
         boolean current = product.getAlertEnabled() != null ? product.getAlertEnabled() : false;
         product.setAlertEnabled(!current);
         productRepository.save(product);
+        eventPublisher.publishEvent(new ProductSavedEvent(product.getId(), false));
+    }
+
+    @Transactional
+    public ProductEntity updateMainImage(UUID id, String imageUrl) {
+        ProductEntity product = loadForUpdate(id);
+        product.setImageUrl(imageUrl);
+        // Só a coleção de imagens mudou: @PreUpdate não dispara sozinho
+        product.setUpdatedAt(LocalDateTime.now());
+        ProductEntity saved = productRepository.save(product);
+        eventPublisher.publishEvent(new ProductSavedEvent(saved.getId(), false));
+        return saved;
+    }
+
+    @Transactional
+    public void deleteProduct(UUID id) {
+        if (!productRepository.existsById(id)) {
+            throw new NotFoundException("Product not found with ID: " + id);
+        }
+        productRepository.deleteById(id);
+        eventPublisher.publishEvent(new ProductDeletedEvent(id));
     }
 
     public String generateDescription(String title) {
@@ -172,8 +228,142 @@ public class ProductService {
         return productRepository.findByActiveTrue(pageable);
     }
 
+    /**
+     * Listagem da vitrine baseada na projeção {@link ProductSummary}:
+     * uma consulta para a página (+ count) e uma para as imagens da página.
+     */
+    @Transactional(readOnly = true)
+    public Page<ProductSummary> listSummaries(UUID categoryId, Pageable pageable) {
+        Page<ProductSummary> page = categoryId != null
+                ? productRepository.findActiveSummariesByCategory(categoryId, pageable)
+                : productRepository.findActiveSummaries(pageable);
+        if (page.isEmpty()) {
+            return page;
+        }
+
+        Map<UUID, String> firstImage = firstImages(page.getContent().stream().map(ProductSummary::id).toList());
+        return page.map(summary -> summary.withImageUrl(firstImage.get(summary.id())));
+    }
+
+    /**
+     * Versão de conteúdo do produto (para GET condicional), sem carregar a entidade.
+     * Inclui as variantes: estoque alterado por UPDATE em lote também muda a versão.
+     */
+    @Transactional(readOnly = true)
+    public Optional<ContentVersion> productVersion(UUID id) {
+        return productRepository.findContentVersion(id).stream().findFirst().map(row -> ContentVersion.of(
+                ContentVersion.latest(ContentVersion.toInstant((LocalDateTime) row[0]),
+                        ContentVersion.toInstant((LocalDateTime) row[2])),
+                id, row[1], row[3], ((Number) row[4]).longValue(), ((Number) row[5]).longValue()));
+    }
+
+    /**
+     * Produto cujo conteúdo corresponde a {@code expected} (versão lida do
+     * banco): se o grafo em cache é de outra versão (escrita que não passou
+     * pela invalidação), é descartado e recarregado. ETag e corpo vêm do
+     * mesmo estado.
+     */
+    @Transactional(readOnly = true)
+    public ProductEntity findById(UUID id, ContentVersion expected) {
+        ProductEntity product = findById(id);
+        if (!expected.equals(versionOf(product))) {
+            productCache.evict(id);
+            product = findById(id);
+        }
+        return product;
+    }
+
+    // Mesma conta de findContentVersion, sobre o grafo carregado
+    static ContentVersion versionOf(ProductEntity product) {
+        LocalDateTime variantsUpdatedAt = null;
+        long count = 0;
+        long stock = 0;
+        long reserved = 0;
+        List<ProductVariantEntity> variants = product.getVariants() != null ? product.getVariants() : List.of();
+        for (ProductVariantEntity variant : variants) {
+            count++;
+            stock += variant.getStockQuantity() != null ? variant.getStockQuantity() : 0;
+            reserved += variant.getReservedQuantity() != null ? variant.getReservedQuantity() : 0;
+            if (variant.getUpdatedAt() != null
+                    && (variantsUpdatedAt == null || variant.getUpdatedAt().isAfter(variantsUpdatedAt))) {
+                variantsUpdatedAt = variant.getUpdatedAt();
+            }
+        }
+        return ContentVersion.of(
+                ContentVersion.latest(ContentVersion.toInstant(product.getUpdatedAt()),
+                        ContentVersion.toInstant(variantsUpdatedAt)),
+                product.getId(), product.getStockQuantity(), count, stock, reserved);
+    }
+
+    /**
+     * Versão de uma listagem do catálogo: contador do CatalogVersion (uma
+     * leitura por chave primária) + parâmetros da página.
+     */
+    public ContentVersion catalogVersion(Object... pageParams) {
+        CatalogVersion.Current current = catalogVersion.current();
+        Object[] parts = new Object[pageParams.length + 2];
+        parts[0] = current.version();
+        parts[1] = searchMode;
+        System.arraycopy(pageParams, 0, parts, 2, pageParams.length);
+        return ContentVersion.of(ContentVersion.toInstant(current.updatedAt()), parts);
+    }
+
+    /**
+     * Listagem por cursor (created_at DESC, id DESC): custo constante em
+     * qualquer profundidade e sem count. {@code after} vazio/nulo = primeira página.
+     *
+     * @throws IllegalArgumentException se o cursor for inválido.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<ProductEntity> listByCursor(UUID categoryId, String after, int size) {
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<ProductEntity> rows;
+        if (after == null || after.isBlank()) {
+            rows = categoryId != null
+                    ? productRepository.findFirstByCursorInCategory(categoryId, limit)
+                    : productRepository.findFirstByCursor(limit);
+        } else {
+            SeekCursor cursor = SeekCursor.decode(after);
+            rows = categoryId != null
+                    ? productRepository.findAfterCursorInCategory(categoryId, cursor.createdAtLocal(), cursor.id(), limit)
+                    : productRepository.findAfterCursor(cursor.createdAtLocal(), cursor.id(), limit);
+        }
+        return CursorPage.fromLookahead(rows, size, p -> SeekCursor.of(p.getCreatedAt(), p.getId()));
+    }
+
+    /** Resumos dos produtos informados, na mesma ordem dos IDs (ex: página do índice de facetas). */
+    @Transactional(readOnly = true)
+    public List<ProductSummary> findSummaries(List<UUID> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<UUID, ProductSummary> byId = new HashMap<>();
+        for (ProductSummary summary : productRepository.findSummariesByIds(ids)) {
+            byId.put(summary.id(), summary);
+        }
+        Map<UUID, String> firstImage = firstImages(ids);
+        return ids.stream()
+                .map(byId::get)
+                .filter(java.util.Objects::nonNull)
+                .map(summary -> summary.withImageUrl(firstImage.get(summary.id())))
+                .toList();
+    }
+
+    private Map<UUID, String> firstImages(List<UUID> ids) {
+        Map<UUID, String> firstImage = new HashMap<>();
+        for (Object[] row : productRepository.findImageUrlsByProductIds(ids)) {
+            firstImage.putIfAbsent((UUID) row[0], (String) row[1]);
+        }
+        return firstImage;
+    }
+
     @Transactional(readOnly = true)
     public Page<ProductEntity> searchProducts(String query, Pageable pageable) {
-        return productRepository.findByNameContainingIgnoreCase(query, pageable);
+        if ("like".equalsIgnoreCase(searchMode)) {
+            return productRepository.findByNameContainingIgnoreCase(query, pageable);
+        }
+        // Relevância define a ordem: descarta Sort vindo da requisição.
+        Pageable unsorted = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        return productRepository.searchRanked(query.trim(), unsorted);
     }
 }
\ No newline at end of file
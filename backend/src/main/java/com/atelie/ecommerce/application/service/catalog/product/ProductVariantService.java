@@ -3,10 +3,12 @@ package com.atelie.ecommerce.application.service.catalog.product;
 import com.atelie.ecommerce.api.catalog.product.dto.CreateVariantRequest;
 import com.atelie.ecommerce.api.common.exception.ConflictException;
 import com.atelie.ecommerce.api.common.exception.NotFoundException;
+import com.atelie.ecommerce.domain.catalog.event.ProductSavedEvent;
 import com.atelie.ecommerce.infrastructure.persistence.product.entity.ProductEntity;
 import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository;
 import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantEntity;
 import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,13 +21,16 @@ public class ProductVariantService {
     private final ProductRepository productRepository;
     private final ProductVariantRepository variantRepository;
     private final GtinGeneratorService gtinGenerator;
+    private final ApplicationEventPublisher eventPublisher;
 
     public ProductVariantService(ProductRepository productRepository, 
                                  ProductVariantRepository variantRepository,
-                                 GtinGeneratorService gtinGenerator) {
+                                 GtinGeneratorService gtinGenerator,
+                                 ApplicationEventPublisher eventPublisher) {
         this.productRepository = productRepository;
         this.variantRepository = variantRepository;
         this.gtinGenerator = gtinGenerator;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
@@ -52,7 +57,10 @@ public class ProductVariantService {
                 .active(true)
                 .build();
 
-        return variantRepository.save(variant);
+        ProductVariantEntity saved = variantRepository.save(variant);
+        // Variantes são carregadas junto com o produto: a versão em cache fica obsoleta.
+        eventPublisher.publishEvent(new ProductSavedEvent(productId, false));
+        return saved;
     }
 
     public List<ProductVariantEntity> listByProduct(UUID productId) {
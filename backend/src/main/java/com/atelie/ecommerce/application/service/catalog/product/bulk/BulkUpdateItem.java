@@ -0,0 +1,15 @@
+package com.atelie.ecommerce.application.service.catalog.product.bulk;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Linha de atualização em massa: identifica a variante por {@code variantId}
+ * ou {@code sku} e traz novo preço e/ou delta de estoque.
+ */
+public record BulkUpdateItem(
+        UUID variantId,
+        String sku,
+        BigDecimal price,
+        Integer stockDelta
+) {}
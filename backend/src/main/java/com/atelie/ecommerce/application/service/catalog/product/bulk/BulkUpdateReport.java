@@ -0,0 +1,21 @@
+package com.atelie.ecommerce.application.service.catalog.product.bulk;
+
+import java.util.List;
+
+/**
+ * Resultado da atualização em massa. {@code skipped} conta as linhas já
+ * aplicadas anteriormente com o mesmo referenceId; erros apontam o índice
+ * da linha no pedido (limitados a {@link ProductImportService#MAX_REPORTED_ERRORS}).
+ */
+public record BulkUpdateReport(
+        String referenceId,
+        int received,
+        int updated,
+        int skipped,
+        int failed,
+        int affectedProducts,
+        long elapsedMs,
+        List<ItemError> errors
+) {
+    public record ItemError(int index, String message) {}
+}
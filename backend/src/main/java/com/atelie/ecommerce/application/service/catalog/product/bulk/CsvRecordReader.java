@@ -0,0 +1,115 @@
+package com.atelie.ecommerce.application.service.catalog.product.bulk;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Leitor CSV (RFC 4180) em streaming: lê um registro por vez, sem carregar
+ * o arquivo. Suporta campos entre aspas com vírgulas, quebras de linha e
+ * aspas escapadas ("").
+ */
+class CsvRecordReader {
+
+    private final Reader reader;
+    private final char separator;
+    private long line = 1;
+    private long recordLine;
+    private int pushback = -2;
+
+    CsvRecordReader(Reader reader, char separator) {
+        this.reader = reader;
+        this.separator = separator;
+    }
+
+    /** Linha (1-based) onde começou o último registro lido. */
+    long recordLine() {
+        return recordLine;
+    }
+
+    /** Próximo registro, ou {@code null} no fim do arquivo. Linhas vazias são ignoradas. */
+    List<String> next() throws IOException {
+        while (true) {
+            recordLine = line;
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+            if (c == '\n') {
+                continue;
+            }
+            if (c == '\r') {
+                continue;
+            }
+            unread(c);
+            return readRecord();
+        }
+    }
+
+    private List<String> readRecord() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        while (true) {
+            int c = read();
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("Aspas não fechadas no registro da linha " + recordLine);
+                }
+                if (c == '"') {
+                    int n = read();
+                    if (n == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        unread(n);
+                    }
+                } else {
+                    field.append((char) c);
+                }
+                continue;
+            }
+
+            if (c == -1 || c == '\n') {
+                fields.add(field.toString());
+                return fields;
+            }
+            if (c == '\r') {
+                int n = read();
+                if (n != '\n') {
+                    unread(n);
+                }
+                fields.add(field.toString());
+                return fields;
+            }
+            if (c == separator) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else {
+                field.append((char) c);
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        int c;
+        if (pushback != -2) {
+            c = pushback;
+            pushback = -2;
+            return c;
+        }
+        c = reader.read();
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    private void unread(int c) {
+        pushback = c;
+    }
+}
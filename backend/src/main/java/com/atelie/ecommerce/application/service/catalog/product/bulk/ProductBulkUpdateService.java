@@ -0,0 +1,287 @@
+package com.atelie.ecommerce.application.service.catalog.product.bulk;
+
+import com.atelie.ecommerce.application.service.inventory.InventoryLedgerWriter;
+import com.atelie.ecommerce.domain.catalog.event.ProductSavedEvent;
+import com.atelie.ecommerce.domain.inventory.MovementType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Reprecificação e ajuste de estoque em massa por SKU ou variantId.
+ *
+ * Metodologia:
+ * - Lotes de PRODUCT_BULK_UPDATE_CHUNK_SIZE linhas, cada um em sua transação:
+ *   o tempo de lock cresce com o número de lotes, não de linhas.
+ * - Por lote: um SELECT ... FOR UPDATE (ordenado por id, evitando deadlock
+ *   entre cargas concorrentes), um único UPDATE ... FROM (VALUES ...) e as
+ *   movimentações de estoque gravadas em batch pelo InventoryLedgerWriter.
+ * - Idempotência: as movimentações levam o referenceId do pedido; linhas cuja
+ *   movimentação (variante, tipo, referenceId) já existe são ignoradas, e a
+ *   chave única de inventory_movement_keys (V16) barra reenvios concorrentes.
+ * - Um ProductSavedEvent por produto afetado em cada lote, e não por linha.
+ */
+@Slf4j
+@Service
+public class ProductBulkUpdateService {
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final InventoryLedgerWriter ledgerWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+
+    public ProductBulkUpdateService(NamedParameterJdbcTemplate jdbc,
+            InventoryLedgerWriter ledgerWriter,
+            PlatformTransactionManager transactionManager,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${PRODUCT_BULK_UPDATE_CHUNK_SIZE:1000}") int chunkSize) {
+        this.jdbc = jdbc;
+        this.ledgerWriter = ledgerWriter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Aplica as linhas em lotes. Sem referenceId é gerado um por pedido
+     * (as movimentações ficam rastreáveis, mas o reenvio não é deduplicado).
+     */
+    public BulkUpdateReport apply(String referenceId, String reason, List<BulkUpdateItem> items) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("items é obrigatório");
+        }
+        if (referenceId != null && referenceId.length() > 255) {
+            throw new IllegalArgumentException("referenceId excede 255 caracteres");
+        }
+        if (reason != null && reason.length() > 255) {
+            throw new IllegalArgumentException("reason excede 255 caracteres");
+        }
+        long start = System.nanoTime();
+        String reference = referenceId != null && !referenceId.isBlank()
+                ? referenceId.trim()
+                : "BULK-" + UUID.randomUUID();
+        UpdateRun run = new UpdateRun(reference, reason != null ? reason : "Atualização em massa");
+
+        List<IndexedItem> chunk = new ArrayList<>(Math.min(chunkSize, items.size()));
+        for (int i = 0; i < items.size(); i++) {
+            BulkUpdateItem item = items.get(i);
+            String error = validate(item);
+            if (error != null) {
+                run.fail(i, error);
+                continue;
+            }
+            chunk.add(new IndexedItem(i, item));
+            if (chunk.size() >= chunkSize) {
+                flush(chunk, run);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            flush(chunk, run);
+        }
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        log.info("Atualização em massa {}: {} linhas, {} aplicadas, {} já aplicadas, {} com erro em {} ms",
+                reference, items.size(), run.updated, run.skipped, run.failed, elapsedMs);
+        return new BulkUpdateReport(reference, items.size(), run.updated, run.skipped, run.failed,
+                run.products.size(), elapsedMs, run.errors);
+    }
+
+    private static String validate(BulkUpdateItem item) {
+        if (item == null) {
+            return "linha vazia";
+        }
+        if (item.variantId() == null && (item.sku() == null || item.sku().isBlank())) {
+            return "sku ou variantId é obrigatório";
+        }
+        if (item.price() == null && (item.stockDelta() == null || item.stockDelta() == 0)) {
+            return "informe price e/ou stockDelta";
+        }
+        if (item.price() != null && item.price().signum() < 0) {
+            return "price não pode ser negativo";
+        }
+        return null;
+    }
+
+    // ---------------- lote ----------------
+
+    private void flush(List<IndexedItem> chunk, UpdateRun run) {
+        try {
+            ChunkResult result = transactionTemplate.execute(status -> applyChunk(chunk, run));
+            run.updated += result.updated();
+            run.skipped += result.skipped();
+            result.errors().forEach(e -> run.fail(e.index(), e.message()));
+            run.products.addAll(result.products());
+        } catch (DataAccessException e) {
+            String cause = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            log.warn("Lote de atualização em massa com {} linhas rejeitado: {}", chunk.size(), cause);
+            for (IndexedItem item : chunk) {
+                run.fail(item.index(), "Falha ao gravar o lote: " + cause);
+            }
+        }
+    }
+
+    private ChunkResult applyChunk(List<IndexedItem> chunk, UpdateRun run) {
+        Map<UUID, LockedVariant> byId = new HashMap<>();
+        Map<String, LockedVariant> bySku = new HashMap<>();
+        for (LockedVariant v : lockVariants(chunk)) {
+            byId.put(v.id(), v);
+            bySku.put(v.sku(), v);
+        }
+        Set<UUID> alreadyApplied = appliedVariants(byId.keySet(), run.reference);
+
+        List<BulkUpdateReport.ItemError> errors = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        List<InventoryLedgerWriter.Entry> movements = new ArrayList<>();
+        Set<UUID> products = new LinkedHashSet<>();
+        int skipped = 0;
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        for (IndexedItem indexed : chunk) {
+            BulkUpdateItem item = indexed.item();
+            LockedVariant variant = item.variantId() != null ? byId.get(item.variantId()) : bySku.get(item.sku().trim());
+            if (variant == null) {
+                errors.add(new BulkUpdateReport.ItemError(indexed.index(), "Variante não encontrada: "
+                        + (item.variantId() != null ? item.variantId() : item.sku())));
+                continue;
+            }
+            if (!run.seen.add(variant.id())) {
+                errors.add(new BulkUpdateReport.ItemError(indexed.index(), "Variante repetida no pedido: " + variant.sku()));
+                continue;
+            }
+            if (alreadyApplied.contains(variant.id())) {
+                skipped++;
+                continue;
+            }
+            int delta = item.stockDelta() != null ? item.stockDelta() : 0;
+            // Mesma regra de applyStockDelta: baixa não invade o reservado (carrinhos, cotas hot SKU)
+            int available = variant.stock() - variant.reserved();
+            if (delta < 0 && available + delta < 0) {
+                errors.add(new BulkUpdateReport.ItemError(indexed.index(),
+                        "Estoque insuficiente para " + variant.sku() + ": disponível " + Math.max(0, available)));
+                continue;
+            }
+
+            values.add(variant.id());
+            values.add(item.price());
+            values.add(delta);
+            if (delta != 0) {
+                movements.add(new InventoryLedgerWriter.Entry(variant.productId(), variant.id(),
+                        delta > 0 ? MovementType.IN : MovementType.OUT, Math.abs(delta), run.reason, run.reference));
+            }
+            products.add(variant.productId());
+        }
+
+        if (!values.isEmpty()) {
+            updateVariants(values, now);
+        }
+        ledgerWriter.append(movements, now);
+        // Listeners transacionais (cache, facetas, multicanal) recebem um evento por produto após o commit
+        products.forEach(productId -> eventPublisher.publishEvent(new ProductSavedEvent(productId, false)));
+        return new ChunkResult(values.size() / 3, skipped, errors, products);
+    }
+
+    /** Carrega e trava as variantes do lote, sempre na mesma ordem. */
+    private List<LockedVariant> lockVariants(List<IndexedItem> chunk) {
+        Set<UUID> ids = new HashSet<>();
+        Set<String> skus = new HashSet<>();
+        for (IndexedItem indexed : chunk) {
+            if (indexed.item().variantId() != null) {
+                ids.add(indexed.item().variantId());
+            } else {
+                skus.add(indexed.item().sku().trim());
+            }
+        }
+        List<String> conditions = new ArrayList<>(2);
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        if (!ids.isEmpty()) {
+            conditions.add("id IN (:ids)");
+            params.addValue("ids", ids);
+        }
+        if (!skus.isEmpty()) {
+            conditions.add("sku IN (:skus)");
+            params.addValue("skus", skus);
+        }
+        return jdbc.query("SELECT id, product_id, sku, stock_quantity, COALESCE(reserved_quantity, 0) AS reserved "
+                + "FROM product_variants WHERE "
+                + String.join(" OR ", conditions) + " ORDER BY id FOR UPDATE", params,
+                (rs, i) -> new LockedVariant(rs.getObject("id", UUID.class), rs.getObject("product_id", UUID.class),
+                        rs.getString("sku"), rs.getInt("stock_quantity"), rs.getInt("reserved")));
+    }
+
+    private Set<UUID> appliedVariants(Set<UUID> variantIds, String reference) {
+        if (variantIds.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(jdbc.queryForList(
+                "SELECT variant_id FROM inventory_movements WHERE reference_id = :reference AND variant_id IN (:ids)",
+                new MapSqlParameterSource("reference", reference).addValue("ids", variantIds), UUID.class));
+    }
+
+    /** Um único UPDATE para o lote inteiro: (id, price, delta) por linha. */
+    private void updateVariants(List<Object> values, Timestamp now) {
+        int rows = values.size() / 3;
+        StringJoiner tuples = new StringJoiner(", ");
+        for (int i = 0; i < rows; i++) {
+            tuples.add("(CAST(? AS uuid), CAST(? AS numeric), CAST(? AS integer))");
+        }
+        String sql = """
+                UPDATE product_variants v
+                SET price = COALESCE(d.price, v.price),
+                    stock_quantity = v.stock_quantity + d.delta,
+                    updated_at = ?
+                FROM (VALUES %s) AS d(id, price, delta)
+                WHERE v.id = d.id
+                """.formatted(tuples);
+        List<Object> args = new ArrayList<>(values.size() + 1);
+        args.add(now);
+        args.addAll(values);
+        jdbc.getJdbcTemplate().update(sql, args.toArray());
+    }
+
+    // ---------------- estado ----------------
+
+    private record IndexedItem(int index, BulkUpdateItem item) {
+    }
+
+    private record LockedVariant(UUID id, UUID productId, String sku, int stock, int reserved) {
+    }
+
+    private record ChunkResult(int updated, int skipped, List<BulkUpdateReport.ItemError> errors, Set<UUID> products) {
+    }
+
+    private static final class UpdateRun {
+        final String reference;
+        final String reason;
+        final Set<UUID> seen = new HashSet<>();
+        final Set<UUID> products = new HashSet<>();
+        final List<BulkUpdateReport.ItemError> errors = new ArrayList<>();
+        int updated;
+        int skipped;
+        int failed;
+
+        UpdateRun(String reference, String reason) {
+            this.reference = reference;
+            this.reason = reason;
+        }
+
+        void fail(int index, String message) {
+            failed++;
+            if (errors.size() < ProductImportService.MAX_REPORTED_ERRORS) {
+                errors.add(new BulkUpdateReport.ItemError(index, message));
+            }
+        }
+    }
+}
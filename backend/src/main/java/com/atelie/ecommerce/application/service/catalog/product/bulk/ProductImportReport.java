@@ -0,0 +1,17 @@
+package com.atelie.ecommerce.application.service.catalog.product.bulk;
+
+import java.util.List;
+
+/**
+ * Resultado da importação: contadores e erros por linha (limitados a
+ * {@link ProductImportService#MAX_REPORTED_ERRORS}; {@code failed} conta todos).
+ */
+public record ProductImportReport(
+        long processed,
+        long imported,
+        long failed,
+        long elapsedMs,
+        List<RowError> errors
+) {
+    public record RowError(long line, String message) {}
+}
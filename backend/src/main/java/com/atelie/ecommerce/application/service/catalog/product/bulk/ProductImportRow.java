@@ -0,0 +1,30 @@
+package com.atelie.ecommerce.application.service.catalog.product.bulk;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Linha da importação em massa (um produto). Formato NDJSON: um objeto por
+ * linha com estes campos; no CSV, as colunas equivalentes (uma variante).
+ *
+ * @param category ID ou nome da categoria
+ */
+public record ProductImportRow(
+        String name,
+        String description,
+        BigDecimal price,
+        String category,
+        Integer stock,
+        Boolean active,
+        List<String> images,
+        List<Variant> variants
+) {
+    public record Variant(
+            String sku,
+            String gtin,
+            BigDecimal price,
+            Integer stock,
+            Map<String, Object> attributes
+    ) {}
+}
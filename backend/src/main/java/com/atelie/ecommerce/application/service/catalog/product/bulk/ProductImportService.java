@@ -0,0 +1,539 @@
+package com.atelie.ecommerce.application.service.catalog.product.bulk;
+
+import com.atelie.ecommerce.application.service.catalog.product.GtinGeneratorService;
+import com.atelie.ecommerce.domain.catalog.event.ProductBatchSavedEvent;
+import com.atelie.ecommerce.infrastructure.persistence.category.CategoryEntity;
+import com.atelie.ecommerce.infrastructure.persistence.category.CategoryRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Importação em massa de produtos (CSV ou NDJSON) para cargas de coleções.
+ *
+ * Metodologia:
+ * - Streaming: o corpo é lido registro a registro; só o lote corrente fica
+ *   em memória.
+ * - Validação por linha: linhas inválidas entram no relatório e não
+ *   interrompem a carga.
+ * - Lotes de PRODUCT_IMPORT_CHUNK_SIZE linhas, cada um em sua transação,
+ *   com INSERTs em batch JDBC (produtos, imagens e variantes). SKUs e GTINs
+ *   informados são conferidos contra o banco com uma consulta por lote; os
+ *   faltantes vêm das faixas do CodeBlockAllocator.
+ * - Um único ProductBatchSavedEvent por lote gravado.
+ */
+@Slf4j
+@Service
+public class ProductImportService {
+
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    private static final String INSERT_PRODUCT = """
+            INSERT INTO products (id, name, description, price, category_id, active, alert_enabled,
+                                  stock_quantity, slug, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, false, ?, ?, ?, ?)
+            """;
+    private static final String INSERT_IMAGE = "INSERT INTO product_images (product_id, image_url) VALUES (?, ?)";
+    private static final String INSERT_VARIANT = """
+            INSERT INTO product_variants (id, product_id, sku, gtin, price, stock_quantity, attributes_json,
+                                          active, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, CAST(? AS jsonb), true, ?, ?)
+            """;
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate transactionTemplate;
+    private final CategoryRepository categoryRepository;
+    private final GtinGeneratorService gtinGenerator;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+
+    public ProductImportService(NamedParameterJdbcTemplate jdbc,
+            PlatformTransactionManager transactionManager,
+            CategoryRepository categoryRepository,
+            GtinGeneratorService gtinGenerator,
+            ObjectMapper objectMapper,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${PRODUCT_IMPORT_CHUNK_SIZE:500}") int chunkSize) {
+        this.jdbc = jdbc;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.categoryRepository = categoryRepository;
+        this.gtinGenerator = gtinGenerator;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+    }
+
+    public ProductImportReport importStream(InputStream input, Format format) throws IOException {
+        long start = System.nanoTime();
+        ImportRun run = new ImportRun(loadCategories());
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        RowSource source = format == Format.CSV ? new CsvSource(reader) : new NdjsonSource(reader);
+
+        List<PendingProduct> chunk = new ArrayList<>(chunkSize);
+        ParsedRow parsed;
+        while ((parsed = source.next()) != null) {
+            run.processed++;
+            if (parsed.error() != null) {
+                run.fail(parsed.line(), parsed.error());
+                continue;
+            }
+            try {
+                chunk.add(validate(parsed.line(), parsed.row(), run));
+            } catch (IllegalArgumentException e) {
+                run.fail(parsed.line(), e.getMessage());
+                continue;
+            }
+            if (chunk.size() >= chunkSize) {
+                flush(chunk, run);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            flush(chunk, run);
+        }
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        log.info("Importação de produtos ({}): {} linhas, {} importadas, {} com erro em {} ms",
+                format, run.processed, run.imported, run.failed, elapsedMs);
+        return new ProductImportReport(run.processed, run.imported, run.failed, elapsedMs, run.errors);
+    }
+
+    // ---------------- validação ----------------
+
+    private PendingProduct validate(long line, ProductImportRow row, ImportRun run) {
+        String name = trimToNull(row.name());
+        if (name == null) {
+            throw new IllegalArgumentException("name é obrigatório");
+        }
+        if (name.length() > 160) {
+            throw new IllegalArgumentException("name excede 160 caracteres");
+        }
+        String description = row.description() != null ? row.description() : "";
+        if (description.length() > 2000) {
+            throw new IllegalArgumentException("description excede 2000 caracteres");
+        }
+        if (row.price() == null || row.price().signum() < 0) {
+            throw new IllegalArgumentException("price é obrigatório e não pode ser negativo");
+        }
+        UUID categoryId = run.resolveCategory(row.category());
+        int stock = row.stock() != null ? row.stock() : 0;
+        if (stock < 0) {
+            throw new IllegalArgumentException("stock não pode ser negativo");
+        }
+        List<String> images = row.images() != null ? row.images().stream()
+                .map(ProductImportService::trimToNull).filter(Objects::nonNull).toList() : List.of();
+        for (String image : images) {
+            if (image.length() > 500) {
+                throw new IllegalArgumentException("URL de imagem excede 500 caracteres");
+            }
+        }
+
+        UUID id = UUID.randomUUID();
+        List<PendingVariant> variants = new ArrayList<>();
+        Set<String> rowSkus = new HashSet<>();
+        Set<String> rowGtins = new HashSet<>();
+        List<ProductImportRow.Variant> source = row.variants() != null ? row.variants() : List.of();
+        for (ProductImportRow.Variant v : source) {
+            String sku = trimToNull(v.sku());
+            if (sku != null && (sku.length() > 100 || run.skus.contains(sku) || !rowSkus.add(sku))) {
+                throw new IllegalArgumentException(sku.length() > 100
+                        ? "sku excede 100 caracteres" : "sku duplicado no arquivo: " + sku);
+            }
+            String gtin = trimToNull(v.gtin());
+            if (gtin != null && (!gtin.matches("\\d{8,14}") || run.gtins.contains(gtin) || !rowGtins.add(gtin))) {
+                throw new IllegalArgumentException(gtin.matches("\\d{8,14}")
+                        ? "gtin duplicado no arquivo: " + gtin : "gtin inválido: " + gtin);
+            }
+            int variantStock = v.stock() != null ? v.stock() : stock;
+            if (variantStock < 0) {
+                throw new IllegalArgumentException("stock da variante não pode ser negativo");
+            }
+            if (v.price() != null && v.price().signum() < 0) {
+                throw new IllegalArgumentException("price da variante não pode ser negativo");
+            }
+            variants.add(new PendingVariant(UUID.randomUUID(), sku, gtin, v.price(), variantStock,
+                    toJson(v.attributes())));
+        }
+        if (variants.isEmpty()) {
+            // Mesmo padrão do cadastro unitário: variante padrão com o estoque do produto
+            variants.add(new PendingVariant(UUID.randomUUID(), null, null, null, stock, "{\"default\": true}"));
+        }
+
+        run.skus.addAll(rowSkus);
+        run.gtins.addAll(rowGtins);
+        boolean active = row.active() == null || row.active();
+        return new PendingProduct(line, id, name, description, row.price(), categoryId, active, stock,
+                slugify(name) + "-" + id.toString().substring(0, 8), images, variants);
+    }
+
+    // ---------------- gravação ----------------
+
+    private void flush(List<PendingProduct> chunk, ImportRun run) {
+        List<PendingProduct> accepted = rejectExistingCodes(chunk, run);
+        if (accepted.isEmpty()) {
+            return;
+        }
+        assignCodes(accepted, run);
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> products = new ArrayList<>(accepted.size());
+        List<Object[]> images = new ArrayList<>();
+        List<Object[]> variants = new ArrayList<>();
+        List<UUID> ids = new ArrayList<>(accepted.size());
+        for (PendingProduct p : accepted) {
+            ids.add(p.id());
+            products.add(new Object[] { p.id(), p.name(), p.description(), p.price(), p.categoryId(), p.active(),
+                    p.stock(), p.slug(), now, now });
+            for (String url : p.images()) {
+                images.add(new Object[] { p.id(), url });
+            }
+            for (PendingVariant v : p.variants()) {
+                variants.add(new Object[] { v.id(), p.id(), v.sku(), v.gtin(), v.price(), v.stock(),
+                        v.attributesJson(), now, now });
+            }
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbc.getJdbcTemplate().batchUpdate(INSERT_PRODUCT, products);
+                if (!images.isEmpty()) {
+                    jdbc.getJdbcTemplate().batchUpdate(INSERT_IMAGE, images);
+                }
+                jdbc.getJdbcTemplate().batchUpdate(INSERT_VARIANT, variants);
+                // Listeners transacionais recebem o lote após o commit
+                eventPublisher.publishEvent(new ProductBatchSavedEvent(List.copyOf(ids), true));
+            });
+            run.imported += accepted.size();
+        } catch (DataAccessException e) {
+            String cause = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            log.warn("Lote de importação com {} produtos rejeitado: {}", accepted.size(), cause);
+            for (PendingProduct p : accepted) {
+                run.fail(p.line(), "Falha ao gravar o lote: " + cause);
+            }
+        }
+    }
+
+    /** Descarta linhas cujo SKU/GTIN informado já existe no banco (uma consulta por tipo). */
+    private List<PendingProduct> rejectExistingCodes(List<PendingProduct> chunk, ImportRun run) {
+        Set<String> skus = new HashSet<>();
+        Set<String> gtins = new HashSet<>();
+        for (PendingProduct p : chunk) {
+            for (PendingVariant v : p.variants()) {
+                if (v.sku() != null) {
+                    skus.add(v.sku());
+                }
+                if (v.gtin() != null) {
+                    gtins.add(v.gtin());
+                }
+            }
+        }
+        Set<String> existingSkus = existing("sku", skus);
+        Set<String> existingGtins = existing("gtin", gtins);
+        if (existingSkus.isEmpty() && existingGtins.isEmpty()) {
+            return chunk;
+        }
+
+        List<PendingProduct> accepted = new ArrayList<>(chunk.size());
+        for (PendingProduct p : chunk) {
+            String conflict = null;
+            for (PendingVariant v : p.variants()) {
+                if (v.sku() != null && existingSkus.contains(v.sku())) {
+                    conflict = "SKU já cadastrado: " + v.sku();
+                } else if (v.gtin() != null && existingGtins.contains(v.gtin())) {
+                    conflict = "GTIN já cadastrado: " + v.gtin();
+                }
+            }
+            if (conflict == null) {
+                accepted.add(p);
+            } else {
+                run.fail(p.line(), conflict);
+            }
+        }
+        return accepted;
+    }
+
+    /** Preenche SKUs e GTINs faltantes com códigos da faixa reservada (sem ida ao banco por código). */
+    private void assignCodes(List<PendingProduct> products, ImportRun run) {
+        int missingGtins = 0;
+        for (PendingProduct p : products) {
+            for (PendingVariant v : p.variants()) {
+                if (v.gtin() == null) {
+                    missingGtins++;
+                }
+            }
+        }
+        Deque<String> gtins = new ArrayDeque<>(allocateGtins(missingGtins, run));
+
+        for (PendingProduct p : products) {
+            List<PendingVariant> variants = p.variants();
+            for (int i = 0; i < variants.size(); i++) {
+                PendingVariant v = variants.get(i);
+                String sku = v.sku();
+                if (sku == null) {
+                    sku = gtinGenerator.generateSku(p.id());
+                }
+                String gtin = v.gtin() != null ? v.gtin() : gtins.pop();
+                variants.set(i, new PendingVariant(v.id(), sku, gtin, v.price(), v.stock(), v.attributesJson()));
+            }
+        }
+    }
+
+    private List<String> allocateGtins(int count, ImportRun run) {
+        List<String> allocated = new ArrayList<>(count);
+        while (allocated.size() < count) {
+            List<String> block = gtinGenerator.generateBlock(count - allocated.size());
+            // Sequenciais não colidem entre si; só resta evitar GTINs informados no próprio arquivo
+            block.removeIf(run.gtins::contains);
+            run.gtins.addAll(block);
+            allocated.addAll(block);
+        }
+        return allocated;
+    }
+
+    private Set<String> existing(String column, Collection<String> values) {
+        if (values.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(jdbc.queryForList(
+                "SELECT " + column + " FROM product_variants WHERE " + column + " IN (:values)",
+                Map.of("values", values), String.class));
+    }
+
+    // ---------------- leitura ----------------
+
+    private interface RowSource {
+        ParsedRow next() throws IOException;
+    }
+
+    private record ParsedRow(long line, ProductImportRow row, String error) {
+    }
+
+    private final class NdjsonSource implements RowSource {
+        private final BufferedReader reader;
+        private long line;
+
+        NdjsonSource(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public ParsedRow next() throws IOException {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                try {
+                    return new ParsedRow(line, objectMapper.readValue(text, ProductImportRow.class), null);
+                } catch (JsonProcessingException e) {
+                    return new ParsedRow(line, null, "JSON inválido: " + e.getOriginalMessage());
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Colunas (cabeçalho obrigatório, ordem livre): name, description, price,
+     * category, stock, active, images (separadas por |), sku, gtin,
+     * variant_price, attributes (chave=valor;chave=valor).
+     */
+    private static final class CsvSource implements RowSource {
+        private final CsvRecordReader reader;
+        private Map<String, Integer> header;
+
+        CsvSource(BufferedReader reader) {
+            this.reader = new CsvRecordReader(reader, ',');
+        }
+
+        @Override
+        public ParsedRow next() throws IOException {
+            if (header == null) {
+                List<String> names = reader.next();
+                if (names == null) {
+                    return null;
+                }
+                header = new HashMap<>();
+                for (int i = 0; i < names.size(); i++) {
+                    header.put(names.get(i).trim().toLowerCase(Locale.ROOT).replace("\uFEFF", ""), i);
+                }
+            }
+            List<String> record = reader.next();
+            if (record == null) {
+                return null;
+            }
+            long line = reader.recordLine();
+            try {
+                return new ParsedRow(line, toRow(record), null);
+            } catch (IllegalArgumentException e) {
+                return new ParsedRow(line, null, e.getMessage());
+            }
+        }
+
+        private ProductImportRow toRow(List<String> record) {
+            Integer stock = integer(record, "stock");
+            String sku = get(record, "sku");
+            String gtin = get(record, "gtin");
+            BigDecimal variantPrice = decimal(record, "variant_price");
+            String attributes = get(record, "attributes");
+
+            List<ProductImportRow.Variant> variants = List.of();
+            if (sku != null || gtin != null || variantPrice != null || attributes != null) {
+                variants = List.of(new ProductImportRow.Variant(sku, gtin, variantPrice, stock, parseAttributes(attributes)));
+            }
+            String images = get(record, "images");
+            String active = get(record, "active");
+            return new ProductImportRow(
+                    get(record, "name"),
+                    get(record, "description"),
+                    decimal(record, "price"),
+                    get(record, "category"),
+                    stock,
+                    active != null ? Boolean.valueOf(active.equalsIgnoreCase("true") || active.equals("1")) : null,
+                    images != null ? List.of(images.split("\\|")) : List.of(),
+                    variants);
+        }
+
+        private String get(List<String> record, String column) {
+            Integer index = header.get(column);
+            if (index == null || index >= record.size()) {
+                return null;
+            }
+            return trimToNull(record.get(index));
+        }
+
+        private BigDecimal decimal(List<String> record, String column) {
+            String value = get(record, column);
+            try {
+                return value != null ? new BigDecimal(value.replace(',', '.')) : null;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(column + " inválido: " + value);
+            }
+        }
+
+        private Integer integer(List<String> record, String column) {
+            String value = get(record, column);
+            try {
+                return value != null ? Integer.valueOf(value) : null;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(column + " inválido: " + value);
+            }
+        }
+
+        private static Map<String, Object> parseAttributes(String raw) {
+            if (raw == null) {
+                return null;
+            }
+            Map<String, Object> attributes = new LinkedHashMap<>();
+            for (String pair : raw.split(";")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    attributes.put(pair.substring(0, eq).trim(), pair.substring(eq + 1).trim());
+                }
+            }
+            return attributes;
+        }
+    }
+
+    // ---------------- estado / utilitários ----------------
+
+    private Map<String, UUID> loadCategories() {
+        Map<String, UUID> categories = new HashMap<>();
+        for (CategoryEntity c : categoryRepository.findAll()) {
+            categories.put(c.getId().toString(), c.getId());
+            categories.putIfAbsent(c.getName().trim().toLowerCase(Locale.ROOT), c.getId());
+        }
+        return categories;
+    }
+
+    private String toJson(Map<String, Object> attributes) {
+        if (attributes == null || attributes.isEmpty()) {
+            return "{}";
+        }
+        try {
+            return objectMapper.writeValueAsString(attributes);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("attributes inválido");
+        }
+    }
+
+    static String slugify(String name) {
+        String slug = name.toLowerCase().replaceAll("[^a-z0-9]", "-").replaceAll("-+", "-");
+        slug = slug.replaceAll("^-|-$", "");
+        return slug.isEmpty() ? "product" : slug;
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private static final class ImportRun {
+        final Map<String, UUID> categories;
+        final Set<String> skus = new HashSet<>();
+        final Set<String> gtins = new HashSet<>();
+        final List<ProductImportReport.RowError> errors = new ArrayList<>();
+        long processed;
+        long imported;
+        long failed;
+
+        ImportRun(Map<String, UUID> categories) {
+            this.categories = categories;
+        }
+
+        UUID resolveCategory(String value) {
+            String key = trimToNull(value);
+            if (key == null) {
+                throw new IllegalArgumentException("category é obrigatório");
+            }
+            UUID id = categories.get(key.toLowerCase(Locale.ROOT));
+            if (id == null) {
+                throw new IllegalArgumentException("categoria não encontrada: " + key);
+            }
+            return id;
+        }
+
+        void fail(long line, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ProductImportReport.RowError(line, message));
+            }
+        }
+    }
+
+    private record PendingProduct(long line, UUID id, String name, String description, BigDecimal price,
+            UUID categoryId, boolean active, int stock, String slug, List<String> images,
+            List<PendingVariant> variants) {
+    }
+
+    private record PendingVariant(UUID id, String sku, String gtin, BigDecimal price, int stock,
+            String attributesJson) {
+    }
+}
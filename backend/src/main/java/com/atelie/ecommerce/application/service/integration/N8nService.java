@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -45,4 +46,27 @@ public class N8nService {
             log.error("Failed to send N8N alert", e);
         }
     }
+
+    /**
+     * Várias variantes que cruzaram o limite de estoque baixo em um único
+     * POST (ver LowStockDetector). Cada item: productId, product, variantId,
+     * sku, stock, threshold.
+     */
+    public void sendLowStockAlerts(List<Map<String, Object>> items) {
+        if (items.isEmpty() || !isAutomationEnabled()) return;
+
+        try {
+            String url = configService.requireString(N8N_URL_KEY);
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("event", "LOW_STOCK_ALERT_BATCH");
+            payload.put("count", items.size());
+            payload.put("items", items);
+            payload.put("message", items.size() + " variante(s) com estoque crítico");
+
+            restTemplate.postForEntity(url, payload, String.class);
+            log.info("N8N Low Stock Batch Sent: {} item(s)", items.size());
+        } catch (Exception e) {
+            log.error("Failed to send N8N low stock batch", e);
+        }
+    }
 }
@@ -0,0 +1,551 @@
+package com.atelie.ecommerce.application.service.inventory;
+
+import com.atelie.ecommerce.domain.inventory.MovementType;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Modo "hot SKU" para flash sales: baixa de estoque sem disputar a linha de
+ * product_variants a cada pedido.
+ *
+ * Metodologia:
+ * - Cada nó arrenda uma cota (HOT_SKU_LEASE_SIZE unidades) somando-a a
+ *   reserved_quantity, com o saldo da cota em stock_leases: outros nós e o
+ *   fluxo normal nunca vendem unidades arrendadas, então não há venda além do
+ *   saldo entre nós; só a cota, e não o estoque inteiro, fica presa no nó.
+ * - Pedidos são admitidos contra a cota em memória, dividida em faixas
+ *   (AtomicInteger por faixa, escolhida pela thread) para não concentrar CAS
+ *   em um único contador; só o esgotamento da cota sincroniza e vai ao banco.
+ * - As baixas admitidas entram em uma fila drenada a cada HOT_SKU_FLUSH_MS por
+ *   uma única thread: um lote = uma transação com um UPDATE por variante
+ *   (estoque, reserved_quantity e cota) e o INSERT em batch das movimentações.
+ *   O pedido espera o lote gravar antes de seguir (group commit): nada é
+ *   confirmado ao cliente sem a baixa estar no banco.
+ * - Admissão, arrendamento e espera pelo lote rodam antes e fora da transação
+ *   do pedido (OrderStockEngine.takeHot): a thread do pedido não segura uma
+ *   conexão enquanto o flusher e o arrendamento pegam outra do pool, então
+ *   checkouts concorrentes além do tamanho do pool não esgotam as conexões.
+ * - Se a transação do pedido não comitar depois do lote gravado, as unidades
+ *   voltam ao estoque com uma movimentação IN de estorno ({@link #compensate}).
+ * - Lote recusado porque a cota do nó sumiu (devolvida pela varredura): a cota
+ *   local é zerada e o que restar no banco devolvido, em vez de devolver as
+ *   unidades do lote a uma cota que já não existe.
+ * - Cotas de nós que pararam de renovar (HOT_SKU_LEASE_STALE_SECONDS) são
+ *   devolvidas ao estoque pela varredura dos demais.
+ */
+@Slf4j
+@Component
+public class HotSkuStockCounter {
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final VariantStockLocks locks;
+    private final InventoryLedgerWriter ledgerWriter;
+    private final TransactionTemplate newTransaction;
+    private final String nodeId;
+    private final int leaseSize;
+    private final int stripes;
+    private final long commitTimeoutMs;
+    private final long staleSeconds;
+    private final Map<UUID, HotSku> hot = new ConcurrentHashMap<>();
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final ScheduledExecutorService flusher;
+
+    public HotSkuStockCounter(NamedParameterJdbcTemplate jdbc,
+            VariantStockLocks locks,
+            InventoryLedgerWriter ledgerWriter,
+            PlatformTransactionManager transactionManager,
+            @Value("${HOT_SKU_VARIANTS:}") String variants,
+            @Value("${HOT_SKU_NODE_ID:}") String nodeId,
+            @Value("${HOT_SKU_LEASE_SIZE:50}") int leaseSize,
+            @Value("${HOT_SKU_FLUSH_MS:5}") long flushMs,
+            @Value("${HOT_SKU_COMMIT_TIMEOUT_MS:2000}") long commitTimeoutMs,
+            @Value("${HOT_SKU_LEASE_STALE_SECONDS:120}") long staleSeconds) {
+        if (leaseSize <= 0) {
+            throw new IllegalArgumentException("HOT_SKU_LEASE_SIZE deve ser positivo");
+        }
+        this.jdbc = jdbc;
+        this.locks = locks;
+        this.ledgerWriter = ledgerWriter;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.nodeId = nodeId != null && !nodeId.isBlank() ? nodeId.trim() : "node-" + UUID.randomUUID();
+        this.leaseSize = leaseSize;
+        this.stripes = Math.max(1, Math.min(16, Runtime.getRuntime().availableProcessors()));
+        this.commitTimeoutMs = commitTimeoutMs;
+        this.staleSeconds = staleSeconds;
+
+        for (String id : variants.split(",")) {
+            if (!id.isBlank()) {
+                enable(UUID.fromString(id.trim()));
+            }
+        }
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "hot-sku-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flushSafely, flushMs, flushMs, TimeUnit.MILLISECONDS);
+    }
+
+    // ---------------- modo hot ----------------
+
+    public boolean isHot(UUID variantId) {
+        HotSku sku = hot.get(variantId);
+        return sku != null && !sku.closed;
+    }
+
+    public Set<UUID> hotVariants() {
+        return Collections.unmodifiableSet(hot.keySet());
+    }
+
+    /** Liga o modo neste nó; a primeira cota é arrendada no primeiro pedido. */
+    public void enable(UUID variantId) {
+        hot.computeIfAbsent(variantId, id -> new HotSku(id, stripes));
+    }
+
+    /** Desliga o modo neste nó e devolve ao estoque o que sobrou da cota. */
+    public void disable(UUID variantId) {
+        HotSku sku = hot.get(variantId);
+        if (sku == null) {
+            return;
+        }
+        sku.closed = true;
+        // Pedidos já admitidos terminam antes da devolução; o flusher é acordado
+        // para gravar o que já está na fila sem esperar o próximo ciclo
+        flusher.execute(this::flushSafely);
+        try {
+            if (!sku.awaitSettled(commitTimeoutMs * 2)) {
+                log.warn("Modo hot SKU da variante {} desligado com {} pedido(s) ainda admitido(s)",
+                        variantId, sku.inFlight.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushSafely();
+        hot.remove(variantId, sku);
+        returnLease(variantId);
+    }
+
+    // ---------------- pedido ----------------
+
+    /**
+     * Admite {@code quantity} unidades contra a cota local (arrendando mais se
+     * preciso). false = nem com nova cota há saldo. Toda admissão bem-sucedida
+     * precisa terminar em {@link #commit} ou {@link #giveBack}.
+     */
+    boolean tryTake(UUID variantId, int quantity) {
+        HotSku sku = hot.get(variantId);
+        if (sku == null || sku.closed) {
+            return false;
+        }
+        sku.inFlight.incrementAndGet();
+        if (sku.tryTakeLocal(quantity) || refillAndTake(sku, quantity)) {
+            return true;
+        }
+        sku.settle();
+        return false;
+    }
+
+    /** Devolve à cota local unidades admitidas que não serão gravadas. */
+    void giveBack(UUID variantId, int quantity) {
+        HotSku sku = hot.get(variantId);
+        if (sku != null) {
+            sku.add(quantity);
+            sku.settle();
+        }
+        // Sem estado: modo desligado, e a cota devolvida (saldo do banco) já incluía estas unidades
+    }
+
+    /** Unidades ainda disponíveis na cota local. */
+    int localAvailable(UUID variantId) {
+        HotSku sku = hot.get(variantId);
+        return sku != null ? sku.available() : 0;
+    }
+
+    /**
+     * Enfileira as baixas admitidas do pedido e espera o lote ser gravado.
+     * Chamado sem transação aberta: a espera não pode segurar uma conexão do
+     * pool que o flusher precisa. Se a espera estourar, o que o lote ainda
+     * vier a gravar é estornado.
+     */
+    void commit(UUID orderId, Map<UUID, Integer> taken) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Baixa hot SKU deve rodar fora da transação do pedido " + orderId);
+        }
+        List<Pending> pendings = new ArrayList<>(taken.size());
+        taken.forEach((variantId, quantity) -> {
+            HotSku sku = hot.get(variantId);
+            pendings.add(new Pending(orderId, variantId, sku != null ? sku.productId : null, quantity,
+                    new CompletableFuture<>()));
+        });
+        queue.addAll(pendings);
+        try {
+            CompletableFuture.allOf(pendings.stream().map(Pending::done).toArray(CompletableFuture[]::new))
+                    .get(commitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException | TimeoutException e) {
+            // O pedido vai falhar: o que ainda estiver na fila e for gravado depois volta ao estoque
+            pendings.forEach(p -> p.done().thenRunAsync(() -> compensate(orderId, Map.of(p.variantId(), p.quantity()))));
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Baixa hot SKU interrompida no pedido " + orderId, e);
+            }
+            throw new IllegalStateException("Baixa hot SKU não gravada no pedido " + orderId, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Baixa hot SKU não gravada no pedido " + orderId, e.getCause());
+        }
+    }
+
+    /** Estorno de baixas já gravadas de um pedido que não comitou. */
+    void compensate(UUID orderId, Map<UUID, Integer> taken) {
+        if (taken.isEmpty()) {
+            return;
+        }
+        try {
+            newTransaction.executeWithoutResult(status -> {
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                List<InventoryLedgerWriter.Entry> entries = new ArrayList<>(taken.size());
+                for (VariantStockLocks.LockedVariant v : locks.lock(taken.keySet())) {
+                    int quantity = taken.get(v.id());
+                    jdbc.update("UPDATE product_variants SET stock_quantity = stock_quantity + :qty, updated_at = :now WHERE id = :id",
+                            new MapSqlParameterSource("qty", quantity).addValue("now", now).addValue("id", v.id()));
+                    entries.add(new InventoryLedgerWriter.Entry(v.productId(), v.id(), MovementType.IN, quantity,
+                            "Order Rollback " + orderId, orderId.toString()));
+                }
+                ledgerWriter.append(entries, now);
+            });
+        } catch (RuntimeException e) {
+            log.error("Falha ao estornar as baixas hot SKU {} do pedido {}", taken, orderId, e);
+        }
+    }
+
+    // ---------------- cota ----------------
+
+    private boolean refillAndTake(HotSku sku, int quantity) {
+        synchronized (sku) {
+            int local = sku.drain();
+            if (local < quantity) {
+                local += lease(sku, Math.max(leaseSize, quantity - local));
+            }
+            if (local < quantity) {
+                sku.add(local);
+                return false;
+            }
+            sku.add(local - quantity);
+            return true;
+        }
+    }
+
+    /** Arrenda até {@code wanted} unidades do disponível; devolve quantas vieram. */
+    private int lease(HotSku sku, int wanted) {
+        Integer granted = newTransaction.execute(status -> {
+            VariantStockLocks.LockedVariant v = locks.lock(List.of(sku.variantId)).get(0);
+            sku.productId = v.productId();
+            int grant = Math.min(wanted, v.availableToSell());
+            if (grant <= 0) {
+                return 0;
+            }
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            MapSqlParameterSource params = new MapSqlParameterSource("grant", grant)
+                    .addValue("variant", sku.variantId)
+                    .addValue("node", nodeId)
+                    .addValue("now", now);
+            jdbc.update("UPDATE product_variants SET reserved_quantity = reserved_quantity + :grant WHERE id = :variant",
+                    params);
+            // Linha da variante travada: ninguém cria a cota deste nó em paralelo
+            int updated = jdbc.update("""
+                    UPDATE stock_leases SET quantity = quantity + :grant, renewed_at = :now
+                    WHERE variant_id = :variant AND node_id = :node
+                    """, params);
+            if (updated == 0) {
+                jdbc.update("""
+                        INSERT INTO stock_leases (id, variant_id, node_id, quantity, renewed_at)
+                        VALUES (:id, :variant, :node, :grant, :now)
+                        """, params.addValue("id", UUID.randomUUID()));
+            }
+            return grant;
+        });
+        log.debug("Cota hot SKU da variante {}: +{} unidade(s)", sku.variantId, granted);
+        return granted != null ? granted : 0;
+    }
+
+    /** Zera a cota local e devolve o que restar da cota no banco; o próximo pedido arrenda de novo. */
+    private void resetLease(UUID variantId) {
+        HotSku sku = hot.get(variantId);
+        if (sku == null) {
+            return;
+        }
+        synchronized (sku) {
+            sku.drain();
+            returnLease(variantId);
+        }
+    }
+
+    private void returnLease(UUID variantId) {
+        try {
+            newTransaction.executeWithoutResult(status -> {
+                locks.lock(List.of(variantId));
+                releaseLeases("variant_id = :variant AND node_id = :node",
+                        new MapSqlParameterSource("variant", variantId).addValue("node", nodeId));
+            });
+        } catch (RuntimeException e) {
+            log.error("Falha ao devolver a cota hot SKU da variante {}; a varredura de cotas órfãs devolve depois",
+                    variantId, e);
+        }
+    }
+
+    /** Soma as cotas de volta ao disponível e apaga as linhas (variantes já travadas). */
+    private int releaseLeases(String where, MapSqlParameterSource params) {
+        List<Object[]> leases = jdbc.query("SELECT id, variant_id, quantity FROM stock_leases WHERE " + where, params,
+                (rs, i) -> new Object[] { rs.getObject("id", UUID.class), rs.getObject("variant_id", UUID.class),
+                        rs.getInt("quantity") });
+        for (Object[] lease : leases) {
+            jdbc.update("UPDATE product_variants SET reserved_quantity = reserved_quantity - :qty WHERE id = :variant",
+                    new MapSqlParameterSource("qty", lease[2]).addValue("variant", lease[1]));
+            jdbc.update("DELETE FROM stock_leases WHERE id = :id", new MapSqlParameterSource("id", lease[0]));
+        }
+        return leases.size();
+    }
+
+    /** Renova as cotas deste nó e devolve ao estoque as de nós que pararam de renovar. */
+    @Scheduled(fixedDelayString = "${HOT_SKU_HEARTBEAT_MS:30000}")
+    public void heartbeat() {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbc.update("UPDATE stock_leases SET renewed_at = :now WHERE node_id = :node",
+                new MapSqlParameterSource("now", now).addValue("node", nodeId));
+        int released = releaseStaleLeases(LocalDateTime.now().minusSeconds(staleSeconds));
+        if (released > 0) {
+            log.warn("Cotas hot SKU órfãs devolvidas ao estoque: {}", released);
+        }
+    }
+
+    int releaseStaleLeases(LocalDateTime staleBefore) {
+        MapSqlParameterSource params = new MapSqlParameterSource("before", Timestamp.valueOf(staleBefore))
+                .addValue("node", nodeId);
+        List<UUID> variants = jdbc.queryForList(
+                "SELECT DISTINCT variant_id FROM stock_leases WHERE renewed_at < :before AND node_id <> :node",
+                params, UUID.class);
+        if (variants.isEmpty()) {
+            return 0;
+        }
+        Integer released = newTransaction.execute(status -> {
+            locks.lock(variants);
+            return releaseLeases("variant_id IN (:variants) AND renewed_at < :before AND node_id <> :node",
+                    params.addValue("variants", variants));
+        });
+        return released != null ? released : 0;
+    }
+
+    // ---------------- group commit ----------------
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Falha no flush hot SKU", e);
+        }
+    }
+
+    private synchronized void flush() {
+        List<Pending> batch = new ArrayList<>();
+        queue.drainTo(batch);
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            newTransaction.executeWithoutResult(status -> write(batch));
+        } catch (LeaseLostException e) {
+            // A cota do banco já não cobre as faixas locais: devolver as unidades venderia o que não é do nó
+            batch.stream().map(Pending::variantId).distinct().forEach(this::resetLease);
+            for (Pending p : batch) {
+                HotSku sku = hot.get(p.variantId());
+                if (sku != null) {
+                    sku.settle();
+                }
+                p.done().completeExceptionally(e);
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            for (Pending p : batch) {
+                giveBack(p.variantId(), p.quantity());
+                p.done().completeExceptionally(e);
+            }
+            throw e;
+        }
+        for (Pending p : batch) {
+            HotSku sku = hot.get(p.variantId());
+            if (sku != null) {
+                sku.settle();
+            }
+            p.done().complete(null);
+        }
+    }
+
+    /** Um lote: estoque, reserved_quantity e cota por variante + movimentações em batch. */
+    private void write(List<Pending> batch) {
+        Map<UUID, Integer> perVariant = new LinkedHashMap<>();
+        List<InventoryLedgerWriter.Entry> entries = new ArrayList<>(batch.size());
+        for (Pending p : batch) {
+            perVariant.merge(p.variantId(), p.quantity(), Integer::sum);
+            entries.add(new InventoryLedgerWriter.Entry(p.productId(), p.variantId(), MovementType.OUT, p.quantity(),
+                    "Sale Order " + p.orderId(), p.orderId().toString()));
+        }
+        locks.lock(perVariant.keySet());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        StringJoiner tuples = new StringJoiner(", ");
+        List<Object> values = new ArrayList<>(perVariant.size() * 2);
+        perVariant.forEach((variantId, quantity) -> {
+            tuples.add("(CAST(? AS uuid), CAST(? AS integer))");
+            values.add(variantId);
+            values.add(quantity);
+        });
+
+        // Primeiro a cota: se ela sumiu (devolvida pela varredura), o lote inteiro falha sem baixar nada
+        List<Object> leaseArgs = new ArrayList<>(values.size() + 2);
+        leaseArgs.add(now);
+        leaseArgs.addAll(values);
+        leaseArgs.add(nodeId);
+        int leases = jdbc.getJdbcTemplate().update("""
+                UPDATE stock_leases l
+                SET quantity = l.quantity - d.qty,
+                    renewed_at = ?
+                FROM (VALUES %s) AS d(variant_id, qty)
+                WHERE l.variant_id = d.variant_id AND l.node_id = ? AND l.quantity >= d.qty
+                """.formatted(tuples), leaseArgs.toArray());
+        if (leases != perVariant.size()) {
+            throw new LeaseLostException("Cota hot SKU ausente ou insuficiente no nó " + nodeId);
+        }
+
+        List<Object> stockArgs = new ArrayList<>(values.size() + 1);
+        stockArgs.add(now);
+        stockArgs.addAll(values);
+        jdbc.getJdbcTemplate().update("""
+                UPDATE product_variants v
+                SET stock_quantity = v.stock_quantity - d.qty,
+                    reserved_quantity = v.reserved_quantity - d.qty,
+                    updated_at = ?
+                FROM (VALUES %s) AS d(id, qty)
+                WHERE v.id = d.id
+                """.formatted(tuples), stockArgs.toArray());
+        ledgerWriter.append(entries, now);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        for (UUID variantId : new ArrayList<>(hot.keySet())) {
+            disable(variantId);
+        }
+        flusher.shutdownNow();
+    }
+
+    // ---------------- estado ----------------
+
+    /** A cota do nó no banco não cobre o lote: foi devolvida pela varredura de cotas órfãs. */
+    private static final class LeaseLostException extends IllegalStateException {
+        LeaseLostException(String message) {
+            super(message);
+        }
+    }
+
+    private record Pending(UUID orderId, UUID variantId, UUID productId, int quantity,
+            CompletableFuture<Void> done) {
+    }
+
+    private static final class HotSku {
+        final UUID variantId;
+        final AtomicInteger[] stripes;
+        final AtomicInteger inFlight = new AtomicInteger();
+        // Monitor próprio: o do HotSku fica preso durante o arrendamento (I/O no banco)
+        final Object settled = new Object();
+        volatile UUID productId;
+        volatile boolean closed;
+
+        HotSku(UUID variantId, int stripes) {
+            this.variantId = variantId;
+            this.stripes = new AtomicInteger[stripes];
+            for (int i = 0; i < stripes; i++) {
+                this.stripes[i] = new AtomicInteger();
+            }
+        }
+
+        /** CAS na faixa da thread; se faltar, tenta as demais faixas. */
+        boolean tryTakeLocal(int quantity) {
+            int start = (int) (Thread.currentThread().threadId() % stripes.length);
+            for (int i = 0; i < stripes.length; i++) {
+                AtomicInteger stripe = stripes[(start + i) % stripes.length];
+                for (int current = stripe.get(); current >= quantity; current = stripe.get()) {
+                    if (stripe.compareAndSet(current, current - quantity)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /** Encerra uma admissão; a última acorda quem espera em {@link #awaitSettled}. */
+        void settle() {
+            if (inFlight.decrementAndGet() == 0) {
+                synchronized (settled) {
+                    settled.notifyAll();
+                }
+            }
+        }
+
+        /** Espera as admissões em andamento terminarem; false = estourou o prazo. */
+        boolean awaitSettled(long timeoutMs) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            synchronized (settled) {
+                while (inFlight.get() > 0) {
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(settled, left);
+                }
+                return true;
+            }
+        }
+
+        /** Espalha as unidades pelas faixas. */
+        void add(int quantity) {
+            int share = quantity / stripes.length;
+            int rest = quantity % stripes.length;
+            for (int i = 0; i < stripes.length; i++) {
+                int units = share + (i < rest ? 1 : 0);
+                if (units > 0) {
+                    stripes[i].addAndGet(units);
+                }
+            }
+        }
+
+        int drain() {
+            int total = 0;
+            for (AtomicInteger stripe : stripes) {
+                total += stripe.getAndSet(0);
+            }
+            return total;
+        }
+
+        int available() {
+            int total = 0;
+            for (AtomicInteger stripe : stripes) {
+                total += stripe.get();
+            }
+            return total;
+        }
+    }
+}
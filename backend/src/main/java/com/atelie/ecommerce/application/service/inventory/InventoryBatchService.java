@@ -0,0 +1,211 @@
+package com.atelie.ecommerce.application.service.inventory;
+
+import com.atelie.ecommerce.api.inventory.dto.InventoryBatchItem;
+import com.atelie.ecommerce.api.inventory.dto.InventoryBatchResponse;
+import com.atelie.ecommerce.api.inventory.dto.InventoryBatchResponse.Line;
+import com.atelie.ecommerce.api.inventory.dto.InventoryBatchResponse.Status;
+import com.atelie.ecommerce.domain.inventory.MovementType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Movimentações de estoque de várias variantes em um único pedido (entrada
+ * de nota de fornecedor, inventário físico).
+ *
+ * Metodologia:
+ * - Mesma semântica de InventoryService.addMovement por linha (razão +
+ *   saldo materializado), com resultado por linha em vez de falhar o lote.
+ * - Uma transação: as variantes são carregadas e travadas com um único
+ *   SELECT ... IN (VariantStockLocks, ordem de id), os deltas de IN/OUT vão
+ *   para stock_quantity em um único UPDATE ... FROM (VALUES ...) e as
+ *   movimentações saem em batch pelo InventoryLedgerWriter.
+ * - OUT que deixaria o estoque abaixo do reservado (carrinhos, cotas hot SKU)
+ *   falha a linha; o disponível considera as linhas anteriores do lote.
+ * - Idempotência pela chave (variante, tipo, referenceId): chaves já
+ *   gravadas, ou repetidas no próprio pedido, voltam como DUPLICATE. Com as
+ *   variantes travadas a checagem não corre contra outro lote; a chave única
+ *   de inventory_movement_keys (V16) segue como última barreira.
+ */
+@Slf4j
+@Service
+public class InventoryBatchService {
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final VariantStockLocks locks;
+    private final InventoryLedgerWriter ledgerWriter;
+    private final int maxItems;
+
+    public InventoryBatchService(NamedParameterJdbcTemplate jdbc,
+            VariantStockLocks locks,
+            InventoryLedgerWriter ledgerWriter,
+            @Value("${INVENTORY_BATCH_MAX_ITEMS:1000}") int maxItems) {
+        this.jdbc = jdbc;
+        this.locks = locks;
+        this.ledgerWriter = ledgerWriter;
+        this.maxItems = maxItems;
+    }
+
+    @Transactional
+    public InventoryBatchResponse apply(List<InventoryBatchItem> items) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("items é obrigatório");
+        }
+        if (items.size() > maxItems) {
+            throw new IllegalArgumentException("Máximo de " + maxItems + " itens por lote");
+        }
+        Line[] results = new Line[items.size()];
+        Set<UUID> ids = new HashSet<>();
+        Set<String> references = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            InventoryBatchItem item = items.get(i);
+            String error = validate(item);
+            if (error != null) {
+                results[i] = new Line(i, item != null ? item.variantId() : null, Status.FAILED, error);
+                continue;
+            }
+            ids.add(item.variantId());
+            if (item.referenceId() != null) {
+                references.add(item.referenceId());
+            }
+        }
+
+        Map<UUID, VariantStockLocks.LockedVariant> variants = new HashMap<>();
+        if (!ids.isEmpty()) {
+            locks.lockExisting(ids).forEach(v -> variants.put(v.id(), v));
+        }
+        Set<MovementKey> recorded = recordedKeys(variants.keySet(), references);
+        Map<UUID, Integer> deltas = new LinkedHashMap<>();
+
+        List<InventoryLedgerWriter.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            InventoryBatchItem item = items.get(i);
+            VariantStockLocks.LockedVariant variant = variants.get(item.variantId());
+            if (variant == null) {
+                results[i] = new Line(i, item.variantId(), Status.FAILED, "Variante não encontrada: " + item.variantId());
+                continue;
+            }
+            // Chave já gravada ou repetida neste lote
+            MovementKey key = new MovementKey(item.variantId(), item.type(), item.referenceId());
+            if (item.referenceId() != null && recorded.contains(key)) {
+                results[i] = new Line(i, item.variantId(), Status.DUPLICATE, null);
+                continue;
+            }
+            int delta = delta(item);
+            int available = variant.availableToSell() + deltas.getOrDefault(variant.id(), 0);
+            if (delta < 0 && available + delta < 0) {
+                results[i] = new Line(i, item.variantId(), Status.FAILED,
+                        "Estoque insuficiente para " + variant.sku() + ": disponível " + Math.max(0, available));
+                continue;
+            }
+            if (item.referenceId() != null) {
+                recorded.add(key);
+            }
+            if (delta != 0) {
+                deltas.merge(variant.id(), delta, Integer::sum);
+            }
+            entries.add(new InventoryLedgerWriter.Entry(variant.productId(), variant.id(), item.type(),
+                    item.quantity(), item.reason(), item.referenceId()));
+            results[i] = new Line(i, item.variantId(), Status.APPLIED, null);
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        deltas.values().removeIf(delta -> delta == 0);
+        if (!deltas.isEmpty()) {
+            updateStock(deltas, now);
+        }
+        ledgerWriter.append(entries, now);
+
+        int duplicates = 0;
+        int failed = 0;
+        for (Line line : results) {
+            if (line.status() == Status.DUPLICATE) {
+                duplicates++;
+            } else if (line.status() == Status.FAILED) {
+                failed++;
+            }
+        }
+        log.info("Lote de estoque: {} linhas, {} aplicadas, {} duplicadas, {} com erro",
+                items.size(), entries.size(), duplicates, failed);
+        return new InventoryBatchResponse(items.size(), entries.size(), duplicates, failed, List.of(results));
+    }
+
+    private static String validate(InventoryBatchItem item) {
+        if (item == null) {
+            return "linha vazia";
+        }
+        if (item.variantId() == null) {
+            return "variantId is required";
+        }
+        if (item.type() == null) {
+            return "type is required";
+        }
+        if (item.quantity() == null || item.quantity() <= 0) {
+            return "quantity must be > 0";
+        }
+        if (item.reason() != null && item.reason().length() > 255) {
+            return "reason excede 255 caracteres";
+        }
+        if (item.referenceId() != null && item.referenceId().length() > 255) {
+            return "referenceId excede 255 caracteres";
+        }
+        return null;
+    }
+
+    private static int delta(InventoryBatchItem item) {
+        return switch (item.type()) {
+            case IN -> item.quantity();
+            case OUT -> -item.quantity();
+            case RESERVED -> 0;
+        };
+    }
+
+    /** Um único UPDATE para as variantes do lote (já travadas): (id, delta) por variante. */
+    private void updateStock(Map<UUID, Integer> deltas, Timestamp now) {
+        StringJoiner tuples = new StringJoiner(", ");
+        List<Object> args = new ArrayList<>(deltas.size() * 2 + 1);
+        args.add(now);
+        deltas.forEach((variantId, delta) -> {
+            tuples.add("(CAST(? AS uuid), CAST(? AS integer))");
+            args.add(variantId);
+            args.add(delta);
+        });
+        jdbc.getJdbcTemplate().update("""
+                UPDATE product_variants v
+                SET stock_quantity = v.stock_quantity + d.delta,
+                    updated_at = ?
+                FROM (VALUES %s) AS d(id, delta)
+                WHERE v.id = d.id
+                """.formatted(tuples), args.toArray());
+    }
+
+    /** Chaves (variante, tipo, referenceId) já gravadas para as variantes e referências do lote. */
+    private Set<MovementKey> recordedKeys(Set<UUID> variantIds, Set<String> references) {
+        Set<MovementKey> keys = new HashSet<>();
+        if (variantIds.isEmpty() || references.isEmpty()) {
+            return keys;
+        }
+        jdbc.query("""
+                SELECT variant_id, type, reference_id FROM inventory_movements
+                WHERE variant_id IN (:ids) AND reference_id IN (:references)
+                """,
+                new MapSqlParameterSource("ids", variantIds).addValue("references", references),
+                rs -> {
+                    keys.add(new MovementKey(rs.getObject("variant_id", UUID.class),
+                            MovementType.valueOf(rs.getString("type")), rs.getString("reference_id")));
+                });
+        return keys;
+    }
+
+    private record MovementKey(UUID variantId, MovementType type, String referenceId) {
+    }
+}
@@ -0,0 +1,79 @@
+package com.atelie.ecommerce.application.service.inventory;
+
+import com.atelie.ecommerce.domain.inventory.InventoryCheckpointRepository;
+import com.atelie.ecommerce.domain.inventory.InventoryRepository;
+import com.atelie.ecommerce.infrastructure.persistence.inventory.entity.InventoryCheckpointEntity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Checkpoints periódicos do razão de estoque.
+ *
+ * Para cada variante com movimentações desde o último checkpoint grava um
+ * novo (saldo anterior + cauda até o corte). O corte fica
+ * INVENTORY_CHECKPOINT_LAG_MINUTES no passado para que transações ainda
+ * abertas (created_at anterior ao commit) não fiquem de fora.
+ */
+@Slf4j
+@Service
+public class InventoryCheckpointService {
+
+    static final LocalDateTime ORIGIN = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final int IN_CHUNK = 1000;
+
+    private final InventoryRepository inventoryRepository;
+    private final InventoryCheckpointRepository checkpointRepository;
+    private final long lagMinutes;
+
+    public InventoryCheckpointService(InventoryRepository inventoryRepository,
+            InventoryCheckpointRepository checkpointRepository,
+            @Value("${INVENTORY_CHECKPOINT_LAG_MINUTES:10}") long lagMinutes) {
+        this.inventoryRepository = inventoryRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.lagMinutes = lagMinutes;
+    }
+
+    @Scheduled(cron = "${INVENTORY_CHECKPOINT_CRON:0 30 3 * * *}")
+    public void scheduledCheckpoint() {
+        int created = createCheckpoints();
+        log.info("Checkpoints de estoque gravados: {}", created);
+    }
+
+    /** Grava checkpoints até agora menos o atraso de segurança; devolve quantos. */
+    @Transactional
+    public int createCheckpoints() {
+        return createCheckpoints(LocalDateTime.now().minusMinutes(lagMinutes));
+    }
+
+    @Transactional
+    public int createCheckpoints(LocalDateTime cutoff) {
+        Map<UUID, Integer> tails = new HashMap<>();
+        for (Object[] row : inventoryRepository.sumAfterLatestCheckpoint(ORIGIN, cutoff)) {
+            tails.put((UUID) row[0], ((Number) row[1]).intValue());
+        }
+        if (tails.isEmpty()) {
+            return 0;
+        }
+
+        Map<UUID, Integer> previous = new HashMap<>();
+        List<UUID> ids = new ArrayList<>(tails.keySet());
+        for (int i = 0; i < ids.size(); i += IN_CHUNK) {
+            for (InventoryCheckpointEntity c : checkpointRepository.findLatestByVariantIds(
+                    ids.subList(i, Math.min(i + IN_CHUNK, ids.size())))) {
+                previous.put(c.getVariantId(), c.getBalance());
+            }
+        }
+
+        List<InventoryCheckpointEntity> checkpoints = new ArrayList<>(tails.size());
+        tails.forEach((variantId, tail) -> checkpoints.add(
+                new InventoryCheckpointEntity(variantId, previous.getOrDefault(variantId, 0) + tail, cutoff)));
+        checkpointRepository.saveAll(checkpoints);
+        return checkpoints.size();
+    }
+}
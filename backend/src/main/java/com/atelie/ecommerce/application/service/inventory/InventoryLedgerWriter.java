@@ -0,0 +1,103 @@
+package com.atelie.ecommerce.application.service.inventory;
+
+import com.atelie.ecommerce.domain.inventory.MovementType;
+import com.atelie.ecommerce.domain.inventory.event.VariantStockChangedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Gravação em batch de movimentações de estoque com o saldo materializado.
+ *
+ * Metodologia:
+ * - Saldo inicial (variant_stock_balance) zerado para variantes sem linha,
+ *   antes de gravar as novas movimentações: mesmo contrato de
+ *   VariantStockBalanceRepository.createIfMissing. O razão da variante não é
+ *   lido (V13 preencheu as variantes existentes).
+ * - Movimentações em um único INSERT em batch e deltas aplicados ao saldo em
+ *   um único UPDATE ... FROM (VALUES ...).
+ * - Deve rodar dentro da transação do chamador, junto da alteração de estoque
+ *   que as movimentações registram.
+ * - Um VariantStockChangedEvent por chamada, com as variantes do lote, para
+ *   quem acompanha saldo após o commit (ex.: LowStockDetector,
+ *   StockSyncListener).
+ */
+@Component
+public class InventoryLedgerWriter {
+
+    private static final String INSERT_MOVEMENT = """
+            INSERT INTO inventory_movements (id, product_id, variant_id, type, quantity, reason, reference_id, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String CREATE_BALANCE = """
+            INSERT INTO variant_stock_balance (variant_id, balance, updated_at)
+            VALUES (?, 0, CURRENT_TIMESTAMP)
+            ON CONFLICT DO NOTHING
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public InventoryLedgerWriter(JdbcTemplate jdbc, ApplicationEventPublisher eventPublisher) {
+        this.jdbc = jdbc;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public record Entry(UUID productId, UUID variantId, MovementType type, int quantity,
+            String reason, String referenceId) {
+    }
+
+    public void append(List<Entry> entries, Timestamp now) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        List<Object[]> balanceKeys = new ArrayList<>(entries.size());
+        List<Object[]> movements = new ArrayList<>(entries.size());
+        Map<UUID, Integer> deltas = new LinkedHashMap<>();
+        for (Entry e : entries) {
+            balanceKeys.add(new Object[] { e.variantId() });
+            movements.add(new Object[] { UUID.randomUUID(), e.productId(), e.variantId(), e.type().name(),
+                    e.quantity(), e.reason(), e.referenceId(), now });
+            int delta = switch (e.type()) {
+                case IN -> e.quantity();
+                case OUT -> -e.quantity();
+                case RESERVED -> 0;
+            };
+            if (delta != 0) {
+                deltas.merge(e.variantId(), delta, Integer::sum);
+            }
+        }
+        jdbc.batchUpdate(CREATE_BALANCE, balanceKeys);
+        jdbc.batchUpdate(INSERT_MOVEMENT, movements);
+        if (!deltas.isEmpty()) {
+            updateBalances(deltas, now);
+        }
+        eventPublisher.publishEvent(new VariantStockChangedEvent(
+                entries.stream().map(Entry::variantId).collect(Collectors.toSet()),
+                entries.stream().map(Entry::productId).collect(Collectors.toSet())));
+    }
+
+    private void updateBalances(Map<UUID, Integer> deltas, Timestamp now) {
+        StringJoiner tuples = new StringJoiner(", ");
+        List<Object> args = new ArrayList<>(deltas.size() * 2 + 1);
+        args.add(now);
+        deltas.forEach((variantId, delta) -> {
+            tuples.add("(CAST(? AS uuid), CAST(? AS integer))");
+            args.add(variantId);
+            args.add(delta);
+        });
+        String sql = """
+                UPDATE variant_stock_balance b
+                SET balance = b.balance + d.delta,
+                    updated_at = ?
+                FROM (VALUES %s) AS d(variant_id, delta)
+                WHERE b.variant_id = d.variant_id
+                """.formatted(tuples);
+        jdbc.update(sql, args.toArray());
+    }
+}
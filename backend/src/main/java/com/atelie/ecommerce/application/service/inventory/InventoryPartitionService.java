@@ -0,0 +1,276 @@
+package com.atelie.ecommerce.application.service.inventory;
+
+import com.atelie.ecommerce.domain.inventory.InventoryRepository;
+import com.atelie.ecommerce.domain.inventory.InventoryRollupRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Manutenção do razão particionado por mês (V16).
+ *
+ * Metodologia:
+ * - Fechamento mensal: para cada mês encerrado há mais de
+ *   INVENTORY_ROLLUP_LAG_DAYS, um INSERT ... SELECT agrupa as movimentações
+ *   do mês por variante (abertura = fechamento anterior, entradas, saídas).
+ *   Os meses são fechados em ordem, então a abertura nunca depende de
+ *   partição arquivada.
+ * - Partições: os próximos INVENTORY_PARTITION_MONTHS_AHEAD meses são
+ *   criados antes de chegarem, mantendo a partição default vazia.
+ * - Arquivamento: partições com mais de INVENTORY_ARCHIVE_AFTER_MONTHS meses
+ *   e já fechadas ganham checkpoint no fim do mês (nenhuma auditoria volta a
+ *   lê-las), são exportadas em CSV gzip para INVENTORY_ARCHIVE_DIR e só então
+ *   desanexadas e removidas.
+ * - As chaves de idempotência em inventory_movement_keys NÃO são arquivadas:
+ *   sem elas, reenviar um referenceId antigo movimentaria o estoque de novo.
+ *   Cada chave ocupa poucos bytes, então a tabela cresce devagar.
+ * - Partições e arquivamento só existem no PostgreSQL; nos demais bancos
+ *   (H2 nos testes) roda apenas o fechamento.
+ */
+@Slf4j
+@Service
+public class InventoryPartitionService {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("inventory_movements_y(\\d{4})m(\\d{2})");
+
+    private static final String ROLLUP_MONTH = """
+            INSERT INTO inventory_monthly_rollups
+                (variant_id, month_start, opening_balance, qty_in, qty_out, closing_balance, created_at)
+            SELECT s.variant_id, :month, s.opening, s.qty_in, s.qty_out, s.opening + s.qty_in - s.qty_out, :now
+            FROM (
+                SELECT t.variant_id, t.qty_in, t.qty_out,
+                       COALESCE((SELECT r.closing_balance FROM inventory_monthly_rollups r
+                                 WHERE r.variant_id = t.variant_id AND r.month_start < :month
+                                 ORDER BY r.month_start DESC LIMIT 1), 0) AS opening
+                FROM (
+                    SELECT m.variant_id,
+                           SUM(CASE WHEN m.type = 'IN' THEN m.quantity ELSE 0 END) AS qty_in,
+                           SUM(CASE WHEN m.type = 'OUT' THEN m.quantity ELSE 0 END) AS qty_out
+                    FROM inventory_movements m
+                    WHERE m.created_at >= :from AND m.created_at < :to
+                    GROUP BY m.variant_id
+                ) t
+            ) s
+            ON CONFLICT DO NOTHING
+            """;
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final InventoryRepository inventoryRepository;
+    private final InventoryRollupRepository rollupRepository;
+    private final InventoryCheckpointService checkpointService;
+    private final TransactionTemplate transactionTemplate;
+    private final long lagDays;
+    private final int monthsAhead;
+    private final int archiveAfterMonths;
+    private final Path archiveDir;
+    private volatile Boolean postgres;
+
+    public InventoryPartitionService(NamedParameterJdbcTemplate jdbc,
+            InventoryRepository inventoryRepository,
+            InventoryRollupRepository rollupRepository,
+            InventoryCheckpointService checkpointService,
+            PlatformTransactionManager transactionManager,
+            @Value("${INVENTORY_ROLLUP_LAG_DAYS:1}") long lagDays,
+            @Value("${INVENTORY_PARTITION_MONTHS_AHEAD:3}") int monthsAhead,
+            @Value("${INVENTORY_ARCHIVE_AFTER_MONTHS:24}") int archiveAfterMonths,
+            @Value("${INVENTORY_ARCHIVE_DIR:./archive/inventory}") String archiveDir) {
+        this.jdbc = jdbc;
+        this.inventoryRepository = inventoryRepository;
+        this.rollupRepository = rollupRepository;
+        this.checkpointService = checkpointService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.lagDays = lagDays;
+        this.monthsAhead = monthsAhead;
+        this.archiveAfterMonths = archiveAfterMonths;
+        this.archiveDir = Path.of(archiveDir);
+    }
+
+    @Scheduled(cron = "${INVENTORY_PARTITION_CRON:0 45 3 * * *}")
+    public void scheduledMaintenance() {
+        int partitions = ensurePartitions();
+        int rollups = rollupClosedMonths(LocalDateTime.now());
+        List<String> archived = archiveOldPartitions(LocalDateTime.now());
+        log.info("Manutenção do razão: {} partições criadas, {} fechamentos mensais, {} partições arquivadas",
+                partitions, rollups, archived.size());
+    }
+
+    // ---------------- fechamento mensal ----------------
+
+    /** Fecha, em ordem, todos os meses encerrados ainda sem fechamento; devolve quantas linhas gravou. */
+    public int rollupClosedMonths(LocalDateTime now) {
+        YearMonth lastClosed = YearMonth.from(now.minusDays(lagDays)).minusMonths(1);
+        YearMonth next = rollupRepository.findLatestMonth()
+                .map(m -> YearMonth.from(m).plusMonths(1))
+                .or(() -> inventoryRepository.findEarliestCreatedAt().map(YearMonth::from))
+                .orElse(null);
+        if (next == null) {
+            return 0;
+        }
+        int total = 0;
+        for (YearMonth month = next; !month.isAfter(lastClosed); month = month.plusMonths(1)) {
+            YearMonth current = month;
+            Integer rows = transactionTemplate.execute(status -> rollupMonth(current));
+            total += rows != null ? rows : 0;
+        }
+        return total;
+    }
+
+    private int rollupMonth(YearMonth month) {
+        LocalDate start = month.atDay(1);
+        return jdbc.update(ROLLUP_MONTH, new MapSqlParameterSource("month", Date.valueOf(start))
+                .addValue("from", Timestamp.valueOf(start.atStartOfDay()))
+                .addValue("to", Timestamp.valueOf(start.plusMonths(1).atStartOfDay()))
+                .addValue("now", Timestamp.valueOf(LocalDateTime.now())));
+    }
+
+    // ---------------- partições (PostgreSQL) ----------------
+
+    /** Cria as partições do mês corrente e dos próximos meses; devolve quantas eram novas. */
+    public int ensurePartitions() {
+        if (!isPostgres()) {
+            return 0;
+        }
+        List<String> existing = partitions();
+        int created = 0;
+        YearMonth month = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++, month = month.plusMonths(1)) {
+            String name = partitionName(month);
+            if (existing.contains(name)) {
+                continue;
+            }
+            LocalDate start = month.atDay(1);
+            jdbc.getJdbcTemplate().execute("CREATE TABLE IF NOT EXISTS " + name
+                    + " PARTITION OF inventory_movements FOR VALUES FROM ('" + start + "') TO ('" + start.plusMonths(1) + "')");
+            created++;
+        }
+        return created;
+    }
+
+    /**
+     * Arquiva as partições mensais antigas já fechadas: checkpoint no fim do
+     * mês, export CSV gzip e DETACH + DROP. Devolve os nomes arquivados.
+     */
+    public List<String> archiveOldPartitions(LocalDateTime now) {
+        if (!isPostgres()) {
+            return List.of();
+        }
+        YearMonth cutoff = YearMonth.from(now).minusMonths(archiveAfterMonths);
+        YearMonth rolledUp = rollupRepository.findLatestMonth().map(YearMonth::from).orElse(null);
+        List<String> archived = new ArrayList<>();
+        for (String name : partitions()) {
+            Matcher matcher = PARTITION_NAME.matcher(name);
+            if (!matcher.matches()) {
+                continue;
+            }
+            YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            if (!month.isBefore(cutoff) || rolledUp == null || month.isAfter(rolledUp)) {
+                continue;
+            }
+            archive(name, month);
+            archived.add(name);
+        }
+        return archived;
+    }
+
+    private void archive(String name, YearMonth month) {
+        // Depois disso nenhuma auditoria (checkpoint + cauda) lê movimentações deste mês
+        checkpointService.createCheckpoints(month.plusMonths(1).atDay(1).atStartOfDay());
+
+        Path file = archiveDir.resolve(name + ".csv.gz");
+        long rows = transactionTemplate.execute(status -> export(name, file));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            JdbcTemplate template = jdbc.getJdbcTemplate();
+            template.execute("ALTER TABLE inventory_movements DETACH PARTITION " + name);
+            template.execute("DROP TABLE " + name);
+        });
+        log.info("Partição {} arquivada em {} ({} movimentações)", name, file, rows);
+    }
+
+    /** Exporta a partição em CSV gzip (escrita em arquivo temporário e renomeada ao final). */
+    private long export(String name, Path file) {
+        JdbcTemplate template = new JdbcTemplate(jdbc.getJdbcTemplate().getDataSource());
+        // Dentro da transação o driver do PostgreSQL usa cursor: a partição não é carregada inteira
+        template.setFetchSize(5_000);
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            long[] rows = { 0 };
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(tmp)), StandardCharsets.UTF_8))) {
+                out.write("id,product_id,variant_id,type,quantity,reason,reference_id,created_at\n");
+                template.query("SELECT id, product_id, variant_id, type, quantity, reason, reference_id, created_at FROM "
+                        + name + " ORDER BY created_at", rs -> {
+                            try {
+                                out.write(rs.getString(1) + "," + rs.getString(2) + "," + rs.getString(3) + ","
+                                        + rs.getString(4) + "," + rs.getInt(5) + "," + csv(rs.getString(6)) + ","
+                                        + csv(rs.getString(7)) + "," + rs.getTimestamp(8).toLocalDateTime() + "\n");
+                                rows[0]++;
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return rows[0];
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao exportar a partição " + name, e);
+        }
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private List<String> partitions() {
+        return jdbc.getJdbcTemplate().queryForList("""
+                SELECT c.relname FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                JOIN pg_class p ON p.oid = i.inhparent
+                WHERE p.relname = 'inventory_movements'
+                ORDER BY c.relname
+                """, String.class);
+    }
+
+    static String partitionName(YearMonth month) {
+        return String.format("inventory_movements_y%04dm%02d", month.getYear(), month.getMonthValue());
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = jdbc.getJdbcTemplate().execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName()));
+        }
+        return postgres;
+    }
+}
@@ -0,0 +1,121 @@
+package com.atelie.ecommerce.application.service.inventory;
+
+import com.atelie.ecommerce.domain.inventory.InventoryCheckpointRepository;
+import com.atelie.ecommerce.domain.inventory.InventoryRepository;
+import com.atelie.ecommerce.domain.inventory.VariantStockBalanceRepository;
+import com.atelie.ecommerce.infrastructure.persistence.inventory.entity.InventoryCheckpointEntity;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reconciliação periódica do estoque.
+ *
+ * Compara, por variante, o razão (último checkpoint + cauda) com o saldo
+ * materializado (deve ser idêntico; divergência indica escrita fora do
+ * InventoryService) e com stockQuantity da variante (divergência indica
+ * estoque alterado sem movimentação). Só reporta: nada é corrigido
+ * automaticamente, e movimentações concorrentes à leitura podem aparecer
+ * como divergência transitória. Gauges: inventory.drift.balance e inventory.drift.stock.
+ */
+@Slf4j
+@Service
+public class InventoryReconciler {
+
+    public static final int MAX_REPORTED_DRIFTS = 100;
+
+    private final InventoryRepository inventoryRepository;
+    private final InventoryCheckpointRepository checkpointRepository;
+    private final VariantStockBalanceRepository balanceRepository;
+    private final ProductVariantRepository variantRepository;
+    private final AtomicReference<InventoryReconciliationReport> lastReport = new AtomicReference<>();
+
+    public InventoryReconciler(InventoryRepository inventoryRepository,
+            InventoryCheckpointRepository checkpointRepository,
+            VariantStockBalanceRepository balanceRepository,
+            ProductVariantRepository variantRepository,
+            MeterRegistry meterRegistry) {
+        this.inventoryRepository = inventoryRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.balanceRepository = balanceRepository;
+        this.variantRepository = variantRepository;
+
+        Gauge.builder("inventory.drift.balance", lastReport, r -> r.get() != null ? r.get().balanceDrifts() : 0)
+                .description("Variantes com saldo materializado diferente do razão na última reconciliação")
+                .register(meterRegistry);
+        Gauge.builder("inventory.drift.stock", lastReport, r -> r.get() != null ? r.get().stockDrifts() : 0)
+                .description("Variantes com stockQuantity diferente do razão na última reconciliação")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${INVENTORY_RECONCILE_CRON:0 15 * * * *}")
+    public void scheduledReconcile() {
+        InventoryReconciliationReport report = reconcile();
+        if (report.balanceDrifts() > 0 || report.stockDrifts() > 0) {
+            log.warn("Reconciliação de estoque: {} variantes, {} com saldo divergente do razão, {} com stockQuantity divergente",
+                    report.variants(), report.balanceDrifts(), report.stockDrifts());
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public InventoryReconciliationReport reconcile() {
+        long start = System.nanoTime();
+        LocalDateTime checkedAt = LocalDateTime.now();
+
+        Map<UUID, Integer> ledger = new HashMap<>();
+        for (InventoryCheckpointEntity c : checkpointRepository.findLatestPerVariant()) {
+            ledger.put(c.getVariantId(), c.getBalance());
+        }
+        for (Object[] row : inventoryRepository.sumAfterLatestCheckpoint(InventoryCheckpointService.ORIGIN,
+                checkedAt.plusDays(1))) {
+            ledger.merge((UUID) row[0], ((Number) row[1]).intValue(), Integer::sum);
+        }
+        Map<UUID, Integer> balances = new HashMap<>();
+        for (Object[] row : balanceRepository.findAllBalances()) {
+            balances.put((UUID) row[0], (Integer) row[1]);
+        }
+
+        int variants = 0;
+        int balanceDrifts = 0;
+        int stockDrifts = 0;
+        List<InventoryReconciliationReport.StockDrift> drifts = new ArrayList<>();
+        for (Object[] row : variantRepository.findStockRows()) {
+            variants++;
+            UUID variantId = (UUID) row[0];
+            Integer stockQuantity = (Integer) row[2];
+            int expected = ledger.getOrDefault(variantId, 0);
+            Integer balance = balances.get(variantId);
+
+            // Sem linha de saldo e sem movimentação: variante nunca movimentada, não é divergência
+            boolean balanceDrift = balance != null ? balance != expected : expected != 0;
+            boolean stockDrift = stockQuantity == null || stockQuantity != expected;
+            if (balanceDrift) {
+                balanceDrifts++;
+            }
+            if (stockDrift) {
+                stockDrifts++;
+            }
+            if ((balanceDrift || stockDrift) && drifts.size() < MAX_REPORTED_DRIFTS) {
+                drifts.add(new InventoryReconciliationReport.StockDrift(variantId, (String) row[1], expected, balance,
+                        stockQuantity));
+            }
+        }
+
+        InventoryReconciliationReport report = new InventoryReconciliationReport(checkedAt, variants, balanceDrifts,
+                stockDrifts, (System.nanoTime() - start) / 1_000_000, drifts);
+        lastReport.set(report);
+        return report;
+    }
+
+    public Optional<InventoryReconciliationReport> lastReport() {
+        return Optional.ofNullable(lastReport.get());
+    }
+}
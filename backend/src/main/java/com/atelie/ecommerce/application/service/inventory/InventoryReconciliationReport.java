@@ -0,0 +1,21 @@
+package com.atelie.ecommerce.application.service.inventory;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Resultado da reconciliação do estoque: razão (checkpoint + cauda) contra o
+ * saldo materializado e contra ProductVariantEntity.stockQuantity.
+ * {@code drifts} traz até {@link InventoryReconciler#MAX_REPORTED_DRIFTS} variantes.
+ */
+public record InventoryReconciliationReport(
+        LocalDateTime checkedAt,
+        int variants,
+        int balanceDrifts,
+        int stockDrifts,
+        long elapsedMs,
+        List<StockDrift> drifts
+) {
+    public record StockDrift(UUID variantId, String sku, int ledger, Integer balance, Integer stockQuantity) {}
+}
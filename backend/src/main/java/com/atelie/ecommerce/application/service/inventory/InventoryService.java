@@ -1,28 +1,67 @@
 package com.atelie.ecommerce.application.service.inventory;
 
+import com.atelie.ecommerce.api.common.exception.InsufficientStockException;
+import com.atelie.ecommerce.domain.inventory.InventoryCheckpointRepository;
 import com.atelie.ecommerce.domain.inventory.InventoryRepository;
+import com.atelie.ecommerce.domain.inventory.InventoryRollupRepository;
 import com.atelie.ecommerce.domain.inventory.MovementType;
+import com.atelie.ecommerce.domain.inventory.VariantStockBalanceRepository;
+import com.atelie.ecommerce.domain.inventory.event.VariantStockChangedEvent;
+import com.atelie.ecommerce.infrastructure.persistence.inventory.entity.InventoryCheckpointEntity;
+import com.atelie.ecommerce.infrastructure.persistence.inventory.entity.InventoryMonthlyRollupEntity;
 import com.atelie.ecommerce.infrastructure.persistence.inventory.entity.InventoryMovementEntity;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
+/**
+ * Razão de estoque por variante.
+ *
+ * Leituras de saldo vêm de variant_stock_balance, mantido na mesma transação
+ * de cada movimentação; a soma do razão fica para auditoria e parte do
+ * último checkpoint (ver InventoryCheckpointService) ou fechamento mensal
+ * (ver InventoryPartitionService), o que for mais recente.
+ *
+ * Cada movimentação publica um VariantStockChangedEvent, como o
+ * InventoryLedgerWriter, para quem acompanha saldo após o commit.
+ *
+ * IN/OUT também movem product_variants.stock_quantity (o estoque vendável),
+ * com um UPDATE condicional: OUT não deixa o estoque abaixo do reservado.
+ */
 @Service
 public class InventoryService {
 
     private final InventoryRepository inventoryRepository;
     private final com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantRepository variantRepository;
+    private final VariantStockBalanceRepository balanceRepository;
+    private final InventoryCheckpointRepository checkpointRepository;
+    private final InventoryRollupRepository rollupRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public InventoryService(InventoryRepository inventoryRepository,
-            com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantRepository variantRepository) {
+            com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantRepository variantRepository,
+            VariantStockBalanceRepository balanceRepository,
+            InventoryCheckpointRepository checkpointRepository,
+            InventoryRollupRepository rollupRepository,
+            ApplicationEventPublisher eventPublisher) {
         this.inventoryRepository = inventoryRepository;
         this.variantRepository = variantRepository;
+        this.balanceRepository = balanceRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.rollupRepository = rollupRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
      * API compatível com os Controllers/Services do projeto:
-     * registra movimentação por VARIANTE com contexto (reason/source).
+     * registra movimentação por VARIANTE com contexto (reason/source) e
+     * atualiza o saldo materializado na mesma transação.
      */
+    @Transactional
     public void addMovement(UUID variantId,
             MovementType type,
             Integer quantity,
@@ -39,6 +78,19 @@ public class InventoryService {
         var variant = variantRepository.findById(variantId)
                 .orElseThrow(() -> new IllegalArgumentException("Variant not found: " + variantId));
 
+        int delta = switch (type) {
+            case IN -> quantity;
+            case OUT -> -quantity;
+            case RESERVED -> 0;
+        };
+        if (delta != 0 && variantRepository.applyStockDelta(variantId, delta) == 0) {
+            throw new InsufficientStockException(List.of(new InsufficientStockException.Shortage(variantId,
+                    variant.getSku(), quantity, Math.max(0, variant.getStockQuantity() - variant.getReservedQuantity()))));
+        }
+
+        // Variante sem saldo ainda (criada após V13): começa em zero, antes desta movimentação
+        balanceRepository.createIfMissing(variantId);
+
         InventoryMovementEntity m = new InventoryMovementEntity();
         // Esperado pelo projeto: variantId como UUID.
         m.setVariantId(variantId);
@@ -52,15 +104,43 @@ public class InventoryService {
         trySet(m, "setSource", source);
 
         inventoryRepository.save(m);
+
+        if (delta != 0) {
+            balanceRepository.applyDelta(variantId, delta);
+        }
+        eventPublisher.publishEvent(new VariantStockChangedEvent(List.of(variantId),
+                List.of(variant.getProduct().getId())));
     }
 
     /**
-     * Alias esperado pelo InventoryController.
+     * Alias esperado pelo InventoryController: leitura O(1) do saldo materializado.
      */
+    @Transactional(readOnly = true)
     public int getStock(UUID variantId) {
         if (variantId == null)
             throw new IllegalArgumentException("variantId is required");
-        return inventoryRepository.auditCalculatedStockByVariant(variantId);
+        return balanceRepository.findBalance(variantId).orElseGet(() -> auditStock(variantId));
+    }
+
+    /**
+     * Saldo recalculado pelo razão: último checkpoint ou fechamento mensal (o
+     * mais recente) + movimentações posteriores, lidas só nas partições
+     * recentes.
+     */
+    @Transactional(readOnly = true)
+    public int auditStock(UUID variantId) {
+        if (variantId == null)
+            throw new IllegalArgumentException("variantId is required");
+        Optional<InventoryCheckpointEntity> checkpoint = checkpointRepository.findFirstByVariantIdOrderByCutoffAtDesc(variantId);
+        Optional<InventoryMonthlyRollupEntity> rollup = rollupRepository.findFirstByVariantIdOrderByMonthStartDesc(variantId);
+        if (rollup.isPresent()
+                && (checkpoint.isEmpty() || !rollup.get().endExclusive().isBefore(checkpoint.get().getCutoffAt()))) {
+            InventoryMonthlyRollupEntity r = rollup.get();
+            return r.getClosingBalance() + inventoryRepository.sumByVariantFrom(variantId, r.endExclusive());
+        }
+        return checkpoint
+                .map(c -> c.getBalance() + inventoryRepository.sumByVariantAfter(variantId, c.getCutoffAt()))
+                .orElseGet(() -> inventoryRepository.auditCalculatedStockByVariant(variantId));
     }
 
     /**
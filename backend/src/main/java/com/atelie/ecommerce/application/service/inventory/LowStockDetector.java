@@ -0,0 +1,174 @@
+package com.atelie.ecommerce.application.service.inventory;
+
+import com.atelie.ecommerce.application.service.integration.N8nService;
+import com.atelie.ecommerce.domain.catalog.event.ProductBatchSavedEvent;
+import com.atelie.ecommerce.domain.catalog.event.ProductDeletedEvent;
+import com.atelie.ecommerce.domain.catalog.event.ProductSavedEvent;
+import com.atelie.ecommerce.domain.inventory.event.VariantStockChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Detector incremental de estoque baixo (variantes ativas de produtos com
+ * alert_enabled).
+ *
+ * Metodologia:
+ * - Conjunto em memória das variantes com stock_quantity <= LOW_STOCK_THRESHOLD,
+ *   carregado em uma consulta quando a aplicação sobe, sem alertar o que já
+ *   estava baixo.
+ * - Atualizado após o commit pelas variantes de cada VariantStockChangedEvent
+ *   (movimentações) e pelos eventos de produto (edição, importação, remoção):
+ *   só as variantes afetadas são relidas.
+ * - Alerta uma única vez ao cruzar o limite para baixo (entrada no
+ *   conjunto); a reposição acima do limite tira a variante do conjunto e
+ *   rearma o alerta.
+ * - Alertas acumulados e enviados ao N8n em um único POST a cada
+ *   LOW_STOCK_ALERT_FLUSH_MS.
+ * - Estado por nó: escritas feitas em outro nó chegam aqui pela
+ *   ressincronização (LOW_STOCK_RESYNC_MS), que não alerta.
+ */
+@Slf4j
+@Component
+public class LowStockDetector {
+
+    private static final String SELECT_VARIANTS = """
+            SELECT v.id, v.product_id, v.sku, v.stock_quantity, v.active, p.name, p.alert_enabled
+            FROM product_variants v JOIN products p ON p.id = v.product_id
+            """;
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final N8nService n8nService;
+    private final int threshold;
+
+    private final Map<UUID, LowStockEntry> low = new ConcurrentHashMap<>();
+    private final Queue<LowStockEntry> pendingAlerts = new ConcurrentLinkedQueue<>();
+
+    public LowStockDetector(NamedParameterJdbcTemplate jdbc,
+            N8nService n8nService,
+            @Value("${LOW_STOCK_THRESHOLD:5}") int threshold) {
+        this.jdbc = jdbc;
+        this.n8nService = n8nService;
+        this.threshold = threshold;
+    }
+
+    public record LowStockEntry(UUID variantId, UUID productId, String productName, String sku, int stock,
+            int threshold) {
+    }
+
+    /** Variantes hoje abaixo do limite, sem consultar o banco. */
+    public List<LowStockEntry> lowStock() {
+        List<LowStockEntry> entries = new ArrayList<>(low.values());
+        entries.sort(Comparator.comparingInt(LowStockEntry::stock).thenComparing(e -> String.valueOf(e.sku())));
+        return entries;
+    }
+
+    public int lowStockCount() {
+        return low.size();
+    }
+
+    // ---------------- eventos ----------------
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        resync();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStockChanged(VariantStockChangedEvent event) {
+        if (!event.variantIds().isEmpty()) {
+            Set<UUID> found = evaluate("v.id IN (:ids)", event.variantIds());
+            // Variantes removidas não voltam na consulta
+            event.variantIds().stream().filter(id -> !found.contains(id)).forEach(low::remove);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductSaved(ProductSavedEvent event) {
+        evaluate("v.product_id IN (:ids)", List.of(event.productId()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductBatchSaved(ProductBatchSavedEvent event) {
+        if (!event.productIds().isEmpty()) {
+            evaluate("v.product_id IN (:ids)", event.productIds());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductDeleted(ProductDeletedEvent event) {
+        low.values().removeIf(e -> e.productId().equals(event.productId()));
+    }
+
+    // ---------------- estado ----------------
+
+    /** Relê as variantes e aplica as transições (entrada no conjunto = alerta); devolve as lidas. */
+    private Set<UUID> evaluate(String where, Collection<UUID> ids) {
+        Set<UUID> seen = new HashSet<>();
+        jdbc.query(SELECT_VARIANTS + "WHERE " + where, new MapSqlParameterSource("ids", ids), rs -> {
+            UUID variantId = rs.getObject("id", UUID.class);
+            seen.add(variantId);
+            int stock = rs.getInt("stock_quantity");
+            if (rs.getBoolean("alert_enabled") && rs.getBoolean("active") && stock <= threshold) {
+                LowStockEntry entry = new LowStockEntry(variantId, rs.getObject("product_id", UUID.class),
+                        rs.getString("name"), rs.getString("sku"), stock, threshold);
+                // compute por chave: duas transações cruzando juntas alertam uma vez só
+                low.compute(variantId, (id, previous) -> {
+                    if (previous == null) {
+                        pendingAlerts.add(entry);
+                    }
+                    return entry;
+                });
+            } else {
+                low.remove(variantId);
+            }
+        });
+        return seen;
+    }
+
+    /** Recarrega o conjunto inteiro do banco, sem alertar. */
+    @Scheduled(fixedDelayString = "${LOW_STOCK_RESYNC_MS:300000}", initialDelayString = "${LOW_STOCK_RESYNC_MS:300000}")
+    public void resync() {
+        Map<UUID, LowStockEntry> current = new HashMap<>();
+        jdbc.query(SELECT_VARIANTS + "WHERE p.alert_enabled = true AND v.active = true AND v.stock_quantity <= :threshold",
+                new MapSqlParameterSource("threshold", threshold), rs -> {
+                    UUID variantId = rs.getObject("id", UUID.class);
+                    current.put(variantId, new LowStockEntry(variantId, rs.getObject("product_id", UUID.class),
+                            rs.getString("name"), rs.getString("sku"), rs.getInt("stock_quantity"), threshold));
+                });
+        low.keySet().retainAll(current.keySet());
+        low.putAll(current);
+        log.debug("Estoque baixo ressincronizado: {} variante(s)", current.size());
+    }
+
+    /** Envia ao N8n, em um único POST, os alertas acumulados; devolve quantos. */
+    @Scheduled(fixedDelayString = "${LOW_STOCK_ALERT_FLUSH_MS:60000}")
+    public int flushAlerts() {
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (LowStockEntry entry = pendingAlerts.poll(); entry != null; entry = pendingAlerts.poll()) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("productId", entry.productId());
+            item.put("product", entry.productName());
+            item.put("variantId", entry.variantId());
+            item.put("sku", entry.sku());
+            item.put("stock", entry.stock());
+            item.put("threshold", entry.threshold());
+            items.add(item);
+        }
+        if (!items.isEmpty()) {
+            n8nService.sendLowStockAlerts(items);
+        }
+        return items.size();
+    }
+}
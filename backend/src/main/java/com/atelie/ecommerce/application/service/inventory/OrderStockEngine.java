@@ -0,0 +1,233 @@
+package com.atelie.ecommerce.application.service.inventory;
+
+import com.atelie.ecommerce.api.common.exception.InsufficientStockException;
+import com.atelie.ecommerce.api.common.exception.NotFoundException;
+import com.atelie.ecommerce.domain.inventory.MovementType;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Baixa e estorno de estoque de pedidos, à prova de venda além do saldo.
+ *
+ * Metodologia:
+ * - Itens agregados por variante (a mesma variante em duas linhas do pedido
+ *   vira uma única baixa).
+ * - Um SELECT ... ORDER BY id FOR UPDATE (VariantStockLocks) trava todas as
+ *   variantes do pedido sempre na mesma ordem: checkouts concorrentes com
+ *   itens em comum esperam em fila em vez de entrar em deadlock.
+ * - Disponível = stock_quantity - reserved_quantity: reservas de outros
+ *   carrinhos não podem ser vendidas; as do próprio carrinho cobrem o pedido.
+ * - Com as linhas travadas, todas as faltas são levantadas de uma vez
+ *   ({@link InsufficientStockException}) antes de qualquer escrita.
+ * - Um único UPDATE ... FROM (VALUES ...) condicional baixa o pedido inteiro,
+ *   e as movimentações OUT + saldo materializado saem em batch pelo
+ *   InventoryLedgerWriter, na mesma transação do pedido.
+ * - Variantes em modo hot SKU (HotSkuStockCounter) não travam a linha: são
+ *   admitidas contra a cota do nó e gravadas pelo group commit do contador
+ *   ({@link #takeHot}), antes e fora da transação do pedido; se ela não
+ *   comitar, {@link #compensateHot} estorna.
+ */
+@Service
+public class OrderStockEngine {
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final VariantStockLocks locks;
+    private final StockReservationService reservationService;
+    private final InventoryLedgerWriter ledgerWriter;
+    private final HotSkuStockCounter hotSkuCounter;
+
+    public OrderStockEngine(NamedParameterJdbcTemplate jdbc,
+            VariantStockLocks locks,
+            StockReservationService reservationService,
+            InventoryLedgerWriter ledgerWriter,
+            HotSkuStockCounter hotSkuCounter) {
+        this.jdbc = jdbc;
+        this.locks = locks;
+        this.reservationService = reservationService;
+        this.ledgerWriter = ledgerWriter;
+        this.hotSkuCounter = hotSkuCounter;
+    }
+
+    /**
+     * Baixa os itens em modo hot SKU (sem reserva do carrinho) pela cota do nó
+     * e espera o group commit gravá-los. Roda sem transação aberta: a thread
+     * do pedido não segura conexão enquanto o flusher e o arrendamento usam as
+     * suas. Dentro de uma transação, nada é baixado aqui e os itens seguem o
+     * fluxo com lock de linha em {@link #reserve}.
+     *
+     * @return o que foi gravado, a passar para {@link #reserve}; se o pedido
+     *         não comitar, a devolver por {@link #compensateHot}.
+     * @throws InsufficientStockException se a cota não cobrir algum item.
+     */
+    public Map<UUID, Integer> takeHot(UUID orderId, List<StockLine> lines, UUID cartId) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return Map.of();
+        }
+        Map<UUID, Integer> hotLines = new LinkedHashMap<>();
+        for (StockLine line : lines) {
+            if (line.variantId() != null && line.quantity() > 0 && hotSkuCounter.isHot(line.variantId())) {
+                hotLines.merge(line.variantId(), line.quantity(), Integer::sum);
+            }
+        }
+        if (hotLines.isEmpty()) {
+            return Map.of();
+        }
+        if (cartId != null) {
+            // Reservas do carrinho cobrem o item pelo fluxo normal
+            hotLines.keySet().removeAll(reservationService.heldByCart(cartId, null).keySet());
+        }
+        if (hotLines.isEmpty()) {
+            return Map.of();
+        }
+        admitHot(hotLines);
+        // Group commit: espera o lote do nó gravar estoque e movimentações dos itens hot
+        hotSkuCounter.commit(orderId, hotLines);
+        return hotLines;
+    }
+
+    /** Estorna os itens hot de um pedido cuja transação não comitou. */
+    public void compensateHot(UUID orderId, Map<UUID, Integer> taken) {
+        hotSkuCounter.compensate(orderId, taken);
+    }
+
+    /**
+     * Baixa o estoque de todos os itens do pedido ou de nenhum. Com
+     * {@code cartId}, as reservas ativas do carrinho cobrem o que reservaram e
+     * são convertidas no pedido (as que sobrarem são liberadas). Quantidades
+     * em {@code hotTaken} já foram baixadas por {@link #takeHot}.
+     *
+     * @throws InsufficientStockException com todas as variantes em falta.
+     * @throws NotFoundException se alguma variante não existir.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserve(UUID orderId, List<StockLine> lines, UUID cartId, Map<UUID, Integer> hotTaken) {
+        Map<UUID, Integer> requested = StockLine.aggregate(lines);
+        Set<UUID> cartVariants = cartId != null ? reservationService.heldByCart(cartId, null).keySet() : Set.of();
+        // Linha sem variante resolvida para a mesma variante hot: só o que passar do já baixado segue aqui
+        hotTaken.forEach((variantId, quantity) ->
+                requested.computeIfPresent(variantId, (id, total) -> total > quantity ? total - quantity : null));
+
+        Set<UUID> ids = new HashSet<>(requested.keySet());
+        ids.addAll(cartVariants);
+        List<VariantStockLocks.LockedVariant> locked = ids.isEmpty() ? List.of() : locks.lock(ids);
+        // Relido com as variantes travadas: nenhuma reserva delas muda até o commit
+        Map<UUID, Integer> held = cartId != null && !ids.isEmpty() ? reservationService.heldByCart(cartId, ids) : Map.of();
+
+        List<InsufficientStockException.Shortage> shortages = new ArrayList<>();
+        for (VariantStockLocks.LockedVariant v : locked) {
+            Integer quantity = requested.get(v.id());
+            int available = v.availableToSell() + held.getOrDefault(v.id(), 0);
+            if (quantity != null && available < quantity) {
+                shortages.add(new InsufficientStockException.Shortage(v.id(), v.sku(), quantity, available));
+            }
+        }
+        if (!shortages.isEmpty()) {
+            throw new InsufficientStockException(shortages);
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        if (!locked.isEmpty()) {
+            int updated = take(locked, requested, held, now);
+            if (updated != locked.size()) {
+                // Linhas travadas acima: só acontece se alguém escrever sem passar pelo lock
+                throw new IllegalStateException("Baixa de estoque parcial no pedido " + orderId);
+            }
+        }
+        if (!held.isEmpty()) {
+            reservationService.markConverted(cartId, held.keySet(), orderId);
+        }
+        List<InventoryLedgerWriter.Entry> entries = new ArrayList<>(requested.size());
+        for (VariantStockLocks.LockedVariant v : locked) {
+            if (requested.containsKey(v.id())) {
+                entries.add(new InventoryLedgerWriter.Entry(v.productId(), v.id(), MovementType.OUT,
+                        requested.get(v.id()), "Sale Order " + orderId, orderId.toString()));
+            }
+        }
+        ledgerWriter.append(entries, now);
+    }
+
+    /** Admite os itens hot contra a cota do nó; tudo ou nada, com as faltas no erro. */
+    private void admitHot(Map<UUID, Integer> hotLines) {
+        Map<UUID, Integer> taken = new LinkedHashMap<>();
+        List<InsufficientStockException.Shortage> shortages = new ArrayList<>();
+        hotLines.forEach((variantId, quantity) -> {
+            if (hotSkuCounter.tryTake(variantId, quantity)) {
+                taken.put(variantId, quantity);
+            } else {
+                shortages.add(new InsufficientStockException.Shortage(variantId, null, quantity,
+                        hotSkuCounter.localAvailable(variantId)));
+            }
+        });
+        if (!shortages.isEmpty()) {
+            taken.forEach(hotSkuCounter::giveBack);
+            throw new InsufficientStockException(shortages);
+        }
+    }
+
+    /** Devolve ao estoque os itens de um pedido cancelado. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(UUID orderId, List<StockLine> lines, String reason) {
+        Map<UUID, Integer> quantities = StockLine.aggregate(lines);
+        if (quantities.isEmpty()) {
+            return;
+        }
+        List<VariantStockLocks.LockedVariant> locked = locks.lock(quantities.keySet());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        StringJoiner tuples = new StringJoiner(", ");
+        List<Object> args = new ArrayList<>(quantities.size() * 2 + 1);
+        args.add(now);
+        quantities.forEach((variantId, quantity) -> {
+            tuples.add("(CAST(? AS uuid), CAST(? AS integer))");
+            args.add(variantId);
+            args.add(quantity);
+        });
+        jdbc.getJdbcTemplate().update("""
+                UPDATE product_variants v
+                SET stock_quantity = v.stock_quantity + d.qty,
+                    updated_at = ?
+                FROM (VALUES %s) AS d(id, qty)
+                WHERE v.id = d.id
+                """.formatted(tuples), args.toArray());
+
+        List<InventoryLedgerWriter.Entry> entries = new ArrayList<>(locked.size());
+        for (VariantStockLocks.LockedVariant v : locked) {
+            entries.add(new InventoryLedgerWriter.Entry(v.productId(), v.id(), MovementType.IN,
+                    quantities.get(v.id()), "Order Cancelled: " + reason, orderId.toString()));
+        }
+        ledgerWriter.append(entries, now);
+    }
+
+    /**
+     * Um único UPDATE para todas as variantes travadas: baixa {@code qty} do
+     * estoque e solta {@code held} de reserved_quantity, só onde o disponível
+     * (estoque - reservas de outros carrinhos) cobre o pedido.
+     */
+    private int take(List<VariantStockLocks.LockedVariant> locked, Map<UUID, Integer> requested,
+            Map<UUID, Integer> held, Timestamp now) {
+        StringJoiner tuples = new StringJoiner(", ");
+        List<Object> args = new ArrayList<>(locked.size() * 3 + 1);
+        args.add(now);
+        for (VariantStockLocks.LockedVariant v : locked) {
+            tuples.add("(CAST(? AS uuid), CAST(? AS integer), CAST(? AS integer))");
+            args.add(v.id());
+            args.add(requested.getOrDefault(v.id(), 0));
+            args.add(held.getOrDefault(v.id(), 0));
+        }
+        String sql = """
+                UPDATE product_variants v
+                SET stock_quantity = v.stock_quantity - d.qty,
+                    reserved_quantity = v.reserved_quantity - d.held,
+                    updated_at = ?
+                FROM (VALUES %s) AS d(id, qty, held)
+                WHERE v.id = d.id AND v.stock_quantity - v.reserved_quantity + d.held >= d.qty
+                """.formatted(tuples);
+        return jdbc.getJdbcTemplate().update(sql, args.toArray());
+    }
+}
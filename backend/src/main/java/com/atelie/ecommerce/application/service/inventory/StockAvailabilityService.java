@@ -0,0 +1,63 @@
+package com.atelie.ecommerce.application.service.inventory;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * Disponibilidade de muitas variantes de uma vez (carrinho, listagens).
+ *
+ * Metodologia:
+ * - Disponível = stock_quantity - reserved_quantity, a mesma conta que o
+ *   OrderStockEngine faz no checkout; nada de SUM no razão por variante.
+ * - Cotas hot SKU ainda não vendidas (stock_leases) estão em
+ *   reserved_quantity, mas continuam à venda pelos nós que as arrendaram:
+ *   voltam a contar como disponíveis.
+ * - Uma consulta (LEFT JOIN com as cotas agrupadas) para todos os ids, sem
+ *   travar linhas; ids inexistentes ficam fora do mapa.
+ */
+@Service
+public class StockAvailabilityService {
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final int maxIds;
+
+    public StockAvailabilityService(NamedParameterJdbcTemplate jdbc,
+            @Value("${INVENTORY_AVAILABILITY_MAX_IDS:5000}") int maxIds) {
+        this.jdbc = jdbc;
+        this.maxIds = maxIds;
+    }
+
+    /** variantId -> unidades disponíveis para venda (nunca negativo). */
+    @Transactional(readOnly = true)
+    public Map<UUID, Integer> availability(Collection<UUID> variantIds) {
+        if (variantIds == null || variantIds.isEmpty()) {
+            throw new IllegalArgumentException("variantIds é obrigatório");
+        }
+        Set<UUID> ids = new HashSet<>(variantIds);
+        ids.remove(null);
+        if (ids.size() > maxIds) {
+            throw new IllegalArgumentException("Máximo de " + maxIds + " variantes por consulta");
+        }
+        Map<UUID, Integer> available = new LinkedHashMap<>(ids.size() * 2);
+        if (ids.isEmpty()) {
+            return available;
+        }
+        jdbc.query("""
+                SELECT v.id, v.stock_quantity - v.reserved_quantity + COALESCE(l.leased, 0) AS available
+                FROM product_variants v
+                LEFT JOIN (SELECT variant_id, SUM(quantity) AS leased FROM stock_leases
+                           WHERE variant_id IN (:ids) GROUP BY variant_id) l ON l.variant_id = v.id
+                WHERE v.id IN (:ids)
+                """,
+                new MapSqlParameterSource("ids", ids),
+                rs -> {
+                    available.put(rs.getObject("id", UUID.class), Math.max(0, rs.getInt("available")));
+                });
+        return available;
+    }
+}
@@ -0,0 +1,25 @@
+package com.atelie.ecommerce.application.service.inventory;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/** Quantidade de uma variante em um pedido ou carrinho. */
+public record StockLine(UUID variantId, int quantity) {
+
+    /** Soma as linhas por variante (a mesma variante em duas linhas vira uma). */
+    static Map<UUID, Integer> aggregate(List<StockLine> lines) {
+        Map<UUID, Integer> quantities = new LinkedHashMap<>();
+        for (StockLine line : lines) {
+            if (line.variantId() == null) {
+                throw new IllegalArgumentException("variantId is required");
+            }
+            if (line.quantity() <= 0) {
+                throw new IllegalArgumentException("quantity must be > 0");
+            }
+            quantities.merge(line.variantId(), line.quantity(), Integer::sum);
+        }
+        return quantities;
+    }
+}
@@ -0,0 +1,347 @@
+package com.atelie.ecommerce.application.service.inventory;
+
+import com.atelie.ecommerce.api.common.exception.BusinessException;
+import com.atelie.ecommerce.api.common.exception.InsufficientStockException;
+import com.atelie.ecommerce.api.common.exception.NotFoundException;
+import com.atelie.ecommerce.domain.inventory.ReservationStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Reservas de estoque do carrinho com TTL.
+ *
+ * Metodologia:
+ * - product_variants.reserved_quantity materializa a soma das reservas
+ *   ativas: disponível para venda = stock_quantity - reserved_quantity, lido
+ *   sem varrer stock_reservations.
+ * - Reservar fixa a quantidade do carrinho por variante (substitui a reserva
+ *   anterior e renova o TTL); tudo ou nada, com todas as faltas no erro.
+ * - Toda transição de reserva trava antes a linha da variante
+ *   (VariantStockLocks), então reserva, conversão em pedido, liberação e
+ *   expiração nunca contam a mesma reserva duas vezes.
+ * - Expiração por varredura em lotes sobre o índice parcial de expires_at
+ *   (só reservas ativas), a cada STOCK_RESERVATION_SWEEP_MS; até a varredura
+ *   passar, uma reserva vencida ainda segura o estoque.
+ * - Carrinho pertence ao usuário que o reservou primeiro (owner): outro
+ *   usuário não vê, ajusta nem libera (404). Limites por usuário contra quem
+ *   tenta segurar o estoque: STOCK_RESERVATION_MAX_PER_VARIANT unidades por
+ *   variante, STOCK_RESERVATION_MAX_LINES variantes por carrinho,
+ *   STOCK_RESERVATION_MAX_CARTS carrinhos ativos, e a renovação não passa de
+ *   STOCK_RESERVATION_MAX_HOLD_MINUTES desde a primeira reserva (held_since).
+ */
+@Slf4j
+@Service
+public class StockReservationService {
+
+    private static final String INSERT_RESERVATION = """
+            INSERT INTO stock_reservations (id, cart_id, variant_id, quantity, status, expires_at, created_at, updated_at,
+                                            owner, held_since)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final VariantStockLocks locks;
+    private final TransactionTemplate transactionTemplate;
+    private final long ttlMinutes;
+    private final int sweepBatch;
+    private final int maxPerVariant;
+    private final int maxLines;
+    private final int maxCarts;
+    private final long maxHoldMinutes;
+
+    public StockReservationService(NamedParameterJdbcTemplate jdbc,
+            VariantStockLocks locks,
+            PlatformTransactionManager transactionManager,
+            @Value("${STOCK_RESERVATION_TTL_MINUTES:15}") long ttlMinutes,
+            @Value("${STOCK_RESERVATION_SWEEP_BATCH:500}") int sweepBatch,
+            @Value("${STOCK_RESERVATION_MAX_PER_VARIANT:10}") int maxPerVariant,
+            @Value("${STOCK_RESERVATION_MAX_LINES:50}") int maxLines,
+            @Value("${STOCK_RESERVATION_MAX_CARTS:3}") int maxCarts,
+            @Value("${STOCK_RESERVATION_MAX_HOLD_MINUTES:60}") long maxHoldMinutes) {
+        this.jdbc = jdbc;
+        this.locks = locks;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttlMinutes = ttlMinutes;
+        this.sweepBatch = sweepBatch;
+        this.maxPerVariant = maxPerVariant;
+        this.maxLines = maxLines;
+        this.maxCarts = maxCarts;
+        this.maxHoldMinutes = maxHoldMinutes;
+    }
+
+    public record Reservation(UUID variantId, String sku, int quantity, int availableToSell, LocalDateTime expiresAt) {
+    }
+
+    /** Reserva ativa do carrinho, como devolvida ao dono. */
+    public record ActiveReservation(UUID variantId, int quantity, LocalDateTime expiresAt) {
+    }
+
+    /**
+     * Reserva as quantidades do carrinho de {@code owner}, substituindo
+     * reservas ativas do mesmo carrinho nessas variantes.
+     *
+     * @throws InsufficientStockException com todas as variantes em falta.
+     * @throws NotFoundException          carrinho com reservas de outro usuário.
+     * @throws BusinessException          limite por usuário excedido.
+     */
+    @Transactional
+    public List<Reservation> reserve(UUID cartId, String owner, List<StockLine> lines) {
+        if (cartId == null) {
+            throw new IllegalArgumentException("cartId is required");
+        }
+        Map<UUID, Integer> requested = StockLine.aggregate(lines);
+        if (requested.isEmpty()) {
+            throw new IllegalArgumentException("items é obrigatório");
+        }
+        requested.forEach((variantId, quantity) -> {
+            if (quantity > maxPerVariant) {
+                throw new BusinessException("Máximo de " + maxPerVariant + " unidades reservadas por variante");
+            }
+        });
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime heldSince = checkCart(cartId, owner, requested.keySet(), now);
+        LocalDateTime holdLimit = heldSince.plusMinutes(maxHoldMinutes);
+        if (!holdLimit.isAfter(now)) {
+            throw new BusinessException("Reserva do carrinho atingiu o tempo máximo de " + maxHoldMinutes + " minutos");
+        }
+        LocalDateTime expiresAt = now.plusMinutes(ttlMinutes);
+        if (expiresAt.isAfter(holdLimit)) {
+            expiresAt = holdLimit;
+        }
+
+        List<VariantStockLocks.LockedVariant> locked = locks.lock(requested.keySet());
+        Map<UUID, Integer> held = heldByCart(cartId, requested.keySet());
+
+        List<InsufficientStockException.Shortage> shortages = new ArrayList<>();
+        for (VariantStockLocks.LockedVariant v : locked) {
+            int available = v.availableToSell() + held.getOrDefault(v.id(), 0);
+            if (available < requested.get(v.id())) {
+                shortages.add(new InsufficientStockException.Shortage(v.id(), v.sku(), requested.get(v.id()), available));
+            }
+        }
+        if (!shortages.isEmpty()) {
+            throw new InsufficientStockException(shortages);
+        }
+
+        Map<UUID, Integer> deltas = new LinkedHashMap<>();
+        requested.forEach((variantId, quantity) -> deltas.put(variantId, quantity - held.getOrDefault(variantId, 0)));
+        addReserved(deltas);
+        transition(cartId, requested.keySet(), ReservationStatus.RELEASED, null, now);
+
+        List<Object[]> rows = new ArrayList<>(requested.size());
+        List<Reservation> reservations = new ArrayList<>(requested.size());
+        for (VariantStockLocks.LockedVariant v : locked) {
+            int quantity = requested.get(v.id());
+            rows.add(new Object[] { UUID.randomUUID(), cartId, v.id(), quantity, ReservationStatus.ACTIVE.name(),
+                    Timestamp.valueOf(expiresAt), Timestamp.valueOf(now), Timestamp.valueOf(now),
+                    owner, Timestamp.valueOf(heldSince) });
+            reservations.add(new Reservation(v.id(), v.sku(), quantity,
+                    v.availableToSell() - deltas.get(v.id()), expiresAt));
+        }
+        jdbc.getJdbcTemplate().batchUpdate(INSERT_RESERVATION, rows);
+        return reservations;
+    }
+
+    /** Reservas ativas do carrinho de {@code owner}; carrinho de outro usuário = 404. */
+    @Transactional(readOnly = true)
+    public List<ActiveReservation> active(UUID cartId, String owner) {
+        checkOwner(cartId, owner);
+        return jdbc.query("""
+                SELECT variant_id, quantity, expires_at FROM stock_reservations
+                WHERE cart_id = :cart AND status = 'ACTIVE'
+                ORDER BY created_at
+                """, new MapSqlParameterSource("cart", cartId),
+                (rs, i) -> new ActiveReservation(rs.getObject("variant_id", UUID.class), rs.getInt("quantity"),
+                        rs.getTimestamp("expires_at").toLocalDateTime()));
+    }
+
+    /** Libera todas as reservas ativas do carrinho de {@code owner}; devolve quantas variantes. */
+    @Transactional
+    public int release(UUID cartId, String owner) {
+        checkOwner(cartId, owner);
+        Map<UUID, Integer> held = heldByCart(cartId, null);
+        if (held.isEmpty()) {
+            return 0;
+        }
+        locks.lock(held.keySet());
+        // Relido com as variantes travadas: a varredura pode ter expirado parte delas
+        held = heldByCart(cartId, held.keySet());
+        addReserved(negate(held));
+        transition(cartId, held.keySet(), ReservationStatus.RELEASED, null, LocalDateTime.now());
+        return held.size();
+    }
+
+    @Scheduled(fixedDelayString = "${STOCK_RESERVATION_SWEEP_MS:15000}")
+    public void scheduledExpire() {
+        int expired = expire(LocalDateTime.now());
+        if (expired > 0) {
+            log.info("Reservas de estoque expiradas: {}", expired);
+        }
+    }
+
+    /** Expira as reservas vencidas até {@code now}, em lotes; devolve quantas. */
+    public int expire(LocalDateTime now) {
+        int total = 0;
+        while (true) {
+            int[] batch = transactionTemplate.execute(status -> expireBatch(now));
+            total += batch[1];
+            if (batch[0] < sweepBatch) {
+                return total;
+            }
+        }
+    }
+
+    /** {candidatas lidas, reservas expiradas} de um lote. */
+    private int[] expireBatch(LocalDateTime now) {
+        Timestamp cutoff = Timestamp.valueOf(now);
+        List<UUID[]> candidates = jdbc.query("""
+                SELECT id, variant_id FROM stock_reservations
+                WHERE status = 'ACTIVE' AND expires_at <= :now
+                ORDER BY expires_at
+                LIMIT :limit
+                """,
+                new MapSqlParameterSource("now", cutoff).addValue("limit", sweepBatch),
+                (rs, i) -> new UUID[] { rs.getObject("id", UUID.class), rs.getObject("variant_id", UUID.class) });
+        if (candidates.isEmpty()) {
+            return new int[] { 0, 0 };
+        }
+        Set<UUID> ids = new HashSet<>();
+        Set<UUID> variantIds = new HashSet<>();
+        for (UUID[] c : candidates) {
+            ids.add(c[0]);
+            variantIds.add(c[1]);
+        }
+        locks.lock(variantIds);
+
+        // Com as variantes travadas, só conta o que continua ativo (carrinho pode ter liberado/convertido)
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", ids).addValue("now", Timestamp.valueOf(LocalDateTime.now()));
+        Map<UUID, Integer> expired = new HashMap<>();
+        int[] count = { 0 };
+        jdbc.query("SELECT variant_id, quantity FROM stock_reservations WHERE id IN (:ids) AND status = 'ACTIVE'",
+                params, rs -> {
+                    expired.merge(rs.getObject("variant_id", UUID.class), rs.getInt("quantity"), Integer::sum);
+                    count[0]++;
+                });
+        if (!expired.isEmpty()) {
+            addReserved(negate(expired));
+            jdbc.update("UPDATE stock_reservations SET status = 'EXPIRED', updated_at = :now WHERE id IN (:ids) AND status = 'ACTIVE'",
+                    params);
+        }
+        return new int[] { candidates.size(), count[0] };
+    }
+
+    /**
+     * Confere dono e limites do carrinho antes de reservar; devolve o início
+     * da retenção (primeira reserva ainda ativa, ou agora).
+     */
+    private LocalDateTime checkCart(UUID cartId, String owner, Set<UUID> requested, LocalDateTime now) {
+        checkOwner(cartId, owner);
+        MapSqlParameterSource params = new MapSqlParameterSource("cart", cartId).addValue("owner", owner);
+        Set<UUID> lines = new HashSet<>(requested);
+        lines.addAll(heldByCart(cartId, null).keySet());
+        if (lines.size() > maxLines) {
+            throw new BusinessException("Máximo de " + maxLines + " variantes reservadas por carrinho");
+        }
+        Integer otherCarts = jdbc.queryForObject("""
+                SELECT COUNT(DISTINCT cart_id) FROM stock_reservations
+                WHERE owner = :owner AND status = 'ACTIVE' AND cart_id <> :cart
+                """, params, Integer.class);
+        if (otherCarts != null && otherCarts >= maxCarts) {
+            throw new BusinessException("Máximo de " + maxCarts + " carrinhos com reserva ativa por usuário");
+        }
+        Timestamp heldSince = jdbc.queryForObject(
+                "SELECT MIN(held_since) FROM stock_reservations WHERE cart_id = :cart AND status = 'ACTIVE'",
+                params, Timestamp.class);
+        return heldSince != null ? heldSince.toLocalDateTime() : now;
+    }
+
+    private void checkOwner(UUID cartId, String owner) {
+        if (owner == null || owner.isBlank()) {
+            throw new IllegalArgumentException("owner is required");
+        }
+        List<String> owners = jdbc.queryForList(
+                "SELECT DISTINCT owner FROM stock_reservations WHERE cart_id = :cart AND status = 'ACTIVE'",
+                new MapSqlParameterSource("cart", cartId), String.class);
+        // Reservas sem dono (anteriores à V21) não prendem o carrinho
+        if (owners.stream().anyMatch(o -> o != null && !owner.equals(o))) {
+            throw new NotFoundException("Carrinho não encontrado");
+        }
+    }
+
+    // ---------------- usados pelo OrderStockEngine (variantes já travadas) ----------------
+
+    /** Quantidade ativa reservada pelo carrinho por variante ({@code variantIds} nulo = todas). */
+    Map<UUID, Integer> heldByCart(UUID cartId, Collection<UUID> variantIds) {
+        MapSqlParameterSource params = new MapSqlParameterSource("cart", cartId);
+        String sql = "SELECT variant_id, SUM(quantity) AS quantity FROM stock_reservations "
+                + "WHERE cart_id = :cart AND status = 'ACTIVE'";
+        if (variantIds != null) {
+            sql += " AND variant_id IN (:ids)";
+            params.addValue("ids", variantIds);
+        }
+        Map<UUID, Integer> held = new HashMap<>();
+        jdbc.query(sql + " GROUP BY variant_id", params,
+                rs -> { held.put(rs.getObject("variant_id", UUID.class), rs.getInt("quantity")); });
+        return held;
+    }
+
+    /** Marca as reservas ativas do carrinho nessas variantes como convertidas no pedido. */
+    void markConverted(UUID cartId, Collection<UUID> variantIds, UUID orderId) {
+        transition(cartId, variantIds, ReservationStatus.CONVERTED, orderId, LocalDateTime.now());
+    }
+
+    private void transition(UUID cartId, Collection<UUID> variantIds, ReservationStatus status, UUID orderId,
+            LocalDateTime now) {
+        if (variantIds.isEmpty()) {
+            return;
+        }
+        jdbc.update("""
+                UPDATE stock_reservations SET status = :status, order_id = :order, updated_at = :now
+                WHERE cart_id = :cart AND variant_id IN (:ids) AND status = 'ACTIVE'
+                """,
+                new MapSqlParameterSource("status", status.name())
+                        .addValue("order", orderId)
+                        .addValue("now", Timestamp.valueOf(now))
+                        .addValue("cart", cartId)
+                        .addValue("ids", variantIds));
+    }
+
+    /** Um único UPDATE de reserved_quantity para todas as variantes. */
+    private void addReserved(Map<UUID, Integer> deltas) {
+        StringJoiner tuples = new StringJoiner(", ");
+        List<Object> args = new ArrayList<>(deltas.size() * 2);
+        deltas.forEach((variantId, delta) -> {
+            if (delta != 0) {
+                tuples.add("(CAST(? AS uuid), CAST(? AS integer))");
+                args.add(variantId);
+                args.add(delta);
+            }
+        });
+        if (args.isEmpty()) {
+            return;
+        }
+        jdbc.getJdbcTemplate().update("""
+                UPDATE product_variants v
+                SET reserved_quantity = v.reserved_quantity + d.delta
+                FROM (VALUES %s) AS d(id, delta)
+                WHERE v.id = d.id
+                """.formatted(tuples), args.toArray());
+    }
+
+    private static Map<UUID, Integer> negate(Map<UUID, Integer> quantities) {
+        Map<UUID, Integer> negated = new HashMap<>();
+        quantities.forEach((variantId, quantity) -> negated.put(variantId, -quantity));
+        return negated;
+    }
+}
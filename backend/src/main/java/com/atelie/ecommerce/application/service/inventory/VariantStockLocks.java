@@ -0,0 +1,54 @@
+package com.atelie.ecommerce.application.service.inventory;
+
+import com.atelie.ecommerce.api.common.exception.NotFoundException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Trava de linhas de product_variants para baixas e reservas.
+ *
+ * Toda escrita em stock_quantity/reserved_quantity (e nas reservas de uma
+ * variante) passa antes por aqui, sempre em ordem de id: fluxos concorrentes
+ * com variantes em comum esperam em fila em vez de entrar em deadlock.
+ */
+@Component
+class VariantStockLocks {
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    VariantStockLocks(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    record LockedVariant(UUID id, UUID productId, String sku, int stock, int reserved) {
+
+        int availableToSell() {
+            return stock - reserved;
+        }
+    }
+
+    /** Trava as variantes na ordem do id; todas precisam existir. */
+    List<LockedVariant> lock(Collection<UUID> ids) {
+        List<LockedVariant> locked = lockExisting(ids);
+        if (locked.size() != new HashSet<>(ids).size()) {
+            Set<UUID> missing = new HashSet<>(ids);
+            locked.forEach(v -> missing.remove(v.id()));
+            throw new NotFoundException("Variante não encontrada: " + missing.iterator().next());
+        }
+        return locked;
+    }
+
+    /** Trava, na ordem do id, as variantes que existirem; ids ausentes ficam de fora. */
+    List<LockedVariant> lockExisting(Collection<UUID> ids) {
+        return jdbc.query("""
+                SELECT id, product_id, sku, stock_quantity, reserved_quantity
+                FROM product_variants WHERE id IN (:ids) ORDER BY id FOR UPDATE
+                """,
+                new MapSqlParameterSource("ids", ids),
+                (rs, i) -> new LockedVariant(rs.getObject("id", UUID.class), rs.getObject("product_id", UUID.class),
+                        rs.getString("sku"), rs.getInt("stock_quantity"), rs.getInt("reserved_quantity")));
+    }
+}
@@ -4,12 +4,15 @@ import com.atelie.ecommerce.domain.marketing.model.AbandonedCartConfig;
 import com.atelie.ecommerce.infrastructure.persistence.marketing.AbandonedCartConfigRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 
+// Job próprio, desligado por padrão: SCHEDULING_ENABLED liga os jobs de estoque, não o envio de e-mails
 @Service
+@ConditionalOnProperty(name = "ABANDONED_CART_JOB_ENABLED", havingValue = "true")
 public class AbandonedCartScheduler {
 
     private static final Logger log = LoggerFactory.getLogger(AbandonedCartScheduler.class);
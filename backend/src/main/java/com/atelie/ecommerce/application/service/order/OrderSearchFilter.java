@@ -0,0 +1,38 @@
+package com.atelie.ecommerce.application.service.order;
+
+import com.atelie.ecommerce.domain.order.OrderStatus;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Filtros combináveis da busca de pedidos: AND entre filtros, OR entre os
+ * valores de status/origem. Vazio/nulo = sem filtro.
+ *
+ * @param from     created_at inclusivo.
+ * @param to       created_at exclusivo.
+ * @param customer trecho do nome do cliente (sem diferenciar maiúsculas).
+ */
+public record OrderSearchFilter(Set<OrderStatus> statuses, Set<String> sources, String customer,
+        Instant from, Instant to) {
+
+    /** Abaixo disso o índice de trigramas não ajuda e vira varredura. */
+    public static final int MIN_CUSTOMER_LENGTH = 3;
+
+    /**
+     * @throws IllegalArgumentException se o trecho do cliente for curto demais
+     *                                  ou o período estiver invertido.
+     */
+    public OrderSearchFilter {
+        statuses = statuses != null ? Set.copyOf(statuses) : Set.of();
+        sources = sources != null ? Set.copyOf(sources) : Set.of();
+        customer = customer != null && !customer.isBlank() ? customer.trim() : null;
+        if (customer != null && customer.length() < MIN_CUSTOMER_LENGTH) {
+            throw new IllegalArgumentException(
+                    "customer deve ter ao menos " + MIN_CUSTOMER_LENGTH + " caracteres");
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("Período inválido: from deve ser anterior a to");
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.atelie.ecommerce.application.service.order;
+
+import com.atelie.ecommerce.api.common.pagination.SeekCursor;
+import com.atelie.ecommerce.domain.order.OrderStatus;
+import com.atelie.ecommerce.infrastructure.persistence.order.OrderEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Consulta da busca de pedidos, montada só com os filtros informados para que
+ * cada combinação caia em um índice de V19 (nada de "(:x IS NULL OR ...)",
+ * que esconde o filtro do planner).
+ *
+ * Metodologia:
+ * - Ordem (created_at DESC, id DESC), a mesma do SeekCursor: paginação por
+ *   cursor sem OFFSET nem count.
+ * - Um status: range scan em idx_orders_status_created, já na ordem.
+ * - Vários status: uma consulta por status (cada uma um range scan com
+ *   LIMIT) intercalada em memória; um "status IN (...)" teria de ler todas as
+ *   linhas dos status e ordenar, ou varrer o índice de data descartando os
+ *   status raros.
+ * - Só origem: idx_orders_source_created. Cliente: LIKE '%trecho%' sobre
+ *   lower(customer_name), coberto pelo índice de trigramas.
+ */
+@Component
+public class OrderSearchQuery {
+
+    // Mesma ordem do Postgres/H2 para uuid (bytes sem sinal)
+    private static final Comparator<OrderEntity> NEWEST_FIRST = Comparator
+            .comparing(OrderEntity::getCreatedAt)
+            .thenComparing(OrderEntity::getId, (a, b) -> {
+                int cmp = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+                return cmp != 0 ? cmp : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+            })
+            .reversed();
+
+    private final EntityManager entityManager;
+
+    public OrderSearchQuery(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /** Até {@code limit} pedidos após o cursor ({@code null} = do início), do mais novo ao mais antigo. */
+    public List<OrderEntity> find(OrderSearchFilter filter, SeekCursor after, int limit) {
+        if (filter.statuses().size() <= 1) {
+            OrderStatus status = filter.statuses().stream().findFirst().orElse(null);
+            return query(filter, status, after, limit);
+        }
+        List<OrderEntity> merged = new ArrayList<>();
+        for (OrderStatus status : filter.statuses()) {
+            merged.addAll(query(filter, status, after, limit));
+        }
+        merged.sort(NEWEST_FIRST);
+        return merged.size() > limit ? merged.subList(0, limit) : merged;
+    }
+
+    private List<OrderEntity> query(OrderSearchFilter filter, OrderStatus status, SeekCursor after, int limit) {
+        List<String> where = new ArrayList<>();
+        Map<String, Object> params = new HashMap<>();
+        if (status != null) {
+            where.add("o.status = :status");
+            params.put("status", status.name());
+        }
+        if (!filter.sources().isEmpty()) {
+            where.add("o.source IN :sources");
+            params.put("sources", filter.sources());
+        }
+        if (filter.from() != null) {
+            where.add("o.createdAt >= :from");
+            params.put("from", filter.from());
+        }
+        if (filter.to() != null) {
+            where.add("o.createdAt < :to");
+            params.put("to", filter.to());
+        }
+        if (filter.customer() != null) {
+            where.add("lower(o.customerName) LIKE :customer ESCAPE '\\'");
+            params.put("customer", "%" + escapeLike(filter.customer().toLowerCase(Locale.ROOT)) + "%");
+        }
+        if (after != null) {
+            where.add("(o.createdAt, o.id) < (:cursorAt, :cursorId)");
+            params.put("cursorAt", after.createdAt());
+            params.put("cursorId", after.id());
+        }
+
+        String jpql = "SELECT o FROM OrderEntity o"
+                + (where.isEmpty() ? "" : " WHERE " + String.join(" AND ", where))
+                + " ORDER BY o.createdAt DESC, o.id DESC";
+        TypedQuery<OrderEntity> query = entityManager.createQuery(jpql, OrderEntity.class).setMaxResults(limit);
+        params.forEach(query::setParameter);
+        return query.getResultList();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
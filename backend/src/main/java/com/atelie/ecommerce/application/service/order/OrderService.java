@@ -1,119 +1,235 @@
 package com.atelie.ecommerce.application.service.order;
 
+import com.atelie.ecommerce.api.common.exception.ConflictException;
 import com.atelie.ecommerce.api.common.exception.NotFoundException;
+import com.atelie.ecommerce.api.common.pagination.CursorPage;
+import com.atelie.ecommerce.api.common.pagination.SeekCursor;
 import com.atelie.ecommerce.api.order.dto.CreateOrderItemRequest;
 import com.atelie.ecommerce.api.order.dto.CreateOrderRequest;
-import com.atelie.ecommerce.application.service.inventory.InventoryService;
-import com.atelie.ecommerce.domain.inventory.MovementType;
+import com.atelie.ecommerce.api.order.dto.OrderItemResponse;
+import com.atelie.ecommerce.api.order.dto.OrderResponse;
+import com.atelie.ecommerce.application.service.inventory.OrderStockEngine;
+import com.atelie.ecommerce.application.service.inventory.StockLine;
 import com.atelie.ecommerce.domain.order.OrderStatus;
 import com.atelie.ecommerce.infrastructure.persistence.order.OrderEntity;
 import com.atelie.ecommerce.infrastructure.persistence.order.OrderItemEntity;
+import com.atelie.ecommerce.infrastructure.persistence.order.OrderItemRepository;
 import com.atelie.ecommerce.infrastructure.persistence.order.OrderRepository;
-import com.atelie.ecommerce.infrastructure.persistence.product.entity.ProductEntity;
 import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository;
-import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantEntity;
 import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
+import java.time.ZoneId;
+import java.util.*;
 
 @Service
 public class OrderService {
 
     private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
     private final ProductRepository productRepository;
     private final ProductVariantRepository variantRepository;
-    private final InventoryService inventoryService;
+    private final OrderStockEngine stockEngine;
+    private final OrderSearchQuery orderSearch;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
 
     public OrderService(OrderRepository orderRepository,
+                        OrderItemRepository orderItemRepository,
                         ProductRepository productRepository,
                         ProductVariantRepository variantRepository,
-                        InventoryService inventoryService) {
+                        OrderStockEngine stockEngine,
+                        OrderSearchQuery orderSearch,
+                        EntityManager entityManager,
+                        PlatformTransactionManager transactionManager) {
         this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
         this.productRepository = productRepository;
         this.variantRepository = variantRepository;
-        this.inventoryService = inventoryService;
+        this.stockEngine = stockEngine;
+        this.orderSearch = orderSearch;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
-    @Transactional
+    /**
+     * Cria o pedido e baixa o estoque de todos os itens, ou de nenhum.
+     *
+     * Metodologia:
+     * - Produtos e variantes de todos os itens resolvidos em duas consultas
+     *   IN (só as colunas usadas, sem imagens/variantes EAGER); preço
+     *   calculado em memória.
+     * - Itens apontam para referências (getReferenceById), sem SELECT por item.
+     * - persist em vez de save: com id atribuído, save faria merge (um SELECT
+     *   pelo pedido e outro por item); os INSERTs de pedido e itens saem em
+     *   batch (hibernate.jdbc.batch_size) e a baixa/movimentações em batch pelo
+     *   OrderStockEngine.
+     * - Mesmo (source, externalId) de um pedido já gravado (retentativa de
+     *   marketplace) devolve o pedido existente sem baixar estoque de novo;
+     *   duas criações simultâneas esbarram em ux_orders_source_external (V17)
+     *   e a segunda falha com ConflictException.
+     * - Itens de variantes em modo hot SKU são baixados pelo group commit antes
+     *   da transação do pedido (OrderStockEngine.takeHot), sem segurar conexão
+     *   na espera; se a transação não comitar, ou o pedido já existir, a baixa
+     *   é estornada.
+     */
     public OrderEntity createOrder(CreateOrderRequest request) {
+        UUID orderId = UUID.randomUUID();
+        List<StockLine> hotCandidates = request.items().stream()
+                .filter(item -> item.variantId() != null && item.quantity() != null)
+                .map(item -> new StockLine(item.variantId(), item.quantity()))
+                .toList();
+        Map<UUID, Integer> hot = stockEngine.takeHot(orderId, hotCandidates, request.cartId());
+        if (hot.isEmpty()) {
+            return transactionTemplate.execute(status -> create(orderId, request, hot));
+        }
+        OrderEntity order;
+        try {
+            order = transactionTemplate.execute(status -> create(orderId, request, hot));
+        } catch (RuntimeException e) {
+            stockEngine.compensateHot(orderId, hot);
+            throw e;
+        }
+        if (!orderId.equals(order.getId())) {
+            // Retentativa de um pedido já gravado: a baixa de agora não é de ninguém
+            stockEngine.compensateHot(orderId, hot);
+        }
+        return order;
+    }
+
+    private OrderEntity create(UUID orderId, CreateOrderRequest request, Map<UUID, Integer> hot) {
+        if (request.externalId() != null) {
+            Optional<OrderEntity> existing = orderRepository.findBySourceAndExternalId(request.source(),
+                    request.externalId());
+            if (existing.isPresent()) {
+                return existing.get();
+            }
+        }
+
         OrderEntity order = new OrderEntity();
-        order.setId(UUID.randomUUID());
+        order.setId(orderId);
         order.setSource(request.source());
         order.setExternalId(request.externalId() != null ? request.externalId() : order.getId().toString());
         order.setCustomerName(request.customerName());
         order.setStatus(OrderStatus.PENDING.name());
         order.setCreatedAt(Instant.now());
-        
+
+        Set<UUID> productIds = new HashSet<>();
+        Set<UUID> variantIds = new HashSet<>();
+        Set<UUID> withoutVariant = new HashSet<>();
+        for (CreateOrderItemRequest itemReq : request.items()) {
+            productIds.add(itemReq.productId());
+            if (itemReq.variantId() != null) {
+                variantIds.add(itemReq.variantId());
+            } else {
+                withoutVariant.add(itemReq.productId());
+            }
+        }
+        Map<UUID, ProductRow> products = new HashMap<>();
+        for (Object[] row : productRepository.findOrderRows(productIds)) {
+            products.put((UUID) row[0], new ProductRow((String) row[1], (BigDecimal) row[2], (Boolean) row[3]));
+        }
+        Map<UUID, VariantRow> variants = new HashMap<>();
+        Map<UUID, UUID> defaultVariants = new HashMap<>();
+        for (Object[] row : variantRepository.findOrderRows(variantIds, withoutVariant)) {
+            UUID variantId = (UUID) row[0];
+            UUID productId = (UUID) row[1];
+            variants.put(variantId, new VariantRow(productId, (BigDecimal) row[2]));
+            // Linhas em ordem de criação: a primeira variante do produto é a default
+            defaultVariants.putIfAbsent(productId, variantId);
+        }
+
         List<OrderItemEntity> items = new ArrayList<>();
+        List<StockLine> stockLines = new ArrayList<>();
         BigDecimal totalOrder = BigDecimal.ZERO;
 
         for (CreateOrderItemRequest itemReq : request.items()) {
-            ProductEntity product = productRepository.findById(itemReq.productId())
-                    .orElseThrow(() -> new NotFoundException("Product not found: " + itemReq.productId()));
-
-            if (Boolean.FALSE.equals(product.getActive())) {
-                throw new IllegalStateException("O produto '" + product.getName() + "' não está mais disponível.");
+            ProductRow product = products.get(itemReq.productId());
+            if (product == null) {
+                throw new NotFoundException("Product not found: " + itemReq.productId());
+            }
+            if (Boolean.FALSE.equals(product.active())) {
+                throw new IllegalStateException("O produto '" + product.name() + "' não está mais disponível.");
             }
 
-            // --- CORREÇÃO DA LÓGICA DE VARIANTE ---
             UUID targetVariantId = itemReq.variantId();
-            ProductVariantEntity variant;
-
             if (targetVariantId != null) {
-                // Captura o ID em variável final para usar na lambda
-                final UUID lookupId = targetVariantId;
-                variant = variantRepository.findById(targetVariantId)
-                    .orElseThrow(() -> new NotFoundException("Variante não encontrada: " + lookupId));
+                if (!variants.containsKey(targetVariantId)) {
+                    throw new NotFoundException("Variante não encontrada: " + targetVariantId);
+                }
             } else {
-                // Fallback: Tenta achar a variante default criada na migração
-                var variants = variantRepository.findByProductId(product.getId());
-                if (!variants.isEmpty()) {
-                    variant = variants.get(0); // Pega a primeira/default
-                    targetVariantId = variant.getId(); // Atualiza o ID alvo
-                } else {
+                // Fallback: variante default criada na migração
+                targetVariantId = defaultVariants.get(itemReq.productId());
+                if (targetVariantId == null) {
                     throw new IllegalStateException("Produto sem variantes cadastradas. Impossível baixar estoque.");
                 }
             }
+            VariantRow variant = variants.get(targetVariantId);
 
-            // Baixa estoque na VARIANTE correta
-            inventoryService.addMovement(
-                    targetVariantId,
-                    MovementType.OUT,
-                    itemReq.quantity(),
-                    "Sale Order " + order.getId(),
-                    order.getId().toString()
-            );
+            // Baixa estoque na VARIANTE correta (aplicada de uma vez após o loop)
+            stockLines.add(new StockLine(targetVariantId, itemReq.quantity()));
 
             // Preço: Usa o da variante se existir, senão usa do produto pai
-            BigDecimal finalPrice = (variant.getPrice() != null) ? variant.getPrice() : product.getPrice();
+            BigDecimal finalPrice = (variant.price() != null) ? variant.price() : product.price();
             BigDecimal itemTotal = finalPrice.multiply(new BigDecimal(itemReq.quantity()));
             totalOrder = totalOrder.add(itemTotal);
 
             OrderItemEntity itemEntity = new OrderItemEntity();
             itemEntity.setId(UUID.randomUUID());
             itemEntity.setOrder(order);
-            itemEntity.setProduct(product);
-            itemEntity.setVariant(variant);
+            itemEntity.setProduct(productRepository.getReferenceById(itemReq.productId()));
+            itemEntity.setVariant(variantRepository.getReferenceById(targetVariantId));
+            itemEntity.setProductName(product.name());
             itemEntity.setQuantity(itemReq.quantity());
             itemEntity.setUnitPrice(finalPrice);
             itemEntity.setTotalPrice(itemTotal);
-            
+
             items.add(itemEntity);
         }
 
+        // Tudo ou nada: qualquer falta aborta o pedido com a lista completa de itens em falta;
+        // com cartId, as reservas do carrinho são convertidas no pedido
+        stockEngine.reserve(order.getId(), stockLines, request.cartId(), hot);
+
         order.setTotalAmount(totalOrder);
         order.setItems(items);
-        return orderRepository.save(order);
+        entityManager.persist(order);
+        try {
+            // Força o INSERT aqui: a violação vira 409 em vez de estourar no commit
+            entityManager.flush();
+        } catch (PersistenceException e) {
+            if (isDuplicateOrder(e)) {
+                throw new ConflictException("Pedido já registrado: " + order.getSource() + "/" + order.getExternalId());
+            }
+            throw e;
+        }
+        return order;
     }
-    
+
+    private static boolean isDuplicateOrder(PersistenceException e) {
+        Throwable cause = e instanceof ConstraintViolationException ? e : e.getCause();
+        return cause instanceof ConstraintViolationException violation
+                && violation.getConstraintName() != null
+                && violation.getConstraintName().toLowerCase(Locale.ROOT).contains("ux_orders_source_external");
+    }
+
+    private record ProductRow(String name, BigDecimal price, Boolean active) {
+    }
+
+    private record VariantRow(UUID productId, BigDecimal price) {
+    }
+
     @Transactional
     public void approveOrder(UUID orderId) {
         OrderEntity order = orderRepository.findById(orderId)
@@ -135,18 +251,94 @@ public class OrderService {
         if (OrderStatus.CANCELED.name().equals(order.getStatus())) return;
 
         // Estorno de estoque
+        List<StockLine> stockLines = new ArrayList<>();
         for (OrderItemEntity item : order.getItems()) {
              UUID variantId = item.getVariant() != null ? item.getVariant().getId() : null;
              if (variantId != null) {
-                 inventoryService.addMovement(variantId, MovementType.IN, item.getQuantity(), "Order Cancelled: " + reason, orderId.toString());
+                 stockLines.add(new StockLine(variantId, item.getQuantity()));
              }
         }
+        stockEngine.release(orderId, stockLines, reason);
 
         order.setStatus(OrderStatus.CANCELED.name());
         orderRepository.save(order);
     }
 
-    public Page<OrderEntity> getAllOrders(Pageable pageable) {
-        return orderRepository.findAll(pageable);
+    /**
+     * Listagem por offset (com total), já como OrderResponse: página de
+     * pedidos + uma consulta para os itens de todos eles (ver itemsByOrder).
+     */
+    @Transactional(readOnly = true)
+    public Page<OrderResponse> getAllOrders(Pageable pageable) {
+        Page<OrderEntity> page = orderRepository.findAll(pageable);
+        Map<UUID, List<OrderItemResponse>> items = itemsByOrder(page.getContent());
+        return page.map(o -> toResponse(o, items.getOrDefault(o.getId(), List.of())));
+    }
+
+    /**
+     * Listagem por cursor (created_at DESC, id DESC), sem OFFSET nem count.
+     * {@code after} vazio/nulo = primeira página.
+     *
+     * @throws IllegalArgumentException se o cursor for inválido.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<OrderResponse> getOrdersByCursor(String after, int size) {
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<OrderEntity> rows;
+        if (after == null || after.isBlank()) {
+            rows = orderRepository.findFirstByCursor(limit);
+        } else {
+            SeekCursor cursor = SeekCursor.decode(after);
+            rows = orderRepository.findAfterCursor(cursor.createdAt(), cursor.id(), limit);
+        }
+        CursorPage<OrderEntity> page = CursorPage.fromLookahead(rows, size,
+                o -> new SeekCursor(o.getCreatedAt(), o.getId()));
+        Map<UUID, List<OrderItemResponse>> items = itemsByOrder(page.content());
+        return page.map(o -> toResponse(o, items.getOrDefault(o.getId(), List.of())));
+    }
+
+    /**
+     * Busca do admin (status, origem, cliente, período), paginada por cursor
+     * como getOrdersByCursor; a consulta fica em OrderSearchQuery.
+     *
+     * @throws IllegalArgumentException se o cursor for inválido.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<OrderResponse> searchOrders(OrderSearchFilter filter, String after, int size) {
+        SeekCursor cursor = after == null || after.isBlank() ? null : SeekCursor.decode(after);
+        CursorPage<OrderEntity> page = CursorPage.fromLookahead(orderSearch.find(filter, cursor, size + 1), size,
+                o -> new SeekCursor(o.getCreatedAt(), o.getId()));
+        Map<UUID, List<OrderItemResponse>> items = itemsByOrder(page.content());
+        return page.map(o -> toResponse(o, items.getOrDefault(o.getId(), List.of())));
+    }
+
+    /**
+     * Itens de todos os pedidos da página em uma consulta (projeção com as
+     * colunas do item e do produto): sem carregar items por pedido nem o
+     * produto, com imagens/variantes EAGER, por item.
+     */
+    private Map<UUID, List<OrderItemResponse>> itemsByOrder(List<OrderEntity> orders) {
+        Map<UUID, List<OrderItemResponse>> items = new HashMap<>();
+        if (orders.isEmpty()) {
+            return items;
+        }
+        List<UUID> ids = orders.stream().map(OrderEntity::getId).toList();
+        for (Object[] row : orderItemRepository.findListingRowsByOrderIds(ids)) {
+            items.computeIfAbsent((UUID) row[0], id -> new ArrayList<>()).add(new OrderItemResponse(
+                    (UUID) row[1], (String) row[2], (Integer) row[3], (BigDecimal) row[4], (BigDecimal) row[5]));
+        }
+        return items;
+    }
+
+    private static OrderResponse toResponse(OrderEntity order, List<OrderItemResponse> items) {
+        return new OrderResponse(
+                order.getId(),
+                OrderStatus.valueOf(order.getStatus()),
+                order.getSource(),
+                order.getExternalId(),
+                order.getCustomerName(),
+                order.getTotalAmount(),
+                order.getCreatedAt().atZone(ZoneId.of("UTC")).toLocalDateTime(),
+                items);
     }
 }
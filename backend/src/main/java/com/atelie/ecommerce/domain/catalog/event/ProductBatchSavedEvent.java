@@ -0,0 +1,15 @@
+package com.atelie.ecommerce.domain.catalog.event;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Evento de domínio emitido uma vez por lote gravado em massa (ex.: importação).
+ *
+ * Substitui N ProductSavedEvent: listeners de sync/índices tratam o lote de
+ * uma vez em vez de reagir produto a produto.
+ */
+public record ProductBatchSavedEvent(
+        List<UUID> productIds,
+        boolean isNew
+) {}
@@ -0,0 +1,13 @@
+package com.atelie.ecommerce.domain.catalog.event;
+
+import java.util.UUID;
+
+/**
+ * Evento de domínio emitido quando um produto é removido do catálogo.
+ *
+ * Permite que caches e índices em memória descartem o produto sem que o
+ * serviço conheça cada um deles.
+ */
+public record ProductDeletedEvent(
+        UUID productId
+) {}
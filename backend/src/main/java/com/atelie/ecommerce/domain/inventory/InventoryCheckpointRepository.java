@@ -0,0 +1,29 @@
+package com.atelie.ecommerce.domain.inventory;
+
+import com.atelie.ecommerce.infrastructure.persistence.inventory.entity.InventoryCheckpointEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface InventoryCheckpointRepository extends JpaRepository<InventoryCheckpointEntity, Long> {
+
+    Optional<InventoryCheckpointEntity> findFirstByVariantIdOrderByCutoffAtDesc(UUID variantId);
+
+    @Query("""
+                SELECT c FROM InventoryCheckpointEntity c
+                WHERE c.cutoffAt = (SELECT MAX(c2.cutoffAt) FROM InventoryCheckpointEntity c2 WHERE c2.variantId = c.variantId)
+            """)
+    List<InventoryCheckpointEntity> findLatestPerVariant();
+
+    @Query("""
+                SELECT c FROM InventoryCheckpointEntity c
+                WHERE c.variantId IN :variantIds
+                  AND c.cutoffAt = (SELECT MAX(c2.cutoffAt) FROM InventoryCheckpointEntity c2 WHERE c2.variantId = c.variantId)
+            """)
+    List<InventoryCheckpointEntity> findLatestByVariantIds(@Param("variantIds") Collection<UUID> variantIds);
+}
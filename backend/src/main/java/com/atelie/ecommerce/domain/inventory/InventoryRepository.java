@@ -5,6 +5,9 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface InventoryRepository extends JpaRepository<InventoryMovementEntity, UUID> {
@@ -21,4 +24,55 @@ public interface InventoryRepository extends JpaRepository<InventoryMovementEnti
                 WHERE m.variantId = :variantId
             """)
     int auditCalculatedStockByVariant(@Param("variantId") UUID variantId);
+
+    // Cauda do razão após um checkpoint (usa idx_inventory_variant_created).
+    @Query("""
+                SELECT COALESCE(SUM(
+                    CASE
+                        WHEN m.type = 'IN' THEN m.quantity
+                        WHEN m.type = 'OUT' THEN -m.quantity
+                        ELSE 0
+                    END
+                ), 0)
+                FROM InventoryMovementEntity m
+                WHERE m.variantId = :variantId AND m.createdAt > :after
+            """)
+    int sumByVariantAfter(@Param("variantId") UUID variantId, @Param("after") LocalDateTime after);
+
+    // Cauda do razão a partir do fim (exclusivo) de um fechamento mensal.
+    @Query("""
+                SELECT COALESCE(SUM(
+                    CASE
+                        WHEN m.type = 'IN' THEN m.quantity
+                        WHEN m.type = 'OUT' THEN -m.quantity
+                        ELSE 0
+                    END
+                ), 0)
+                FROM InventoryMovementEntity m
+                WHERE m.variantId = :variantId AND m.createdAt >= :from
+            """)
+    int sumByVariantFrom(@Param("variantId") UUID variantId, @Param("from") LocalDateTime from);
+
+    @Query("SELECT MIN(m.createdAt) FROM InventoryMovementEntity m")
+    Optional<LocalDateTime> findEarliestCreatedAt();
+
+    /**
+     * (variantId, soma) das movimentações posteriores ao último checkpoint de
+     * cada variante ({@code origin} quando não há checkpoint) e até {@code until}.
+     */
+    @Query("""
+                SELECT m.variantId, SUM(
+                    CASE
+                        WHEN m.type = 'IN' THEN m.quantity
+                        WHEN m.type = 'OUT' THEN -m.quantity
+                        ELSE 0
+                    END
+                )
+                FROM InventoryMovementEntity m
+                WHERE m.createdAt <= :until
+                  AND m.createdAt > COALESCE(
+                      (SELECT MAX(c.cutoffAt) FROM InventoryCheckpointEntity c WHERE c.variantId = m.variantId), :origin)
+                GROUP BY m.variantId
+            """)
+    List<Object[]> sumAfterLatestCheckpoint(@Param("origin") LocalDateTime origin, @Param("until") LocalDateTime until);
 }
@@ -0,0 +1,21 @@
+package com.atelie.ecommerce.domain.inventory;
+
+import com.atelie.ecommerce.infrastructure.persistence.inventory.entity.InventoryMonthlyRollupEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface InventoryRollupRepository
+        extends JpaRepository<InventoryMonthlyRollupEntity, InventoryMonthlyRollupEntity.Key> {
+
+    Optional<InventoryMonthlyRollupEntity> findFirstByVariantIdOrderByMonthStartDesc(UUID variantId);
+
+    List<InventoryMonthlyRollupEntity> findByVariantIdOrderByMonthStart(UUID variantId);
+
+    @Query("SELECT MAX(r.monthStart) FROM InventoryMonthlyRollupEntity r")
+    Optional<LocalDate> findLatestMonth();
+}
@@ -0,0 +1,8 @@
+package com.atelie.ecommerce.domain.inventory;
+
+public enum ReservationStatus {
+    ACTIVE,    // Segurando estoque até expires_at
+    CONVERTED, // Virou pedido (baixa definitiva)
+    RELEASED,  // Liberada pelo carrinho ou substituída por nova reserva
+    EXPIRED    // Liberada pela varredura de TTL
+}
@@ -0,0 +1,12 @@
+package com.atelie.ecommerce.domain.inventory;
+
+import com.atelie.ecommerce.infrastructure.persistence.inventory.entity.StockReservationEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface StockReservationRepository extends JpaRepository<StockReservationEntity, UUID> {
+
+    List<StockReservationEntity> findByCartIdAndStatusOrderByCreatedAt(UUID cartId, ReservationStatus status);
+}
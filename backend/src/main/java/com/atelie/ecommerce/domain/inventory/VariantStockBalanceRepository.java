@@ -0,0 +1,41 @@
+package com.atelie.ecommerce.domain.inventory;
+
+import com.atelie.ecommerce.infrastructure.persistence.inventory.entity.VariantStockBalanceEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface VariantStockBalanceRepository extends JpaRepository<VariantStockBalanceEntity, UUID> {
+
+    /**
+     * Cria o saldo zerado da variante, se ainda não existir. V13 preencheu as
+     * variantes com razão; as criadas depois começam aqui, antes da primeira
+     * movimentação, então zero é o saldo certo e o razão não é lido.
+     * Concorrentes não falham: ON CONFLICT DO NOTHING espera o outro commit e
+     * segue para o UPDATE.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO variant_stock_balance (variant_id, balance, updated_at)
+            VALUES (:variantId, 0, CURRENT_TIMESTAMP)
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int createIfMissing(@Param("variantId") UUID variantId);
+
+    @Modifying
+    @Query("UPDATE VariantStockBalanceEntity b SET b.balance = b.balance + :delta, b.updatedAt = LOCAL_DATETIME "
+            + "WHERE b.variantId = :variantId")
+    int applyDelta(@Param("variantId") UUID variantId, @Param("delta") int delta);
+
+    @Query("SELECT b.balance FROM VariantStockBalanceEntity b WHERE b.variantId = :variantId")
+    Optional<Integer> findBalance(@Param("variantId") UUID variantId);
+
+    // (variantId, balance) de todas as variantes, para a reconciliação.
+    @Query("SELECT b.variantId, b.balance FROM VariantStockBalanceEntity b")
+    List<Object[]> findAllBalances();
+}
@@ -0,0 +1,16 @@
+package com.atelie.ecommerce.domain.inventory.event;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Evento de domínio emitido quando movimentações de estoque são gravadas.
+ *
+ * Carrega só as variantes afetadas (e seus produtos): listeners releem o
+ * saldo após o commit em vez de confiar em um valor calculado dentro da
+ * transação.
+ */
+public record VariantStockChangedEvent(
+        Collection<UUID> variantIds,
+        Collection<UUID> productIds
+) {}
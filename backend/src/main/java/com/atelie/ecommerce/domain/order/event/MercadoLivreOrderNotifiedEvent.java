@@ -0,0 +1,12 @@
+package com.atelie.ecommerce.domain.order.event;
+
+/**
+ * Notificação de pedido do Mercado Livre aceita pelo webhook.
+ *
+ * Gravada no outbox antes da resposta ao ML: se nenhum nó registrar o
+ * pedido (nó caiu, falhas esgotadas), o OutboxDispatcher a entrega de novo.
+ */
+public record MercadoLivreOrderNotifiedEvent(
+        String accountId,
+        String orderId
+) {}
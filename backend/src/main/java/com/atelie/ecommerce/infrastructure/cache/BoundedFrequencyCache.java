@@ -0,0 +1,116 @@
+package com.atelie.ecommerce.infrastructure.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Cache em memória limitado por tamanho e sensível à frequência de acesso.
+ *
+ * Metodologia: LRU + admissão TinyLFU.
+ * - As entradas ficam em ordem de acesso (a mais antiga é a candidata a sair).
+ * - Quando o cache está cheio, uma chave nova só entra se for mais frequente
+ *   que a candidata a sair; assim uma varredura pontual (ex: crawler) não
+ *   expulsa os itens realmente populares.
+ *
+ * Todas as operações são O(1) e protegidas por um único lock curto.
+ */
+public class BoundedFrequencyCache<K, V> {
+
+    private final int maximumSize;
+    private final LinkedHashMap<K, V> entries;
+    private final FrequencySketch sketch;
+    private final BiConsumer<K, V> removalListener;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public BoundedFrequencyCache(int maximumSize) {
+        this(maximumSize, (k, v) -> {
+        });
+    }
+
+    /**
+     * @param removalListener chamado (sob o lock) sempre que uma entrada sai do
+     *                        cache, seja por despejo ou invalidação.
+     */
+    public BoundedFrequencyCache(int maximumSize, BiConsumer<K, V> removalListener) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be > 0");
+        }
+        this.maximumSize = maximumSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.sketch = new FrequencySketch(maximumSize);
+        this.removalListener = removalListener;
+    }
+
+    public synchronized V getIfPresent(K key) {
+        sketch.increment(key);
+        V value = entries.get(key);
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Insere ou substitui o valor. Retorna {@code false} quando a política de
+     * admissão recusou a chave por ser menos popular que a candidata a sair.
+     */
+    public synchronized boolean put(K key, V value) {
+        V previous = entries.get(key);
+        if (previous != null || entries.size() < maximumSize) {
+            entries.put(key, value);
+            return true;
+        }
+
+        Iterator<Map.Entry<K, V>> it = entries.entrySet().iterator();
+        Map.Entry<K, V> victim = it.next();
+        if (sketch.frequency(key) <= sketch.frequency(victim.getKey())) {
+            return false;
+        }
+
+        it.remove();
+        evictions.increment();
+        removalListener.accept(victim.getKey(), victim.getValue());
+        entries.put(key, value);
+        return true;
+    }
+
+    public synchronized void invalidate(K key) {
+        V removed = entries.remove(key);
+        if (removed != null) {
+            removalListener.accept(key, removed);
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        entries.forEach(removalListener);
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int maximumSize() {
+        return maximumSize;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+}
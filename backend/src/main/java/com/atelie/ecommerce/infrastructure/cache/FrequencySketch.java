@@ -0,0 +1,74 @@
+package com.atelie.ecommerce.infrastructure.cache;
+
+/**
+ * Count-Min Sketch compacto usado pelo {@link BoundedFrequencyCache} para
+ * estimar a popularidade recente das chaves.
+ *
+ * Os contadores são saturados em 15 e reduzidos pela metade a cada
+ * "período de amostragem", de forma que chaves que foram populares no passado
+ * perdem peso com o tempo (envelhecimento do TinyLFU).
+ *
+ * Não é thread-safe: o cache chama sempre sob o próprio lock.
+ */
+final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F };
+
+    private final int[][] table;
+    private final int mask;
+    private final int samplePeriod;
+    private int additions;
+
+    FrequencySketch(int expectedSize) {
+        int width = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        this.table = new int[DEPTH][width];
+        this.mask = width - 1;
+        this.samplePeriod = Math.max(expectedSize, 1) * 10;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = indexOf(hash, row);
+            if (table[row][index] < MAX_COUNT) {
+                table[row][index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= samplePeriod) {
+            reset();
+        }
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int min = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, table[row][indexOf(hash, row)]);
+        }
+        return min;
+    }
+
+    private void reset() {
+        for (int[] row : table) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>>= 1;
+            }
+        }
+        additions >>>= 1;
+    }
+
+    private int indexOf(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * 0x45D9F3B;
+        h ^= h >>> 16;
+        return h & mask;
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x7FEB352D;
+        return h ^ (h >>> 15);
+    }
+}
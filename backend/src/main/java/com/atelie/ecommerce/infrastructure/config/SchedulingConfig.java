@@ -0,0 +1,17 @@
+package com.atelie.ecommerce.infrastructure.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Habilita os jobs @Scheduled (checkpoints/reconciliação de estoque, etc.).
+ * SCHEDULING_ENABLED=false desliga, ex.: testes ou réplicas que não devem
+ * rodar jobs. O carrinho abandonado tem chave própria
+ * (ABANDONED_CART_JOB_ENABLED, desligado por padrão).
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "SCHEDULING_ENABLED", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
@@ -89,9 +89,12 @@ public class SecurityConfig {
                         // Catálogo público
                         .requestMatchers(HttpMethod.GET, "/api/products/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/categories/**").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/feeds/**").permitAll()
+                        .requestMatchers(HttpMethod.POST, "/api/inventory/availability").permitAll()
 
                         // Se seu checkout for público:
                         .requestMatchers("/api/shipping/**").permitAll()
+                        // Reservas de carrinho (/api/cart/**) exigem login: o carrinho fica preso ao usuário
 
                         // Admin: exige ADMIN
                         .requestMatchers("/api/admin/**").hasAuthority("ROLE_ADMIN")
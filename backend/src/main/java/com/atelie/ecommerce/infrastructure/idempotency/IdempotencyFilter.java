@@ -0,0 +1,326 @@
+package com.atelie.ecommerce.infrastructure.idempotency;
+
+import com.atelie.ecommerce.infrastructure.idempotency.IdempotencyStore.Claim;
+import com.atelie.ecommerce.infrastructure.idempotency.IdempotencyStore.StoredResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Idempotency-Key para rotas que alteram estado (pedidos, estoque,
+ * pagamentos): retentativas de marketplace e de rede instável recebem a
+ * resposta da primeira execução em vez de executar de novo.
+ *
+ * Metodologia:
+ * - Só age em POST/PUT/PATCH/DELETE com o header, nas rotas de
+ *   IDEMPOTENCY_PATHS; sem o header a requisição segue como antes.
+ * - Roda depois do Spring Security: a chave vale por usuário + método +
+ *   caminho, e requisições recusadas (401/403) não gravam nada.
+ * - Hash SHA-256 de método, caminho e corpo: a mesma chave com outro corpo
+ *   é rejeitada (422) em vez de devolver a resposta de outra requisição.
+ * - Repetição concluída: resposta gravada (status, content-type, corpo) com
+ *   o header Idempotent-Replayed, do tier em memória ou do banco
+ *   (IdempotencyStore).
+ * - Duplicatas simultâneas no mesmo nó esperam a execução em andamento
+ *   (um CompletableFuture por chave); em outro nó, consultam o banco até
+ *   IDEMPOTENCY_WAIT_MS e então recebem 409 com Retry-After.
+ * - Respostas 5xx/exceções não são gravadas: a chave é liberada e a próxima
+ *   tentativa executa de novo. Execução que perdeu a chave (lock vencido e
+ *   assumido por outro nó) devolve a própria resposta sem gravá-la.
+ * - O corpo é lido inteiro para o hash: acima de IDEMPOTENCY_MAX_BODY_BYTES a
+ *   requisição é recusada (413) pelo Content-Length, ou ao passar do limite
+ *   durante a leitura, sem bufferizar o resto.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Set<String> METHODS = Set.of("POST", "PUT", "PATCH", "DELETE");
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final int MAX_SCOPE_LENGTH = 300;
+    private static final long POLL_MS = 100;
+
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+    private final List<String> paths;
+    private final long waitMs;
+    private final int maxBodyBytes;
+    private final AntPathMatcher matcher = new AntPathMatcher();
+    private final Map<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyFilter(IdempotencyStore store,
+            ObjectMapper objectMapper,
+            @Value("${IDEMPOTENCY_PATHS:/api/orders/**,/api/inventory/**,/api/payments/**}") String paths,
+            @Value("${IDEMPOTENCY_WAIT_MS:10000}") long waitMs,
+            @Value("${IDEMPOTENCY_MAX_BODY_BYTES:1048576}") int maxBodyBytes) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.paths = Arrays.stream(paths.split(",")).map(String::trim).filter(p -> !p.isEmpty()).toList();
+        this.waitMs = waitMs;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!METHODS.contains(request.getMethod()) || request.getHeader(HEADER) == null) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return paths.stream().noneMatch(p -> matcher.match(p, path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = request.getHeader(HEADER).trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpServletResponse.SC_BAD_REQUEST,
+                    HEADER + " deve ter de 1 a " + MAX_KEY_LENGTH + " caracteres");
+            return;
+        }
+        if (request.getContentLengthLong() > maxBodyBytes) {
+            writeTooLarge(response);
+            return;
+        }
+        // Sem Content-Length (chunked): lê no máximo um byte além do limite
+        byte[] body = request.getInputStream().readNBytes(maxBodyBytes + 1);
+        if (body.length > maxBodyBytes) {
+            writeTooLarge(response);
+            return;
+        }
+        String scope = scope(request);
+        String hash = hash(request, body);
+
+        StoredResponse cached = store.cached(scope, key);
+        if (cached != null) {
+            replay(response, cached, hash);
+            return;
+        }
+
+        CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(scope + '\n' + key, mine);
+        if (running != null) {
+            awaitAndReplay(response, running, hash);
+            return;
+        }
+        StoredResponse result = null;
+        try {
+            result = execute(new CachedBodyRequest(request, body), response, chain, scope, key, hash);
+        } finally {
+            inFlight.remove(scope + '\n' + key, mine);
+            mine.complete(result);
+        }
+    }
+
+    /** Fica com a chave (ou acha a resposta/execução de outro nó) e executa; devolve o que foi gravado. */
+    private StoredResponse execute(HttpServletRequest request, HttpServletResponse response, FilterChain chain,
+            String scope, String key, String hash) throws ServletException, IOException {
+        long deadline = System.currentTimeMillis() + waitMs;
+        while (true) {
+            Claim claim = store.claim(scope, key, hash);
+            switch (claim.outcome()) {
+                case COMPLETED -> {
+                    replay(response, claim.response(), hash);
+                    return claim.response();
+                }
+                case IN_PROGRESS -> {
+                    if (!hash.equals(claim.requestHash())) {
+                        writeMismatch(response);
+                        return null;
+                    }
+                    if (System.currentTimeMillis() >= deadline) {
+                        writeInProgress(response);
+                        return null;
+                    }
+                    sleep();
+                }
+                case ACQUIRED -> {
+                    return run(request, response, chain, scope, key, hash);
+                }
+            }
+        }
+    }
+
+    private StoredResponse run(HttpServletRequest request, HttpServletResponse response, FilterChain chain,
+            String scope, String key, String hash) throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        StoredResponse stored = null;
+        try {
+            chain.doFilter(request, wrapper);
+            if (wrapper.getStatus() < 500) {
+                stored = store.complete(scope, key, hash, wrapper.getStatus(), wrapper.getContentType(),
+                        new String(wrapper.getContentAsByteArray(), StandardCharsets.UTF_8));
+            }
+            return stored;
+        } finally {
+            if (stored == null) {
+                store.release(scope, key);
+            }
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private void awaitAndReplay(HttpServletResponse response, CompletableFuture<StoredResponse> running, String hash)
+            throws IOException {
+        try {
+            StoredResponse stored = running.get(waitMs, TimeUnit.MILLISECONDS);
+            if (stored == null) {
+                // A execução em andamento falhou (5xx) ou não chegou a executar
+                writeInProgress(response);
+                return;
+            }
+            replay(response, stored, hash);
+        } catch (TimeoutException e) {
+            writeInProgress(response);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writeInProgress(response);
+        } catch (ExecutionException e) {
+            writeInProgress(response);
+        }
+    }
+
+    private void replay(HttpServletResponse response, StoredResponse stored, String hash) throws IOException {
+        if (!hash.equals(stored.requestHash())) {
+            writeMismatch(response);
+            return;
+        }
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (stored.body() != null) {
+            response.getOutputStream().write(stored.body().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void writeMismatch(HttpServletResponse response) throws IOException {
+        writeError(response, 422, HEADER + " já usada com outra requisição");
+    }
+
+    private void writeTooLarge(HttpServletResponse response) throws IOException {
+        writeError(response, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
+                "Corpo acima de " + maxBodyBytes + " bytes em requisição com " + HEADER);
+    }
+
+    private void writeInProgress(HttpServletResponse response) throws IOException {
+        response.setHeader("Retry-After", "1");
+        writeError(response, HttpServletResponse.SC_CONFLICT, "Requisição com este " + HEADER + " ainda em processamento");
+    }
+
+    private void writeError(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType("application/json");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(objectMapper.writeValueAsString(Map.of("error", message)));
+    }
+
+    private static String scope(HttpServletRequest request) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String principal = auth != null && auth.isAuthenticated() ? auth.getName() : "anonymous";
+        String scope = request.getMethod() + " " + request.getRequestURI() + "|" + principal;
+        // Caminho muito longo: o hash mantém a chave dentro da coluna
+        return scope.length() <= MAX_SCOPE_LENGTH ? scope : sha256(scope.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String hash(HttpServletRequest request, byte[] body) {
+        String head = request.getMethod() + " " + request.getRequestURI()
+                + (request.getQueryString() != null ? "?" + request.getQueryString() : "") + "\n";
+        byte[] headBytes = head.getBytes(StandardCharsets.UTF_8);
+        byte[] all = Arrays.copyOf(headBytes, headBytes.length + body.length);
+        System.arraycopy(body, 0, all, headBytes.length, body.length);
+        return sha256(all);
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(POLL_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Corpo já lido para o hash, servido de novo ao controller. */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
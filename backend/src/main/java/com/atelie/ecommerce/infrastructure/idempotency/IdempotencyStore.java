@@ -0,0 +1,273 @@
+package com.atelie.ecommerce.infrastructure.idempotency;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Respostas gravadas por Idempotency-Key: tabela idempotency_keys (V17) com
+ * um tier em memória na frente.
+ *
+ * Metodologia:
+ * - claim() é um INSERT ... ON CONFLICT DO NOTHING: só um nó executa a
+ *   requisição; os demais encontram IN_PROGRESS ou a resposta COMPLETED.
+ * - IN_PROGRESS tem validade (IDEMPOTENCY_LOCK_MS): se o nó que executava
+ *   caiu, outro assume a chave quando locked_until vence.
+ * - Enquanto a execução roda, o job renewLocks (IDEMPOTENCY_LOCK_RENEW_MS,
+ *   bem abaixo de IDEMPOTENCY_LOCK_MS) estende locked_until das chaves deste
+ *   nó: requisição lenta não perde a chave para uma repetição. O created_at
+ *   gravado no claim identifica a execução; chave assumida por outro nó não
+ *   é renovada, nem concluída ou liberada por esta execução: complete() e
+ *   release() também filtram por ele.
+ * - Respostas concluídas não mudam mais: ficam num LRU limitado
+ *   (IDEMPOTENCY_MEMORY_ENTRIES, corpo até IDEMPOTENCY_MEMORY_MAX_BODY
+ *   caracteres) e repetições não vão ao banco.
+ * - Chaves expiram após IDEMPOTENCY_TTL_HOURS; o job purgeExpired remove.
+ */
+@Slf4j
+@Component
+public class IdempotencyStore {
+
+    private static final String COMPLETED = "COMPLETED";
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final Duration ttl;
+    private final Duration lock;
+    private final int memoryMaxBody;
+    private final Map<String, StoredResponse> memory;
+    private final Map<String, Held> held = new ConcurrentHashMap<>();
+
+    public IdempotencyStore(NamedParameterJdbcTemplate jdbc,
+            @Value("${IDEMPOTENCY_TTL_HOURS:24}") long ttlHours,
+            @Value("${IDEMPOTENCY_LOCK_MS:30000}") long lockMs,
+            @Value("${IDEMPOTENCY_MEMORY_ENTRIES:10000}") int memoryEntries,
+            @Value("${IDEMPOTENCY_MEMORY_MAX_BODY:65536}") int memoryMaxBody) {
+        this.jdbc = jdbc;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.lock = Duration.ofMillis(lockMs);
+        this.memoryMaxBody = memoryMaxBody;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                return size() > memoryEntries;
+            }
+        };
+    }
+
+    /** Resposta concluída de uma chave. */
+    public record StoredResponse(String requestHash, int status, String contentType, String body,
+            LocalDateTime expiresAt) {
+    }
+
+    public enum Outcome {
+        /** Esta execução ficou com a chave. */
+        ACQUIRED,
+        /** Já existe resposta gravada ({@link Claim#response()}). */
+        COMPLETED,
+        /** Outra execução ainda está em andamento ({@link Claim#requestHash()} é o dela). */
+        IN_PROGRESS
+    }
+
+    public record Claim(Outcome outcome, String requestHash, StoredResponse response) {
+    }
+
+    /** Chave em execução neste nó; claimedAt é o created_at gravado no claim. */
+    private record Held(String scope, String key, Timestamp claimedAt) {
+    }
+
+    /** Resposta concluída no tier em memória, sem ir ao banco. */
+    public StoredResponse cached(String scope, String key) {
+        synchronized (memory) {
+            StoredResponse response = memory.get(memoryKey(scope, key));
+            if (response != null && response.expiresAt().isBefore(LocalDateTime.now())) {
+                memory.remove(memoryKey(scope, key));
+                return null;
+            }
+            return response;
+        }
+    }
+
+    public Claim claim(String scope, String key, String requestHash) {
+        // Milissegundos: created_at volta igual do banco e serve de marca da execução
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("scope", scope)
+                .addValue("key", key)
+                .addValue("hash", requestHash)
+                .addValue("now", Timestamp.valueOf(now))
+                .addValue("lockedUntil", Timestamp.valueOf(now.plus(lock)))
+                .addValue("expiresAt", Timestamp.valueOf(now.plus(ttl)));
+        // Chave vencida que o job ainda não removeu não vale mais
+        jdbc.update("DELETE FROM idempotency_keys WHERE scope = :scope AND idempotency_key = :key AND expires_at < :now",
+                params);
+        int inserted = jdbc.update("""
+                INSERT INTO idempotency_keys (scope, idempotency_key, request_hash, status, locked_until, created_at, expires_at)
+                VALUES (:scope, :key, :hash, 'IN_PROGRESS', :lockedUntil, :now, :expiresAt)
+                ON CONFLICT DO NOTHING
+                """, params);
+        if (inserted == 1) {
+            hold(scope, key, now);
+            return new Claim(Outcome.ACQUIRED, requestHash, null);
+        }
+
+        List<Row> rows = jdbc.query("""
+                SELECT request_hash, status, response_status, response_content_type, response_body, locked_until, expires_at
+                FROM idempotency_keys WHERE scope = :scope AND idempotency_key = :key
+                """, params, (rs, i) -> {
+            Timestamp lockedUntil = rs.getTimestamp("locked_until");
+            return new Row(rs.getString("request_hash"), rs.getString("status"), rs.getInt("response_status"),
+                    rs.getString("response_content_type"), rs.getString("response_body"),
+                    lockedUntil != null ? lockedUntil.toLocalDateTime() : null,
+                    rs.getTimestamp("expires_at").toLocalDateTime());
+        });
+        if (rows.isEmpty()) {
+            // Removida entre o INSERT e o SELECT (execução que falhou liberou a chave)
+            return claim(scope, key, requestHash);
+        }
+        Row row = rows.get(0);
+        if (COMPLETED.equals(row.status())) {
+            StoredResponse response = new StoredResponse(row.requestHash(), row.responseStatus(),
+                    row.contentType(), row.body(), row.expiresAt());
+            remember(scope, key, response);
+            return new Claim(Outcome.COMPLETED, row.requestHash(), response);
+        }
+        if (row.lockedUntil() == null || row.lockedUntil().isBefore(now)) {
+            int taken = jdbc.update("""
+                    UPDATE idempotency_keys
+                    SET request_hash = :hash, locked_until = :lockedUntil, created_at = :now, expires_at = :expiresAt
+                    WHERE scope = :scope AND idempotency_key = :key AND status = 'IN_PROGRESS'
+                      AND (locked_until IS NULL OR locked_until < :now)
+                    """, params);
+            if (taken == 1) {
+                log.warn("Idempotency-Key {} abandonada em andamento; assumindo a execução", key);
+                hold(scope, key, now);
+                return new Claim(Outcome.ACQUIRED, requestHash, null);
+            }
+        }
+        return new Claim(Outcome.IN_PROGRESS, row.requestHash(), null);
+    }
+
+    private record Row(String requestHash, String status, int responseStatus, String contentType, String body,
+            LocalDateTime lockedUntil, LocalDateTime expiresAt) {
+    }
+
+    /**
+     * Grava a resposta da execução que ficou com a chave. null = a chave não é
+     * mais desta execução (lock vencido e assumido por outro nó): nada é gravado.
+     */
+    public StoredResponse complete(String scope, String key, String requestHash, int status, String contentType,
+            String body) {
+        Held h = held.remove(memoryKey(scope, key));
+        if (h == null) {
+            log.warn("Idempotency-Key {} não está mais com esta execução; resposta não gravada", key);
+            return null;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        StoredResponse response = new StoredResponse(requestHash, status, contentType, body, now.plus(ttl));
+        int updated = jdbc.update("""
+                UPDATE idempotency_keys
+                SET status = 'COMPLETED', response_status = :status, response_content_type = :contentType,
+                    response_body = :body, locked_until = NULL, expires_at = :expiresAt
+                WHERE scope = :scope AND idempotency_key = :key AND status = 'IN_PROGRESS'
+                  AND created_at = :claimedAt
+                """, new MapSqlParameterSource()
+                .addValue("scope", scope)
+                .addValue("key", key)
+                .addValue("status", status)
+                .addValue("contentType", contentType)
+                .addValue("body", body)
+                .addValue("expiresAt", Timestamp.valueOf(response.expiresAt()))
+                .addValue("claimedAt", h.claimedAt()));
+        if (updated == 0) {
+            log.warn("Idempotency-Key {} assumida por outra execução; resposta não gravada", key);
+            return null;
+        }
+        remember(scope, key, response);
+        return response;
+    }
+
+    /** Libera a chave sem resposta (erro 5xx/exceção): a próxima tentativa executa de novo. */
+    public void release(String scope, String key) {
+        Held h = held.remove(memoryKey(scope, key));
+        if (h == null) {
+            return;
+        }
+        jdbc.update("""
+                DELETE FROM idempotency_keys
+                WHERE scope = :scope AND idempotency_key = :key AND status = 'IN_PROGRESS' AND created_at = :claimedAt
+                """, new MapSqlParameterSource("scope", scope).addValue("key", key).addValue("claimedAt", h.claimedAt()));
+    }
+
+    /** Estende locked_until das chaves em execução neste nó; devolve quantas foram renovadas. */
+    @Scheduled(fixedDelayString = "${IDEMPOTENCY_LOCK_RENEW_MS:10000}")
+    public int renewLocks() {
+        if (held.isEmpty()) {
+            return 0;
+        }
+        Timestamp until = Timestamp.valueOf(LocalDateTime.now().plus(lock));
+        int renewed = 0;
+        for (Map.Entry<String, Held> entry : held.entrySet()) {
+            Held h = entry.getValue();
+            int updated = jdbc.update("""
+                    UPDATE idempotency_keys SET locked_until = :until
+                    WHERE scope = :scope AND idempotency_key = :key AND status = 'IN_PROGRESS'
+                      AND created_at = :claimedAt
+                    """, new MapSqlParameterSource()
+                    .addValue("until", until)
+                    .addValue("scope", h.scope())
+                    .addValue("key", h.key())
+                    .addValue("claimedAt", h.claimedAt()));
+            if (updated == 1) {
+                renewed++;
+            } else {
+                // Concluída, liberada ou assumida por outro nó: não é mais desta execução
+                held.remove(entry.getKey(), h);
+                log.warn("Idempotency-Key {} não está mais com esta execução; renovação interrompida", h.key());
+            }
+        }
+        return renewed;
+    }
+
+    @Scheduled(fixedDelayString = "${IDEMPOTENCY_PURGE_MS:3600000}", initialDelayString = "${IDEMPOTENCY_PURGE_MS:3600000}")
+    public int purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int removed = jdbc.update("DELETE FROM idempotency_keys WHERE expires_at < :now",
+                new MapSqlParameterSource("now", Timestamp.valueOf(now)));
+        synchronized (memory) {
+            memory.values().removeIf(r -> r.expiresAt().isBefore(now));
+        }
+        if (removed > 0) {
+            log.info("Idempotency-Keys expiradas removidas: {}", removed);
+        }
+        return removed;
+    }
+
+    private void hold(String scope, String key, LocalDateTime claimedAt) {
+        held.put(memoryKey(scope, key), new Held(scope, key, Timestamp.valueOf(claimedAt)));
+    }
+
+    private void remember(String scope, String key, StoredResponse response) {
+        if (response.body() != null && response.body().length() > memoryMaxBody) {
+            return;
+        }
+        synchronized (memory) {
+            memory.put(memoryKey(scope, key), response);
+        }
+    }
+
+    private static String memoryKey(String scope, String key) {
+        return scope + '\n' + key;
+    }
+}
@@ -0,0 +1,23 @@
+package com.atelie.ecommerce.infrastructure.outbox;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.core.ResolvableTypeProvider;
+
+/**
+ * Entrega de um evento gravado no outbox. Listeners recebem com
+ * {@code @EventListener void on(OutboxDelivery<ProductSavedEvent> delivery)}:
+ * síncrono, na thread do OutboxDispatcher; exceção = nova tentativa.
+ *
+ * A entrega é "ao menos uma vez": o mesmo evento pode chegar de novo
+ * (nó que caiu no meio do lote), então o listener deve ser idempotente.
+ *
+ * @param outboxId id em outbox_events.
+ * @param attempt  1 na primeira entrega.
+ */
+public record OutboxDelivery<E>(long outboxId, int attempt, E event) implements ResolvableTypeProvider {
+
+    @Override
+    public ResolvableType getResolvableType() {
+        return ResolvableType.forClassWithGenerics(getClass(), ResolvableType.forInstance(event));
+    }
+}
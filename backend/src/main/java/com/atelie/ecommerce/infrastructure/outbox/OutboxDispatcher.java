@@ -0,0 +1,282 @@
+package com.atelie.ecommerce.infrastructure.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Entrega os eventos de outbox_events (gravados pelo OutboxRecorder) aos
+ * listeners de {@link OutboxDelivery}, dividindo o trabalho entre os nós.
+ *
+ * Metodologia:
+ * - Claim em transação curta: SELECT ... ORDER BY id LIMIT OUTBOX_BATCH_SIZE
+ *   FOR UPDATE SKIP LOCKED e marca o lote (locked_by, locked_until,
+ *   attempts + 1). Outros nós pulam as linhas travadas em vez de esperar e
+ *   pegam o lote seguinte; nenhuma conexão fica presa durante a entrega.
+ * - Nó que cai no meio do lote: quando locked_until (OUTBOX_LEASE_MS) vence,
+ *   outro nó pega de novo. Entrega é "ao menos uma vez".
+ * - Lote lento (listener com HTTP): passada metade do lease, locked_until das
+ *   linhas ainda não removidas do lote é estendido antes da próxima entrega,
+ *   para outro nó não reentregar o que está em andamento. Uma entrega sozinha
+ *   não deve passar do lease: listeners dividem lotes grandes
+ *   (OutboxRecorder.recordAll).
+ * - Entregues são removidos em um DELETE por lote. Falha: nova tentativa com
+ *   backoff exponencial (OUTBOX_RETRY_BASE_MS até OUTBOX_RETRY_MAX_MS); após
+ *   OUTBOX_MAX_ATTEMPTS o evento fica DEAD com o último erro.
+ * - Eventos gravados com OutboxRecorder.defer() podem ser concluídos fora
+ *   do dispatcher: acknowledge() remove; markDead() guarda como DEAD com o
+ *   motivo quando nova tentativa não resolve.
+ * - Cada execução processa lotes até esvaziar (no máximo OUTBOX_MAX_BATCHES).
+ * - Métricas: outbox.events{result=delivered|retried|dead} (vazão), e
+ *   outbox.pending e outbox.lag (segundos do pendente mais antigo),
+ *   atualizados a cada execução só com o índice parcial dos PENDING (COUNT e
+ *   MIN(id), depois o created_at desse id).
+ * - DEAD: available_at passa a marcar quando o evento morreu. A varredura
+ *   (OUTBOX_DEAD_SWEEP_MS) remove os DEAD com mais de
+ *   OUTBOX_DEAD_RETENTION_DAYS e atualiza outbox.dead.
+ */
+@Slf4j
+@Component
+public class OutboxDispatcher {
+
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher publisher;
+    private final TransactionTemplate newTransaction;
+    private final String nodeId;
+    private final int batchSize;
+    private final int maxBatches;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final long retryBaseMs;
+    private final long retryMaxMs;
+    private final Duration deadRetention;
+
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong dead = new AtomicLong();
+    private volatile long pendingCount;
+    private volatile long deadCount;
+    private volatile double lagSeconds;
+
+    public OutboxDispatcher(NamedParameterJdbcTemplate jdbc,
+            ObjectMapper objectMapper,
+            ApplicationEventPublisher publisher,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${OUTBOX_NODE_ID:}") String nodeId,
+            @Value("${OUTBOX_BATCH_SIZE:100}") int batchSize,
+            @Value("${OUTBOX_MAX_BATCHES:20}") int maxBatches,
+            @Value("${OUTBOX_LEASE_MS:60000}") long leaseMs,
+            @Value("${OUTBOX_MAX_ATTEMPTS:10}") int maxAttempts,
+            @Value("${OUTBOX_RETRY_BASE_MS:1000}") long retryBaseMs,
+            @Value("${OUTBOX_RETRY_MAX_MS:300000}") long retryMaxMs,
+            @Value("${OUTBOX_DEAD_RETENTION_DAYS:30}") int deadRetentionDays) {
+        this.jdbc = jdbc;
+        this.objectMapper = objectMapper;
+        this.publisher = publisher;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.nodeId = nodeId != null && !nodeId.isBlank() ? nodeId.trim() : "node-" + UUID.randomUUID();
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.lease = Duration.ofMillis(leaseMs);
+        this.maxAttempts = maxAttempts;
+        this.retryBaseMs = retryBaseMs;
+        this.retryMaxMs = retryMaxMs;
+        this.deadRetention = Duration.ofDays(deadRetentionDays);
+
+        FunctionCounter.builder("outbox.events", delivered, AtomicLong::get)
+                .tag("result", "delivered").register(meterRegistry);
+        FunctionCounter.builder("outbox.events", retried, AtomicLong::get)
+                .tag("result", "retried").register(meterRegistry);
+        FunctionCounter.builder("outbox.events", dead, AtomicLong::get)
+                .tag("result", "dead").register(meterRegistry);
+        Gauge.builder("outbox.pending", this, d -> d.pendingCount).register(meterRegistry);
+        Gauge.builder("outbox.dead", this, d -> d.deadCount).register(meterRegistry);
+        Gauge.builder("outbox.lag", this, d -> d.lagSeconds).baseUnit("seconds").register(meterRegistry);
+    }
+
+    private record Claimed(long id, String eventType, String payload, int attempt) {
+    }
+
+    /** Entrega o que estiver disponível; devolve quantos eventos foram entregues. */
+    @Scheduled(fixedDelayString = "${OUTBOX_POLL_MS:500}")
+    public int dispatch() {
+        int total = 0;
+        for (int i = 0; i < maxBatches; i++) {
+            List<Claimed> batch = claim();
+            if (batch.isEmpty()) {
+                break;
+            }
+            total += deliver(batch);
+            if (batch.size() < batchSize) {
+                break;
+            }
+        }
+        refreshGauges();
+        return total;
+    }
+
+    private List<Claimed> claim() {
+        return newTransaction.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("now", Timestamp.valueOf(now))
+                    .addValue("limit", batchSize);
+            List<Claimed> rows = jdbc.query("""
+                    SELECT id, event_type, payload, attempts FROM outbox_events
+                    WHERE status = 'PENDING' AND available_at <= :now
+                      AND (locked_until IS NULL OR locked_until < :now)
+                    ORDER BY id
+                    LIMIT :limit
+                    FOR UPDATE SKIP LOCKED
+                    """, params, (rs, i) -> new Claimed(rs.getLong("id"), rs.getString("event_type"),
+                    rs.getString("payload"), rs.getInt("attempts") + 1));
+            if (!rows.isEmpty()) {
+                jdbc.update("""
+                        UPDATE outbox_events
+                        SET locked_by = :node, locked_until = :until, attempts = attempts + 1
+                        WHERE id IN (:ids)
+                        """, new MapSqlParameterSource()
+                        .addValue("node", nodeId)
+                        .addValue("until", Timestamp.valueOf(now.plus(lease)))
+                        .addValue("ids", rows.stream().map(Claimed::id).toList()));
+            }
+            return rows;
+        });
+    }
+
+    private int deliver(List<Claimed> batch) {
+        List<Long> done = new ArrayList<>(batch.size());
+        long renewAt = System.currentTimeMillis() + lease.toMillis() / 2;
+        for (Claimed claimed : batch) {
+            if (System.currentTimeMillis() >= renewAt) {
+                renewLease(batch);
+                renewAt = System.currentTimeMillis() + lease.toMillis() / 2;
+            }
+            try {
+                Class<?> type = OutboxRecorder.EVENT_TYPES.get(claimed.eventType());
+                if (type == null) {
+                    throw new IllegalStateException("Tipo de evento desconhecido: " + claimed.eventType());
+                }
+                Object event = objectMapper.readValue(claimed.payload(), type);
+                publisher.publishEvent(new OutboxDelivery<>(claimed.id(), claimed.attempt(), event));
+                done.add(claimed.id());
+            } catch (Exception e) {
+                fail(claimed, e);
+            }
+        }
+        if (!done.isEmpty()) {
+            jdbc.update("DELETE FROM outbox_events WHERE id IN (:ids)", new MapSqlParameterSource("ids", done));
+            delivered.addAndGet(done.size());
+        }
+        return done.size();
+    }
+
+    /** Estende o lease do lote; linhas que falharam (locked_by NULL) ou foram retomadas por outro nó ficam de fora. */
+    private void renewLease(List<Claimed> batch) {
+        jdbc.update("""
+                UPDATE outbox_events SET locked_until = :until
+                WHERE id IN (:ids) AND locked_by = :node
+                """, new MapSqlParameterSource()
+                .addValue("until", Timestamp.valueOf(LocalDateTime.now().plus(lease)))
+                .addValue("ids", batch.stream().map(Claimed::id).toList())
+                .addValue("node", nodeId));
+    }
+
+    /** Remove um evento já tratado fora do dispatcher. */
+    public void acknowledge(long id) {
+        jdbc.update("DELETE FROM outbox_events WHERE id = :id", new MapSqlParameterSource("id", id));
+    }
+
+    /** Guarda como DEAD, com o motivo, um evento que nova tentativa não resolve. */
+    public void markDead(long id, String error) {
+        jdbc.update("""
+                UPDATE outbox_events SET status = 'DEAD', available_at = :now, locked_by = NULL, locked_until = NULL,
+                    last_error = :error
+                WHERE id = :id
+                """, new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("now", Timestamp.valueOf(LocalDateTime.now()))
+                .addValue("error", error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error));
+        dead.incrementAndGet();
+    }
+
+    private void fail(Claimed claimed, Exception cause) {
+        String error = cause.getClass().getSimpleName() + ": " + cause.getMessage();
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("id", claimed.id())
+                .addValue("error", error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+        if (claimed.attempt() >= maxAttempts) {
+            jdbc.update("""
+                    UPDATE outbox_events SET status = 'DEAD', available_at = :now, locked_by = NULL, locked_until = NULL,
+                        last_error = :error
+                    WHERE id = :id
+                    """, params.addValue("now", Timestamp.valueOf(LocalDateTime.now())));
+            dead.incrementAndGet();
+            log.error("OUTBOX: evento {} ({}) descartado após {} tentativas", claimed.id(), claimed.eventType(),
+                    claimed.attempt(), cause);
+            return;
+        }
+        long delay = Math.min(retryMaxMs, retryBaseMs << Math.min(claimed.attempt() - 1, 20));
+        jdbc.update("""
+                UPDATE outbox_events SET available_at = :availableAt, locked_by = NULL, locked_until = NULL,
+                    last_error = :error
+                WHERE id = :id
+                """, params.addValue("availableAt", Timestamp.valueOf(LocalDateTime.now().plusNanos(delay * 1_000_000))));
+        retried.incrementAndGet();
+        log.warn("OUTBOX: falha no evento {} ({}), tentativa {} em {} ms: {}", claimed.id(), claimed.eventType(),
+                claimed.attempt() + 1, delay, error);
+    }
+
+    /** Remove os DEAD além da retenção e atualiza outbox.dead; devolve quantos foram removidos. */
+    @Scheduled(fixedDelayString = "${OUTBOX_DEAD_SWEEP_MS:300000}")
+    public int sweepDead() {
+        int purged = jdbc.update("DELETE FROM outbox_events WHERE status = 'DEAD' AND available_at < :before",
+                new MapSqlParameterSource("before", Timestamp.valueOf(LocalDateTime.now().minus(deadRetention))));
+        if (purged > 0) {
+            log.info("OUTBOX: {} evento(s) DEAD removido(s) após {} dia(s)", purged, deadRetention.toDays());
+        }
+        Long deadRows = jdbc.queryForObject("SELECT COUNT(*) FROM outbox_events WHERE status = 'DEAD'",
+                new MapSqlParameterSource(), Long.class);
+        deadCount = deadRows != null ? deadRows : 0;
+        return purged;
+    }
+
+    private void refreshGauges() {
+        Map<String, Object> pending = jdbc.queryForMap(
+                "SELECT COUNT(*) AS total, MIN(id) AS oldest_id FROM outbox_events WHERE status = 'PENDING'",
+                new MapSqlParameterSource());
+        pendingCount = ((Number) pending.get("total")).longValue();
+        Number oldestId = (Number) pending.get("oldest_id");
+        // Pode ter sido entregue entre as duas consultas: sem linha, sem atraso
+        List<Timestamp> oldest = oldestId == null ? List.of()
+                : jdbc.queryForList("SELECT created_at FROM outbox_events WHERE id = :id",
+                        new MapSqlParameterSource("id", oldestId.longValue()), Timestamp.class);
+        lagSeconds = oldest.isEmpty() ? 0
+                : Math.max(0, Duration.between(oldest.get(0).toLocalDateTime(), LocalDateTime.now()).toMillis() / 1000.0);
+    }
+}
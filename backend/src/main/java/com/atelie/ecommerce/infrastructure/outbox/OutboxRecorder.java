@@ -0,0 +1,175 @@
+package com.atelie.ecommerce.infrastructure.outbox;
+
+import com.atelie.ecommerce.domain.catalog.event.ProductBatchSavedEvent;
+import com.atelie.ecommerce.domain.catalog.event.ProductSavedEvent;
+import com.atelie.ecommerce.domain.inventory.event.VariantStockChangedEvent;
+import com.atelie.ecommerce.domain.order.event.MercadoLivreOrderNotifiedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Grava em outbox_events (V20) os eventos de domínio que disparam efeitos
+ * fora do banco, na mesma transação da mudança: se a transação volta, o
+ * evento some junto; se commita, o OutboxDispatcher entrega mesmo que o nó
+ * caia logo depois.
+ *
+ * Metodologia:
+ * - Os serviços continuam só publicando o evento (ApplicationEventPublisher);
+ *   este listener síncrono o serializa (JSON) dentro da transação corrente.
+ * - Eventos da mesma transação vão num único batch INSERT no beforeCommit.
+ *   Sem transação, o INSERT é imediato (a mudança também já foi gravada).
+ * - defer(): fora de transação, grava na hora com entrega só após um atraso
+ *   e devolve o id. Quem trata o evento antes disso remove a linha
+ *   (OutboxDispatcher.acknowledge); se ninguém tratar, o dispatcher entrega.
+ * - recordAll(): grava já, num batch INSERT, eventos derivados de uma entrega
+ *   (ex.: um lote dividido em um evento por item), sem publicá-los em
+ *   processo.
+ * - Só os tipos de EVENT_TYPES. Caches e índices em memória (ProductCache,
+ *   CatalogFacetIndex, LowStockDetector) continuam ouvindo o evento em
+ *   processo: cada nó precisa dele, e o outbox entrega a um só.
+ */
+@Component
+public class OutboxRecorder {
+
+    /** event_type gravado -> classe do evento. */
+    static final Map<String, Class<?>> EVENT_TYPES = Stream.of(
+                    ProductSavedEvent.class, ProductBatchSavedEvent.class, VariantStockChangedEvent.class,
+                    MercadoLivreOrderNotifiedEvent.class)
+            .collect(Collectors.toUnmodifiableMap(Class::getSimpleName, Function.identity()));
+
+    private static final String INSERT = """
+            INSERT INTO outbox_events (event_type, payload, status, attempts, available_at, created_at)
+            VALUES (?, ?, 'PENDING', 0, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final ObjectMapper objectMapper;
+
+    public OutboxRecorder(JdbcTemplate jdbc, ObjectMapper objectMapper) {
+        this.jdbc = jdbc;
+        this.objectMapper = objectMapper;
+    }
+
+    @EventListener
+    public void onProductSaved(ProductSavedEvent event) {
+        record(event);
+    }
+
+    @EventListener
+    public void onProductBatchSaved(ProductBatchSavedEvent event) {
+        record(event);
+    }
+
+    @EventListener
+    public void onStockChanged(VariantStockChangedEvent event) {
+        record(event);
+    }
+
+    private record Row(String type, String payload) {
+    }
+
+    /**
+     * Grava o evento já, disponível para entrega só em now + delay.
+     *
+     * @return id em outbox_events.
+     */
+    public long defer(Object event, Duration delay) {
+        Row row = serialize(event);
+        LocalDateTime now = LocalDateTime.now();
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbc.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT, new String[]{"id"});
+            ps.setString(1, row.type());
+            ps.setString(2, row.payload());
+            ps.setTimestamp(3, Timestamp.valueOf(now.plus(delay)));
+            ps.setTimestamp(4, Timestamp.valueOf(now));
+            return ps;
+        }, keyHolder);
+        return keyHolder.getKey().longValue();
+    }
+
+    /** Grava os eventos já, num único batch INSERT, sem publicá-los em processo. */
+    public void recordAll(Collection<?> events) {
+        if (!events.isEmpty()) {
+            insert(events.stream().map(this::serialize).toList());
+        }
+    }
+
+    private Row serialize(Object event) {
+        if (!EVENT_TYPES.containsKey(event.getClass().getSimpleName())) {
+            throw new IllegalArgumentException("Tipo de evento fora do outbox: " + event.getClass().getName());
+        }
+        try {
+            return new Row(event.getClass().getSimpleName(), objectMapper.writeValueAsString(event));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Evento não serializável para o outbox: " + event, e);
+        }
+    }
+
+    private void record(Object event) {
+        Row row = serialize(event);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            insert(List.of(row));
+            return;
+        }
+        // Procura entre as sincronizações da transação corrente (não em um
+        // resource): uma REQUIRES_NEW interna tem o próprio buffer.
+        Buffer buffer = null;
+        for (TransactionSynchronization sync : TransactionSynchronizationManager.getSynchronizations()) {
+            if (sync instanceof Buffer b && b.owner() == this) {
+                buffer = b;
+            }
+        }
+        if (buffer == null) {
+            buffer = new Buffer();
+            TransactionSynchronizationManager.registerSynchronization(buffer);
+        }
+        buffer.rows.add(row);
+    }
+
+    private void insert(List<Row> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbc.batchUpdate(INSERT, rows, rows.size(), (ps, row) -> {
+            ps.setString(1, row.type());
+            ps.setString(2, row.payload());
+            ps.setTimestamp(3, now);
+            ps.setTimestamp(4, now);
+        });
+    }
+
+    /** Eventos da transação corrente, gravados juntos antes do commit. */
+    private class Buffer implements TransactionSynchronization {
+
+        private final List<Row> rows = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (!rows.isEmpty()) {
+                insert(rows);
+                rows.clear();
+            }
+        }
+
+        private OutboxRecorder owner() {
+            return OutboxRecorder.this;
+        }
+    }
+}
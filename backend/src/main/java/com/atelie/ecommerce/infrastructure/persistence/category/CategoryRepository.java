@@ -1,7 +1,9 @@
 package com.atelie.ecommerce.infrastructure.persistence.category;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -17,4 +19,10 @@ public interface CategoryRepository extends JpaRepository<CategoryEntity, UUID>
      * Verifica se existe categoria com o nome (case-insensitive).
      */
     boolean existsByNameIgnoreCase(String name);
+
+    /**
+     * Versão da listagem (ETag/Last-Modified): (MAX(updatedAt), COUNT).
+     */
+    @Query("SELECT MAX(c.updatedAt), COUNT(c) FROM CategoryEntity c")
+    List<Object[]> findListVersion();
 }
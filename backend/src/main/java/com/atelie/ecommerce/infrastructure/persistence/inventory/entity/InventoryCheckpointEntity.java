@@ -0,0 +1,42 @@
+package com.atelie.ecommerce.infrastructure.persistence.inventory.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Fotografia do razão de uma variante: {@code balance} é a soma de todas as
+ * movimentações com created_at até {@code cutoffAt}.
+ */
+@Entity
+@Table(name = "inventory_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryCheckpointEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "variant_id", nullable = false)
+    private UUID variantId;
+
+    @Column(nullable = false)
+    private Integer balance;
+
+    @Column(name = "cutoff_at", nullable = false)
+    private LocalDateTime cutoffAt;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    public InventoryCheckpointEntity(UUID variantId, Integer balance, LocalDateTime cutoffAt) {
+        this.variantId = variantId;
+        this.balance = balance;
+        this.cutoffAt = cutoffAt;
+        this.createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,59 @@
+package com.atelie.ecommerce.infrastructure.persistence.inventory.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Fechamento mensal de uma variante: movimentações com created_at em
+ * [monthStart, monthStart + 1 mês). {@code closingBalance} é o saldo de todo
+ * o razão até o fim do mês. Gravado via JDBC pelo InventoryPartitionService.
+ */
+@Entity
+@Table(name = "inventory_monthly_rollups")
+@IdClass(InventoryMonthlyRollupEntity.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryMonthlyRollupEntity {
+
+    @Id
+    @Column(name = "variant_id")
+    private UUID variantId;
+
+    @Id
+    @Column(name = "month_start")
+    private LocalDate monthStart;
+
+    @Column(name = "opening_balance", nullable = false)
+    private Integer openingBalance;
+
+    @Column(name = "qty_in", nullable = false)
+    private Integer qtyIn;
+
+    @Column(name = "qty_out", nullable = false)
+    private Integer qtyOut;
+
+    @Column(name = "closing_balance", nullable = false)
+    private Integer closingBalance;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    /** Fim exclusivo do mês fechado. */
+    public LocalDateTime endExclusive() {
+        return monthStart.plusMonths(1).atStartOfDay();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private UUID variantId;
+        private LocalDate monthStart;
+    }
+}
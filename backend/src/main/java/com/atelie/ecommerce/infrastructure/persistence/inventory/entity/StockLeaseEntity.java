@@ -0,0 +1,35 @@
+package com.atelie.ecommerce.infrastructure.persistence.inventory.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Cota de estoque arrendada por um nó para uma variante em modo hot SKU.
+ * Mantida via JDBC pelo HotSkuStockCounter; a entidade serve ao schema.
+ */
+@Entity
+@Table(name = "stock_leases", uniqueConstraints = @UniqueConstraint(name = "ux_stock_lease_variant_node",
+        columnNames = { "variant_id", "node_id" }))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLeaseEntity {
+
+    @Id
+    private UUID id;
+
+    @Column(name = "variant_id", nullable = false)
+    private UUID variantId;
+
+    @Column(name = "node_id", nullable = false, length = 100)
+    private String nodeId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(name = "renewed_at", nullable = false)
+    private LocalDateTime renewedAt;
+}
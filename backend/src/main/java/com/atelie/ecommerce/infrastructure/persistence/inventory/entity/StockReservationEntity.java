@@ -0,0 +1,55 @@
+package com.atelie.ecommerce.infrastructure.persistence.inventory.entity;
+
+import com.atelie.ecommerce.domain.inventory.ReservationStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Reserva de estoque de um carrinho. Gravada e transicionada via JDBC pelo
+ * StockReservationService; a entidade serve às consultas e ao schema.
+ */
+@Entity
+@Table(name = "stock_reservations")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationEntity {
+
+    @Id
+    private UUID id;
+
+    @Column(name = "cart_id", nullable = false)
+    private UUID cartId;
+
+    @Column(name = "variant_id", nullable = false)
+    private UUID variantId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private ReservationStatus status;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "order_id")
+    private UUID orderId;
+
+    // Usuário dono do carrinho (principal autenticado)
+    @Column(length = 255)
+    private String owner;
+
+    @Column(name = "held_since")
+    private LocalDateTime heldSince;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,29 @@
+package com.atelie.ecommerce.infrastructure.persistence.inventory.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Saldo materializado do razão de estoque por variante (IN - OUT), mantido
+ * na mesma transação de cada movimentação.
+ */
+@Entity
+@Table(name = "variant_stock_balance")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VariantStockBalanceEntity {
+
+    @Id
+    @Column(name = "variant_id")
+    private UUID variantId;
+
+    @Column(nullable = false)
+    private Integer balance;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
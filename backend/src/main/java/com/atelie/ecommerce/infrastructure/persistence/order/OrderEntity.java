@@ -8,7 +8,8 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", uniqueConstraints = @UniqueConstraint(name = "ux_orders_source_external",
+        columnNames = { "source", "external_id" }))
 public class OrderEntity {
 
     @Id
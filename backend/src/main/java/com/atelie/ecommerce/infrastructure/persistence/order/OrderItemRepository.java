@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -23,4 +24,10 @@ public interface OrderItemRepository extends JpaRepository<OrderItemEntity, UUID
             "ORDER BY SUM(oi.quantity) DESC")
     List<com.atelie.ecommerce.api.analytics.dto.DashboardMetricsResponse.TopProduct> findTopSellingProducts(
             @Param("startDate") java.time.Instant startDate, Pageable pageable);
+
+    // Listagem de pedidos: (orderId, productId, productName, quantity, unitPrice, totalPrice) dos itens
+    // da página, sem carregar entidades; itens antigos sem product_name caem no nome do produto.
+    @Query("SELECT oi.order.id, p.id, COALESCE(oi.productName, p.name), oi.quantity, oi.unitPrice, oi.totalPrice "
+            + "FROM OrderItemEntity oi JOIN oi.product p WHERE oi.order.id IN :orderIds")
+    List<Object[]> findListingRowsByOrderIds(@Param("orderIds") Collection<UUID> orderIds);
 }
@@ -2,6 +2,7 @@ package com.atelie.ecommerce.infrastructure.persistence.order;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
@@ -20,5 +21,17 @@ public interface OrderRepository extends JpaRepository<OrderEntity, UUID> {
 
     long countByStatusNot(com.atelie.ecommerce.domain.order.OrderStatus status);
 
+    // Pedido já registrado para a mesma origem (ux_orders_source_external, V17).
+    java.util.Optional<OrderEntity> findBySourceAndExternalId(String source, String externalId);
+
     java.util.List<OrderEntity> findByCreatedAtAfter(java.time.Instant date);
+
+    // Paginação por cursor sobre idx_orders_created_id (V19): sem OFFSET nem count.
+    @Query("SELECT o FROM OrderEntity o ORDER BY o.createdAt DESC, o.id DESC")
+    java.util.List<OrderEntity> findFirstByCursor(org.springframework.data.domain.Pageable limit);
+
+    @Query("SELECT o FROM OrderEntity o WHERE (o.createdAt, o.id) < (:createdAt, :id) "
+            + "ORDER BY o.createdAt DESC, o.id DESC")
+    java.util.List<OrderEntity> findAfterCursor(@Param("createdAt") java.time.Instant createdAt,
+            @Param("id") UUID id, org.springframework.data.domain.Pageable limit);
 }
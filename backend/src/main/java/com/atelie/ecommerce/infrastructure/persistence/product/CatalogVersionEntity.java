@@ -0,0 +1,27 @@
+package com.atelie.ecommerce.infrastructure.persistence.product;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Versão das listagens do catálogo (linha única, id = 1). Mantida via JDBC
+ * pelo CatalogVersion; a entidade serve ao schema.
+ */
+@Entity
+@Table(name = "catalog_version")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogVersionEntity {
+
+    @Id
+    private Integer id;
+
+    @Column(nullable = false)
+    private long version;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,28 @@
+package com.atelie.ecommerce.infrastructure.persistence.product;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Sequência de códigos (GTIN, SKU) reservada em faixas: cada nó avança
+ * {@code nextValue} pelo tamanho do bloco e distribui a faixa em memória.
+ */
+@Entity
+@Table(name = "code_sequences")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CodeSequenceEntity {
+
+    @Id
+    @Column(length = 40)
+    private String name;
+
+    @Column(name = "next_value", nullable = false)
+    private Long nextValue;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
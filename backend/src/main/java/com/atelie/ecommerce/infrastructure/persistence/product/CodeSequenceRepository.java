@@ -0,0 +1,26 @@
+package com.atelie.ecommerce.infrastructure.persistence.product;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CodeSequenceRepository extends JpaRepository<CodeSequenceEntity, String> {
+
+    // Avanço atômico: o lock de linha do UPDATE serializa nós concorrentes.
+    @Modifying
+    @Query("UPDATE CodeSequenceEntity s SET s.nextValue = s.nextValue + :size, s.updatedAt = LOCAL_DATETIME "
+            + "WHERE s.name = :name")
+    int advance(@Param("name") String name, @Param("size") long size);
+
+    // INSERT explícito (não merge): se outro nó criou a linha antes, falha por PK em vez de sobrescrever.
+    @Modifying
+    @Query(value = "INSERT INTO code_sequences (name, next_value, updated_at) VALUES (:name, :nextValue, CURRENT_TIMESTAMP)",
+            nativeQuery = true)
+    int create(@Param("name") String name, @Param("nextValue") long nextValue);
+
+    @Query("SELECT s.nextValue FROM CodeSequenceEntity s WHERE s.name = :name")
+    Long currentValue(@Param("name") String name);
+}
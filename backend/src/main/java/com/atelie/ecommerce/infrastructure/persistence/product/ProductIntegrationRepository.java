@@ -1,7 +1,10 @@
 package com.atelie.ecommerce.infrastructure.persistence.product;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.UUID;
 import java.util.Optional;
 import java.util.List;
@@ -11,4 +14,16 @@ public interface ProductIntegrationRepository extends JpaRepository<ProductInteg
     // Busca flexível por String
     Optional<ProductIntegrationEntity> findByExternalIdAndIntegrationType(String externalId, String integrationType);
     List<ProductIntegrationEntity> findByProductId(UUID productId);
+
+    // Todos os itens de um pedido externo em uma consulta: (externalId, productId)
+    @Query("SELECT i.externalId, i.product.id FROM ProductIntegrationEntity i "
+            + "WHERE i.integrationType = :type AND i.externalId IN :externalIds")
+    List<Object[]> findProductIdsByExternalIds(@Param("type") String integrationType,
+            @Param("externalIds") Collection<String> externalIds);
+
+    // Produtos que já têm vínculo com a integração (reentrega do outbox não duplica anúncio)
+    @Query("SELECT i.product.id FROM ProductIntegrationEntity i "
+            + "WHERE i.integrationType = :type AND i.product.id IN :productIds")
+    List<UUID> findLinkedProductIds(@Param("type") String integrationType,
+            @Param("productIds") Collection<UUID> productIds);
 }
@@ -6,17 +6,92 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.UUID;
 import java.util.List;
 
 @Repository
 public interface ProductRepository extends JpaRepository<ProductEntity, UUID> {
 
-    Page<ProductEntity> findByActiveTrue(Pageable pageable);
+    // Listagem enxuta: preço/estoque agregados das variantes via subconsultas,
+    // sem carregar imagens nem variantes como entidades.
+    String SUMMARY_SELECT = """
+            SELECT new com.atelie.ecommerce.api.catalog.product.dto.ProductSummary(
+                p.id, p.slug, p.name,
+                COALESCE((SELECT MIN(COALESCE(v.price, p.price)) FROM ProductVariantEntity v
+                          WHERE v.product = p AND v.active = true), p.price),
+                COALESCE((SELECT MAX(COALESCE(v.price, p.price)) FROM ProductVariantEntity v
+                          WHERE v.product = p AND v.active = true), p.price),
+                CASE
+                    WHEN EXISTS (SELECT 1 FROM ProductVariantEntity v
+                                 WHERE v.product = p AND v.active = true AND v.stockQuantity > 0) THEN true
+                    WHEN p.stockQuantity > 0
+                         AND NOT EXISTS (SELECT 1 FROM ProductVariantEntity v WHERE v.product = p) THEN true
+                    ELSE false
+                END)
+            FROM ProductEntity p
+            """;
+
+    @Query(value = SUMMARY_SELECT + "WHERE p.active = true",
+            countQuery = "SELECT COUNT(p) FROM ProductEntity p WHERE p.active = true")
+    Page<com.atelie.ecommerce.api.catalog.product.dto.ProductSummary> findActiveSummaries(Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + "WHERE p.active = true AND p.category.id = :categoryId",
+            countQuery = "SELECT COUNT(p) FROM ProductEntity p WHERE p.active = true AND p.category.id = :categoryId")
+    Page<com.atelie.ecommerce.api.catalog.product.dto.ProductSummary> findActiveSummariesByCategory(
+            @Param("categoryId") UUID categoryId, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE p.id IN :ids")
+    List<com.atelie.ecommerce.api.catalog.product.dto.ProductSummary> findSummariesByIds(
+            @Param("ids") Collection<UUID> ids);
+
+    // Linhas do índice de facetas: (id, categoryId, price, stockQuantity).
+    @Query("SELECT p.id, c.id, p.price, p.stockQuantity FROM ProductEntity p LEFT JOIN p.category c WHERE p.active = true")
+    List<Object[]> findActiveFacetRows();
+
+    @Query("SELECT p.id, c.id, p.price, p.stockQuantity FROM ProductEntity p LEFT JOIN p.category c "
+            + "WHERE p.active = true AND p.id = :id")
+    List<Object[]> findActiveFacetRowById(@Param("id") UUID id);
+
+    @Query("SELECT p.id, c.id, p.price, p.stockQuantity FROM ProductEntity p LEFT JOIN p.category c "
+            + "WHERE p.active = true AND p.id IN :ids")
+    List<Object[]> findActiveFacetRowsByIds(@Param("ids") Collection<UUID> ids);
+
+    // Criação de pedido: (id, name, price, active) de todos os produtos do pedido, sem imagens/variantes.
+    @Query("SELECT p.id, p.name, p.price, p.active FROM ProductEntity p WHERE p.id IN :ids")
+    List<Object[]> findOrderRows(@Param("ids") Collection<UUID> ids);
 
-    @Query("SELECT p FROM ProductEntity p WHERE p.stockQuantity <= 5 AND p.alertEnabled = true")
-    List<ProductEntity> findCriticalStock();
+    // Uma linha (productId, imageUrl) por imagem dos produtos da página.
+    @Query("SELECT p.id, i FROM ProductEntity p JOIN p.images i WHERE p.id IN :ids")
+    List<Object[]> findImageUrlsByProductIds(@Param("ids") Collection<UUID> ids);
+
+    // Paginação por cursor (V9): sem OFFSET nem count; o Pageable só limita (size + 1).
+    @Query("SELECT p FROM ProductEntity p ORDER BY p.createdAt DESC, p.id DESC")
+    List<ProductEntity> findFirstByCursor(Pageable limit);
+
+    @Query("SELECT p FROM ProductEntity p WHERE (p.createdAt, p.id) < (:createdAt, :id) "
+            + "ORDER BY p.createdAt DESC, p.id DESC")
+    List<ProductEntity> findAfterCursor(@Param("createdAt") java.time.LocalDateTime createdAt,
+            @Param("id") UUID id, Pageable limit);
+
+    @Query("SELECT p FROM ProductEntity p WHERE p.category.id = :categoryId ORDER BY p.createdAt DESC, p.id DESC")
+    List<ProductEntity> findFirstByCursorInCategory(@Param("categoryId") UUID categoryId, Pageable limit);
+
+    @Query("SELECT p FROM ProductEntity p WHERE p.category.id = :categoryId AND (p.createdAt, p.id) < (:createdAt, :id) "
+            + "ORDER BY p.createdAt DESC, p.id DESC")
+    List<ProductEntity> findAfterCursorInCategory(@Param("categoryId") UUID categoryId,
+            @Param("createdAt") java.time.LocalDateTime createdAt, @Param("id") UUID id, Pageable limit);
+
+    // Versão de conteúdo (ETag/Last-Modified) sem carregar o grafo:
+    // (updatedAt, stockQuantity, MAX(variant.updatedAt), COUNT(variants), SUM(variant stock), SUM(variant reserved)).
+    @Query("SELECT p.updatedAt, p.stockQuantity, MAX(v.updatedAt), COUNT(v), COALESCE(SUM(v.stockQuantity), 0), "
+            + "COALESCE(SUM(v.reservedQuantity), 0) "
+            + "FROM ProductEntity p LEFT JOIN p.variants v WHERE p.id = :id GROUP BY p.id, p.updatedAt, p.stockQuantity")
+    List<Object[]> findContentVersion(@Param("id") UUID id);
+
+    Page<ProductEntity> findByActiveTrue(Pageable pageable);
 
     java.util.Optional<ProductEntity> findBySlug(String slug);
 
@@ -26,5 +101,26 @@ public interface ProductRepository extends JpaRepository<ProductEntity, UUID> {
 
     Page<ProductEntity> findByNameContainingIgnoreCase(String name, Pageable pageable);
 
+    // Full-text (V8): tsvector em português sem acento, com fallback por trigramas
+    // para erros de digitação. O fallback usa word_similarity (:q <% nome): compara
+    // o termo com o trecho mais parecido do nome, não com o nome inteiro, e ainda
+    // usa o índice GIN idx_products_name_trgm. Ordenação por relevância; o Pageable
+    // não deve ter Sort.
+    @Query(value = """
+            SELECT p.* FROM products p
+            WHERE p.active = true
+              AND (p.search_vector @@ websearch_to_tsquery('portuguese_unaccent', :q)
+                   OR immutable_unaccent(lower(:q)) <% immutable_unaccent(lower(p.name)))
+            ORDER BY ts_rank_cd(p.search_vector, websearch_to_tsquery('portuguese_unaccent', :q)) DESC,
+                     word_similarity(immutable_unaccent(lower(:q)), immutable_unaccent(lower(p.name))) DESC,
+                     p.id
+            """, countQuery = """
+            SELECT COUNT(*) FROM products p
+            WHERE p.active = true
+              AND (p.search_vector @@ websearch_to_tsquery('portuguese_unaccent', :q)
+                   OR immutable_unaccent(lower(:q)) <% immutable_unaccent(lower(p.name)))
+            """, nativeQuery = true)
+    Page<ProductEntity> searchRanked(@Param("q") String query, Pageable pageable);
+
     long countByActiveTrue();
 }
@@ -35,6 +35,10 @@ public class ProductVariantEntity {
     @Column(name = "stock_quantity", nullable = false)
     private Integer stockQuantity;
 
+    // Soma das reservas ativas; mantida só via SQL pelo StockReservationService
+    @Column(name = "reserved_quantity", nullable = false, updatable = false, columnDefinition = "integer default 0")
+    private Integer reservedQuantity;
+
     @org.hibernate.annotations.JdbcTypeCode(org.hibernate.type.SqlTypes.JSON)
     @Column(name = "attributes_json", columnDefinition = "jsonb")
     private String attributesJson;
@@ -52,6 +56,8 @@ public class ProductVariantEntity {
     public void prePersist() {
         if (this.stockQuantity == null)
             this.stockQuantity = 0;
+        if (this.reservedQuantity == null)
+            this.reservedQuantity = 0;
         if (this.active == null)
             this.active = true;
         this.createdAt = LocalDateTime.now();
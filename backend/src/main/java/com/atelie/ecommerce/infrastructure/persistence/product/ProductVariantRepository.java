@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -15,13 +16,45 @@ public interface ProductVariantRepository extends JpaRepository<ProductVariantEn
     List<ProductVariantEntity> findByProductId(UUID productId);
     boolean existsBySku(String sku);
 
+    // Linhas do índice de facetas: (productId, price, stockQuantity, attributesJson).
+    @Query("SELECT v.product.id, v.price, v.stockQuantity, v.attributesJson FROM ProductVariantEntity v WHERE v.active = true")
+    List<Object[]> findActiveFacetRows();
+
+    @Query("SELECT v.product.id, v.price, v.stockQuantity, v.attributesJson FROM ProductVariantEntity v "
+            + "WHERE v.active = true AND v.product.id = :productId")
+    List<Object[]> findActiveFacetRowsByProductId(@Param("productId") UUID productId);
+
+    @Query("SELECT v.product.id, v.price, v.stockQuantity, v.attributesJson FROM ProductVariantEntity v "
+            + "WHERE v.active = true AND v.product.id IN :productIds")
+    List<Object[]> findActiveFacetRowsByProductIds(@Param("productIds") Collection<UUID> productIds);
+
+    // GTINs gravados num intervalo (faixa do alocador de GTIN interno)
+    @Query("SELECT v.gtin FROM ProductVariantEntity v WHERE v.gtin BETWEEN :from AND :to")
+    List<String> findGtinsBetween(@Param("from") String from, @Param("to") String to);
+
+    // Criação de pedido: (id, productId, price) das variantes pedidas e das variantes dos produtos pedidos
+    // sem variante (a primeira criada é a default).
+    @Query("SELECT v.id, v.product.id, v.price FROM ProductVariantEntity v "
+            + "WHERE v.id IN :ids OR v.product.id IN :productIds ORDER BY v.createdAt, v.id")
+    List<Object[]> findOrderRows(@Param("ids") Collection<UUID> ids, @Param("productIds") Collection<UUID> productIds);
+
+    // Reconciliação de estoque: (id, sku, stockQuantity) de todas as variantes.
+    @Query("SELECT v.id, v.sku, v.stockQuantity FROM ProductVariantEntity v")
+    List<Object[]> findStockRows();
+
+    // Movimentação avulsa: IN sempre entra; OUT só se o estoque não ficar abaixo do reservado
+    @Modifying
+    @Query("UPDATE ProductVariantEntity v SET v.stockQuantity = v.stockQuantity + :delta, v.updatedAt = LOCAL_DATETIME "
+            + "WHERE v.id = :id AND (:delta >= 0 OR v.stockQuantity - v.reservedQuantity + :delta >= 0)")
+    int applyStockDelta(@Param("id") UUID id, @Param("delta") int delta);
+
     // Decremento Atômico no Nível da VARIANTE
     @Modifying
-    @Query("UPDATE ProductVariantEntity v SET v.stockQuantity = v.stockQuantity - :quantity WHERE v.id = :id AND v.stockQuantity >= :quantity")
+    @Query("UPDATE ProductVariantEntity v SET v.stockQuantity = v.stockQuantity - :quantity, v.updatedAt = LOCAL_DATETIME WHERE v.id = :id AND v.stockQuantity >= :quantity")
     int decrementStock(@Param("id") UUID id, @Param("quantity") int quantity);
 
     // Incremento Atômico
     @Modifying
-    @Query("UPDATE ProductVariantEntity v SET v.stockQuantity = v.stockQuantity + :quantity WHERE v.id = :id")
+    @Query("UPDATE ProductVariantEntity v SET v.stockQuantity = v.stockQuantity + :quantity, v.updatedAt = LOCAL_DATETIME WHERE v.id = :id")
     void incrementStock(@Param("id") UUID id, @Param("quantity") int quantity);
 }
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.UUID;
@@ -32,12 +33,16 @@ public class ProductEntity {
     private Integer stockQuantity;
 
     // Suporte a lista de imagens
+    // @BatchSize: ao carregar uma página de produtos, imagens e variantes vêm em
+    // lote (IN) em vez de uma consulta por produto.
     @ElementCollection(fetch = FetchType.EAGER)
+    @BatchSize(size = 50)
     @CollectionTable(name = "product_images", joinColumns = @JoinColumn(name = "product_id"))
     @Column(name = "image_url")
     private List<String> images;
 
     @OneToMany(mappedBy = "product", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @BatchSize(size = 50)
     private List<com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantEntity> variants;
 
     @Column(name = "active")
@@ -0,0 +1,4 @@
+-- CategoryEntity já mapeia created_at/updated_at; usados também no
+-- Last-Modified/ETag da listagem de categorias.
+ALTER TABLE categories ADD COLUMN IF NOT EXISTS created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP;
+ALTER TABLE categories ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP;
@@ -0,0 +1,6 @@
+-- Feeds incrementais (updatedSince): filtro por updated_at em produtos e variantes
+-- sem varrer o catálogo inteiro.
+UPDATE product_variants SET updated_at = COALESCE(created_at, CURRENT_TIMESTAMP) WHERE updated_at IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_products_updated_at ON products (updated_at);
+CREATE INDEX IF NOT EXISTS idx_product_variants_product_updated_at ON product_variants (product_id, updated_at);
@@ -0,0 +1,10 @@
+-- Alocação de GTIN/SKU em faixas (hi/lo): cada nó reserva um bloco avançando
+-- next_value e distribui os códigos em memória, sem consulta por código.
+CREATE TABLE IF NOT EXISTS code_sequences (
+    name VARCHAR(40) PRIMARY KEY,
+    next_value BIGINT NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+INSERT INTO code_sequences (name, next_value) VALUES ('gtin', 0), ('sku', 1)
+ON CONFLICT (name) DO NOTHING;
@@ -0,0 +1,31 @@
+-- Saldo materializado por variante (atualizado na mesma transação de cada
+-- movimentação) e checkpoints do razão: auditorias somam só o que veio
+-- depois do último checkpoint em vez do histórico inteiro.
+CREATE TABLE IF NOT EXISTS variant_stock_balance (
+    variant_id UUID PRIMARY KEY,
+    balance INTEGER NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_stock_balance_variant FOREIGN KEY (variant_id) REFERENCES product_variants(id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS inventory_checkpoints (
+    id BIGSERIAL PRIMARY KEY,
+    variant_id UUID NOT NULL,
+    balance INTEGER NOT NULL,
+    cutoff_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_inventory_checkpoint_variant FOREIGN KEY (variant_id) REFERENCES product_variants(id) ON DELETE CASCADE
+);
+CREATE INDEX IF NOT EXISTS idx_inventory_checkpoints_variant_cutoff ON inventory_checkpoints (variant_id, cutoff_at DESC);
+
+-- Soma por variante a partir de um instante (idx_inventory_product não serve)
+CREATE INDEX IF NOT EXISTS idx_inventory_variant_created ON inventory_movements (variant_id, created_at);
+
+INSERT INTO variant_stock_balance (variant_id, balance, updated_at)
+SELECT v.id,
+       COALESCE(SUM(CASE WHEN m.type = 'IN' THEN m.quantity WHEN m.type = 'OUT' THEN -m.quantity ELSE 0 END), 0),
+       CURRENT_TIMESTAMP
+FROM product_variants v
+LEFT JOIN inventory_movements m ON m.variant_id = v.id
+GROUP BY v.id
+ON CONFLICT (variant_id) DO NOTHING;
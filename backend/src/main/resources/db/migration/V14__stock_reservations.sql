@@ -0,0 +1,22 @@
+-- Reservas de estoque do carrinho com TTL. reserved_quantity materializa a
+-- soma das reservas ativas da variante: disponível para venda =
+-- stock_quantity - reserved_quantity, sem varrer stock_reservations.
+ALTER TABLE product_variants ADD COLUMN IF NOT EXISTS reserved_quantity INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE product_variants ADD CONSTRAINT ck_variant_reserved_non_negative CHECK (reserved_quantity >= 0);
+
+CREATE TABLE IF NOT EXISTS stock_reservations (
+    id UUID PRIMARY KEY,
+    cart_id UUID NOT NULL,
+    variant_id UUID NOT NULL,
+    quantity INTEGER NOT NULL CHECK (quantity > 0),
+    status VARCHAR(20) NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    order_id UUID,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_stock_reservation_variant FOREIGN KEY (variant_id) REFERENCES product_variants(id) ON DELETE CASCADE
+);
+
+-- Varredura de expiração: só reservas ativas, em ordem de vencimento
+CREATE INDEX IF NOT EXISTS idx_stock_reservations_expiry ON stock_reservations (expires_at) WHERE status = 'ACTIVE';
+CREATE INDEX IF NOT EXISTS idx_stock_reservations_cart ON stock_reservations (cart_id, variant_id) WHERE status = 'ACTIVE';
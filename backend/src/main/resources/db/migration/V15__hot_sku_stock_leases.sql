@@ -0,0 +1,14 @@
+-- Cotas de estoque arrendadas por nó para SKUs em modo "hot" (flash sale).
+-- A cota fica somada em product_variants.reserved_quantity enquanto não é
+-- vendida; quantity é o saldo ainda não consumido do arrendamento.
+CREATE TABLE IF NOT EXISTS stock_leases (
+    id UUID PRIMARY KEY,
+    variant_id UUID NOT NULL,
+    node_id VARCHAR(100) NOT NULL,
+    quantity INTEGER NOT NULL CHECK (quantity >= 0),
+    renewed_at TIMESTAMP NOT NULL,
+    CONSTRAINT fk_stock_lease_variant FOREIGN KEY (variant_id) REFERENCES product_variants(id) ON DELETE CASCADE,
+    CONSTRAINT ux_stock_lease_variant_node UNIQUE (variant_id, node_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_stock_leases_renewed ON stock_leases (renewed_at);
@@ -0,0 +1,99 @@
+-- Razão de estoque particionado por mês (created_at), com fechamento mensal
+-- por variante: auditorias partem do último fechamento/checkpoint e só leem
+-- as partições recentes; partições antigas podem ser arquivadas e removidas.
+-- Requer PostgreSQL 13+ (trigger BEFORE em tabela particionada).
+
+-- 1. Idempotência: índice único em tabela particionada precisa incluir a
+--    chave de partição, então a chave (variante, tipo, referência) passa a
+--    morar em uma tabela própria, alimentada por trigger no INSERT.
+CREATE TABLE IF NOT EXISTS inventory_movement_keys (
+    variant_id UUID NOT NULL,
+    type VARCHAR(10) NOT NULL,
+    reference_id VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (variant_id, type, reference_id)
+);
+
+INSERT INTO inventory_movement_keys (variant_id, type, reference_id, created_at)
+SELECT variant_id, type, reference_id, COALESCE(created_at, CURRENT_TIMESTAMP)
+FROM inventory_movements
+WHERE reference_id IS NOT NULL
+ON CONFLICT DO NOTHING;
+
+CREATE OR REPLACE FUNCTION inventory_movement_key_guard() RETURNS trigger AS $$
+BEGIN
+    IF NEW.reference_id IS NOT NULL THEN
+        -- Chave repetida levanta unique_violation, como o antigo ux_inventory_idempotency
+        INSERT INTO inventory_movement_keys (variant_id, type, reference_id, created_at)
+        VALUES (NEW.variant_id, NEW.type, NEW.reference_id, NEW.created_at);
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+-- 2. Tabela particionada no lugar da atual
+ALTER TABLE inventory_movements RENAME TO inventory_movements_legacy;
+ALTER INDEX inventory_movements_pkey RENAME TO inventory_movements_legacy_pkey;
+DROP INDEX IF EXISTS ux_inventory_idempotency;
+DROP INDEX IF EXISTS idx_inventory_product;
+DROP INDEX IF EXISTS idx_inventory_variant_created;
+
+CREATE TABLE inventory_movements (
+    id UUID NOT NULL,
+    product_id UUID NOT NULL,
+    variant_id UUID NOT NULL,
+    type VARCHAR(10) NOT NULL,
+    quantity INTEGER NOT NULL,
+    reason VARCHAR(255),
+    reference_id VARCHAR(255),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, created_at),
+    CONSTRAINT fk_inventory_product FOREIGN KEY (product_id) REFERENCES products(id),
+    CONSTRAINT fk_inventory_variant FOREIGN KEY (variant_id) REFERENCES product_variants(id)
+) PARTITION BY RANGE (created_at);
+
+CREATE INDEX idx_inventory_product ON inventory_movements (product_id);
+CREATE INDEX idx_inventory_variant_created ON inventory_movements (variant_id, created_at);
+
+-- Rede de segurança: o job (InventoryPartitionService) cria os meses à frente
+CREATE TABLE inventory_movements_default PARTITION OF inventory_movements DEFAULT;
+
+DO $$
+DECLARE
+    month_start DATE;
+    last_month DATE := (date_trunc('month', CURRENT_DATE) + INTERVAL '3 months')::date;
+BEGIN
+    SELECT COALESCE(date_trunc('month', MIN(created_at))::date, date_trunc('month', CURRENT_DATE)::date)
+    INTO month_start
+    FROM inventory_movements_legacy;
+
+    WHILE month_start <= last_month LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF inventory_movements FOR VALUES FROM (%L) TO (%L)',
+                       'inventory_movements_y' || to_char(month_start, 'YYYY') || 'm' || to_char(month_start, 'MM'),
+                       month_start, (month_start + INTERVAL '1 month')::date);
+        month_start := (month_start + INTERVAL '1 month')::date;
+    END LOOP;
+END $$;
+
+INSERT INTO inventory_movements (id, product_id, variant_id, type, quantity, reason, reference_id, created_at)
+SELECT id, product_id, variant_id, type, quantity, reason, reference_id, COALESCE(created_at, CURRENT_TIMESTAMP)
+FROM inventory_movements_legacy;
+
+DROP TABLE inventory_movements_legacy;
+
+CREATE TRIGGER trg_inventory_movement_key
+    BEFORE INSERT ON inventory_movements
+    FOR EACH ROW EXECUTE FUNCTION inventory_movement_key_guard();
+
+-- 3. Fechamento mensal por variante: [month_start, month_start + 1 mês)
+CREATE TABLE IF NOT EXISTS inventory_monthly_rollups (
+    variant_id UUID NOT NULL,
+    month_start DATE NOT NULL,
+    opening_balance INTEGER NOT NULL,
+    qty_in INTEGER NOT NULL,
+    qty_out INTEGER NOT NULL,
+    closing_balance INTEGER NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (variant_id, month_start),
+    CONSTRAINT fk_inventory_rollup_variant FOREIGN KEY (variant_id) REFERENCES product_variants(id) ON DELETE CASCADE
+);
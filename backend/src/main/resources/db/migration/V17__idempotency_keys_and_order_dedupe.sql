@@ -0,0 +1,31 @@
+-- Idempotency-Key para POSTs (pedidos, estoque, pagamentos) e unicidade de
+-- pedido por (source, external_id).
+
+-- 1. Respostas gravadas por chave. scope = método + caminho + usuário: a
+--    mesma chave em outra rota ou de outro usuário é outra entrada.
+--    IN_PROGRESS com locked_until vencido é de um nó que caiu no meio.
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    scope VARCHAR(300) NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash VARCHAR(64) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    response_status INTEGER,
+    response_content_type VARCHAR(255),
+    response_body TEXT,
+    locked_until TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (scope, idempotency_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_expires ON idempotency_keys (expires_at);
+
+-- 2. Pedidos repetidos já gravados mantêm o mais antigo com o external_id
+--    original; os demais ficam com o id do pedido como sufixo.
+UPDATE orders o
+SET external_id = o.external_id || '#' || o.id
+FROM (SELECT id, ROW_NUMBER() OVER (PARTITION BY source, external_id ORDER BY created_at, id) AS rn
+      FROM orders) d
+WHERE o.id = d.id AND d.rn > 1;
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_orders_source_external ON orders (source, external_id);
@@ -0,0 +1,10 @@
+-- Listagem de pedidos: itens lidos em uma consulta por página (order_id IN
+-- (...)) com o nome do produto gravado no próprio item.
+ALTER TABLE order_items ADD COLUMN IF NOT EXISTS product_name VARCHAR(255);
+
+UPDATE order_items i
+SET product_name = p.name
+FROM products p
+WHERE p.id = i.product_id AND i.product_name IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_order_items_order ON order_items (order_id);
@@ -0,0 +1,19 @@
+-- Busca de pedidos do admin (OrderSearchQuery): status, origem, cliente e
+-- período, sempre ordenada por (created_at DESC, id DESC) e paginada por cursor.
+
+-- Um status (ou cada status de uma busca por vários): range scan já na ordem.
+-- Substitui idx_orders_status, que é prefixo deste.
+CREATE INDEX IF NOT EXISTS idx_orders_status_created ON orders (status, created_at DESC, id DESC);
+DROP INDEX IF EXISTS idx_orders_status;
+
+-- Busca só por canal (SITE, MERCADO_LIVRE, ...).
+CREATE INDEX IF NOT EXISTS idx_orders_source_created ON orders (source, created_at DESC, id DESC);
+
+-- Sem status/origem e paginação por cursor da listagem: o id desempata sem
+-- ordenar. Substitui idx_orders_created_at (range em created_at continua coberto).
+CREATE INDEX IF NOT EXISTS idx_orders_created_id ON orders (created_at DESC, id DESC);
+DROP INDEX IF EXISTS idx_orders_created_at;
+
+-- Trecho do nome do cliente (lower(customer_name) LIKE '%...%'). pg_trgm vem de V8.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_orders_customer_trgm ON orders USING GIN (lower(customer_name) gin_trgm_ops);
@@ -0,0 +1,23 @@
+-- Outbox transacional: eventos de domínio com efeito fora do banco (anúncios
+-- e estoque nos marketplaces) gravados na mesma transação da mudança e
+-- entregues pelo OutboxDispatcher, que divide o trabalho entre os nós.
+
+-- PENDING: aguardando (available_at = próxima tentativa). DEAD: tentativas
+-- esgotadas, fica para análise; reprocessar com
+--   UPDATE outbox_events SET status = 'PENDING', attempts = 0, available_at = now() WHERE status = 'DEAD';
+-- Entregues são removidos. locked_until/locked_by = lote em entrega por um nó.
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id BIGSERIAL PRIMARY KEY,
+    event_type VARCHAR(100) NOT NULL,
+    payload TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    available_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    locked_until TIMESTAMP,
+    locked_by VARCHAR(100),
+    last_error TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Claim em ordem de chegada só sobre os pendentes (DEAD fica fora do índice)
+CREATE INDEX IF NOT EXISTS idx_outbox_events_pending ON outbox_events (id) WHERE status = 'PENDING';
@@ -0,0 +1,8 @@
+-- Carrinho preso ao usuário que reservou (owner) e início da retenção
+-- (held_since), para o teto de renovação. Reservas antigas ficam sem dono
+-- até expirarem (TTL curto).
+ALTER TABLE stock_reservations ADD COLUMN IF NOT EXISTS owner VARCHAR(255);
+ALTER TABLE stock_reservations ADD COLUMN IF NOT EXISTS held_since TIMESTAMP;
+
+-- Limite de carrinhos ativos por usuário
+CREATE INDEX IF NOT EXISTS idx_stock_reservations_owner ON stock_reservations (owner, cart_id) WHERE status = 'ACTIVE';
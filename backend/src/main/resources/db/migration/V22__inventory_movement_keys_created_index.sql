@@ -0,0 +1,3 @@
+-- Arquivamento de partição do razão remove as chaves de idempotência do mês
+-- arquivado (InventoryPartitionService) por faixa de created_at.
+CREATE INDEX IF NOT EXISTS idx_inventory_movement_keys_created ON inventory_movement_keys (created_at);
@@ -0,0 +1,11 @@
+-- Versão das listagens do catálogo (ETag de GET /api/products e /summary):
+-- uma linha incrementada a cada gravação de produto/estoque, no lugar de
+-- agregar products e product_variants inteiras a cada requisição.
+CREATE TABLE IF NOT EXISTS catalog_version (
+    id INTEGER PRIMARY KEY,
+    version BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+INSERT INTO catalog_version (id, version, updated_at) VALUES (1, 0, CURRENT_TIMESTAMP)
+ON CONFLICT DO NOTHING;
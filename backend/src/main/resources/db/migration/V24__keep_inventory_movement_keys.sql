@@ -0,0 +1,4 @@
+-- O arquivamento de partições deixou de remover chaves de idempotência: uma chave
+-- apagada permitiria reaplicar um referenceId antigo. O índice por created_at
+-- criado em V22 só servia a essa remoção.
+DROP INDEX IF EXISTS idx_inventory_movement_keys_created;
@@ -0,0 +1,5 @@
+-- DEAD passa a ter available_at = quando o evento morreu; o OutboxDispatcher
+-- remove os DEAD além de OUTBOX_DEAD_RETENTION_DAYS e conta os restantes por
+-- este índice, sem varrer a tabela.
+UPDATE outbox_events SET available_at = CURRENT_TIMESTAMP WHERE status = 'DEAD';
+CREATE INDEX IF NOT EXISTS idx_outbox_events_dead ON outbox_events (available_at) WHERE status = 'DEAD';
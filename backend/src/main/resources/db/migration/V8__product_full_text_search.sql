@@ -0,0 +1,22 @@
+-- Busca textual de produtos em português, insensível a acentos, com ranking.
+-- Nome pesa mais (A) que descrição (B); pg_trgm cobre erros de digitação no nome.
+CREATE EXTENSION IF NOT EXISTS unaccent;
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE TEXT SEARCH CONFIGURATION portuguese_unaccent (COPY = portuguese);
+ALTER TEXT SEARCH CONFIGURATION portuguese_unaccent
+    ALTER MAPPING FOR hword, hword_part, word WITH unaccent, portuguese_stem;
+
+-- unaccent() é STABLE; este wrapper IMMUTABLE permite usá-lo em índice de expressão.
+CREATE OR REPLACE FUNCTION immutable_unaccent(text) RETURNS text
+    LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT
+AS $$ SELECT public.unaccent('public.unaccent'::regdictionary, $1) $$;
+
+ALTER TABLE products ADD COLUMN search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('portuguese_unaccent'::regconfig, coalesce(name, '')), 'A') ||
+        setweight(to_tsvector('portuguese_unaccent'::regconfig, coalesce(description, '')), 'B')
+    ) STORED;
+
+CREATE INDEX idx_products_search_vector ON products USING GIN (search_vector);
+CREATE INDEX idx_products_name_trgm ON products USING GIN (immutable_unaccent(lower(name)) gin_trgm_ops);
@@ -0,0 +1,5 @@
+-- Paginação por cursor da listagem de produtos: busca por (created_at, id)
+-- em ordem decrescente. Pedidos usam o idx_orders_created_at existente.
+UPDATE products SET created_at = COALESCE(updated_at, CURRENT_TIMESTAMP) WHERE created_at IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_products_created_at_id ON products (created_at DESC, id DESC);
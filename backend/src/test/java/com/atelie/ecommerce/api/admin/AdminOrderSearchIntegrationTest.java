@@ -0,0 +1,164 @@
+package com.atelie.ecommerce.api.admin;
+
+import com.atelie.ecommerce.domain.order.OrderStatus;
+import com.atelie.ecommerce.infrastructure.persistence.order.OrderEntity;
+import com.atelie.ecommerce.infrastructure.persistence.order.OrderItemEntity;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.entity.ProductEntity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pedidos em 2200: o período filtrado isola os dados deste teste dos pedidos
+ * que outros testes deixam na base.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+class AdminOrderSearchIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private ProductEntity product;
+
+    @BeforeEach
+    void setUp() {
+        product = productRepository.save(ProductEntity.builder()
+                .name("Busca " + UUID.randomUUID())
+                .description("Desc")
+                .price(BigDecimal.TEN)
+                .active(true)
+                .build());
+
+        order("Maria Silva", OrderStatus.PAID, "SITE", "2200-01-05T10:00:00Z");
+        order("Ana Souza", OrderStatus.SHIPPED, "MERCADO_LIVRE", "2200-01-06T10:00:00Z");
+        order("maria 100% off", OrderStatus.PENDING, "SITE", "2200-01-07T10:00:00Z");
+        order("Maria Santos", OrderStatus.PAID, "MERCADO_LIVRE", "2200-01-08T10:00:00Z");
+        order("Maria Lima", OrderStatus.DELIVERED, "SITE", "2200-01-09T10:00:00Z");
+        order("João Costa", OrderStatus.SHIPPED, "SITE", "2200-01-10T10:00:00Z");
+        // Fora do período buscado
+        order("Maria Costa", OrderStatus.PAID, "SITE", "2200-02-10T10:00:00Z");
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void search_WithSeveralStatuses_ShouldMergeNewestFirstAndWalkPages() throws Exception {
+        String body = mockMvc.perform(get("/api/admin/orders/search")
+                        .param("status", "PAID", "shipped")
+                        .param("from", "2200-01-01").param("to", "2200-01-31")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content[0].customerName").value("João Costa"))
+                .andExpect(jsonPath("$.content[0].items.length()").value(1))
+                .andExpect(jsonPath("$.content[1].customerName").value("Maria Santos"))
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                .andReturn().getResponse().getContentAsString();
+        String next = objectMapper.readTree(body).get("nextCursor").asText();
+
+        mockMvc.perform(get("/api/admin/orders/search")
+                        .param("status", "PAID", "SHIPPED")
+                        .param("from", "2200-01-01").param("to", "2200-01-31")
+                        .param("size", "2").param("after", next))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content[0].customerName").value("Ana Souza"))
+                .andExpect(jsonPath("$.content[1].customerName").value("Maria Silva"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void search_ShouldCombineSourceCustomerAndPeriod() throws Exception {
+        mockMvc.perform(get("/api/admin/orders/search")
+                        .param("source", "SITE").param("customer", "MARIA")
+                        .param("from", "2200-01-01").param("to", "2200-01-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(3))
+                .andExpect(jsonPath("$.content[0].customerName").value("Maria Lima"))
+                .andExpect(jsonPath("$.content[1].customerName").value("maria 100% off"))
+                .andExpect(jsonPath("$.content[2].customerName").value("Maria Silva"));
+
+        // Curingas do LIKE no texto buscado são literais
+        mockMvc.perform(get("/api/admin/orders/search")
+                        .param("customer", "100%").param("from", "2200-01-01").param("to", "2200-12-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1));
+        mockMvc.perform(get("/api/admin/orders/search")
+                        .param("customer", "%_%").param("from", "2200-01-01").param("to", "2200-12-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(0));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void search_WithInvalidFilters_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/admin/orders/search").param("status", "PERDIDO"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/admin/orders/search").param("customer", "ma"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/admin/orders/search").param("from", "2200-02-01").param("to", "2200-01-01"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/admin/orders/search").param("after", "nao-e-um-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser
+    void search_WithoutAdminRole_ShouldBeForbidden() throws Exception {
+        mockMvc.perform(get("/api/admin/orders/search"))
+                .andExpect(status().isForbidden());
+    }
+
+    private void order(String customer, OrderStatus status, String source, String createdAt) {
+        OrderEntity order = new OrderEntity();
+        order.setId(UUID.randomUUID());
+        order.setStatus(status.name());
+        order.setSource(source);
+        order.setExternalId("BUSCA-" + UUID.randomUUID());
+        order.setCustomerName(customer);
+        order.setTotalAmount(BigDecimal.TEN);
+        order.setCreatedAt(Instant.parse(createdAt));
+        OrderItemEntity item = new OrderItemEntity();
+        item.setId(UUID.randomUUID());
+        item.setOrder(order);
+        item.setProduct(product);
+        item.setProductName(product.getName());
+        item.setQuantity(1);
+        item.setUnitPrice(BigDecimal.TEN);
+        item.setTotalPrice(BigDecimal.TEN);
+        order.getItems().add(item);
+        entityManager.persist(order);
+    }
+}
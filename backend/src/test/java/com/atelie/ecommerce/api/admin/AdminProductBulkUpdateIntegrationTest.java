@@ -0,0 +1,163 @@
+package com.atelie.ecommerce.api.admin;
+
+import com.atelie.ecommerce.domain.inventory.InventoryRepository;
+import com.atelie.ecommerce.domain.inventory.VariantStockBalanceRepository;
+import com.atelie.ecommerce.infrastructure.persistence.category.CategoryEntity;
+import com.atelie.ecommerce.infrastructure.persistence.category.CategoryRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantEntity;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.entity.ProductEntity;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+class AdminProductBulkUpdateIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private VariantStockBalanceRepository balanceRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private ProductVariantEntity small;
+    private ProductVariantEntity large;
+
+    @BeforeEach
+    void setUp() {
+        CategoryEntity category = categoryRepository.save(new CategoryEntity("Bulk " + UUID.randomUUID(), true));
+        ProductEntity product = productRepository.save(ProductEntity.builder()
+                .name("Vela de 7 dias").description("Desc").price(new BigDecimal("10.00"))
+                .active(true).category(category).build());
+        small = variantRepository.save(ProductVariantEntity.builder()
+                .product(product).sku("BULK-P-" + UUID.randomUUID()).price(new BigDecimal("10.00"))
+                .stockQuantity(4).active(true).build());
+        large = variantRepository.save(ProductVariantEntity.builder()
+                .product(product).sku("BULK-G-" + UUID.randomUUID()).price(new BigDecimal("15.00"))
+                .stockQuantity(1).active(true).build());
+        entityManager.flush();
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void bulkUpdate_ShouldApplyValidRowsAndReportErrorsByIndex() throws Exception {
+        String body = """
+                {"referenceId": "planilha-1", "items": [
+                  {"sku": "%s", "price": 12.50, "stockDelta": 6},
+                  {"variantId": "%s", "stockDelta": -3},
+                  {"sku": "NAO-EXISTE", "stockDelta": 1},
+                  {"sku": "%s", "price": 99},
+                  {"sku": "%s"}
+                ]}
+                """.formatted(small.getSku(), large.getId(), small.getSku(), large.getSku());
+
+        mockMvc.perform(post("/api/admin/products/bulk-update").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(5))
+                .andExpect(jsonPath("$.updated").value(1))
+                .andExpect(jsonPath("$.failed").value(4))
+                .andExpect(jsonPath("$.affectedProducts").value(1))
+                .andExpect(jsonPath("$.errors[0].index").value(4))
+                .andExpect(jsonPath("$.errors[1].index").value(1))
+                .andExpect(jsonPath("$.errors[2].index").value(2))
+                .andExpect(jsonPath("$.errors[3].index").value(3));
+
+        entityManager.clear();
+        ProductVariantEntity updated = variantRepository.findById(small.getId()).orElseThrow();
+        assertThat(updated.getPrice()).isEqualByComparingTo("12.50");
+        assertThat(updated.getStockQuantity()).isEqualTo(10);
+        // Saldo insuficiente: a variante grande não muda
+        assertThat(variantRepository.findById(large.getId()).orElseThrow().getStockQuantity()).isEqualTo(1);
+        assertThat(inventoryRepository.auditCalculatedStockByVariant(small.getId())).isEqualTo(6);
+        assertThat(balanceRepository.findBalance(small.getId())).contains(6);
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void bulkUpdate_ReplayWithSameReference_ShouldNotApplyStockTwice() throws Exception {
+        String body = """
+                {"referenceId": "fornecedor-%s", "items": [{"sku": "%s", "stockDelta": 2}]}
+                """.formatted(UUID.randomUUID(), small.getSku());
+
+        mockMvc.perform(post("/api/admin/products/bulk-update").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated").value(1));
+        mockMvc.perform(post("/api/admin/products/bulk-update").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated").value(0))
+                .andExpect(jsonPath("$.skipped").value(1));
+
+        entityManager.clear();
+        assertThat(variantRepository.findById(small.getId()).orElseThrow().getStockQuantity()).isEqualTo(6);
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void bulkUpdate_NegativeDeltaBelowReserved_ShouldFailOnlyThatRow() throws Exception {
+        // reserved_quantity só muda via SQL (StockReservationService)
+        entityManager.createNativeQuery("UPDATE product_variants SET reserved_quantity = 3 WHERE id = :id")
+                .setParameter("id", small.getId()).executeUpdate();
+        String body = """
+                {"referenceId": "ajuste-%s", "items": [
+                  {"sku": "%s", "stockDelta": -2},
+                  {"sku": "%s", "stockDelta": -1}
+                ]}
+                """.formatted(UUID.randomUUID(), small.getSku(), large.getSku());
+
+        mockMvc.perform(post("/api/admin/products/bulk-update").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated").value(1))
+                .andExpect(jsonPath("$.errors[0].index").value(0))
+                .andExpect(jsonPath("$.errors[0].message").value(containsString("disponível 1")));
+
+        entityManager.clear();
+        // 4 em estoque, 3 reservados: baixar 2 invadiria o reservado
+        assertThat(variantRepository.findById(small.getId()).orElseThrow().getStockQuantity()).isEqualTo(4);
+        assertThat(variantRepository.findById(large.getId()).orElseThrow().getStockQuantity()).isZero();
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void bulkUpdate_WithoutItems_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(post("/api/admin/products/bulk-update").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"items\": []}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").exists());
+    }
+}
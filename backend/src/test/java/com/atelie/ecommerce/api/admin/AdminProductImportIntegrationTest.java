@@ -0,0 +1,128 @@
+package com.atelie.ecommerce.api.admin;
+
+import com.atelie.ecommerce.infrastructure.persistence.category.CategoryEntity;
+import com.atelie.ecommerce.infrastructure.persistence.category.CategoryRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantEntity;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.entity.ProductEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+// Lotes pequenos para exercitar várias transações numa mesma carga
+@TestPropertySource(properties = "PRODUCT_IMPORT_CHUNK_SIZE=2")
+class AdminProductImportIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    private CategoryEntity category;
+
+    @BeforeEach
+    void setUp() {
+        category = categoryRepository.save(new CategoryEntity("Guias " + UUID.randomUUID(), true));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void importCsv_ShouldInsertValidRowsAndReportErrorsPerLine() throws Exception {
+        String csv = String.join("\n",
+                "name,description,price,category,stock,images,sku,attributes",
+                "Guia de Oxum,\"Guia dourada, 7 voltas\",49.90," + category.getName() + ",5,a.jpg|b.jpg,IMP-OXUM,cor=dourada;tamanho=m",
+                "Vela,Desc,abc," + category.getName() + ",1,,,",
+                "Incenso,Desc,10,Inexistente,1,,,",
+                "Guia Copia,Desc,10," + category.getName() + ",1,,IMP-OXUM,",
+                "Vela Branca,Desc,12.5," + category.getId() + ",3,,,");
+
+        mockMvc.perform(post("/api/admin/products/import").contentType("text/csv").content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.processed").value(5))
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.failed").value(3))
+                .andExpect(jsonPath("$.errors[0].line").value(3))
+                .andExpect(jsonPath("$.errors[1].line").value(4))
+                .andExpect(jsonPath("$.errors[2].line").value(5));
+
+        List<ProductEntity> imported = productRepository.findByCategory_Id(category.getId());
+        assertThat(imported).extracting(ProductEntity::getName).containsExactlyInAnyOrder("Guia de Oxum", "Vela Branca");
+
+        ProductEntity guia = imported.stream().filter(p -> p.getName().equals("Guia de Oxum")).findFirst().orElseThrow();
+        assertThat(guia.getDescription()).isEqualTo("Guia dourada, 7 voltas");
+        assertThat(guia.getImages()).containsExactly("a.jpg", "b.jpg");
+        assertThat(guia.getSlug()).startsWith("guia-de-oxum-");
+
+        List<ProductVariantEntity> guiaVariants = variantRepository.findByProductId(guia.getId());
+        assertThat(guiaVariants).singleElement().satisfies(v -> {
+            assertThat(v.getSku()).isEqualTo("IMP-OXUM");
+            assertThat(v.getGtin()).hasSize(13);
+            assertThat(v.getStockQuantity()).isEqualTo(5);
+            assertThat(v.getAttributesJson()).contains("dourada");
+        });
+
+        ProductEntity vela = imported.stream().filter(p -> p.getName().equals("Vela Branca")).findFirst().orElseThrow();
+        assertThat(variantRepository.findByProductId(vela.getId())).singleElement().satisfies(v -> {
+            assertThat(v.getSku()).startsWith("SKU-");
+            assertThat(v.getStockQuantity()).isEqualTo(3);
+        });
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void importNdjson_ShouldSupportMultipleVariantsAndRejectExistingSku() throws Exception {
+        String ndjson = String.join("\n",
+                "{\"name\":\"Colar\",\"price\":30,\"category\":\"" + category.getName() + "\",\"variants\":["
+                        + "{\"sku\":\"IMP-COLAR-P\",\"stock\":2,\"attributes\":{\"tamanho\":\"P\"}},"
+                        + "{\"sku\":\"IMP-COLAR-G\",\"price\":35,\"stock\":1,\"attributes\":{\"tamanho\":\"G\"}}]}",
+                "{\"name\": \"quebrado\"",
+                "",
+                "{\"name\":\"Colar 2\",\"price\":30,\"category\":\"" + category.getName() + "\",\"variants\":[{\"sku\":\"IMP-COLAR-P\"}]}");
+
+        mockMvc.perform(post("/api/admin/products/import").contentType("application/x-ndjson").content(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.processed").value(3))
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(2))
+                .andExpect(jsonPath("$.errors[1].line").value(4));
+
+        ProductEntity colar = productRepository.findByCategory_Id(category.getId()).get(0);
+        assertThat(variantRepository.findByProductId(colar.getId()))
+                .extracting(ProductVariantEntity::getSku)
+                .containsExactlyInAnyOrder("IMP-COLAR-P", "IMP-COLAR-G");
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void import_WithoutAdminRole_ShouldBeForbidden() throws Exception {
+        mockMvc.perform(post("/api/admin/products/import").contentType("text/csv").content("name\n"))
+                .andExpect(status().isForbidden());
+    }
+}
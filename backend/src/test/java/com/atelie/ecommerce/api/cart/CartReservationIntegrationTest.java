@@ -0,0 +1,234 @@
+package com.atelie.ecommerce.api.cart;
+
+import com.atelie.ecommerce.api.cart.dto.CartReservationItem;
+import com.atelie.ecommerce.api.cart.dto.CartReservationRequest;
+import com.atelie.ecommerce.api.common.exception.InsufficientStockException;
+import com.atelie.ecommerce.api.order.dto.CreateOrderItemRequest;
+import com.atelie.ecommerce.api.order.dto.CreateOrderRequest;
+import com.atelie.ecommerce.application.service.inventory.StockReservationService;
+import com.atelie.ecommerce.application.service.order.OrderService;
+import com.atelie.ecommerce.domain.inventory.ReservationStatus;
+import com.atelie.ecommerce.domain.inventory.StockReservationRepository;
+import com.atelie.ecommerce.infrastructure.persistence.inventory.entity.StockReservationEntity;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantEntity;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.entity.ProductEntity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.anonymous;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+@WithMockUser(username = "cliente-a")
+class CartReservationIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private StockReservationService reservationService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private ProductEntity product;
+    private ProductVariantEntity variant;
+
+    @BeforeEach
+    void setUp() {
+        product = productRepository.save(ProductEntity.builder()
+                .name("Reserva " + UUID.randomUUID())
+                .description("Desc")
+                .price(BigDecimal.TEN)
+                .active(true)
+                .build());
+        variant = variantRepository.save(ProductVariantEntity.builder()
+                .product(product)
+                .sku("RES-" + UUID.randomUUID())
+                .price(BigDecimal.TEN)
+                .stockQuantity(5)
+                .active(true)
+                .build());
+        entityManager.flush();
+    }
+
+    @Test
+    void reserve_ShouldHoldStockAgainstOtherCartsAndAnonymousOrders() throws Exception {
+        UUID cartA = UUID.randomUUID();
+        reserve(cartA, 4)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].quantity").value(4))
+                .andExpect(jsonPath("$[0].availableToSell").value(1));
+        // Reservar de novo ajusta em vez de somar
+        reserve(cartA, 3)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].availableToSell").value(2));
+        assertThat(reservedQuantity()).isEqualTo(3);
+
+        reserve(UUID.randomUUID(), 3)
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.errors['" + variant.getSku() + "']").value("solicitado 3, disponível 2"));
+
+        // Pedido sem carrinho só enxerga o que não está reservado
+        assertThatThrownBy(() -> orderService.createOrder(order(3, null)))
+                .isInstanceOf(InsufficientStockException.class);
+    }
+
+    @Test
+    void createOrder_WithCart_ShouldConvertReservation() throws Exception {
+        UUID cart = UUID.randomUUID();
+        reserve(cart, 5).andExpect(status().isOk());
+
+        orderService.createOrder(order(4, cart));
+
+        entityManager.clear();
+        ProductVariantEntity reloaded = variantRepository.findById(variant.getId()).orElseThrow();
+        assertThat(reloaded.getStockQuantity()).isEqualTo(1);
+        // A unidade reservada e não comprada volta a ficar disponível
+        assertThat(reloaded.getReservedQuantity()).isZero();
+        List<StockReservationEntity> reservations = reservationRepository.findAll().stream()
+                .filter(r -> r.getCartId().equals(cart)).toList();
+        assertThat(reservations).singleElement()
+                .satisfies(r -> assertThat(r.getStatus()).isEqualTo(ReservationStatus.CONVERTED));
+    }
+
+    @Test
+    void expire_ShouldReleaseOnlyReservationsPastTtl() throws Exception {
+        UUID cart = UUID.randomUUID();
+        reserve(cart, 2).andExpect(status().isOk());
+
+        assertThat(reservationService.expire(LocalDateTime.now())).isZero();
+        assertThat(reservedQuantity()).isEqualTo(2);
+
+        assertThat(reservationService.expire(LocalDateTime.now().plusHours(1))).isEqualTo(1);
+        assertThat(reservedQuantity()).isZero();
+        assertThat(reservationRepository.findByCartIdAndStatusOrderByCreatedAt(cart, ReservationStatus.ACTIVE)).isEmpty();
+    }
+
+    @Test
+    void release_ShouldReturnReservedUnits() throws Exception {
+        UUID cart = UUID.randomUUID();
+        reserve(cart, 5).andExpect(status().isOk());
+
+        mockMvc.perform(delete("/api/cart/" + cart + "/reservations"))
+                .andExpect(status().isNoContent());
+
+        assertThat(reservedQuantity()).isZero();
+    }
+
+    @Test
+    void cart_ShouldBelongToTheUserWhoReservedIt() throws Exception {
+        UUID cart = UUID.randomUUID();
+        reserve(cart, 2).andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/cart/" + cart + "/reservations"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].variantId").value(variant.getId().toString()))
+                .andExpect(jsonPath("$[0].quantity").value(2))
+                .andExpect(jsonPath("$[0].cartId").doesNotExist());
+
+        mockMvc.perform(get("/api/cart/" + cart + "/reservations").with(user("cliente-b")))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(delete("/api/cart/" + cart + "/reservations").with(user("cliente-b")))
+                .andExpect(status().isNotFound());
+        reserve(cart, 1, user("cliente-b")).andExpect(status().isNotFound());
+        reserve(UUID.randomUUID(), 1, anonymous()).andExpect(status().is4xxClientError());
+        assertThat(reservedQuantity()).isEqualTo(2);
+    }
+
+    @Test
+    void reserve_ShouldEnforcePerUserLimits() throws Exception {
+        // Mais que o teto por variante (10), mesmo sem estoque para isso
+        reserve(UUID.randomUUID(), 11).andExpect(status().isUnprocessableEntity());
+
+        // Teto de 3 carrinhos ativos por usuário
+        for (int i = 0; i < 3; i++) {
+            reserve(UUID.randomUUID(), 1).andExpect(status().isOk());
+        }
+        reserve(UUID.randomUUID(), 1).andExpect(status().isUnprocessableEntity());
+        assertThat(reservedQuantity()).isEqualTo(3);
+    }
+
+    @Test
+    void reserve_ShouldNotRenewPastMaximumHold() throws Exception {
+        UUID cart = UUID.randomUUID();
+        reserve(cart, 1).andExpect(status().isOk());
+        jdbc.update("UPDATE stock_reservations SET held_since = ? WHERE cart_id = ?",
+                java.sql.Timestamp.valueOf(LocalDateTime.now().minusHours(2)), cart);
+
+        reserve(cart, 1).andExpect(status().isUnprocessableEntity());
+    }
+
+    private org.springframework.test.web.servlet.ResultActions reserve(UUID cartId, int quantity,
+            org.springframework.test.web.servlet.request.RequestPostProcessor as) throws Exception {
+        CartReservationRequest request = new CartReservationRequest(
+                List.of(new CartReservationItem(variant.getId(), quantity)));
+        return mockMvc.perform(put("/api/cart/" + cartId + "/reservations").with(as)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)));
+    }
+
+    private org.springframework.test.web.servlet.ResultActions reserve(UUID cartId, int quantity) throws Exception {
+        CartReservationRequest request = new CartReservationRequest(
+                List.of(new CartReservationItem(variant.getId(), quantity)));
+        return mockMvc.perform(put("/api/cart/" + cartId + "/reservations")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)));
+    }
+
+    private CreateOrderRequest order(int quantity, UUID cartId) {
+        return new CreateOrderRequest("SITE", "RES-" + UUID.randomUUID(), "Cliente",
+                List.of(new CreateOrderItemRequest(product.getId(), variant.getId(), quantity)), cartId);
+    }
+
+    private int reservedQuantity() {
+        entityManager.clear();
+        return variantRepository.findById(variant.getId()).orElseThrow().getReservedQuantity();
+    }
+}
@@ -0,0 +1,166 @@
+package com.atelie.ecommerce.api.catalog.feed;
+
+import com.atelie.ecommerce.infrastructure.persistence.category.CategoryEntity;
+import com.atelie.ecommerce.infrastructure.persistence.category.CategoryRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantEntity;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.entity.ProductEntity;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+class CatalogFeedIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private String sku;
+
+    @BeforeEach
+    void setUp() {
+        CategoryEntity category = categoryRepository.save(new CategoryEntity("Feed " + UUID.randomUUID(), true));
+        ProductEntity product = productRepository.save(ProductEntity.builder()
+                .name("Guia de Ogum").description("Guia azul").price(new BigDecimal("40.00"))
+                .active(true).category(category).slug("guia-de-ogum-" + UUID.randomUUID()).build());
+        sku = "FEED-" + UUID.randomUUID();
+        variantRepository.save(ProductVariantEntity.builder()
+                .product(product).sku(sku).gtin("7890000000017").price(new BigDecimal("45.00"))
+                .stockQuantity(2).active(true).attributesJson("{\"cor\": \"azul\"}").build());
+        entityManager.flush();
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void generateNdjson_ShouldStreamOneLinePerVariant() throws Exception {
+        JsonNode feed = generate("ndjson", null);
+        assertThat(feed.get("items").asLong()).isPositive();
+
+        String body = mockMvc.perform(get(feed.get("url").asText()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        JsonNode item = body.lines().map(this::readTree)
+                .filter(n -> sku.equals(n.get("id").asText()))
+                .findFirst().orElseThrow();
+        assertThat(item.get("price").decimalValue()).isEqualByComparingTo("45.00");
+        assertThat(item.get("availability").asText()).isEqualTo("in_stock");
+        assertThat(item.get("gtin").asText()).isEqualTo("7890000000017");
+        assertThat(item.get("attributes").get("cor").asText()).isEqualTo("azul");
+        assertThat(item.get("link").asText()).startsWith("/produto/guia-de-ogum-");
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void generateXml_ShouldServeByteRangesAndStableAlias() throws Exception {
+        JsonNode feed = generate("xml", null);
+
+        String xml = mockMvc.perform(get("/api/feeds/catalog.xml"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertThat(xml).startsWith("<?xml").contains("<g:id>" + sku + "</g:id>").contains("45.00 BRL");
+
+        mockMvc.perform(get(feed.get("url").asText()).header(HttpHeaders.RANGE, "bytes=0-9"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_LENGTH, "10"));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void generate_WithWatermark_ShouldOnlyEmitChangedProducts() throws Exception {
+        JsonNode feed = generate("ndjson", LocalDateTime.now().plusDays(1));
+
+        assertThat(feed.get("items").asLong()).isZero();
+        assertThat(feed.get("fileName").asText()).contains("since-");
+        // Marca fica no passado (atraso de segurança) para pegar commits atrasados
+        assertThat(LocalDateTime.parse(feed.get("watermark").asText()))
+                .isBefore(LocalDateTime.now().minusMinutes(9));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void prune_ShouldKeepLatestFullFeedWhenDeltasExceedRetention() throws Exception {
+        generate("xml", null);
+        // Retenção padrão é 10: mais deltas do que isso
+        for (int i = 0; i < 12; i++) {
+            generate("ndjson", LocalDateTime.now().plusDays(1).plusMinutes(i));
+        }
+
+        mockMvc.perform(get("/api/feeds/catalog.xml"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void generate_WithUnknownFormat_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(post("/api/admin/feeds").param("format", "csv"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").exists());
+    }
+
+    @Test
+    void download_WithInvalidName_ShouldReturnNotFound() throws Exception {
+        mockMvc.perform(get("/api/feeds/catalog-..%2F..%2Fpom.xml"))
+                .andExpect(status().is4xxClientError());
+    }
+
+    private JsonNode generate(String format, LocalDateTime updatedSince) throws Exception {
+        var request = post("/api/admin/feeds").param("format", format);
+        if (updatedSince != null) {
+            request.param("updatedSince", updatedSince.toString());
+        }
+        String body = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    private JsonNode readTree(String line) {
+        try {
+            return objectMapper.readTree(line);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
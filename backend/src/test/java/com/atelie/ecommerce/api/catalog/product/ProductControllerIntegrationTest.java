@@ -1,10 +1,14 @@
 package com.atelie.ecommerce.api.catalog.product;
 
+import com.atelie.ecommerce.application.service.catalog.facet.CatalogFacetIndex;
+import com.atelie.ecommerce.application.service.catalog.product.CatalogVersion;
 import com.atelie.ecommerce.application.service.catalog.product.ProductService;
 import com.atelie.ecommerce.infrastructure.persistence.category.CategoryEntity;
 import com.atelie.ecommerce.infrastructure.persistence.category.CategoryRepository;
 import com.atelie.ecommerce.infrastructure.persistence.product.entity.ProductEntity;
 import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantEntity;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantRepository;
 import com.atelie.ecommerce.infrastructure.service.media.MediaStorageService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -45,9 +49,18 @@ public class ProductControllerIntegrationTest {
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private CatalogFacetIndex facetIndex;
+
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private CatalogVersion catalogVersion;
+
     @MockBean
     private MediaStorageService mediaStorageService;
 
@@ -144,4 +157,116 @@ public class ProductControllerIntegrationTest {
                 .andExpect(jsonPath("$", hasSize(1)))
                 .andExpect(jsonPath("$[0].name").value("Category Product"));
     }
+
+    @Test
+    void facets_ShouldCombineCategoryAttributeAndStockFilters() throws Exception {
+        CategoryEntity guias = categoryRepository.save(new CategoryEntity("Guias " + UUID.randomUUID(), true));
+        ProductEntity blue = productRepository.save(ProductEntity.builder()
+                .name("Guia Azul").description("Desc").price(new BigDecimal("40.00"))
+                .category(guias).active(true).build());
+        ProductEntity white = productRepository.save(ProductEntity.builder()
+                .name("Guia Branca").description("Desc").price(new BigDecimal("40.00"))
+                .category(guias).active(true).build());
+        variantRepository.save(ProductVariantEntity.builder().product(blue).sku("FACET-AZUL")
+                .stockQuantity(2).active(true).attributesJson("{\"cor\":\"azul\"}").build());
+        variantRepository.save(ProductVariantEntity.builder().product(white).sku("FACET-BRANCA")
+                .stockQuantity(0).active(true).attributesJson("{\"cor\":\"branca\"}").build());
+        facetIndex.invalidate();
+
+        mockMvc.perform(get("/api/products/facets")
+                .param("categoryId", guias.getId().toString())
+                .param("attr", "cor:azul", "cor:branca"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(2))
+                .andExpect(jsonPath("$.attributes.cor.azul").value(1))
+                .andExpect(jsonPath("$.inStock").value(1));
+
+        mockMvc.perform(get("/api/products/facets")
+                .param("attr", "cor:azul", "cor:branca")
+                .param("inStock", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].name").value("Guia Azul"));
+
+        mockMvc.perform(get("/api/products/facets").param("price", "1-2"))
+                .andExpect(status().isBadRequest());
+
+        facetIndex.invalidate();
+    }
+
+    @Test
+    void getAll_WithCursor_ShouldReturnNextCursorUntilLastPage() throws Exception {
+        java.time.LocalDateTime base = java.time.LocalDateTime.of(2026, 1, 1, 10, 0);
+        for (int i = 0; i < 3; i++) {
+            productRepository.save(ProductEntity.builder()
+                    .name("Cursor " + i).description("Desc").price(BigDecimal.TEN)
+                    .active(true).createdAt(base.plusMinutes(i)).build());
+        }
+
+        String body = mockMvc.perform(get("/api/products").param("after", "").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(2)))
+                .andExpect(jsonPath("$.content[0].name").value("Cursor 2"))
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                .andReturn().getResponse().getContentAsString();
+        String next = objectMapper.readTree(body).get("nextCursor").asText();
+
+        mockMvc.perform(get("/api/products").param("after", next).param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].name").value("Cursor 0"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void getById_WithMatchingETag_ShouldReturn304UntilProductChanges() throws Exception {
+        ProductEntity product = productRepository.save(ProductEntity.builder()
+                .name("Vela Condicional").description("Desc").price(BigDecimal.TEN)
+                .stockQuantity(5).active(true).build());
+
+        String etag = mockMvc.perform(get("/api/products/{id}", product.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("Last-Modified"))
+                .andExpect(header().string("Cache-Control", containsString("no-cache")))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/products/{id}", product.getId()).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        product.setStockQuantity(4);
+        productRepository.saveAndFlush(product);
+
+        mockMvc.perform(get("/api/products/{id}", product.getId()).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)));
+    }
+
+    @Test
+    void listing_WithMatchingETag_ShouldReturn304UntilCatalogVersionChanges() throws Exception {
+        String etag = mockMvc.perform(get("/api/products/summary").param("size", "5"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/products/summary").param("size", "5").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        // Outra página, outro ETag
+        mockMvc.perform(get("/api/products/summary").param("size", "6").header("If-None-Match", etag))
+                .andExpect(status().isOk());
+
+        catalogVersion.bump();
+
+        mockMvc.perform(get("/api/products/summary").param("size", "5").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)));
+    }
+
+    @Test
+    void downloadPublicMedia_WithMatchingETag_ShouldSkipStorage() throws Exception {
+        mockMvc.perform(get("/api/media/public/{id}", 42).header("If-None-Match", "\"media-42\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("Cache-Control", containsString("immutable")));
+
+        org.mockito.Mockito.verifyNoInteractions(mediaStorageService);
+    }
 }
@@ -0,0 +1,128 @@
+package com.atelie.ecommerce.api.catalog.product;
+
+import com.atelie.ecommerce.infrastructure.persistence.category.CategoryEntity;
+import com.atelie.ecommerce.infrastructure.persistence.category.CategoryRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantEntity;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.entity.ProductEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Garante que a listagem da vitrine não volte a ter N+1: a quantidade de
+ * consultas por página deve ser constante, independente do número de itens.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+class ProductListingQueryCountTest {
+
+    private static final int PRODUCTS = 12;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private CategoryEntity category;
+
+    @BeforeEach
+    void setUp() {
+        variantRepository.deleteAll();
+        productRepository.deleteAll();
+
+        category = categoryRepository.save(new CategoryEntity("Listagem " + UUID.randomUUID(), true));
+
+        for (int i = 0; i < PRODUCTS; i++) {
+            ProductEntity product = ProductEntity.builder()
+                    .name("Produto " + i)
+                    .description("Desc")
+                    .price(new BigDecimal("10.00"))
+                    .active(true)
+                    .category(category)
+                    .images(new ArrayList<>(List.of("img-" + i + "-a.jpg", "img-" + i + "-b.jpg")))
+                    .build();
+            productRepository.save(product);
+
+            variantRepository.save(ProductVariantEntity.builder()
+                    .product(product).sku("LIST-" + i + "-P").price(new BigDecimal("8.00"))
+                    .stockQuantity(0).active(true).build());
+            variantRepository.save(ProductVariantEntity.builder()
+                    .product(product).sku("LIST-" + i + "-G").price(new BigDecimal("15.00"))
+                    .stockQuantity(3).active(true).build());
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void summaryListing_ShouldUseConstantNumberOfQueries() throws Exception {
+        Statistics statistics = statistics();
+
+        mockMvc.perform(get("/api/products/summary").param("size", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(PRODUCTS)))
+                .andExpect(jsonPath("$.content[0].minPrice").value(8.00))
+                .andExpect(jsonPath("$.content[0].maxPrice").value(15.00))
+                .andExpect(jsonPath("$.content[0].inStock").value(true))
+                .andExpect(jsonPath("$.content[0].imageUrl").isNotEmpty());
+
+        // versão do catálogo (produtos + variantes, p/ ETag) + página + count + imagens da página
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(5);
+    }
+
+    @Test
+    void entityListing_ShouldBatchLoadCollections() throws Exception {
+        Statistics statistics = statistics();
+
+        mockMvc.perform(get("/api/products").param("categoryId", category.getId().toString()).param("size", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(PRODUCTS)));
+
+        // Antes do @BatchSize eram 1 + 2N consultas (25 para 12 produtos)
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(PRODUCTS);
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+}
@@ -1,27 +1,45 @@
 package com.atelie.ecommerce.api.inventory;
 
+import com.atelie.ecommerce.api.common.exception.InsufficientStockException;
 import com.atelie.ecommerce.api.inventory.dto.InventoryAdjustmentRequest;
+import com.atelie.ecommerce.api.inventory.dto.InventoryAvailabilityRequest;
+import com.atelie.ecommerce.api.inventory.dto.InventoryBatchItem;
+import com.atelie.ecommerce.api.inventory.dto.InventoryBatchRequest;
+import com.atelie.ecommerce.application.service.inventory.InventoryCheckpointService;
+import com.atelie.ecommerce.application.service.inventory.InventoryPartitionService;
+import com.atelie.ecommerce.application.service.inventory.InventoryReconciliationReport;
+import com.atelie.ecommerce.application.service.inventory.InventoryReconciler;
+import com.atelie.ecommerce.application.service.inventory.InventoryService;
+import com.atelie.ecommerce.domain.inventory.InventoryCheckpointRepository;
 import com.atelie.ecommerce.domain.inventory.MovementType;
 import com.atelie.ecommerce.domain.inventory.InventoryRepository;
+import com.atelie.ecommerce.domain.inventory.InventoryRollupRepository;
+import com.atelie.ecommerce.domain.inventory.VariantStockBalanceRepository;
 import com.atelie.ecommerce.infrastructure.persistence.inventory.entity.InventoryMovementEntity;
 import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository;
 import com.atelie.ecommerce.infrastructure.persistence.product.entity.ProductEntity;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -48,6 +66,33 @@ class InventoryControllerIntegrationTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InventoryCheckpointService checkpointService;
+
+    @Autowired
+    private InventoryCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private InventoryReconciler reconciler;
+
+    @Autowired
+    private VariantStockBalanceRepository balanceRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private InventoryPartitionService partitionService;
+
+    @Autowired
+    private InventoryRollupRepository rollupRepository;
+
     private UUID variantId;
     private ProductEntity product;
 
@@ -124,4 +169,205 @@ class InventoryControllerIntegrationTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.currentStock").value(7));
     }
+
+    @Test
+    void addMovement_ShouldKeepMaterializedBalanceInSync() {
+        inventoryService.addMovement(variantId, MovementType.IN, 10, "Compra", null);
+        inventoryService.addMovement(variantId, MovementType.OUT, 4, "Venda", null);
+        inventoryService.addMovement(variantId, MovementType.RESERVED, 2, "Carrinho", null);
+
+        assertThat(balanceRepository.findBalance(variantId)).contains(6);
+        assertThat(inventoryService.getStock(variantId)).isEqualTo(6);
+        assertThat(stockQuantity(variantId)).isEqualTo(6);
+    }
+
+    @Test
+    void addMovement_OutBelowReserved_ShouldBeRejected() {
+        inventoryService.addMovement(variantId, MovementType.IN, 5, "Compra", null);
+        jdbc.update("UPDATE product_variants SET reserved_quantity = 3 WHERE id = ?", variantId);
+
+        assertThatThrownBy(() -> inventoryService.addMovement(variantId, MovementType.OUT, 3, "Avaria", null))
+                .isInstanceOf(InsufficientStockException.class);
+        inventoryService.addMovement(variantId, MovementType.OUT, 2, "Avaria", null);
+
+        assertThat(stockQuantity(variantId)).isEqualTo(3);
+        assertThat(inventoryService.getStock(variantId)).isEqualTo(3);
+    }
+
+    @Test
+    void auditStock_ShouldSumOnlyMovementsAfterLatestCheckpoint() throws InterruptedException {
+        inventoryService.addMovement(variantId, MovementType.IN, 10, "Compra", null);
+        Thread.sleep(5);
+        LocalDateTime cutoff = LocalDateTime.now();
+        Thread.sleep(5);
+
+        assertThat(checkpointService.createCheckpoints(cutoff)).isEqualTo(1);
+        // Nada novo desde o checkpoint: nenhuma linha a mais
+        assertThat(checkpointService.createCheckpoints(cutoff)).isZero();
+        assertThat(checkpointRepository.findFirstByVariantIdOrderByCutoffAtDesc(variantId))
+                .hasValueSatisfying(c -> assertThat(c.getBalance()).isEqualTo(10));
+
+        inventoryService.addMovement(variantId, MovementType.OUT, 3, "Venda", null);
+
+        // Checkpoint (10) + cauda após o corte (-3)
+        assertThat(inventoryRepository.sumByVariantAfter(variantId, cutoff)).isEqualTo(-3);
+        assertThat(inventoryService.auditStock(variantId)).isEqualTo(7);
+        assertThat(inventoryService.getStock(variantId)).isEqualTo(7);
+    }
+
+    @Test
+    void reconcile_ShouldReportStockQuantityDriftButNotBalanceDrift() {
+        entityManager.flush();
+        // Estoque gravado por fora do razão (carga antiga)
+        jdbc.update("UPDATE product_variants SET stock_quantity = 3 WHERE id = ?", variantId);
+        inventoryService.addMovement(variantId, MovementType.IN, 5, "Compra", null);
+
+        InventoryReconciliationReport report = reconciler.reconcile();
+
+        InventoryReconciliationReport.StockDrift drift = report.drifts().stream()
+                .filter(d -> d.variantId().equals(variantId))
+                .findFirst().orElseThrow();
+        assertThat(drift.ledger()).isEqualTo(5);
+        assertThat(drift.balance()).isEqualTo(5);
+        // Divergência reportada, não corrigida
+        assertThat(drift.stockQuantity()).isEqualTo(8);
+        assertThat(report.stockDrifts()).isPositive();
+    }
+
+    @Test
+    @WithMockUser
+    void adjustStockBatch_ShouldApplyLinesAndReportDuplicatesAndFailures() throws Exception {
+        var other = variantRepository.save(com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantEntity
+                .builder().product(product).sku("INV-TEST-SKU-2").price(BigDecimal.TEN).active(true).build());
+        entityManager.flush();
+
+        InventoryBatchRequest request = new InventoryBatchRequest(List.of(
+                new InventoryBatchItem(variantId, MovementType.IN, 10, "NF 123", "NF-123"),
+                new InventoryBatchItem(other.getId(), MovementType.IN, 4, "NF 123", "NF-123"),
+                new InventoryBatchItem(variantId, MovementType.IN, 10, "NF 123", "NF-123"),
+                new InventoryBatchItem(variantId, MovementType.OUT, 2, "Avaria", null),
+                new InventoryBatchItem(UUID.randomUUID(), MovementType.IN, 1, null, null),
+                new InventoryBatchItem(other.getId(), MovementType.IN, 0, null, null)));
+
+        mockMvc.perform(post("/api/inventory/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied").value(3))
+                .andExpect(jsonPath("$.duplicates").value(1))
+                .andExpect(jsonPath("$.failed").value(2))
+                .andExpect(jsonPath("$.results[2].status").value("DUPLICATE"))
+                .andExpect(jsonPath("$.results[4].status").value("FAILED"))
+                .andExpect(jsonPath("$.results[5].error").value("quantity must be > 0"));
+
+        assertThat(inventoryService.getStock(variantId)).isEqualTo(8);
+        assertThat(inventoryService.getStock(other.getId())).isEqualTo(4);
+        assertThat(stockQuantity(variantId)).isEqualTo(8);
+        assertThat(stockQuantity(other.getId())).isEqualTo(4);
+
+        // Reenvio da mesma nota não duplica a entrada
+        mockMvc.perform(post("/api/inventory/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new InventoryBatchRequest(request.items().subList(0, 2)))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied").value(0))
+                .andExpect(jsonPath("$.duplicates").value(2));
+        assertThat(inventoryService.getStock(variantId)).isEqualTo(8);
+    }
+
+    @Test
+    @WithMockUser
+    void adjustStockBatch_OutBelowReserved_ShouldFailOnlyThatLine() throws Exception {
+        entityManager.flush();
+        jdbc.update("UPDATE product_variants SET stock_quantity = 5, reserved_quantity = 2 WHERE id = ?", variantId);
+
+        InventoryBatchRequest request = new InventoryBatchRequest(List.of(
+                new InventoryBatchItem(variantId, MovementType.OUT, 2, "Avaria", "AV-1"),
+                new InventoryBatchItem(variantId, MovementType.OUT, 2, "Avaria", "AV-2"),
+                new InventoryBatchItem(variantId, MovementType.IN, 1, "Devolução", "DEV-1")));
+
+        mockMvc.perform(post("/api/inventory/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied").value(2))
+                .andExpect(jsonPath("$.results[1].status").value("FAILED"))
+                .andExpect(jsonPath("$.results[1].error").value("Estoque insuficiente para INV-TEST-SKU: disponível 1"));
+
+        assertThat(stockQuantity(variantId)).isEqualTo(4);
+    }
+
+    @Test
+    @WithMockUser
+    void adjustStockBatch_WithoutItems_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(post("/api/inventory/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"items\":[]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("items é obrigatório"));
+    }
+
+    @Test
+    void getAvailability_ShouldAnswerManyVariantsWithoutAuthentication() throws Exception {
+        var reserved = variantRepository.save(com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantEntity
+                .builder().product(product).sku("INV-AVAIL-1").price(BigDecimal.TEN).stockQuantity(10).active(true).build());
+        var soldOut = variantRepository.save(com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantEntity
+                .builder().product(product).sku("INV-AVAIL-2").price(BigDecimal.TEN).stockQuantity(2).active(true).build());
+        entityManager.flush();
+        // 3 em carrinhos + 2 de cota hot SKU ainda à venda
+        jdbc.update("UPDATE product_variants SET reserved_quantity = 5 WHERE id = ?", reserved.getId());
+        jdbc.update("INSERT INTO stock_leases (id, variant_id, node_id, quantity, renewed_at) VALUES (?, ?, ?, ?, ?)",
+                UUID.randomUUID(), reserved.getId(), "node-a", 2, LocalDateTime.now());
+        jdbc.update("UPDATE product_variants SET reserved_quantity = 2 WHERE id = ?", soldOut.getId());
+        UUID unknown = UUID.randomUUID();
+
+        mockMvc.perform(post("/api/inventory/availability")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new InventoryAvailabilityRequest(
+                        List.of(reserved.getId(), soldOut.getId(), unknown)))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['" + reserved.getId() + "']").value(7))
+                .andExpect(jsonPath("$['" + soldOut.getId() + "']").value(0))
+                .andExpect(jsonPath("$['" + unknown + "']").doesNotExist());
+    }
+
+    @Test
+    void rollupClosedMonths_ShouldChainBalancesAndServeAuditWithoutOldMovements() {
+        entityManager.flush();
+        LocalDate thisMonth = LocalDate.now().withDayOfMonth(1);
+        movement(MovementType.IN, 10, thisMonth.minusMonths(3).atTime(10, 0));
+        movement(MovementType.OUT, 3, thisMonth.minusMonths(2).atTime(10, 0));
+        movement(MovementType.IN, 5, thisMonth.minusMonths(2).plusDays(5).atTime(10, 0));
+        jdbc.update("UPDATE product_variants SET stock_quantity = 12 WHERE id = ?", variantId);
+        inventoryService.addMovement(variantId, MovementType.OUT, 1, "Venda", null);
+
+        assertThat(partitionService.rollupClosedMonths(LocalDateTime.now())).isEqualTo(2);
+        // Já fechados: nada a refazer
+        assertThat(partitionService.rollupClosedMonths(LocalDateTime.now())).isZero();
+
+        var rollups = rollupRepository.findByVariantIdOrderByMonthStart(variantId);
+        assertThat(rollups).hasSize(2);
+        assertThat(rollups.get(0).getClosingBalance()).isEqualTo(10);
+        assertThat(rollups.get(1).getMonthStart()).isEqualTo(thisMonth.minusMonths(2));
+        assertThat(rollups.get(1).getOpeningBalance()).isEqualTo(10);
+        assertThat(rollups.get(1).getQtyIn()).isEqualTo(5);
+        assertThat(rollups.get(1).getQtyOut()).isEqualTo(3);
+        assertThat(rollups.get(1).getClosingBalance()).isEqualTo(12);
+
+        // Partições fechadas arquivadas: a auditoria não depende mais delas
+        jdbc.update("DELETE FROM inventory_movements WHERE variant_id = ? AND created_at < ?", variantId,
+                thisMonth.minusMonths(1).atStartOfDay());
+        entityManager.clear();
+        assertThat(inventoryService.auditStock(variantId)).isEqualTo(11);
+    }
+
+    private int stockQuantity(UUID id) {
+        return jdbc.queryForObject("SELECT stock_quantity FROM product_variants WHERE id = ?", Integer.class, id);
+    }
+
+    private void movement(MovementType type, int quantity, LocalDateTime createdAt) {
+        jdbc.update("INSERT INTO inventory_movements (id, product_id, variant_id, type, quantity, reason, created_at) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)", UUID.randomUUID(), product.getId(), variantId, type.name(), quantity,
+                "Histórico", createdAt);
+    }
 }
@@ -2,9 +2,12 @@ package com.atelie.ecommerce.api.order;
 
 import com.atelie.ecommerce.api.order.dto.CreateOrderItemRequest;
 import com.atelie.ecommerce.api.order.dto.CreateOrderRequest;
+import com.atelie.ecommerce.application.service.order.OrderService;
 import com.atelie.ecommerce.domain.inventory.MovementType;
+import com.atelie.ecommerce.domain.inventory.VariantStockBalanceRepository;
 import com.atelie.ecommerce.domain.order.OrderStatus;
 import com.atelie.ecommerce.infrastructure.persistence.inventory.entity.InventoryMovementEntity;
+import com.atelie.ecommerce.infrastructure.persistence.inventory.entity.VariantStockBalanceEntity;
 import com.atelie.ecommerce.domain.inventory.InventoryRepository;
 import com.atelie.ecommerce.infrastructure.persistence.order.OrderEntity;
 import com.atelie.ecommerce.infrastructure.persistence.order.OrderRepository;
@@ -13,6 +16,7 @@ import com.atelie.ecommerce.infrastructure.persistence.product.entity.ProductEnt
 import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantRepository;
 import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantEntity;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,10 +29,13 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put; // Check if correct method is used for status updates, assuming controller has methods
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -55,6 +62,15 @@ class OrderControllerIntegrationTest {
     @Autowired
     private InventoryRepository inventoryRepository;
 
+    @Autowired
+    private VariantStockBalanceRepository balanceRepository;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private EntityManager entityManager;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -80,6 +96,7 @@ class OrderControllerIntegrationTest {
                 .product(product)
                 .sku("SKU-123")
                 .price(new BigDecimal("100.00"))
+                .stockQuantity(10)
                 .active(true)
                 .build();
         variantRepository.save(variant);
@@ -92,6 +109,10 @@ class OrderControllerIntegrationTest {
         initialStock.setProduct(product);
         initialStock.setReason("Initial");
         inventoryRepository.save(initialStock);
+        // Saldo materializado junto do razão (como V13 deixa as variantes existentes)
+        balanceRepository.save(new VariantStockBalanceEntity(variant.getId(), 10, LocalDateTime.now()));
+        // A baixa de estoque lê as variantes via JDBC
+        entityManager.flush();
     }
 
     @Test
@@ -119,5 +140,85 @@ class OrderControllerIntegrationTest {
         // Verify Inventory Deduction
         int stock = inventoryRepository.auditCalculatedStockByVariant(variant.getId());
         assertThat(stock).isEqualTo(8); // 10 - 2
+
+        entityManager.clear();
+        assertThat(variantRepository.findById(variant.getId()).orElseThrow().getStockQuantity()).isEqualTo(8);
+        assertThat(balanceRepository.findBalance(variant.getId())).contains(8);
+    }
+
+    @Test
+    @WithMockUser
+    void createOrder_InsufficientStock_ShouldRejectWholeOrderWithShortages() throws Exception {
+        ProductVariantEntity scarce = variantRepository.saveAndFlush(ProductVariantEntity.builder()
+                .product(product)
+                .sku("SKU-SCARCE")
+                .price(new BigDecimal("50.00"))
+                .stockQuantity(1)
+                .active(true)
+                .build());
+        // Mesma variante em duas linhas: 6 + 6 > 10 só aparece somando
+        CreateOrderRequest request = new CreateOrderRequest("SITE", "ORDER-EXT-002", "Customer B", List.of(
+                new CreateOrderItemRequest(product.getId(), variant.getId(), 6),
+                new CreateOrderItemRequest(product.getId(), variant.getId(), 6),
+                new CreateOrderItemRequest(product.getId(), scarce.getId(), 2)));
+
+        mockMvc.perform(post("/api/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.errors['SKU-123']").value("solicitado 12, disponível 10"))
+                .andExpect(jsonPath("$.errors['SKU-SCARCE']").value("solicitado 2, disponível 1"));
+
+        entityManager.clear();
+        assertThat(variantRepository.findById(variant.getId()).orElseThrow().getStockQuantity()).isEqualTo(10);
+        assertThat(variantRepository.findById(scarce.getId()).orElseThrow().getStockQuantity()).isEqualTo(1);
+        assertThat(inventoryRepository.auditCalculatedStockByVariant(variant.getId())).isEqualTo(10);
+    }
+
+    @Test
+    void cancelOrder_ShouldReturnStockToVariant() {
+        OrderEntity order = orderService.createOrder(new CreateOrderRequest("SITE", "ORDER-EXT-003", "Customer C",
+                List.of(new CreateOrderItemRequest(product.getId(), variant.getId(), 3))));
+
+        orderService.cancelOrder(order.getId(), "Pagamento recusado");
+
+        entityManager.clear();
+        assertThat(variantRepository.findById(variant.getId()).orElseThrow().getStockQuantity()).isEqualTo(10);
+        assertThat(inventoryRepository.auditCalculatedStockByVariant(variant.getId())).isEqualTo(10);
+        assertThat(balanceRepository.findBalance(variant.getId())).contains(10);
+    }
+
+    @Test
+    @WithMockUser
+    void getAllOrders_WithCursor_ShouldWalkPagesWithoutTotals() throws Exception {
+        Instant base = Instant.parse("2026-01-01T10:00:00Z");
+        for (int i = 0; i < 3; i++) {
+            OrderEntity order = new OrderEntity();
+            order.setId(UUID.randomUUID());
+            order.setStatus(OrderStatus.PENDING.name());
+            order.setSource("SITE");
+            order.setCustomerName("Cliente " + i);
+            order.setTotalAmount(BigDecimal.TEN);
+            order.setCreatedAt(base.plusSeconds(i));
+            orderRepository.save(order);
+        }
+
+        String body = mockMvc.perform(get("/api/orders").param("after", "").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content[0].customerName").value("Cliente 2"))
+                .andExpect(jsonPath("$.totalElements").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                .andReturn().getResponse().getContentAsString();
+        String next = objectMapper.readTree(body).get("nextCursor").asText();
+
+        mockMvc.perform(get("/api/orders").param("after", next).param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].customerName").value("Cliente 0"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+        mockMvc.perform(get("/api/orders").param("after", "nao-e-um-cursor"))
+                .andExpect(status().isBadRequest());
     }
 }
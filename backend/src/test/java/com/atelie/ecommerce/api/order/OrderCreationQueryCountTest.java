@@ -0,0 +1,135 @@
+package com.atelie.ecommerce.api.order;
+
+import com.atelie.ecommerce.api.order.dto.CreateOrderItemRequest;
+import com.atelie.ecommerce.api.order.dto.CreateOrderRequest;
+import com.atelie.ecommerce.application.service.order.OrderService;
+import com.atelie.ecommerce.infrastructure.persistence.order.OrderEntity;
+import com.atelie.ecommerce.infrastructure.persistence.order.OrderItemEntity;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantEntity;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.entity.ProductEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Garante que a criação de pedido não volte a ter N+1: as consultas via
+ * Hibernate por pedido não crescem com o número de itens (baixa de estoque e
+ * movimentações já saem em batch via JDBC pelo OrderStockEngine). A latência
+ * por tamanho de pedido é medida em src/test/resources/bench/order_creation_bench.sql.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class OrderCreationQueryCountTest {
+
+    private static final int PRODUCTS = 10;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final List<ProductEntity> products = new ArrayList<>();
+    private final List<ProductVariantEntity> variants = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < PRODUCTS; i++) {
+            ProductEntity product = productRepository.save(ProductEntity.builder()
+                    .name("Pedido " + i)
+                    .description("Desc")
+                    .price(new BigDecimal("20.00"))
+                    .active(true)
+                    .images(new ArrayList<>(List.of("img-" + i + "-a.jpg", "img-" + i + "-b.jpg")))
+                    .build());
+            products.add(product);
+            variants.add(variantRepository.save(ProductVariantEntity.builder()
+                    .product(product).sku("ORD-" + i + "-" + UUID.randomUUID()).price(new BigDecimal("12.50"))
+                    .stockQuantity(100_000).active(true).build()));
+            // Segunda variante sem preço: cai no preço do produto
+            variantRepository.save(ProductVariantEntity.builder()
+                    .product(product).sku("ORD-" + i + "-B-" + UUID.randomUUID())
+                    .stockQuantity(100_000).active(true).build());
+        }
+        // A baixa de estoque lê as variantes via JDBC
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void createOrder_ShouldUseConstantNumberOfQueries() {
+        Statistics statistics = statistics();
+
+        long single = statementsFor(1);
+        long ten = statementsFor(PRODUCTS);
+
+        // produtos + variantes + INSERT do pedido + INSERT dos itens (um batch)
+        assertThat(single).isLessThanOrEqualTo(4);
+        assertThat(ten).isEqualTo(single);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void createOrder_ShouldPriceInMemoryAndFallBackToDefaultVariant() {
+        OrderEntity order = orderService.createOrder(new CreateOrderRequest("SITE", null, "Cliente", List.of(
+                new CreateOrderItemRequest(products.get(0).getId(), variants.get(0).getId(), 2),
+                new CreateOrderItemRequest(products.get(1).getId(), null, 3))));
+        entityManager.flush();
+
+        assertThat(order.getTotalAmount()).isEqualByComparingTo("62.50");
+        OrderItemEntity fallback = order.getItems().get(1);
+        assertThat(fallback.getVariant().getId()).isEqualTo(variants.get(1).getId());
+        assertThat(fallback.getProductName()).isEqualTo("Pedido 1");
+        assertThat(fallback.getTotalPrice()).isEqualByComparingTo("37.50");
+    }
+
+    /** Consultas via Hibernate de um pedido com {@code size} itens, incluindo o flush. */
+    private long statementsFor(int size) {
+        Statistics statistics = statistics();
+        orderService.createOrder(request(size));
+        entityManager.flush();
+        long count = statistics.getPrepareStatementCount();
+        entityManager.clear();
+        return count;
+    }
+
+    private CreateOrderRequest request(int size) {
+        List<CreateOrderItemRequest> items = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            items.add(new CreateOrderItemRequest(products.get(i).getId(), variants.get(i).getId(), 1));
+        }
+        return new CreateOrderRequest("SITE", null, "Cliente", items);
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+}
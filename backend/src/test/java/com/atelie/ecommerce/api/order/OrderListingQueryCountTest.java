@@ -0,0 +1,134 @@
+package com.atelie.ecommerce.api.order;
+
+import com.atelie.ecommerce.domain.order.OrderStatus;
+import com.atelie.ecommerce.infrastructure.persistence.order.OrderEntity;
+import com.atelie.ecommerce.infrastructure.persistence.order.OrderItemEntity;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.entity.ProductEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Garante que a listagem de pedidos não volte a ter N+1: pedidos da página +
+ * itens de todos eles, sem carregar produto (e suas coleções) por item.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+@WithMockUser
+class OrderListingQueryCountTest {
+
+    private static final int ORDERS = 20;
+    private static final int ITEMS = 3;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        List<ProductEntity> products = new ArrayList<>();
+        for (int i = 0; i < ITEMS; i++) {
+            products.add(productRepository.save(ProductEntity.builder()
+                    .name("Listagem " + i)
+                    .description("Desc")
+                    .price(BigDecimal.TEN)
+                    .active(true)
+                    .images(new ArrayList<>(List.of("img-" + i + ".jpg")))
+                    .build()));
+        }
+        // No futuro: a página mais recente é toda deste teste
+        Instant base = Instant.parse("2100-01-01T00:00:00Z");
+        for (int o = 0; o < ORDERS; o++) {
+            OrderEntity order = new OrderEntity();
+            order.setId(UUID.randomUUID());
+            order.setStatus(OrderStatus.PENDING.name());
+            order.setSource("SITE");
+            order.setCustomerName("Cliente " + o);
+            order.setTotalAmount(new BigDecimal("30.00"));
+            order.setCreatedAt(base.plusSeconds(o));
+            for (int i = 0; i < ITEMS; i++) {
+                OrderItemEntity item = new OrderItemEntity();
+                item.setId(UUID.randomUUID());
+                item.setOrder(order);
+                item.setProduct(products.get(i));
+                // Pedido antigo sem product_name: cai no nome do produto
+                item.setProductName(o == 0 && i == 0 ? null : "Vendido " + i);
+                item.setQuantity(1);
+                item.setUnitPrice(BigDecimal.TEN);
+                item.setTotalPrice(BigDecimal.TEN);
+                order.getItems().add(item);
+            }
+            entityManager.persist(order);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void offsetListing_ShouldUseConstantNumberOfQueries() throws Exception {
+        Statistics statistics = statistics();
+
+        mockMvc.perform(get("/api/orders").param("size", String.valueOf(ORDERS)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(ORDERS)))
+                .andExpect(jsonPath("$.content[0].customerName").value("Cliente " + (ORDERS - 1)))
+                .andExpect(jsonPath("$.content[0].items", hasSize(ITEMS)))
+                .andExpect(jsonPath("$.content[" + (ORDERS - 1) + "].items[?(@.productName == 'Listagem 0')]").exists());
+
+        // página + count + itens da página; antes eram 1 + N (itens) + produtos e suas coleções
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(3);
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(ORDERS);
+    }
+
+    @Test
+    void cursorListing_ShouldUseConstantNumberOfQueries() throws Exception {
+        Statistics statistics = statistics();
+
+        mockMvc.perform(get("/api/orders").param("after", "").param("size", String.valueOf(ORDERS)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(ORDERS)))
+                .andExpect(jsonPath("$.content[0].items", hasSize(ITEMS)));
+
+        // página (com 1 de lookahead) + itens da página
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+}
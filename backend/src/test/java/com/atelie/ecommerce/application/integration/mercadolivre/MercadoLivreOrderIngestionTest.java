@@ -0,0 +1,353 @@
+package com.atelie.ecommerce.application.integration.mercadolivre;
+
+import com.atelie.ecommerce.api.config.DynamicConfigService;
+import com.atelie.ecommerce.domain.order.event.MercadoLivreOrderNotifiedEvent;
+import com.atelie.ecommerce.infrastructure.outbox.OutboxDispatcher;
+import com.atelie.ecommerce.infrastructure.outbox.OutboxRecorder;
+import com.atelie.ecommerce.infrastructure.persistence.config.SystemConfigEntity;
+import com.atelie.ecommerce.infrastructure.persistence.config.SystemConfigRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductIntegrationEntity;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductIntegrationRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantEntity;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.entity.ProductEntity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Sem @Transactional: os pedidos são gravados pelas virtual threads da
+ * ingestão. O ML é um HttpServer local que serve /orders/{id} a partir de
+ * {@link #orders}, com respostas que podem falhar ou esperar um latch.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class MercadoLivreOrderIngestionTest {
+
+    private static final String TOKEN = "test-webhook-secret-123";
+
+    private static final HttpServer stub;
+    private static final Map<String, String> orders = new ConcurrentHashMap<>();
+    private static final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+    private static final Map<String, AtomicInteger> failuresLeft = new ConcurrentHashMap<>();
+    private static final AtomicInteger active = new AtomicInteger();
+    private static final AtomicInteger maxActive = new AtomicInteger();
+    private static volatile CountDownLatch gate = new CountDownLatch(0);
+    private static volatile String authorization;
+
+    static {
+        try {
+            stub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        stub.setExecutor(Executors.newCachedThreadPool());
+        stub.createContext("/orders/", exchange -> {
+            String id = exchange.getRequestURI().getPath().substring("/orders/".length());
+            authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            hits.computeIfAbsent(id, k -> new AtomicInteger()).incrementAndGet();
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                gate.await(20, TimeUnit.SECONDS);
+                String body = orders.get(id);
+                AtomicInteger failures = failuresLeft.get(id);
+                int status = body == null ? 404
+                        : failures != null && failures.getAndUpdate(n -> Math.max(0, n - 1)) > 0 ? 500 : 200;
+                byte[] bytes = status == 200 ? body.getBytes(StandardCharsets.UTF_8) : new byte[0];
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+                if (bytes.length > 0) {
+                    exchange.getResponseBody().write(bytes);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                active.decrementAndGet();
+                exchange.close();
+            }
+        });
+        stub.start();
+    }
+
+    @DynamicPropertySource
+    static void stubProperties(DynamicPropertyRegistry registry) {
+        registry.add("ML_API_BASE_URL", () -> "http://localhost:" + stub.getAddress().getPort());
+        registry.add("ML_INGEST_QUEUE_CAPACITY", () -> "3");
+        registry.add("ML_INGEST_PER_ACCOUNT", () -> "2");
+        registry.add("ML_INGEST_RETRY_BASE_MS", () -> "50");
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.stop(0);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MercadoLivreOrderIngestion ingestion;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private ProductIntegrationRepository integrationRepository;
+
+    @Autowired
+    private SystemConfigRepository configRepository;
+
+    @Autowired
+    private DynamicConfigService configService;
+
+    @Autowired
+    private OutboxRecorder outboxRecorder;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private String prefix;
+    private final List<ProductEntity> products = new CopyOnWriteArrayList<>();
+    private final List<String> mlItems = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        prefix = "T" + UUID.randomUUID().toString().replace("-", "").substring(0, 10);
+        for (int i = 0; i < 2; i++) {
+            ProductEntity product = productRepository.save(ProductEntity.builder()
+                    .name("Guia " + prefix + " " + i)
+                    .description("Desc")
+                    .price(BigDecimal.TEN)
+                    .active(true)
+                    .build());
+            variantRepository.save(ProductVariantEntity.builder()
+                    .product(product)
+                    .sku(prefix + "-" + i)
+                    .price(BigDecimal.TEN)
+                    .stockQuantity(100)
+                    .active(true)
+                    .build());
+            String mlItem = "MLB" + prefix + i;
+            integrationRepository.save(new ProductIntegrationEntity(product, "MERCADO_LIVRE", mlItem, null));
+            products.add(product);
+            mlItems.add(mlItem);
+        }
+        configRepository.save(SystemConfigEntity.builder().configKey("ML_SYNC_ENABLED").configValue("true").build());
+        configRepository.save(SystemConfigEntity.builder().configKey("ML_ACCESS_TOKEN").configValue("ml-token").build());
+        configService.refresh();
+        gate = new CountDownLatch(0);
+        maxActive.set(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        gate.countDown();
+        await(() -> ingestion.pendingCount() == 0);
+        configRepository.deleteAllById(List.of("ML_SYNC_ENABLED", "ML_ACCESS_TOKEN"));
+        configService.refresh();
+        for (ProductEntity product : products) {
+            jdbc.update("DELETE FROM order_items WHERE product_id = ?", product.getId());
+            jdbc.update("DELETE FROM inventory_movements WHERE product_id = ?", product.getId());
+            jdbc.update("DELETE FROM variant_stock_balance WHERE variant_id IN "
+                    + "(SELECT id FROM product_variants WHERE product_id = ?)", product.getId());
+            jdbc.update("DELETE FROM product_variants WHERE product_id = ?", product.getId());
+            jdbc.update("DELETE FROM product_integrations WHERE product_id = ?", product.getId());
+            jdbc.update("DELETE FROM products WHERE id = ?", product.getId());
+        }
+        jdbc.update("DELETE FROM orders WHERE external_id LIKE ?", prefix + "%");
+        jdbc.update("DELETE FROM outbox_events WHERE payload LIKE ?", "%" + prefix + "%");
+    }
+
+    @Test
+    void notification_ShouldIngestAllItemsOnceInBackground() throws Exception {
+        String id = prefix + "-1";
+        mlOrder(id, Map.of(mlItems.get(0), 2, mlItems.get(1), 3));
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(notify("111", id).getStatus()).isEqualTo(200);
+        }
+        await(() -> orderCount() == 1 && ingestion.pendingCount() == 0);
+
+        assertThat(orderCount()).isEqualTo(1);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM order_items i JOIN orders o ON o.id = i.order_id "
+                + "WHERE o.external_id = ?", Integer.class, id)).isEqualTo(2);
+        assertThat(jdbc.queryForObject("SELECT customer_name FROM orders WHERE external_id = ?", String.class, id))
+                .isEqualTo("COMPRADOR");
+        assertThat(authorization).isEqualTo("Bearer ml-token");
+    }
+
+    @Test
+    void saturatedQueue_ShouldDeferWithoutBlockingAndCapConcurrencyPerAccount() throws Exception {
+        gate = new CountDownLatch(1);
+        for (int i = 0; i < 5; i++) {
+            mlOrder(prefix + "-s" + i, Map.of(mlItems.get(0), 1));
+        }
+
+        int accepted = 0;
+        int deferred = 0;
+        for (int i = 0; i < 5; i++) {
+            // O stub está parado no latch: responder aqui prova que o webhook não espera o ML
+            MockHttpServletResponse response = notify("222", prefix + "-s" + i);
+            if (response.getStatus() == 200) {
+                accepted++;
+            } else {
+                assertThat(response.getStatus()).isEqualTo(503);
+                assertThat(response.getHeader("Retry-After")).isNotNull();
+                deferred++;
+            }
+        }
+        assertThat(accepted).isEqualTo(3);
+        assertThat(deferred).isEqualTo(2);
+        await(() -> active.get() == 2);
+        Thread.sleep(200);
+        assertThat(maxActive.get()).isEqualTo(2);
+
+        gate.countDown();
+        await(() -> orderCount() == 3 && ingestion.pendingCount() == 0);
+        assertThat(maxActive.get()).isEqualTo(2);
+    }
+
+    @Test
+    void transientFailures_ShouldRetryAndUnlinkedItemsShouldNot() throws Exception {
+        String flaky = prefix + "-f";
+        mlOrder(flaky, Map.of(mlItems.get(0), 1));
+        failuresLeft.put(flaky, new AtomicInteger(2));
+        String unlinked = prefix + "-u";
+        mlOrder(unlinked, Map.of(mlItems.get(0), 1, "MLB-SEM-VINCULO", 1));
+        long failedBefore = ingestion.failedCount();
+
+        notify("333", flaky);
+        notify("333", unlinked);
+        await(() -> ingestion.pendingCount() == 0);
+
+        assertThat(hits.get(flaky).get()).isEqualTo(3);
+        assertThat(hits.get(unlinked).get()).isEqualTo(1);
+        assertThat(orderCount()).isEqualTo(1);
+        assertThat(ingestion.failedCount()).isEqualTo(failedBefore + 1);
+    }
+
+    @Test
+    void acceptedNotification_ShouldStayInOutboxUntilOrderIsRegistered() throws Exception {
+        gate = new CountDownLatch(1);
+        String id = prefix + "-o";
+        mlOrder(id, Map.of(mlItems.get(0), 1));
+
+        assertThat(notify("444", id).getStatus()).isEqualTo(200);
+        // Respondido e ainda parado no ML: a notificação já está gravada
+        assertThat(outboxRows(id, "PENDING")).isEqualTo(1);
+
+        gate.countDown();
+        await(() -> orderCount() == 1 && ingestion.pendingCount() == 0);
+        assertThat(outboxRows(id, "PENDING")).isZero();
+    }
+
+    @Test
+    void stockShortOrder_ShouldBeKeptAsDeadInsteadOfDropped() throws Exception {
+        String id = prefix + "-e";
+        mlOrder(id, Map.of(mlItems.get(0), 500));
+
+        assertThat(notify("555", id).getStatus()).isEqualTo(200);
+        await(() -> ingestion.pendingCount() == 0);
+
+        assertThat(orderCount()).isZero();
+        assertThat(outboxRows(id, "DEAD")).isEqualTo(1);
+        assertThat(jdbc.queryForObject("SELECT last_error FROM outbox_events WHERE payload LIKE ?", String.class,
+                "%" + id + "%")).contains("Estoque insuficiente");
+    }
+
+    @Test
+    void notificationLeftByACrashedNode_ShouldBeRegisteredByTheOutbox() throws Exception {
+        String id = prefix + "-r";
+        mlOrder(id, Map.of(mlItems.get(1), 2));
+        // Gravada antes do 200 por um nó que caiu antes de registrar o pedido
+        outboxRecorder.defer(new MercadoLivreOrderNotifiedEvent("666", id), Duration.ZERO);
+
+        outboxDispatcher.dispatch();
+
+        assertThat(orderCount()).isEqualTo(1);
+        assertThat(outboxRows(id, "PENDING")).isZero();
+    }
+
+    private int outboxRows(String orderId, String status) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM outbox_events WHERE event_type = ? AND status = ? "
+                + "AND payload LIKE ?", Integer.class, "MercadoLivreOrderNotifiedEvent", status, "%" + orderId + "%");
+    }
+
+    private MockHttpServletResponse notify(String account, String orderId) throws Exception {
+        String body = objectMapper.writeValueAsString(Map.of(
+                "resource", "/orders/" + orderId, "user_id", account, "topic", "orders_v2"));
+        return mockMvc.perform(post("/api/webhooks/mercadolivre")
+                        .param("token", TOKEN)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andReturn().getResponse();
+    }
+
+    private void mlOrder(String id, Map<String, Integer> items) throws Exception {
+        List<Map<String, Object>> lines = items.entrySet().stream()
+                .<Map<String, Object>>map(e -> Map.of("item", Map.of("id", e.getKey()), "quantity", e.getValue()))
+                .toList();
+        orders.put(id, objectMapper.writeValueAsString(Map.of(
+                "id", id, "buyer", Map.of("nickname", "COMPRADOR"), "order_items", lines)));
+    }
+
+    private int orderCount() {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM orders WHERE source = 'MERCADO_LIVRE' AND external_id LIKE ?",
+                Integer.class, prefix + "%");
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 20_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Condição não atingida em 20 s");
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.atelie.ecommerce.application.integration.stocksync;
+
+import com.atelie.ecommerce.api.order.dto.CreateOrderItemRequest;
+import com.atelie.ecommerce.api.order.dto.CreateOrderRequest;
+import com.atelie.ecommerce.application.service.order.OrderService;
+import com.atelie.ecommerce.infrastructure.outbox.OutboxDispatcher;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductIntegrationEntity;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductIntegrationRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantEntity;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.entity.ProductEntity;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sem @Transactional: a sincronização parte do commit de cada pedido, via
+ * outbox (dispatch() chamado direto; o agendamento fica desligado no
+ * profile test). O marketplace é um HttpServer local que grava os lotes
+ * recebidos.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class MarketplaceStockSyncTest {
+
+    private static final HttpServer stub;
+    private static final List<JsonNode> received = new CopyOnWriteArrayList<>();
+    // Respostas 500 antes de voltar a aceitar
+    private static final AtomicInteger failuresLeft = new AtomicInteger();
+    // Segura a resposta até ser liberado (marketplace lento)
+    private static volatile CountDownLatch hold;
+
+    static {
+        try {
+            stub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ObjectMapper mapper = new ObjectMapper();
+        stub.createContext("/stock", exchange -> {
+            JsonNode body = mapper.readTree(exchange.getRequestBody());
+            CountDownLatch latch = hold;
+            if (latch != null) {
+                try {
+                    latch.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            int status = failuresLeft.getAndUpdate(n -> Math.max(0, n - 1)) > 0 ? 500 : 204;
+            if (status == 204) {
+                received.add(body);
+            }
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        stub.start();
+    }
+
+    @DynamicPropertySource
+    static void stubProperties(DynamicPropertyRegistry registry) {
+        registry.add("STOCK_SYNC_URL_MERCADO_LIVRE", () -> "http://localhost:" + stub.getAddress().getPort() + "/stock");
+        registry.add("STOCK_SYNC_DEBOUNCE_MS", () -> "2000");
+        registry.add("STOCK_SYNC_MAX_WAIT_MS", () -> "600000");
+        registry.add("STOCK_SYNC_RETRY_BASE_MS", () -> "1000");
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.stop(0);
+    }
+
+    @Autowired
+    private MarketplaceStockSync stockSync;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private ProductIntegrationRepository integrationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private ProductEntity product;
+    private ProductVariantEntity variant;
+
+    @BeforeEach
+    void setUp() {
+        product = productRepository.save(ProductEntity.builder()
+                .name("Vela " + UUID.randomUUID())
+                .description("Desc")
+                .price(BigDecimal.TEN)
+                .active(true)
+                .build());
+        variant = variantRepository.save(ProductVariantEntity.builder()
+                .product(product)
+                .sku("SYNC-" + UUID.randomUUID())
+                .price(BigDecimal.TEN)
+                .stockQuantity(60)
+                .active(true)
+                .build());
+        integrationRepository.save(new ProductIntegrationEntity(product, "MERCADO_LIVRE",
+                "MLB-" + UUID.randomUUID(), variant.getSku()));
+        stockSync.flush(Long.MAX_VALUE / 2);
+        received.clear();
+        failuresLeft.set(0);
+        hold = null;
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("DELETE FROM order_items WHERE product_id = ?", product.getId());
+        jdbc.update("DELETE FROM orders WHERE external_id LIKE ?", "SYNC-" + product.getId() + "-%");
+        jdbc.update("DELETE FROM inventory_movements WHERE product_id = ?", product.getId());
+        jdbc.update("DELETE FROM variant_stock_balance WHERE variant_id = ?", variant.getId());
+        jdbc.update("DELETE FROM product_integrations WHERE product_id = ?", product.getId());
+        jdbc.update("DELETE FROM product_variants WHERE product_id = ?", product.getId());
+        jdbc.update("DELETE FROM products WHERE id = ?", product.getId());
+        jdbc.update("DELETE FROM outbox_events WHERE payload LIKE ?", "%" + product.getId() + "%");
+    }
+
+    @Test
+    void tick_ShouldSendOnItsOwnThreadWithoutBlockingTheScheduler() throws Exception {
+        hold = new CountDownLatch(1);
+        stockSync.offer(List.of(product.getId()), 0);
+
+        long start = System.nanoTime();
+        stockSync.tick();
+        // Ciclo anterior ainda no HTTP: não dispara outro
+        stockSync.tick();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1_000);
+        assertThat(received).isEmpty();
+
+        hold.countDown();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (received.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(received).hasSize(1);
+    }
+
+    @Test
+    void burstOfSales_ShouldBecomeOneBatchedUpdateWithLatestBalance() {
+        for (int i = 0; i < 50; i++) {
+            order(1);
+        }
+        long now = System.currentTimeMillis();
+
+        // Ainda dentro da janela de debounce
+        assertThat(stockSync.flush(now)).isZero();
+        assertThat(received).isEmpty();
+
+        assertThat(stockSync.flush(now + 2_000)).isEqualTo(1);
+        assertThat(received).singleElement().satisfies(body -> {
+            assertThat(body.path("integrationType").asText()).isEqualTo("MERCADO_LIVRE");
+            assertThat(body.path("items")).hasSize(1);
+            assertThat(body.path("items").get(0).path("productId").asText()).isEqualTo(product.getId().toString());
+            assertThat(body.path("items").get(0).path("quantity").asInt()).isEqualTo(10);
+        });
+        assertThat(stockSync.pendingCount()).isZero();
+    }
+
+    @Test
+    void failedBatch_ShouldRetryWithBackoffAndResendFreshBalance() {
+        failuresLeft.set(2);
+        order(5);
+        long now = System.currentTimeMillis() + 2_000;
+
+        assertThat(stockSync.flush(now)).isZero();
+        assertThat(stockSync.retryCount()).isEqualTo(1);
+
+        // Antes do backoff (1s) nada é reenviado
+        assertThat(stockSync.flush(now + 500)).isZero();
+        assertThat(failuresLeft.get()).isEqualTo(1);
+
+        // Segunda falha dobra o backoff (2s)
+        assertThat(stockSync.flush(now + 1_000)).isZero();
+        assertThat(stockSync.flush(now + 2_500)).isZero();
+        assertThat(stockSync.retryCount()).isEqualTo(1);
+
+        // Venda entre as tentativas: a retentativa relê o saldo
+        jdbc.update("UPDATE product_variants SET stock_quantity = 50 WHERE id = ?", variant.getId());
+        assertThat(stockSync.flush(now + 3_000)).isEqualTo(1);
+        assertThat(stockSync.retryCount()).isZero();
+        assertThat(received).singleElement()
+                .satisfies(body -> assertThat(body.path("items").get(0).path("quantity").asInt()).isEqualTo(50));
+    }
+
+    @Test
+    void outboxDelivery_ShouldKeepACopyUntilTheBalanceIsSent() {
+        order(1);
+        order(1);
+        long now = System.currentTimeMillis() + 2_000;
+
+        // Entrega do outbox já removida; a cópia fica até o envio (nó que cair no debounce não perde nada)
+        assertThat(outboxCopies("PENDING")).isEqualTo(2);
+        assertThat(stockSync.flush(now)).isEqualTo(1);
+        assertThat(outboxCopies("PENDING")).isZero();
+    }
+
+    @Test
+    void exhaustedRetries_ShouldLeaveTheCopyDead() {
+        failuresLeft.set(100);
+        order(1);
+        long now = System.currentTimeMillis() + 2_000;
+
+        for (int i = 0; i < 6; i++) {
+            stockSync.flush(now + i * 100_000L);
+        }
+
+        assertThat(stockSync.retryCount()).isZero();
+        assertThat(outboxCopies("PENDING")).isZero();
+        assertThat(outboxCopies("DEAD")).isEqualTo(1);
+        assertThat(jdbc.queryForObject("SELECT last_error FROM outbox_events WHERE payload LIKE ?", String.class,
+                "%" + product.getId() + "%")).contains("SYNC estoque MERCADO_LIVRE");
+    }
+
+    private int outboxCopies(String status) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM outbox_events WHERE event_type = 'VariantStockChangedEvent' "
+                + "AND status = ? AND payload LIKE ?", Integer.class, status, "%" + product.getId() + "%");
+    }
+
+    private void order(int quantity) {
+        orderService.createOrder(new CreateOrderRequest("SITE", "SYNC-" + product.getId() + "-" + UUID.randomUUID(),
+                "Cliente", List.of(new CreateOrderItemRequest(product.getId(), variant.getId(), quantity))));
+        outboxDispatcher.dispatch();
+    }
+}
@@ -0,0 +1,150 @@
+package com.atelie.ecommerce.application.service.catalog.facet;
+
+import com.atelie.ecommerce.domain.catalog.event.ProductDeletedEvent;
+import com.atelie.ecommerce.domain.catalog.event.ProductSavedEvent;
+import com.atelie.ecommerce.domain.inventory.event.VariantStockChangedEvent;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogFacetIndexTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductVariantRepository variantRepository;
+
+    private CatalogFacetIndex index;
+
+    private final UUID guias = UUID.randomUUID();
+    private final UUID velas = UUID.randomUUID();
+    private final UUID guiaAzul = UUID.randomUUID();
+    private final UUID guiaBranca = UUID.randomUUID();
+    private final UUID velaBranca = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        index = new CatalogFacetIndex(productRepository, variantRepository, new ObjectMapper(),
+                new SimpleMeterRegistry(), "50,100");
+
+        List<Object[]> products = new ArrayList<>();
+        products.add(new Object[] { guiaAzul, guias, new BigDecimal("40.00"), 0 });
+        products.add(new Object[] { guiaBranca, guias, new BigDecimal("40.00"), 0 });
+        products.add(new Object[] { velaBranca, velas, new BigDecimal("120.00"), 7 });
+        lenient().when(productRepository.findActiveFacetRows()).thenReturn(products);
+
+        List<Object[]> variants = new ArrayList<>();
+        variants.add(new Object[] { guiaAzul, null, 3, "{\"cor\":\"Azul\",\"tamanho\":\"M\"}" });
+        variants.add(new Object[] { guiaAzul, new BigDecimal("60.00"), 0, "{\"cor\":\"Azul\",\"tamanho\":\"G\"}" });
+        variants.add(new Object[] { guiaBranca, null, 0, "{\"cor\":\"Branca\",\"tamanho\":\"M\"}" });
+        lenient().when(variantRepository.findActiveFacetRows()).thenReturn(variants);
+    }
+
+    @Test
+    void query_AndAcrossDimensions_OrWithinDimension() {
+        FacetFilter filter = FacetFilter.and(List.of(
+                new FacetFilter.Category(guias),
+                FacetFilter.or(List.of(
+                        new FacetFilter.Attribute("cor", "azul"),
+                        new FacetFilter.Attribute("COR", "branca")))));
+
+        FacetResult result = index.query(filter, 0, 10);
+
+        assertEquals(2, result.total());
+        assertTrue(result.productIds().containsAll(List.of(guiaAzul, guiaBranca)));
+        assertEquals(Map.of(guias, 2), result.categories());
+        assertEquals(Map.of("azul", 1, "branca", 1), result.attributes().get("cor"));
+        assertEquals(Map.of("0-50", 2, "50-100", 1), result.priceBuckets());
+        assertEquals(1, result.inStock());
+    }
+
+    @Test
+    void query_InStockAndPriceBucket_ShouldUseVariantAndProductFallbacks() {
+        FacetResult inStock = index.query(new FacetFilter.InStock(), 0, 10);
+        FacetResult expensive = index.query(new FacetFilter.PriceBucket("100+"), 0, 10);
+        FacetResult notAzul = index.query(new FacetFilter.Not(new FacetFilter.Attribute("cor", "azul")), 0, 10);
+
+        assertEquals(List.of(guiaAzul, velaBranca), inStock.productIds());
+        assertEquals(List.of(velaBranca), expensive.productIds());
+        assertEquals(2, notAzul.total());
+        assertFalse(notAzul.productIds().contains(guiaAzul));
+    }
+
+    @Test
+    void query_ShouldPageWithoutTouchingRepositoriesAfterBuild() {
+        index.query(FacetFilter.all(), 0, 1);
+        FacetResult second = index.query(FacetFilter.all(), 1, 1);
+
+        assertEquals(3, second.total());
+        assertEquals(1, second.productIds().size());
+        verify(productRepository, times(1)).findActiveFacetRows();
+        verify(variantRepository, times(1)).findActiveFacetRows();
+    }
+
+    @Test
+    void events_ShouldUpdateOnlyTheAffectedProduct() {
+        index.query(FacetFilter.all(), 0, 10);
+
+        List<Object[]> updated = new ArrayList<>();
+        updated.add(new Object[] { guiaBranca, guias, new BigDecimal("40.00"), 0 });
+        when(productRepository.findActiveFacetRowById(guiaBranca)).thenReturn(updated);
+        List<Object[]> updatedVariants = new ArrayList<>();
+        updatedVariants.add(new Object[] { guiaBranca, null, 5, "{\"cor\":\"Verde\"}" });
+        when(variantRepository.findActiveFacetRowsByProductId(guiaBranca)).thenReturn(updatedVariants);
+
+        index.onProductSaved(new ProductSavedEvent(guiaBranca, false));
+        index.onProductDeleted(new ProductDeletedEvent(velaBranca));
+
+        FacetResult result = index.query(FacetFilter.all(), 0, 10);
+        assertEquals(2, result.total());
+        assertEquals(Map.of("azul", 1, "verde", 1), result.attributes().get("cor"));
+        assertEquals(2, result.inStock());
+        assertFalse(result.categories().containsKey(velas));
+        assertTrue(index.memoryFootprintBytes() > 0);
+    }
+
+    @Test
+    void stockChanged_ShouldRefreshInStockOfAffectedProducts() {
+        assertEquals(2, index.query(new FacetFilter.InStock(), 0, 10).total());
+
+        // Última unidade da guia azul vendida; vela branca sem variantes zerada
+        List<Object[]> products = new ArrayList<>();
+        products.add(new Object[] { guiaAzul, guias, new BigDecimal("40.00"), 0 });
+        products.add(new Object[] { velaBranca, velas, new BigDecimal("120.00"), 0 });
+        when(productRepository.findActiveFacetRowsByIds(List.of(guiaAzul, velaBranca))).thenReturn(products);
+        List<Object[]> variants = new ArrayList<>();
+        variants.add(new Object[] { guiaAzul, null, 0, "{\"cor\":\"Azul\",\"tamanho\":\"M\"}" });
+        variants.add(new Object[] { guiaAzul, new BigDecimal("60.00"), 0, "{\"cor\":\"Azul\",\"tamanho\":\"G\"}" });
+        when(variantRepository.findActiveFacetRowsByProductIds(List.of(guiaAzul, velaBranca))).thenReturn(variants);
+
+        index.onStockChanged(new VariantStockChangedEvent(List.of(UUID.randomUUID()), List.of(guiaAzul, velaBranca)));
+
+        FacetResult result = index.query(FacetFilter.all(), 0, 10);
+        assertEquals(3, result.total());
+        assertEquals(0, result.inStock());
+        assertEquals(Map.of("azul", 1, "branca", 1), result.attributes().get("cor"));
+    }
+
+    @Test
+    void query_UnknownPriceBucket_ShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> index.query(new FacetFilter.PriceBucket("10-20"), 0, 10));
+    }
+}
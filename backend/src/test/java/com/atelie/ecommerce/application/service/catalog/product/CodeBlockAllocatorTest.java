@@ -0,0 +1,153 @@
+package com.atelie.ecommerce.application.service.catalog.product;
+
+import com.atelie.ecommerce.infrastructure.persistence.product.CodeSequenceRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantEntity;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.entity.ProductEntity;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CodeBlockAllocatorTest {
+
+    @Autowired
+    private CodeSequenceRepository sequenceRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void next_ConcurrentThreadsOnTwoNodes_ShouldNeverRepeatValues() throws Exception {
+        String sequence = "test-" + UUID.randomUUID().toString().substring(0, 8);
+        CodeBlockAllocator nodeA = new CodeBlockAllocator(sequenceRepository, transactionManager, 7);
+        CodeBlockAllocator nodeB = new CodeBlockAllocator(sequenceRepository, transactionManager, 7);
+        Set<Long> values = ConcurrentHashMap.newKeySet();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                CodeBlockAllocator node = t % 2 == 0 ? nodeA : nodeB;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 250; i++) {
+                        assertTrue(values.add(node.next(sequence)), "valor repetido");
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(2000, values.size());
+        // Cada nó desperdiça no máximo o resto da sua faixa corrente
+        assertTrue(sequenceRepository.currentValue(sequence) <= 2000 + 2 * 7);
+    }
+
+    @Test
+    void nextBlock_LargerThanBlock_ShouldReserveContiguousRangeInOneStep() {
+        String sequence = "test-" + UUID.randomUUID().toString().substring(0, 8);
+        CodeBlockAllocator allocator = new CodeBlockAllocator(sequenceRepository, transactionManager, 10);
+
+        long first = allocator.next(sequence);
+        long[] block = allocator.nextBlock(sequence, 25);
+
+        assertEquals(25, block.length);
+        for (int i = 1; i < block.length; i++) {
+            assertEquals(block[i - 1] + 1, block[i]);
+        }
+        assertTrue(block[0] > first);
+        assertEquals(10 + 25, sequenceRepository.currentValue(sequence));
+    }
+
+    @Test
+    void generateBlock_ShouldReturnDistinctValidEan13() {
+        GtinGeneratorService generator = new GtinGeneratorService(
+                new CodeBlockAllocator(sequenceRepository, transactionManager, 100), variantRepository);
+
+        List<String> gtins = generator.generateBlock(250);
+
+        assertEquals(250, new HashSet<>(gtins).size());
+        for (String gtin : gtins) {
+            assertTrue(gtin.matches("2\\d{12}"), gtin);
+            assertEquals(checkDigit(gtin.substring(0, 12)), gtin.charAt(12) - '0', gtin);
+        }
+        assertTrue(generator.generateSku(UUID.fromString("1a2b3c4d-0000-0000-0000-000000000000"))
+                .startsWith("SKU-1A2B3C4D-"));
+    }
+
+    @Test
+    void next_WithTakenValues_ShouldSkipThemInsideTheRange() {
+        String sequence = "test-" + UUID.randomUUID().toString().substring(0, 8);
+        CodeBlockAllocator allocator = new CodeBlockAllocator(sequenceRepository, transactionManager, 5);
+        // 0..4 inteira já usada; na faixa seguinte, 6 e 8
+        allocator.skipTaken(sequence, (from, to) -> Set.of(0L, 1L, 2L, 3L, 4L, 6L, 8L));
+
+        assertEquals(List.of(5L, 7L, 9L, 10L), List.of(allocator.next(sequence), allocator.next(sequence),
+                allocator.next(sequence), allocator.next(sequence)));
+        long[] block = allocator.nextBlock(sequence, 5);
+        assertEquals(5, block.length);
+    }
+
+    @Test
+    void generateInternalEan13_ShouldSkipLegacyGtinAlreadyInUse() {
+        CodeBlockAllocator allocator = new CodeBlockAllocator(sequenceRepository, transactionManager, 10);
+        GtinGeneratorService generator = new GtinGeneratorService(allocator, variantRepository);
+        // Próxima faixa começa no valor atual: o primeiro corpo dela já existe (gerador aleatório antigo)
+        Long current = sequenceRepository.currentValue(GtinGeneratorService.GTIN_SEQUENCE);
+        String legacyBody = "2" + String.format("%011d", current != null ? current : 0L);
+        String legacy = legacyBody + checkDigit(legacyBody);
+
+        ProductEntity product = productRepository.save(ProductEntity.builder()
+                .name("Legado " + UUID.randomUUID()).description("Desc").price(BigDecimal.TEN).active(true).build());
+        variantRepository.save(ProductVariantEntity.builder()
+                .product(product).sku("LEGACY-" + UUID.randomUUID()).gtin(legacy)
+                .price(BigDecimal.TEN).stockQuantity(1).active(true).build());
+        try {
+            String generated = generator.generateInternalEan13();
+            assertNotEquals(legacy, generated);
+            assertEquals(Long.parseLong(legacy.substring(1, 12)) + 1, Long.parseLong(generated.substring(1, 12)));
+        } finally {
+            jdbc.update("DELETE FROM product_variants WHERE product_id = ?", product.getId());
+            jdbc.update("DELETE FROM products WHERE id = ?", product.getId());
+        }
+    }
+
+    private static int checkDigit(String body) {
+        int sum = 0;
+        for (int i = 0; i < body.length(); i++) {
+            sum += (body.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return (10 - sum % 10) % 10;
+    }
+}
@@ -2,21 +2,25 @@ package com.atelie.ecommerce.application.service.catalog.product;
 
 import com.atelie.ecommerce.api.common.exception.NotFoundException;
 import com.atelie.ecommerce.domain.catalog.event.ProductSavedEvent;
+import com.atelie.ecommerce.domain.inventory.event.VariantStockChangedEvent;
 import com.atelie.ecommerce.infrastructure.persistence.category.CategoryEntity;
 import com.atelie.ecommerce.infrastructure.persistence.category.CategoryRepository;
 import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository;
 import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantEntity;
 import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantRepository;
 import com.atelie.ecommerce.infrastructure.persistence.product.entity.ProductEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.ApplicationEventPublisher;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -42,6 +46,9 @@ class ProductServiceTest {
     @Mock
     private ApplicationEventPublisher eventPublisher;
 
+    @Spy
+    private ProductCache productCache = new ProductCache(new SimpleMeterRegistry(), 100);
+
     @InjectMocks
     private ProductService productService;
 
@@ -125,4 +132,77 @@ class ProductServiceTest {
         verify(productRepository, never()).save(any());
         verify(eventPublisher, never()).publishEvent(any());
     }
+
+    @Test
+    void findById_SecondRead_ShouldBeServedFromCache() {
+        UUID productId = UUID.randomUUID();
+        ProductEntity product = new ProductEntity();
+        product.setId(productId);
+        product.setSlug("vela-branca");
+
+        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
+
+        assertSame(product, productService.findById(productId));
+        assertSame(product, productService.findById(productId));
+        assertTrue(productService.findBySlug("vela-branca").isPresent());
+
+        verify(productRepository, times(1)).findById(productId);
+        verify(productRepository, never()).findBySlug(any());
+    }
+
+    @Test
+    void findById_AfterProductSavedEvent_ShouldReload() {
+        UUID productId = UUID.randomUUID();
+        ProductEntity product = new ProductEntity();
+        product.setId(productId);
+
+        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
+
+        productService.findById(productId);
+        productCache.onProductSaved(new ProductSavedEvent(productId, false));
+        productService.findById(productId);
+
+        verify(productRepository, times(2)).findById(productId);
+    }
+
+    @Test
+    void findById_AfterVariantStockChangedEvent_ShouldReload() {
+        UUID productId = UUID.randomUUID();
+        ProductEntity product = new ProductEntity();
+        product.setId(productId);
+
+        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
+
+        productService.findById(productId);
+        productCache.onStockChanged(new VariantStockChangedEvent(List.of(UUID.randomUUID()), List.of(productId)));
+        productService.findById(productId);
+
+        verify(productRepository, times(2)).findById(productId);
+    }
+
+    @Test
+    void findByIdWithVersion_StaleCachedGraph_ShouldReloadToMatchVersion() {
+        UUID productId = UUID.randomUUID();
+        ProductEntity cached = productWithVariantStock(productId, 5);
+        ProductEntity current = productWithVariantStock(productId, 4);
+
+        when(productRepository.findById(productId)).thenReturn(Optional.of(cached), Optional.of(current));
+        productService.findById(productId);
+
+        // Estoque alterado sem evento: o cache ainda tem 5
+        assertSame(current, productService.findById(productId, ProductService.versionOf(current)));
+        assertSame(current, productService.findById(productId, ProductService.versionOf(current)));
+        verify(productRepository, times(2)).findById(productId);
+    }
+
+    private ProductEntity productWithVariantStock(UUID productId, int stock) {
+        ProductEntity product = new ProductEntity();
+        product.setId(productId);
+        product.setUpdatedAt(java.time.LocalDateTime.of(2024, 1, 1, 10, 0));
+        ProductVariantEntity variant = new ProductVariantEntity();
+        variant.setStockQuantity(stock);
+        variant.setReservedQuantity(0);
+        product.setVariants(List.of(variant));
+        return product;
+    }
 }
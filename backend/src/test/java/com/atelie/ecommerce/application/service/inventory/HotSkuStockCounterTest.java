@@ -0,0 +1,253 @@
+package com.atelie.ecommerce.application.service.inventory;
+
+import com.atelie.ecommerce.api.common.exception.InsufficientStockException;
+import com.atelie.ecommerce.api.order.dto.CreateOrderItemRequest;
+import com.atelie.ecommerce.api.order.dto.CreateOrderRequest;
+import com.atelie.ecommerce.application.service.order.OrderService;
+import com.atelie.ecommerce.domain.inventory.InventoryRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantEntity;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.entity.ProductEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sem @Transactional: pedidos comitam em threads próprias, como em produção.
+ * A comparação de vazão lock de linha x group commit fica em
+ * src/test/resources/bench/hot_sku_bench.sql (Postgres).
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class HotSkuStockCounterTest {
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private HotSkuStockCounter hotSkuCounter;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private ProductEntity product;
+    private final List<UUID> variants = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        product = productRepository.save(ProductEntity.builder()
+                .name("Flash " + UUID.randomUUID())
+                .description("Desc")
+                .price(BigDecimal.TEN)
+                .active(true)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        variants.forEach(hotSkuCounter::disable);
+        jdbc.update("DELETE FROM order_items WHERE product_id = ?", product.getId());
+        jdbc.update("DELETE FROM orders WHERE external_id LIKE ?", "FLASH-" + product.getId() + "-%");
+        jdbc.update("DELETE FROM inventory_movements WHERE product_id = ?", product.getId());
+        jdbc.update("DELETE FROM variant_stock_balance WHERE variant_id IN (SELECT id FROM product_variants WHERE product_id = ?)",
+                product.getId());
+        jdbc.update("DELETE FROM stock_leases WHERE variant_id IN (SELECT id FROM product_variants WHERE product_id = ?)",
+                product.getId());
+        jdbc.update("DELETE FROM product_variants WHERE product_id = ?", product.getId());
+        jdbc.update("DELETE FROM products WHERE id = ?", product.getId());
+    }
+
+    @Test
+    void hotMode_ConcurrentOrders_ShouldSellExactlyTheStockAndReturnUnusedQuota() throws Exception {
+        UUID variantId = variant(100);
+        hotSkuCounter.enable(variantId);
+
+        Result result = run(variantId, 160);
+
+        assertEquals(100, result.sold());
+        assertEquals(60, result.rejected());
+        hotSkuCounter.disable(variantId);
+
+        ProductVariantEntity reloaded = variantRepository.findById(variantId).orElseThrow();
+        assertEquals(0, reloaded.getStockQuantity());
+        assertEquals(0, reloaded.getReservedQuantity());
+        assertEquals(-100, inventoryRepository.auditCalculatedStockByVariant(variantId));
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM stock_leases WHERE variant_id = ?", Integer.class, variantId));
+    }
+
+    @Test
+    void hotMode_ShouldKeepLeasedUnitsAwayFromRegularOrders() throws Exception {
+        UUID variantId = variant(60);
+        hotSkuCounter.enable(variantId);
+        // Primeiro pedido arrenda a cota (50) e consome 1
+        assertEquals(1, run(variantId, 1).sold());
+
+        ProductVariantEntity leased = variantRepository.findById(variantId).orElseThrow();
+        assertEquals(59, leased.getStockQuantity());
+        assertEquals(49, leased.getReservedQuantity());
+
+        hotSkuCounter.disable(variantId);
+        ProductVariantEntity reloaded = variantRepository.findById(variantId).orElseThrow();
+        assertEquals(59, reloaded.getStockQuantity());
+        assertEquals(0, reloaded.getReservedQuantity());
+    }
+
+    @Test
+    void releaseStaleLeases_ShouldReturnQuotaOfDeadNodes() {
+        UUID variantId = variant(10);
+        jdbc.update("UPDATE product_variants SET reserved_quantity = 7 WHERE id = ?", variantId);
+        jdbc.update("INSERT INTO stock_leases (id, variant_id, node_id, quantity, renewed_at) VALUES (?, ?, ?, ?, ?)",
+                UUID.randomUUID(), variantId, "node-morto", 7, LocalDateTime.now().minusHours(1));
+
+        assertEquals(1, hotSkuCounter.releaseStaleLeases(LocalDateTime.now().minusMinutes(2)));
+        assertEquals(0, variantRepository.findById(variantId).orElseThrow().getReservedQuantity());
+    }
+
+    @Test
+    void hotMode_MoreConcurrentOrdersThanPoolConnections_ShouldNotStarveThePool() throws Exception {
+        int threads = dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize() * 4;
+        UUID variantId = variant(300);
+        hotSkuCounter.enable(variantId);
+
+        // Nenhum pedido pode estourar HOT_SKU_COMMIT_TIMEOUT_MS esperando conexão (run propaga o erro)
+        Result result = run(variantId, 300, threads);
+
+        assertEquals(300, result.sold());
+        hotSkuCounter.disable(variantId);
+        ProductVariantEntity reloaded = variantRepository.findById(variantId).orElseThrow();
+        assertEquals(0, reloaded.getStockQuantity());
+        assertEquals(0, reloaded.getReservedQuantity());
+        assertEquals(-300, inventoryRepository.auditCalculatedStockByVariant(variantId));
+    }
+
+    @Test
+    void hotMode_LeaseReclaimedByPeer_ShouldDropLocalQuotaAndLeaseAgain() throws Exception {
+        UUID variantId = variant(60);
+        hotSkuCounter.enable(variantId);
+        assertEquals(1, run(variantId, 1).sold());
+        assertEquals(49, hotSkuCounter.localAvailable(variantId));
+
+        // Varredura de outro nó devolveu a cota deste (heartbeat atrasado)
+        jdbc.update("UPDATE product_variants SET reserved_quantity = reserved_quantity - 49 WHERE id = ?", variantId);
+        jdbc.update("DELETE FROM stock_leases WHERE variant_id = ?", variantId);
+
+        assertThrows(IllegalStateException.class, () -> orderService.createOrder(order(variantId, 0)));
+        assertEquals(0, hotSkuCounter.localAvailable(variantId));
+
+        assertEquals(1, run(variantId, 1).sold());
+        hotSkuCounter.disable(variantId);
+        ProductVariantEntity reloaded = variantRepository.findById(variantId).orElseThrow();
+        assertEquals(58, reloaded.getStockQuantity());
+        assertEquals(0, reloaded.getReservedQuantity());
+        assertEquals(-2, inventoryRepository.auditCalculatedStockByVariant(variantId));
+    }
+
+    @Test
+    void hotMode_OrderThatFailsAfterGroupCommit_ShouldBeCompensated() {
+        UUID variantId = variant(10);
+        hotSkuCounter.enable(variantId);
+
+        // Produto inexistente: a transação do pedido falha depois da baixa hot gravada
+        assertThrows(RuntimeException.class, () -> orderService.createOrder(new CreateOrderRequest("SITE",
+                "FLASH-" + product.getId() + "-" + UUID.randomUUID(), "Cliente",
+                List.of(new CreateOrderItemRequest(UUID.randomUUID(), variantId, 1)))));
+
+        hotSkuCounter.disable(variantId);
+        ProductVariantEntity reloaded = variantRepository.findById(variantId).orElseThrow();
+        assertEquals(10, reloaded.getStockQuantity());
+        assertEquals(0, reloaded.getReservedQuantity());
+        assertEquals(0, inventoryRepository.auditCalculatedStockByVariant(variantId));
+    }
+
+    // ---------------- apoio ----------------
+
+    private UUID variant(int stock) {
+        ProductVariantEntity variant = variantRepository.save(ProductVariantEntity.builder()
+                .product(product)
+                .sku("FLASH-" + UUID.randomUUID())
+                .price(BigDecimal.TEN)
+                .stockQuantity(stock)
+                .active(true)
+                .build());
+        variants.add(variant.getId());
+        return variant.getId();
+    }
+
+    private Result run(UUID variantId, int attempts) throws Exception {
+        return run(variantId, attempts, THREADS);
+    }
+
+    private Result run(UUID variantId, int attempts, int threads) throws Exception {
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = next.getAndIncrement(); i < attempts; i = next.getAndIncrement()) {
+                        try {
+                            orderService.createOrder(order(variantId, i));
+                            sold.incrementAndGet();
+                        } catch (InsufficientStockException e) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return new Result(sold.get(), rejected.get());
+    }
+
+    private CreateOrderRequest order(UUID variantId, int i) {
+        return new CreateOrderRequest("SITE", "FLASH-" + product.getId() + "-" + UUID.randomUUID(), "Cliente " + i,
+                List.of(new CreateOrderItemRequest(product.getId(), variantId, 1)));
+    }
+
+    private record Result(int sold, int rejected) {
+    }
+}
@@ -0,0 +1,140 @@
+package com.atelie.ecommerce.application.service.inventory;
+
+import com.atelie.ecommerce.api.order.dto.CreateOrderItemRequest;
+import com.atelie.ecommerce.api.order.dto.CreateOrderRequest;
+import com.atelie.ecommerce.application.service.catalog.product.bulk.BulkUpdateItem;
+import com.atelie.ecommerce.application.service.catalog.product.bulk.ProductBulkUpdateService;
+import com.atelie.ecommerce.application.service.integration.N8nService;
+import com.atelie.ecommerce.application.service.order.OrderService;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantEntity;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.entity.ProductEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Sem @Transactional: o detector reage após o commit de cada pedido.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class LowStockDetectorTest {
+
+    @Autowired
+    private LowStockDetector detector;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductBulkUpdateService bulkUpdateService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @MockBean
+    private N8nService n8nService;
+
+    private ProductEntity product;
+    private ProductVariantEntity variant;
+
+    @BeforeEach
+    void setUp() {
+        product = productRepository.save(ProductEntity.builder()
+                .name("Vela " + UUID.randomUUID())
+                .description("Desc")
+                .price(BigDecimal.TEN)
+                .active(true)
+                .alertEnabled(true)
+                .build());
+        variant = variantRepository.save(ProductVariantEntity.builder()
+                .product(product)
+                .sku("LOW-" + UUID.randomUUID())
+                .price(BigDecimal.TEN)
+                .stockQuantity(8)
+                .active(true)
+                .build());
+        detector.flushAlerts();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("DELETE FROM order_items WHERE product_id = ?", product.getId());
+        jdbc.update("DELETE FROM orders WHERE external_id LIKE ?", "LOW-" + product.getId() + "-%");
+        jdbc.update("DELETE FROM inventory_movements WHERE product_id = ?", product.getId());
+        jdbc.update("DELETE FROM variant_stock_balance WHERE variant_id = ?", variant.getId());
+        jdbc.update("DELETE FROM product_variants WHERE product_id = ?", product.getId());
+        jdbc.update("DELETE FROM products WHERE id = ?", product.getId());
+        detector.resync();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void crossingThresholdDownward_ShouldAlertOnceAndRearmOnRestock() {
+        order(2); // 6: acima do limite
+        assertThat(isLow()).isFalse();
+
+        order(2); // 4: cruzou
+        order(1); // 3: continua baixo, sem novo alerta
+        assertThat(isLow()).isTrue();
+        assertThat(detector.lowStock()).filteredOn(e -> e.variantId().equals(variant.getId()))
+                .singleElement().satisfies(e -> assertThat(e.stock()).isEqualTo(3));
+
+        ArgumentCaptor<List<Map<String, Object>>> sent = ArgumentCaptor.forClass(List.class);
+        assertThat(detector.flushAlerts()).isEqualTo(1);
+        verify(n8nService).sendLowStockAlerts(sent.capture());
+        assertThat(sent.getValue()).singleElement()
+                .satisfies(item -> assertThat(item).containsEntry("sku", variant.getSku()).containsEntry("stock", 4));
+
+        // Reposição rearma; nova queda alerta de novo
+        bulkUpdateService.apply("LOW-RESTOCK-" + UUID.randomUUID(), "Reposição",
+                List.of(new BulkUpdateItem(null, variant.getSku(), null, 10)));
+        assertThat(isLow()).isFalse();
+        order(9); // 4
+        assertThat(isLow()).isTrue();
+        assertThat(detector.flushAlerts()).isEqualTo(1);
+    }
+
+    @Test
+    void productWithoutAlerts_ShouldNeverBeTracked() {
+        jdbc.update("UPDATE products SET alert_enabled = false WHERE id = ?", product.getId());
+
+        order(6);
+
+        assertThat(isLow()).isFalse();
+        assertThat(detector.flushAlerts()).isZero();
+        verify(n8nService, never()).sendLowStockAlerts(anyList());
+    }
+
+    private void order(int quantity) {
+        orderService.createOrder(new CreateOrderRequest("SITE", "LOW-" + product.getId() + "-" + UUID.randomUUID(),
+                "Cliente", List.of(new CreateOrderItemRequest(product.getId(), variant.getId(), quantity))));
+    }
+
+    private boolean isLow() {
+        return detector.lowStock().stream().anyMatch(e -> e.variantId().equals(variant.getId()));
+    }
+}
@@ -0,0 +1,137 @@
+package com.atelie.ecommerce.application.service.inventory;
+
+import com.atelie.ecommerce.api.common.exception.InsufficientStockException;
+import com.atelie.ecommerce.api.order.dto.CreateOrderItemRequest;
+import com.atelie.ecommerce.api.order.dto.CreateOrderRequest;
+import com.atelie.ecommerce.application.service.order.OrderService;
+import com.atelie.ecommerce.domain.inventory.InventoryRepository;
+import com.atelie.ecommerce.domain.inventory.VariantStockBalanceRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantEntity;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.entity.ProductEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sem @Transactional: cada checkout roda e faz commit na própria thread,
+ * disputando as mesmas linhas como em produção.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderStockEngineConcurrencyTest {
+
+    private static final int STOCK = 5;
+    private static final int BUYERS = 16;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private VariantStockBalanceRepository balanceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private ProductEntity product;
+    private ProductVariantEntity hot;
+    private ProductVariantEntity other;
+
+    @BeforeEach
+    void setUp() {
+        product = productRepository.save(ProductEntity.builder()
+                .name("Hot SKU " + UUID.randomUUID())
+                .description("Desc")
+                .price(BigDecimal.TEN)
+                .active(true)
+                .build());
+        hot = variantRepository.save(ProductVariantEntity.builder()
+                .product(product).sku("HOT-" + UUID.randomUUID()).price(BigDecimal.TEN)
+                .stockQuantity(STOCK).active(true).build());
+        other = variantRepository.save(ProductVariantEntity.builder()
+                .product(product).sku("OTHER-" + UUID.randomUUID()).price(BigDecimal.TEN)
+                .stockQuantity(BUYERS).active(true).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("DELETE FROM order_items WHERE product_id = ?", product.getId());
+        jdbc.update("DELETE FROM orders WHERE external_id LIKE ?", "HOT-" + product.getId() + "-%");
+        jdbc.update("DELETE FROM inventory_movements WHERE product_id = ?", product.getId());
+        jdbc.update("DELETE FROM variant_stock_balance WHERE variant_id IN (?, ?)", hot.getId(), other.getId());
+        jdbc.update("DELETE FROM product_variants WHERE product_id = ?", product.getId());
+        jdbc.update("DELETE FROM products WHERE id = ?", product.getId());
+    }
+
+    @Test
+    void createOrder_ConcurrentBuyersOnLastUnits_ShouldNeverOversell() throws Exception {
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < BUYERS; i++) {
+                int buyer = i;
+                // Itens em ordens diferentes: o lock por id evita deadlock entre os pedidos
+                List<CreateOrderItemRequest> items = buyer % 2 == 0
+                        ? List.of(new CreateOrderItemRequest(product.getId(), hot.getId(), 1),
+                                new CreateOrderItemRequest(product.getId(), other.getId(), 1))
+                        : List.of(new CreateOrderItemRequest(product.getId(), other.getId(), 1),
+                                new CreateOrderItemRequest(product.getId(), hot.getId(), 1));
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        orderService.createOrder(new CreateOrderRequest("SITE",
+                                "HOT-" + product.getId() + "-" + buyer, "Cliente " + buyer, items));
+                        sold.incrementAndGet();
+                    } catch (InsufficientStockException e) {
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(STOCK, sold.get());
+        assertEquals(BUYERS - STOCK, rejected.get());
+        assertEquals(0, variantRepository.findById(hot.getId()).orElseThrow().getStockQuantity());
+        // Pedido rejeitado não baixa nenhum item, nem o que tinha saldo
+        assertEquals(BUYERS - STOCK, variantRepository.findById(other.getId()).orElseThrow().getStockQuantity());
+        assertEquals(-STOCK, inventoryRepository.auditCalculatedStockByVariant(hot.getId()));
+        assertEquals(-STOCK, balanceRepository.findBalance(hot.getId()).orElseThrow());
+    }
+}
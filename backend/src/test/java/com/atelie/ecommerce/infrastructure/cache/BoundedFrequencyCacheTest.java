@@ -0,0 +1,74 @@
+package com.atelie.ecommerce.infrastructure.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedFrequencyCacheTest {
+
+    @Test
+    void put_WhenFull_ShouldNeverExceedMaximumSize() {
+        BoundedFrequencyCache<Integer, String> cache = new BoundedFrequencyCache<>(10);
+
+        for (int i = 0; i < 1_000; i++) {
+            cache.getIfPresent(i);
+            cache.getIfPresent(i);
+            cache.put(i, "v" + i);
+        }
+
+        assertTrue(cache.size() <= 10);
+    }
+
+    @Test
+    void put_ColdKeyWhenFull_ShouldNotEvictPopularEntries() {
+        BoundedFrequencyCache<String, String> cache = new BoundedFrequencyCache<>(2);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        for (int i = 0; i < 5; i++) {
+            cache.getIfPresent("a");
+            cache.getIfPresent("b");
+        }
+
+        boolean admitted = cache.put("scan", "S");
+
+        assertFalse(admitted);
+        assertEquals("A", cache.getIfPresent("a"));
+        assertEquals("B", cache.getIfPresent("b"));
+        assertEquals(0, cache.evictionCount());
+    }
+
+    @Test
+    void put_HotKeyWhenFull_ShouldEvictLeastRecentlyUsedAndNotifyListener() {
+        List<String> removed = new ArrayList<>();
+        BoundedFrequencyCache<String, String> cache = new BoundedFrequencyCache<>(2, (k, v) -> removed.add(k));
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.getIfPresent("b");
+        for (int i = 0; i < 3; i++) {
+            cache.getIfPresent("hot");
+        }
+
+        assertTrue(cache.put("hot", "H"));
+
+        assertEquals(List.of("a"), removed);
+        assertEquals(1, cache.evictionCount());
+        assertNull(cache.getIfPresent("a"));
+    }
+
+    @Test
+    void getIfPresent_ShouldTrackHitsAndMisses() {
+        BoundedFrequencyCache<String, String> cache = new BoundedFrequencyCache<>(4);
+        cache.put("a", "A");
+
+        cache.getIfPresent("a");
+        cache.getIfPresent("x");
+        cache.invalidate("a");
+        cache.getIfPresent("a");
+
+        assertEquals(1, cache.hitCount());
+        assertEquals(2, cache.missCount());
+    }
+}
@@ -0,0 +1,235 @@
+package com.atelie.ecommerce.infrastructure.idempotency;
+
+import com.atelie.ecommerce.api.order.dto.CreateOrderItemRequest;
+import com.atelie.ecommerce.api.order.dto.CreateOrderRequest;
+import com.atelie.ecommerce.application.service.order.OrderService;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantEntity;
+import com.atelie.ecommerce.infrastructure.persistence.product.ProductVariantRepository;
+import com.atelie.ecommerce.infrastructure.persistence.product.entity.ProductEntity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Sem @Transactional: chaves e pedidos precisam estar commitados para as
+ * repetições (inclusive simultâneas) enxergarem a primeira execução.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class IdempotencyFilterIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private IdempotencyStore store;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private ProductEntity product;
+    private ProductVariantEntity variant;
+    private String prefix;
+
+    @BeforeEach
+    void setUp() {
+        prefix = "IDEM-" + UUID.randomUUID();
+        product = productRepository.save(ProductEntity.builder()
+                .name("Vela " + prefix)
+                .description("Desc")
+                .price(BigDecimal.TEN)
+                .active(true)
+                .build());
+        variant = variantRepository.save(ProductVariantEntity.builder()
+                .product(product)
+                .sku(prefix)
+                .price(BigDecimal.TEN)
+                .stockQuantity(50)
+                .active(true)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("DELETE FROM idempotency_keys WHERE idempotency_key LIKE ?", prefix + "%");
+        jdbc.update("DELETE FROM order_items WHERE product_id = ?", product.getId());
+        jdbc.update("DELETE FROM orders WHERE external_id LIKE ?", prefix + "%");
+        jdbc.update("DELETE FROM inventory_movements WHERE product_id = ?", product.getId());
+        jdbc.update("DELETE FROM variant_stock_balance WHERE variant_id = ?", variant.getId());
+        jdbc.update("DELETE FROM product_variants WHERE product_id = ?", product.getId());
+        jdbc.update("DELETE FROM products WHERE id = ?", product.getId());
+    }
+
+    @Test
+    void retryWithSameKey_ShouldReplayResponseWithoutCreatingAnotherOrder() throws Exception {
+        String body = orderBody(prefix + "-A", 2);
+
+        MockHttpServletResponse first = postOrder(prefix + "-k1", body);
+        MockHttpServletResponse retry = postOrder(prefix + "-k1", body);
+
+        assertThat(first.getStatus()).isEqualTo(201);
+        assertThat(retry.getStatus()).isEqualTo(201);
+        assertThat(first.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+        assertThat(retry.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(orderId(retry)).isEqualTo(orderId(first));
+        assertThat(orderCount()).isEqualTo(1);
+        assertThat(stock()).isEqualTo(48);
+    }
+
+    @Test
+    void sameKeyWithDifferentBody_ShouldBeRejected() throws Exception {
+        assertThat(postOrder(prefix + "-k2", orderBody(prefix + "-B", 1)).getStatus()).isEqualTo(201);
+
+        MockHttpServletResponse other = postOrder(prefix + "-k2", orderBody(prefix + "-B", 5));
+
+        assertThat(other.getStatus()).isEqualTo(422);
+        assertThat(stock()).isEqualTo(49);
+    }
+
+    @Test
+    void concurrentDuplicates_ShouldRunOnce() throws Exception {
+        String body = orderBody(prefix + "-C", 1);
+        int clients = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<MockHttpServletResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                return postOrder(prefix + "-k3", body);
+            }));
+        }
+        start.countDown();
+        List<String> ids = new ArrayList<>();
+        for (Future<MockHttpServletResponse> f : futures) {
+            MockHttpServletResponse response = f.get(30, TimeUnit.SECONDS);
+            assertThat(response.getStatus()).isEqualTo(201);
+            ids.add(orderId(response));
+        }
+        pool.shutdown();
+
+        assertThat(ids).containsOnly(ids.get(0));
+        assertThat(orderCount()).isEqualTo(1);
+        assertThat(stock()).isEqualTo(49);
+    }
+
+    @Test
+    void sameSourceAndExternalId_ShouldReturnExistingOrder() {
+        CreateOrderRequest request = new CreateOrderRequest("MERCADO_LIVRE", prefix + "-D", "Cliente",
+                List.of(new CreateOrderItemRequest(product.getId(), variant.getId(), 3)));
+
+        UUID first = orderService.createOrder(request).getId();
+        UUID again = orderService.createOrder(request).getId();
+
+        assertThat(again).isEqualTo(first);
+        assertThat(orderCount()).isEqualTo(1);
+        assertThat(stock()).isEqualTo(47);
+    }
+
+    @Test
+    void slowExecution_ShouldKeepItsKeyWhileRenewed() {
+        String scope = "POST /api/orders buyer";
+        String key = prefix + "-k4";
+        assertThat(store.claim(scope, key, "h").outcome()).isEqualTo(IdempotencyStore.Outcome.ACQUIRED);
+        // Requisição passou de IDEMPOTENCY_LOCK_MS sem terminar
+        jdbc.update("UPDATE idempotency_keys SET locked_until = DATEADD('SECOND', -1, CURRENT_TIMESTAMP) "
+                + "WHERE idempotency_key = ?", key);
+
+        assertThat(store.renewLocks()).isPositive();
+        assertThat(store.claim(scope, key, "h").outcome()).isEqualTo(IdempotencyStore.Outcome.IN_PROGRESS);
+
+        // Assumida por outro nó (outro created_at): esta execução não renova mais
+        jdbc.update("UPDATE idempotency_keys SET created_at = DATEADD('SECOND', 1, created_at), "
+                + "locked_until = DATEADD('SECOND', -1, CURRENT_TIMESTAMP) WHERE idempotency_key = ?", key);
+        store.renewLocks();
+        assertThat(store.claim(scope, key, "h").outcome()).isEqualTo(IdempotencyStore.Outcome.ACQUIRED);
+        store.release(scope, key);
+    }
+
+    @Test
+    void completeAfterKeyWasTakenOver_ShouldNotOverwriteTheNewOwner() {
+        String scope = "POST /api/orders buyer";
+        String key = prefix + "-k5";
+        assertThat(store.claim(scope, key, "h").outcome()).isEqualTo(IdempotencyStore.Outcome.ACQUIRED);
+        // Outro nó assumiu a chave depois do lock vencer
+        jdbc.update("UPDATE idempotency_keys SET created_at = DATEADD('SECOND', 1, created_at) "
+                + "WHERE idempotency_key = ?", key);
+
+        assertThat(store.complete(scope, key, "h", 201, "application/json", "{}")).isNull();
+        store.release(scope, key);
+
+        assertThat(jdbc.queryForObject("SELECT status FROM idempotency_keys WHERE idempotency_key = ?",
+                String.class, key)).isEqualTo("IN_PROGRESS");
+        assertThat(store.cached(scope, key)).isNull();
+    }
+
+    @Test
+    void bodyAboveLimit_ShouldBeRejectedWithoutRunning() throws Exception {
+        MockHttpServletResponse response = postOrder(prefix + "-k6", "x".repeat(1024 * 1024 + 1));
+
+        assertThat(response.getStatus()).isEqualTo(413);
+        assertThat(orderCount()).isZero();
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM idempotency_keys WHERE idempotency_key = ?",
+                Integer.class, prefix + "-k6")).isZero();
+    }
+
+    private MockHttpServletResponse postOrder(String key, String body) throws Exception {
+        return mockMvc.perform(post("/api/orders")
+                .with(user("buyer"))
+                .header(IdempotencyFilter.HEADER, key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andReturn().getResponse();
+    }
+
+    private String orderBody(String externalId, int quantity) throws Exception {
+        return objectMapper.writeValueAsString(new CreateOrderRequest("SITE", externalId, "Cliente",
+                List.of(new CreateOrderItemRequest(product.getId(), variant.getId(), quantity))));
+    }
+
+    private String orderId(MockHttpServletResponse response) throws Exception {
+        return objectMapper.readTree(response.getContentAsString()).get("id").asText();
+    }
+
+    private int orderCount() {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM orders WHERE external_id LIKE ?", Integer.class, prefix + "%");
+    }
+
+    private int stock() {
+        return jdbc.queryForObject("SELECT stock_quantity FROM product_variants WHERE id = ?", Integer.class,
+                variant.getId());
+    }
+}
@@ -0,0 +1,211 @@
+package com.atelie.ecommerce.infrastructure.outbox;
+
+import com.atelie.ecommerce.domain.catalog.event.ProductBatchSavedEvent;
+import com.atelie.ecommerce.domain.inventory.event.VariantStockChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sem @Transactional: o evento só vai para o outbox no commit, e o
+ * dispatch() (chamado direto; agendamento desligado no profile test) roda
+ * em transações próprias.
+ */
+@SpringBootTest(properties = {
+        "OUTBOX_MAX_ATTEMPTS=3",
+        "OUTBOX_RETRY_BASE_MS=0",
+        "OUTBOX_RETRY_MAX_MS=0",
+        "OUTBOX_LEASE_MS=2000"
+})
+@ActiveProfiles("test")
+class OutboxDispatcherTest {
+
+    @TestConfiguration
+    static class ProbeConfig {
+        @Bean
+        Probe outboxProbe() {
+            return new Probe();
+        }
+    }
+
+    static class Probe {
+        final Queue<OutboxDelivery<?>> deliveries = new ConcurrentLinkedQueue<>();
+        final AtomicInteger failuresLeft = new AtomicInteger();
+        volatile long delayMs;
+
+        @EventListener
+        public void onStock(OutboxDelivery<VariantStockChangedEvent> delivery) throws InterruptedException {
+            Thread.sleep(delayMs);
+            if (failuresLeft.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                throw new IllegalStateException("marketplace fora do ar");
+            }
+            deliveries.add(delivery);
+        }
+
+        @EventListener
+        public void onBatch(OutboxDelivery<ProductBatchSavedEvent> delivery) {
+            deliveries.add(delivery);
+        }
+    }
+
+    @Autowired
+    private OutboxDispatcher dispatcher;
+
+    @Autowired
+    private ApplicationEventPublisher publisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private Probe probe;
+
+    @BeforeEach
+    void setUp() {
+        jdbc.update("DELETE FROM outbox_events");
+        probe.deliveries.clear();
+        probe.failuresLeft.set(0);
+        probe.delayMs = 0;
+    }
+
+    @Test
+    void eventsShouldBeRecordedOnlyWhenTheTransactionCommits() {
+        transactionTemplate.executeWithoutResult(status -> {
+            publisher.publishEvent(stockEvent());
+            status.setRollbackOnly();
+        });
+        assertThat(pending()).isZero();
+
+        ProductBatchSavedEvent batch = new ProductBatchSavedEvent(List.of(UUID.randomUUID(), UUID.randomUUID()), true);
+        transactionTemplate.executeWithoutResult(status -> {
+            publisher.publishEvent(stockEvent());
+            publisher.publishEvent(batch);
+        });
+        assertThat(pending()).isEqualTo(2);
+
+        assertThat(dispatcher.dispatch()).isEqualTo(2);
+        assertThat(pending()).isZero();
+        assertThat(probe.deliveries.stream().map(d -> (Object) d.event())).contains(batch);
+        assertThat(probe.deliveries).allSatisfy(d -> assertThat(d.attempt()).isEqualTo(1));
+    }
+
+    @Test
+    void failedDeliveryShouldRetryAndThenBeKeptAsDead() {
+        double deadBefore = meterRegistry.get("outbox.events").tag("result", "dead").functionCounter().count();
+        publisher.publishEvent(stockEvent());
+        probe.failuresLeft.set(1);
+
+        assertThat(dispatcher.dispatch()).isZero();
+        assertThat(jdbc.queryForObject("SELECT last_error FROM outbox_events", String.class))
+                .contains("marketplace fora do ar");
+        assertThat(dispatcher.dispatch()).isEqualTo(1);
+        assertThat(probe.deliveries).singleElement().satisfies(d -> assertThat(d.attempt()).isEqualTo(2));
+
+        publisher.publishEvent(stockEvent());
+        probe.failuresLeft.set(3);
+        for (int i = 0; i < 3; i++) {
+            dispatcher.dispatch();
+        }
+        assertThat(jdbc.queryForObject("SELECT status FROM outbox_events", String.class)).isEqualTo("DEAD");
+        // DEAD não volta a ser entregue
+        assertThat(dispatcher.dispatch()).isZero();
+        assertThat(meterRegistry.get("outbox.events").tag("result", "dead").functionCounter().count())
+                .isEqualTo(deadBefore + 1);
+        assertThat(dispatcher.sweepDead()).isZero();
+        assertThat(meterRegistry.get("outbox.dead").gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get("outbox.pending").gauge().value()).isZero();
+
+        // Além da retenção (OUTBOX_DEAD_RETENTION_DAYS) o DEAD é removido
+        jdbc.update("UPDATE outbox_events SET available_at = ? WHERE status = 'DEAD'",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(31)));
+        assertThat(dispatcher.sweepDead()).isEqualTo(1);
+        assertThat(meterRegistry.get("outbox.dead").gauge().value()).isZero();
+    }
+
+    @Test
+    void concurrentDispatchersShouldDeliverEachEventExactlyOnce() throws Exception {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 250; i++) {
+                publisher.publishEvent(stockEvent());
+            }
+        });
+        assertThat(pending()).isEqualTo(250);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> runs = List.of(
+                    pool.submit(() -> { start.await(); return dispatcher.dispatch(); }),
+                    pool.submit(() -> { start.await(); return dispatcher.dispatch(); }));
+            start.countDown();
+            int delivered = 0;
+            for (Future<Integer> run : runs) {
+                delivered += run.get(30, TimeUnit.SECONDS);
+            }
+            delivered += dispatcher.dispatch();
+            assertThat(delivered).isEqualTo(250);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(probe.deliveries).hasSize(250);
+        assertThat(probe.deliveries.stream().map(OutboxDelivery::outboxId).distinct()).hasSize(250);
+        assertThat(pending()).isZero();
+    }
+
+    @Test
+    void slowBatchShouldKeepItsLeaseUntilDelivered() throws Exception {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 4; i++) {
+                publisher.publishEvent(stockEvent());
+            }
+        });
+        // 4 x 700 ms passa do lease de 2 s
+        probe.delayMs = 700;
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> slow = pool.submit(() -> dispatcher.dispatch());
+            Thread.sleep(2_300);
+            // Lease renovado: outro nó não pega o lote em andamento
+            assertThat(dispatcher.dispatch()).isZero();
+            assertThat(slow.get(30, TimeUnit.SECONDS)).isEqualTo(4);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(probe.deliveries).hasSize(4);
+        assertThat(pending()).isZero();
+    }
+
+    private VariantStockChangedEvent stockEvent() {
+        return new VariantStockChangedEvent(List.of(UUID.randomUUID()), List.of(UUID.randomUUID()));
+    }
+
+    private int pending() {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM outbox_events WHERE status = 'PENDING'", Integer.class);
+    }
+}
@@ -0,0 +1,24 @@
+-- Benchmark do modo hot SKU (HotSkuStockCounter): baixa por pedido com lock de
+-- linha x group commit (um lote de baixas por transação) no mesmo SKU.
+--
+-- Uso (base descartável, já migrada pelo Flyway até V21):
+--   psql "$DATABASE_URL" -v ON_ERROR_STOP=1 -f hot_sku_bench.sql
+--   pgbench "$DATABASE_URL" -n -c 32 -j 4 -T 30 -f hot_sku_row_lock.pgbench
+--   pgbench "$DATABASE_URL" -n -c 1 -j 1 -T 30 -f hot_sku_group_commit.pgbench
+--
+-- Lock de linha: tps do pgbench = pedidos/s. Group commit: cada transação grava
+-- 50 baixas (um flush do nó), então pedidos/s = tps x 50. Os 32 clientes do
+-- primeiro caso disputam a mesma linha; no segundo só o flusher a toca.
+
+BEGIN;
+
+INSERT INTO products (id, name, slug, description, price, active, created_at, updated_at)
+VALUES ('00000000-0000-0000-0000-000000000b5c', 'Bench hot SKU', 'bench-hot-sku', 'Bench', 10, true, now(), now())
+ON CONFLICT DO NOTHING;
+
+INSERT INTO product_variants (id, product_id, sku, price, stock_quantity, reserved_quantity, active, created_at, updated_at)
+VALUES ('00000000-0000-0000-0000-000000000b5d', '00000000-0000-0000-0000-000000000b5c', 'BENCH-HOT', 10,
+        1000000000, 0, true, now(), now())
+ON CONFLICT DO NOTHING;
+
+COMMIT;
@@ -0,0 +1,30 @@
+-- Benchmark da criação de pedido (OrderService.createOrder + OrderStockEngine):
+-- latência por tamanho de pedido, com as mesmas consultas que a aplicação emite.
+--
+-- Uso (base descartável, já migrada pelo Flyway até V21):
+--   psql "$DATABASE_URL" -v ON_ERROR_STOP=1 -f order_creation_bench.sql
+--   for size in 1 5 10; do
+--     pgbench "$DATABASE_URL" -n -c 8 -j 4 -T 30 -D size=$size -l --log-prefix=/tmp/order-$size -f order_creation.pgbench
+--     cat /tmp/order-$size.* | awk '{print $3}' | sort -n | awk -v s=$size '{a[NR]=$1} END {print s, "item(ns): p50", a[int(NR*0.5)]/1000, "ms; p99", a[int(NR*0.99)]/1000, "ms"}'
+--   done
+--
+-- Cria 10 produtos com uma variante cada (estoque alto, para não faltar). O
+-- número de consultas por pedido não cresce com o número de itens
+-- (OrderCreationQueryCountTest); aqui se mede quanto o tempo cresce.
+
+BEGIN;
+
+INSERT INTO products (id, name, slug, description, price, active, created_at, updated_at)
+SELECT ('00000000-0000-0000-0000-0000000c00' || lpad(g::text, 2, '0'))::uuid, 'Bench pedido ' || g,
+       'bench-pedido-' || g, 'Bench', 20, true, now(), now()
+FROM generate_series(1, 10) AS g
+ON CONFLICT DO NOTHING;
+
+INSERT INTO product_variants (id, product_id, sku, price, stock_quantity, reserved_quantity, active, created_at, updated_at)
+SELECT ('00000000-0000-0000-0000-0000000d00' || lpad(g::text, 2, '0'))::uuid,
+       ('00000000-0000-0000-0000-0000000c00' || lpad(g::text, 2, '0'))::uuid,
+       'BENCH-PEDIDO-' || g, 12.50, 1000000000, 0, true, now(), now()
+FROM generate_series(1, 10) AS g
+ON CONFLICT DO NOTHING;
+
+COMMIT;
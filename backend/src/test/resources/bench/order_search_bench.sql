@@ -0,0 +1,84 @@
+-- Benchmark da busca de pedidos do admin (OrderSearchQuery + índices de V19).
+--
+-- Uso (base descartável, já migrada pelo Flyway até V19):
+--   psql "$DATABASE_URL" -v ON_ERROR_STOP=1 -f order_search_bench.sql
+--   pgbench "$DATABASE_URL" -n -c 8 -j 4 -T 60 -l --log-prefix=/tmp/orders -f order_search.pgbench
+--   cat /tmp/orders.* | awk '{print $3}' | sort -n | awk '{a[NR]=$1} END {print "p50", a[int(NR*0.5)]/1000, "ms; p99", a[int(NR*0.99)]/1000, "ms"}'
+--
+-- Gera 5 milhões de pedidos sintéticos em ~2 anos (distribuição de status e
+-- canais parecida com a de produção: poucos PENDING/CANCELED, muito DELIVERED),
+-- mostra o plano de cada formato de consulta e deixa os dados para o pgbench.
+-- Meta: p99 < 50 ms por página de 20 (+1 de lookahead).
+
+\timing on
+
+BEGIN;
+
+WITH names AS (
+    SELECT ARRAY['Maria', 'Ana', 'João', 'José', 'Francisca', 'Antônio', 'Carlos', 'Paulo', 'Juliana',
+                 'Marcos', 'Fernanda', 'Luiz', 'Patrícia', 'Rafael', 'Aline', 'Bruno'] AS first,
+           ARRAY['Silva', 'Santos', 'Oliveira', 'Souza', 'Rodrigues', 'Ferreira', 'Alves', 'Pereira',
+                 'Lima', 'Gomes', 'Costa', 'Ribeiro', 'Martins', 'Carvalho', 'Almeida', 'Lopes',
+                 'Soares', 'Fernandes', 'Vieira', 'Barbosa'] AS last
+)
+INSERT INTO orders (id, status, source, external_id, customer_name, total_amount, created_at, updated_at)
+SELECT gen_random_uuid(),
+       CASE WHEN g % 100 < 3 THEN 'PENDING'
+            WHEN g % 100 < 13 THEN 'PAID'
+            WHEN g % 100 < 23 THEN 'SHIPPED'
+            WHEN g % 100 < 95 THEN 'DELIVERED'
+            ELSE 'CANCELED' END,
+       CASE WHEN g % 10 < 6 THEN 'SITE' WHEN g % 10 < 9 THEN 'MERCADO_LIVRE' ELSE 'SHOPEE' END,
+       'bench-' || g,
+       n.first[1 + (g % 16)] || ' ' || n.last[1 + ((g / 16) % 20)] || ' ' || n.last[1 + ((g / 320) % 20)],
+       10 + (g % 500),
+       now() - ((g * 12.6) || ' seconds')::interval,
+       now()
+FROM generate_series(1, 5000000) AS g, names n;
+
+COMMIT;
+
+ANALYZE orders;
+
+-- Sem filtro (idx_orders_created_id) --------------------------------------------
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM orders ORDER BY created_at DESC, id DESC LIMIT 21;
+
+-- Status raro (idx_orders_status_created) ----------------------------------------
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM orders WHERE status = 'PENDING' ORDER BY created_at DESC, id DESC LIMIT 21;
+
+-- Vários status: uma consulta por status, intercaladas na aplicação ---------------
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM orders WHERE status = 'CANCELED' AND source IN ('SHOPEE')
+ORDER BY created_at DESC, id DESC LIMIT 21;
+
+-- Comparação: "status IN (...)" numa consulta só (o que a busca evita)
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM orders WHERE status IN ('PENDING', 'CANCELED') ORDER BY created_at DESC, id DESC LIMIT 21;
+
+-- Canal + período, página seguinte via cursor (idx_orders_source_created) ---------
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM orders
+WHERE source = 'SHOPEE'
+  AND created_at >= now() - interval '90 days' AND created_at < now() - interval '30 days'
+  AND (created_at, id) < (now() - interval '45 days', 'ffffffff-ffff-ffff-ffff-ffffffffffff')
+ORDER BY created_at DESC, id DESC LIMIT 21;
+
+-- Trecho do cliente, comum e raro (idx_orders_customer_trgm) ---------------------
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM orders WHERE lower(customer_name) LIKE '%silva%' ORDER BY created_at DESC, id DESC LIMIT 21;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM orders WHERE lower(customer_name) LIKE '%bruno barbosa lopes%'
+ORDER BY created_at DESC, id DESC LIMIT 21;
+
+-- Tudo junto
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM orders
+WHERE status = 'PAID' AND source IN ('MERCADO_LIVRE') AND lower(customer_name) LIKE '%fernanda%'
+  AND created_at >= now() - interval '365 days'
+ORDER BY created_at DESC, id DESC LIMIT 21;
+
+-- Limpeza (depois do pgbench):
+--   DELETE FROM orders WHERE external_id LIKE 'bench-%';
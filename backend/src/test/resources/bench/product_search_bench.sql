@@ -0,0 +1,85 @@
+-- Benchmark da busca de produtos: ILIKE (modo "like") x full-text ranqueado (V8).
+--
+-- Uso (base descartável, já migrada pelo Flyway até V8):
+--   psql "$DATABASE_URL" -v ON_ERROR_STOP=1 -f product_search_bench.sql
+--
+-- Gera 500 mil produtos sintéticos com nomes/descrições em português e compara
+-- o plano e o tempo das duas consultas para termos comuns, raros e com erro de digitação.
+
+\timing on
+
+BEGIN;
+
+INSERT INTO categories (id, name, active)
+VALUES ('00000000-0000-0000-0000-000000000b3c', 'Bench', true)
+ON CONFLICT DO NOTHING;
+
+WITH words AS (
+    SELECT ARRAY['guia', 'vela', 'incenso', 'imagem', 'colar', 'pulseira', 'banho', 'defumador',
+                 'sabonete', 'erva', 'oração', 'patuá', 'fita', 'cristal', 'turíbulo', 'estátua'] AS nouns,
+           ARRAY['azul', 'branca', 'vermelha', 'dourada', 'artesanal', 'proteção', 'abertura',
+                 'caminhos', 'prosperidade', 'Iemanjá', 'Oxóssi', 'Ogum', 'Xangô', 'Oxum'] AS attrs
+)
+INSERT INTO products (id, name, slug, description, price, stock_quantity, active, category_id, created_at, updated_at)
+SELECT gen_random_uuid(),
+       initcap(w.nouns[1 + (g % 16)]) || ' ' || w.attrs[1 + ((g / 16) % 14)] || ' ' || g,
+       'bench-' || g,
+       'Peça ' || w.attrs[1 + ((g / 7) % 14)] || ' feita à mão, ideal para ' ||
+           w.nouns[1 + ((g / 3) % 16)] || ' de ' || w.attrs[1 + ((g / 11) % 14)] || '.',
+       10 + (g % 200),
+       g % 30,
+       true,
+       '00000000-0000-0000-0000-000000000b3c',
+       now() - (g || ' seconds')::interval,
+       now()
+FROM generate_series(1, 500000) AS g, words w;
+
+COMMIT;
+
+ANALYZE products;
+
+-- Termo comum ----------------------------------------------------------------
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM products WHERE lower(name) LIKE '%vela%' LIMIT 20;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT p.* FROM products p
+WHERE p.active = true
+  AND (p.search_vector @@ websearch_to_tsquery('portuguese_unaccent', 'vela')
+       OR immutable_unaccent(lower(p.name)) % immutable_unaccent(lower('vela')))
+ORDER BY ts_rank_cd(p.search_vector, websearch_to_tsquery('portuguese_unaccent', 'vela')) DESC,
+         similarity(immutable_unaccent(lower(p.name)), immutable_unaccent(lower('vela'))) DESC,
+         p.id
+LIMIT 20;
+
+-- Termo raro, sem acento, presente só na descrição ------------------------------
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM products WHERE lower(name) LIKE '%iemanja prosperidade%' LIMIT 20;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT p.* FROM products p
+WHERE p.active = true
+  AND (p.search_vector @@ websearch_to_tsquery('portuguese_unaccent', 'iemanja prosperidade')
+       OR immutable_unaccent(lower(p.name)) % immutable_unaccent(lower('iemanja prosperidade')))
+ORDER BY ts_rank_cd(p.search_vector, websearch_to_tsquery('portuguese_unaccent', 'iemanja prosperidade')) DESC,
+         similarity(immutable_unaccent(lower(p.name)), immutable_unaccent(lower('iemanja prosperidade'))) DESC,
+         p.id
+LIMIT 20;
+
+-- Erro de digitação (só o fallback por trigramas encontra) ---------------------
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM products WHERE lower(name) LIKE '%defumadr%' LIMIT 20;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT p.* FROM products p
+WHERE p.active = true
+  AND (p.search_vector @@ websearch_to_tsquery('portuguese_unaccent', 'defumadr')
+       OR immutable_unaccent(lower(p.name)) % immutable_unaccent(lower('defumadr')))
+ORDER BY ts_rank_cd(p.search_vector, websearch_to_tsquery('portuguese_unaccent', 'defumadr')) DESC,
+         similarity(immutable_unaccent(lower(p.name)), immutable_unaccent(lower('defumadr'))) DESC,
+         p.id
+LIMIT 20;
+
+-- Limpeza
+DELETE FROM products WHERE category_id = '00000000-0000-0000-0000-000000000b3c';
+DELETE FROM categories WHERE id = '00000000-0000-0000-0000-000000000b3c';